@@ -17,7 +17,8 @@ from .features import (
     GLDZM,
     GLAM,
     NGLDM,
-    NGTDM
+    NGTDM,
+    to_imageplus
 )
 
 __all__ = ["start_jvm", "calculate_features"]
\ No newline at end of file
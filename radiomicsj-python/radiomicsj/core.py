@@ -64,41 +64,9 @@ class RadiomicsJExtractor:
        arr : (Z, Y, X) 3d-array, if ndarray sorted by ordered (X, Y, Z), do np.transpose(arr, (2, 1, 0)) before input. 
        spacing : (x,y,z) voxel size
        """
-       # ImageJは内部的にfloat配列を扱うため、float32に変換
-       arr_f = arr.astype(np.float32)
-       
-       if arr.ndim == 2:
-           h, w = arr_f.shape
-             # メモリコピーを最小限にJArrayへ変換
-           jarr = jpype.JArray(jpype.JFloat)(arr_f.ravel())
-           proc = self.ij.process.FloatProcessor(w, h, jarr)
-           img_plus = self.ij.ImagePlus(title, proc)
-            
-           cal = img_plus.getCalibration()
-           cal.pixelWidth = spacing[0]
-           cal.pixelHeight = spacing[1]
-            
-       elif arr.ndim == 3:
-           d, h, w = arr_f.shape
-           stack = self.ij.ImageStack(w, h)
-           
-           for i in range(d):
-                 # 1スライスごとにJArrayに変換してスタックに追加
-               slice_arr = arr_f[i, :, :]
-               jarr = jpype.JArray(jpype.JFloat)(slice_arr.ravel())
-               proc = self.ij.process.FloatProcessor(w, h, jarr)
-               stack.addSlice(str(i), proc)
-                
-           img_plus = self.ij.ImagePlus(title, stack)
-            
-           cal = img_plus.getCalibration()
-           cal.pixelWidth = spacing[0]
-           cal.pixelHeight = spacing[1]
-           cal.pixelDepth = spacing[2]
-       else:
-           raise ValueError("NumPy array must be 2D or 3D.")
-            
-       return img_plus
+       # 配列のメモリをダイレクトバッファで渡し、Java側で一括して読み込む
+       from .features import _numpy_to_imageplus
+       return _numpy_to_imageplus(arr, spacing, title)
 
     def execute(self, image, mask, spacing=(1.0, 1.0, 1.0)) -> pd.DataFrame:
        """
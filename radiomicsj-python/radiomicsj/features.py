@@ -10,8 +10,9 @@ class BaseRadiomicsFeature:
             _ensure_jvm()
         
         # NumPyからImagePlusへの変換（共通処理）
-        self.image_plus = _numpy_to_imageplus(image_np, spacing)
-        self.mask_plus = _numpy_to_imageplus(mask_np, spacing)
+        # to_imageplus() で変換済みの ImagePlus はそのまま使い回す
+        self.image_plus = to_imageplus(image_np, spacing)
+        self.mask_plus = to_imageplus(mask_np, spacing)
         
         # サブクラスで定義されるJavaインスタンスとEnumクラス
         self._java_instance = None
@@ -85,6 +86,8 @@ class Morphological(BaseRadiomicsFeature):
     IntegratedIntensity = "IntegratedIntensity"
     MoransIIndex = "MoransIIndex"
     GearysCMeasure = "GearysCMeasure"
+    MinimumFeretDiameter = "MinimumFeretDiameter"
+    MaximumFeretDiameter = "MaximumFeretDiameter"
 
     def __init__(self, image_np: np.ndarray, mask_np: np.ndarray, spacing: tuple = (1.0, 1.0, 1.0), label: int = 1):
         super().__init__(image_np, mask_np, spacing)
@@ -650,37 +653,58 @@ def _ensure_jvm():
         jpype.attachThreadToJVM()
 
 
-def _numpy_to_imageplus(arr: np.ndarray, spacing: tuple = (1.0, 1.0, 1.0)):
-    """NumPy配列(Z, Y, X)をJavaのImagePlusに変換するヘルパー関数"""
+# BufferImages がそのまま読める dtype
+_BUFFER_DTYPES = ("float32", "float64", "int8", "uint8", "int16", "uint16", "int32", "uint32", "int64")
+
+
+def _numpy_to_imageplus(arr: np.ndarray, spacing: tuple = (1.0, 1.0, 1.0), title: str = "numpy_img"):
+    """
+    NumPy配列(Z, Y, X) または (Y, X) をJavaのImagePlusに変換するヘルパー関数
+
+    配列のメモリを jpype.nio でダイレクトバッファとして Java に渡し、
+    Java 側 (BufferImages) がスライスごとに一括で読み込みます。
+    Python 側で要素ごとのコピー (astype / flatten / JArray) は行いません。
+    C 連続・書き込み可能・ネイティブエンディアンでない配列だけ、1 回だけコピーします。
+    """
     _ensure_jvm()
-    
+    import jpype.nio
+
+    arr = np.asarray(arr)
+    if arr.ndim == 2:
+        arr = arr[np.newaxis, :, :]
+    if arr.ndim != 3:
+        raise ValueError("NumPy array must be 2D or 3D.")
+    if arr.dtype == np.bool_:
+        arr = arr.view(np.uint8)
+    if arr.dtype.name not in _BUFFER_DTYPES:
+        arr = arr.astype(np.float32)
+    arr = np.require(arr, dtype=arr.dtype.newbyteorder("="), requirements=["C", "W"])
+
     z, y, x = arr.shape
-    ImageStack = jpype.JClass("ij.ImageStack")
-    FloatProcessor = jpype.JClass("ij.process.FloatProcessor")
-    ImagePlus = jpype.JClass("ij.ImagePlus")
-    Calibration = jpype.JClass("ij.measure.Calibration")
-
-    stack = ImageStack(x, y)
-    for i in range(z):
-        # 確実にNumPy配列のfloat32として処理
-        slice_arr = np.array(arr[i, :, :]).astype(np.float32).flatten()
-        j_float_array = jpype.JArray(jpype.JFloat)(slice_arr)
-        bp = FloatProcessor(x, y, j_float_array)
-        stack.addSlice(bp)
-
-    imp = ImagePlus("numpy_img", stack)
-    cal = Calibration()
-    cal.pixelWidth = float(spacing[0])
-    cal.pixelHeight = float(spacing[1])
-    cal.pixelDepth = float(spacing[2])
-    imp.setCalibration(cal)
-    return imp
- 
- 
+    spacing = tuple(spacing) + (1.0,) * (3 - len(spacing))
+    buffer = jpype.nio.convertToDirectBuffer(arr)
+    BufferImages = jpype.JClass("io.github.tatsunidas.radiomics.main.BufferImages")
+    return BufferImages.floatImage(buffer, arr.dtype.name, x, y, z,
+                                   float(spacing[0]), float(spacing[1]), float(spacing[2]), title)
+
+
+def to_imageplus(arr, spacing: tuple = (1.0, 1.0, 1.0)):
+    """
+    NumPy配列を一度だけ ImagePlus に変換します。
+
+    返り値は各特徴量クラスに NumPy 配列の代わりに渡せるので、同じ画像・マスクから
+    複数のファミリーを計算するときに、変換を 1 回で済ませられます。
+    例: img = to_imageplus(image_np, spacing); GLCM(img, msk, spacing, ...); GLRLM(img, msk, spacing, ...)
+    """
+    if isinstance(arr, np.ndarray):
+        return _numpy_to_imageplus(arr, spacing)
+    return arr
+
+
 def generate_feature_map(image_np: np.ndarray, mask_np: np.ndarray, mask_label: int, spacing: tuple, 
                          feature_class: type, feature_id: str, settings: dict,
                          filter_size: int = 7, d2_mode: bool = False, stride: int = 1, slice_idx: int = -1,
-                         margin: int = 3) -> np.ndarray:
+                         margin: int = 3, parallelism: int = 1, progress=None, cancel=None) -> np.ndarray:
     """
     指定した特徴量の可視化マップ(Feature Map)を生成し、補間して返す
 
@@ -694,8 +718,26 @@ def generate_feature_map(image_np: np.ndarray, mask_np: np.ndarray, mask_label:
              返ってくるマップは従来どおり元画像と同じ形状で、値も ROI 上
              だけに入ります。0 を指定すると 2.3.0 より前と同じ挙動です。
              既定は 3（推奨フィルタサイズ 7 の半径に対応）。
+    parallelism : 0 は fork/join 共通プール、1 は呼び出しスレッドのみ（既定）、
+             n は n スレッド。出力をスライスごとの行の帯（タイル）に分けて
+             並列に計算します。結果は 1 スレッドの場合とビット単位で同じです。
+    progress : progress(done, total) を受け取る関数。タイルが終わるたびに
+             （Java のワーカースレッドから）呼ばれます。
+    cancel : threading.Event など is_set() を持つもの。セットされると計算を
+             打ち切り、None を返します。
     """
     _ensure_jvm()
+
+    @jpype.JImplements("io.github.tatsunidas.radiomics.main.FeatureMapProgress")
+    class _MapProgress:
+        @jpype.JOverride
+        def tileDone(self, done, total):
+            if progress is not None:
+                progress(int(done), int(total))
+
+        @jpype.JOverride
+        def isCancelled(self):
+            return cancel is not None and cancel.is_set()
     
     # 💡 引数として渡された Pythonのクラス名(例: GLCM) を自動で文字列化
     feature_class_name = feature_class.__name__
@@ -750,10 +792,13 @@ def generate_feature_map(image_np: np.ndarray, mask_np: np.ndarray, mask_label:
 
     # 3. Javaメソッド呼び出し！ (ここでストライド計算が走る)
     print(f"Calculating Map... {feature_class_name} / {feature_id} (Stride: {stride})")
+    java_progress = _MapProgress() if (progress is not None or cancel is not None) else None
     fmaps_java = FeatureVisualizationMap.generate(
         image_plus, mask_plus, slice_idx, filter_size, d2_mode, stride, JInteger(int(margin)),
-        target_class, java_settings, enum_array
+        False, JInteger(int(parallelism)), java_progress, target_class, java_settings, enum_array
     )
+    if cancel is not None and cancel.is_set():
+        return None
     
     # 4. 返ってきた縮小版のマップを取り出す
     result_key = f"{feature_class_name}Features_{feature_enum.name()}_{'2D' if d2_mode else '3D'}"
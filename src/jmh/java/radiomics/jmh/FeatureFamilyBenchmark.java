@@ -0,0 +1,175 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ij.ImagePlus;
+import io.github.tatsunidas.radiomics.features.*;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+
+/**
+ * Buildup and calculate of every feature family, as RadiomicsJ.compute() does for one family,
+ * without the ExtractionCache so that each family pays for its own discretisation.
+ *
+ * mvn -P jmh test-compile exec:exec@jmh -Djmh.args="FeatureFamilyBenchmark -p family=GLCM"
+ *
+ * @author tatsunidas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureFamilyBenchmark {
+
+	@Param({"Morphological", "LocalIntensity", "IntensityBasedStatistics", "IntensityHistogram",
+			"IntensityVolumeHistogram", "Shape2D", "GLCM", "GLRLM", "GLSZM", "GLDZM", "GLKZM", "GLAM",
+			"NGTDM", "NGLDM", "Fractal"})
+	public String family;
+
+	@Param({"16", "32", "64"})
+	public int roiSize;
+
+	@Param({"16", "64"})
+	public int nBins;
+
+	@Param({"2.0x2.0x2.0", "0.8x0.8x3.0"})
+	public String spacing;
+
+	ImagePlus img;
+	ImagePlus mask;
+	ExtractionSettings defaults;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		// Shape2D is defined on a single slice only.
+		ImagePlus[] phantom = family.equals("Shape2D") ? Phantoms.sphere(roiSize, 1, spacing) : Phantoms.sphere(roiSize, spacing);
+		img = phantom[0];
+		mask = phantom[1];
+		defaults = ExtractionSettings.defaults();
+	}
+
+	private Map<String, Object> settings() {
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.EXTRACTION_SETTINGS, defaults);
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, nBins);
+		settings.put(RadiomicsFeature.BinWidth, defaults.getBinWidth());
+		return settings;
+	}
+
+	@Benchmark
+	public void buildupAndCalculate(Blackhole bh) throws Exception {
+		Map<String, Object> settings = settings();
+		switch(family) {
+		case "Morphological":
+			settings.put(RadiomicsFeature.INTENSITY_MASK, mask);
+			MorphologicalFeatures morpho = new MorphologicalFeatures(img, mask, settings);
+			for(MorphologicalFeatureType t : MorphologicalFeatureType.values()) bh.consume(morpho.calculate(t.id()));
+			break;
+		case "LocalIntensity":
+			LocalIntensityFeatures local = new LocalIntensityFeatures(img, mask, settings);
+			for(LocalIntensityFeatureType t : LocalIntensityFeatureType.values()) bh.consume(local.calculate(t.id()));
+			break;
+		case "IntensityBasedStatistics":
+			IntensityBasedStatisticalFeatures stats = new IntensityBasedStatisticalFeatures(img, mask, settings);
+			for(IntensityBasedStatisticalFeatureType t : IntensityBasedStatisticalFeatureType.values()) bh.consume(stats.calculate(t.id()));
+			break;
+		case "IntensityHistogram":
+			IntensityHistogramFeatures hist = new IntensityHistogramFeatures(img, mask, settings);
+			for(IntensityHistogramFeatureType t : IntensityHistogramFeatureType.values()) bh.consume(hist.calculate(t.id()));
+			break;
+		case "IntensityVolumeHistogram":
+			settings.put(RadiomicsFeature.IVH_MODE, defaults.getIVHMode());
+			IntensityVolumeHistogramFeatures ivh = new IntensityVolumeHistogramFeatures(img, mask, settings);
+			for(IntensityVolumeHistogramFeatureType t : IntensityVolumeHistogramFeatureType.values()) bh.consume(ivh.calculate(t.id()));
+			break;
+		case "Shape2D":
+			Shape2DFeatures shape = new Shape2DFeatures(img, mask, 1, settings);
+			for(Shape2DFeatureType t : Shape2DFeatureType.values()) bh.consume(shape.calculate(t.id()));
+			break;
+		case "GLCM":
+			settings.put(RadiomicsFeature.DELTA, defaults.getDeltaGLCM());
+			GLCMFeatures glcm = new GLCMFeatures(img, mask, settings);
+			for(GLCMFeatureType t : GLCMFeatureType.values()) bh.consume(glcm.calculate(t.id()));
+			break;
+		case "GLRLM":
+			GLRLMFeatures glrlm = new GLRLMFeatures(img, mask, settings);
+			for(GLRLMFeatureType t : GLRLMFeatureType.values()) bh.consume(glrlm.calculate(t.id()));
+			break;
+		case "GLSZM":
+			GLSZMFeatures glszm = new GLSZMFeatures(img, mask, settings);
+			for(GLSZMFeatureType t : GLSZMFeatureType.values()) bh.consume(glszm.calculate(t.id()));
+			break;
+		case "GLDZM":
+			settings.put(RadiomicsFeature.MORPHO_MASK, mask);
+			GLDZMFeatures gldzm = new GLDZMFeatures(img, mask, settings);
+			for(GLDZMFeatureType t : GLDZMFeatureType.values()) bh.consume(gldzm.calculate(t.id()));
+			break;
+		case "GLKZM":
+			// the image itself as kinetics map.
+			GLKZMFeatures glkzm = new GLKZMFeatures(img, mask, 1, true, nBins, null);
+			glkzm.setKineticsMap(img, true, nBins, null);
+			glkzm.fillMatrix();
+			for(GLDZMFeatureType t : GLDZMFeatureType.values()) bh.consume(glkzm.calculate(t.id()));
+			break;
+		case "GLAM":
+			settings.put(RadiomicsFeature.GLAM_MAX_RADIUS, defaults.getGlamMaxRadius());
+			GLAMFeatures glam = new GLAMFeatures(img, mask, settings);
+			for(GLAMFeatureType t : GLAMFeatureType.values()) bh.consume(glam.calculate(t.id()));
+			break;
+		case "NGTDM":
+			settings.put(RadiomicsFeature.DELTA, defaults.getDeltaNGTDM());
+			NGTDMFeatures ngtdm = new NGTDMFeatures(img, mask, settings);
+			for(NGTDMFeatureType t : NGTDMFeatureType.values()) bh.consume(ngtdm.calculate(t.id()));
+			break;
+		case "NGLDM":
+			settings.put(RadiomicsFeature.ALPHA, defaults.getAlpha());
+			settings.put(RadiomicsFeature.DELTA, defaults.getDeltaNGLDM());
+			NGLDMFeatures ngldm = new NGLDMFeatures(img, mask, settings);
+			for(NGLDMFeatureType t : NGLDMFeatureType.values()) bh.consume(ngldm.calculate(t.id()));
+			break;
+		case "Fractal":
+			if(defaults.getBoxSizes() != null) {
+				settings.put(RadiomicsFeature.BOX_SIZES, defaults.getBoxSizes());
+			}
+			FractalFeatures fractal = new FractalFeatures(img, mask, settings);
+			for(FractalFeatureType t : FractalFeatureType.values()) bh.consume(fractal.calculate(t.id()));
+			break;
+		default:
+			throw new IllegalArgumentException("FeatureFamilyBenchmark: unknown family " + family);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImagePlus;
+import io.github.tatsunidas.radiomics.features.GLCMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLCMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.FeatureCalculator;
+import io.github.tatsunidas.radiomics.main.FeatureCalculatorFactory;
+import io.github.tatsunidas.radiomics.main.FeatureSpecifier;
+import io.github.tatsunidas.radiomics.main.FeatureVisualizationMap;
+
+/**
+ * GLCM joint entropy map of the middle slice, one window per roi voxel,
+ * per window or by sliding windows, on the calling thread or tile by tile on the common pool,
+ * and the maps of all the GLCM features in one pass.
+ *
+ * @author tatsunidas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FeatureMapBenchmark {
+
+	@Param({"16", "32"})
+	public int roiSize;
+
+	@Param({"16", "64"})
+	public int nBins;
+
+	@Param({"2.0x2.0x2.0", "0.8x0.8x3.0"})
+	public String spacing;
+
+	@Param({"true", "false"})
+	public boolean d2Mode;
+
+	@Param({"5"})
+	public int filterSize;
+
+	ImagePlus img;
+	ImagePlus mask;
+	FeatureSpecifier<GLCMFeatures> spec;
+	FeatureCalculator calculator;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ImagePlus[] phantom = Phantoms.sphere(roiSize, spacing);
+		img = phantom[0];
+		mask = phantom[1];
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, nBins);
+		spec = new FeatureSpecifier<>(GLCMFeatures.class, GLCMFeatureType.JointEntropy, settings);
+		calculator = new FeatureCalculatorFactory().create(spec);
+	}
+
+	@Benchmark
+	public ImagePlus generateFeatureMap() {
+		return FeatureVisualizationMap.generateFeatureMap(img, mask, img.getNSlices() / 2 + 1, calculator, filterSize, d2Mode, 1);
+	}
+
+	/**
+	 * the same map by sliding windows, see SlidingWindowTexture.
+	 */
+	@Benchmark
+	public ImagePlus generateFeatureMapSliding() {
+		return FeatureVisualizationMap.generateFeatureMap(img, mask, img.getNSlices() / 2 + 1, spec, filterSize, d2Mode, 1,
+				FeatureVisualizationMap.DEFAULT_MARGIN);
+	}
+
+	/**
+	 * the same map by sliding windows, tiles on the fork/join common pool.
+	 */
+	@Benchmark
+	public ImagePlus generateFeatureMapTiled() {
+		return FeatureVisualizationMap.generateFeatureMap(img, mask, img.getNSlices() / 2 + 1, spec, filterSize, d2Mode, 1,
+				FeatureVisualizationMap.DEFAULT_MARGIN, true, 0, null);
+	}
+
+	/**
+	 * the maps of all the GLCM features, read from the same windows.
+	 */
+	@Benchmark
+	public Map<String, ImagePlus> generateFeatureMapsAllGLCM() {
+		return FeatureVisualizationMap.generateFeatureMaps(img, mask, img.getNSlices() / 2 + 1, filterSize, d2Mode, 1,
+				FeatureVisualizationMap.DEFAULT_MARGIN, false, 1, null, GLCMFeatures.class, spec.settings,
+				GLCMFeatureType.values());
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.vecmath.Point3f;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImagePlus;
+import io.github.tatsunidas.miscellaneous.MCTriangulator;
+
+/**
+ * Marching cubes mesh of the roi, as MorphologicalFeatures builds it (threshold 0.5, no resampling).
+ *
+ * @author tatsunidas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeshBenchmark {
+
+	@Param({"16", "32", "64"})
+	public int roiSize;
+
+	@Param({"2.0x2.0x2.0", "0.8x0.8x3.0"})
+	public String spacing;
+
+	ImagePlus mask;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		mask = Phantoms.sphere(roiSize, spacing)[1];
+	}
+
+	@Benchmark
+	public List<Point3f> getTriangles() {
+		return new MCTriangulator().getTriangles(mask, 0.5, 1);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics.jmh;
+
+import java.util.Random;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.process.ByteProcessor;
+import ij.process.ShortProcessor;
+
+/**
+ * Synthetic phantoms of the benchmarks, built like TestDataLoader.digital_phantom1_scratch():
+ * a short image and a byte mask (label 1) with the same calibration.
+ *
+ * The image is a grid of blocks of the grey levels of the digital phantom (1, 3, 4, 6, 9),
+ * scaled and with a little noise, so that every texture family has zones, runs and pairs to count.
+ * The roi is a sphere (a disc if one slice) centred in the image, surrounded by a margin.
+ * A fixed seed keeps the phantoms identical between runs.
+ *
+ * @author tatsunidas
+ */
+public final class Phantoms {
+
+	public static final int MARGIN = 4;
+	private static final int[] LEVELS = {1, 4, 6, 9, 3};
+
+	private Phantoms() {
+	}
+
+	/**
+	 * @param roiSize diameter of the roi in voxels.
+	 * @param slices number of slices, roiSize + 2 * MARGIN for a cube, 1 for a single slice.
+	 * @param spacing voxel size in mm, "XxYxZ", e.g, "2.0x2.0x2.0".
+	 * @return {image, mask}
+	 */
+	public static ImagePlus[] sphere(int roiSize, int slices, String spacing) {
+		int n = roiSize + 2 * MARGIN;
+		double[] px = parseSpacing(spacing);
+		Random r = new Random(20260101L);
+		ImageStack img = new ImageStack(n, n);
+		ImageStack mask = new ImageStack(n, n);
+		double c = (n - 1) / 2.0;
+		double cz = (slices - 1) / 2.0;
+		double radius = roiSize / 2.0;
+		int block = Math.max(2, roiSize / 8);
+		for(int z = 0; z < slices; z++) {
+			short[] pix = new short[n * n];
+			byte[] m = new byte[n * n];
+			for(int y = 0; y < n; y++) {
+				for(int x = 0; x < n; x++) {
+					int level = LEVELS[((x / block) + 2 * (y / block) + 3 * (z / block)) % LEVELS.length];
+					pix[y * n + x] = (short) (level * 100 + r.nextInt(40));
+					double dz = slices == 1 ? 0 : z - cz;
+					if(Math.sqrt((x - c) * (x - c) + (y - c) * (y - c) + dz * dz) <= radius) {
+						m[y * n + x] = 1;
+					}
+				}
+			}
+			img.addSlice(new ShortProcessor(n, n, pix, null));
+			mask.addSlice(new ByteProcessor(n, n, m));
+		}
+		ImagePlus im = new ImagePlus("phantom", img);
+		ImagePlus mk = new ImagePlus("mask", mask);
+		for(ImagePlus imp : new ImagePlus[] {im, mk}) {
+			Calibration cal = imp.getCalibration();
+			cal.pixelWidth = px[0];
+			cal.pixelHeight = px[1];
+			cal.pixelDepth = px[2];
+			cal.setUnit("mm");
+		}
+		return new ImagePlus[] {im, mk};
+	}
+
+	/**
+	 * @param roiSize diameter of the roi in voxels.
+	 * @param spacing voxel size in mm, "XxYxZ".
+	 * @return {image, mask} of a cube.
+	 */
+	public static ImagePlus[] sphere(int roiSize, String spacing) {
+		return sphere(roiSize, roiSize + 2 * MARGIN, spacing);
+	}
+
+	static double[] parseSpacing(String spacing) {
+		String[] xyz = spacing.split("x");
+		if(xyz.length != 3) {
+			throw new IllegalArgumentException("Phantoms: spacing must be like 2.0x2.0x2.0, " + spacing);
+		}
+		return new double[] {Double.parseDouble(xyz[0]), Double.parseDouble(xyz[1]), Double.parseDouble(xyz[2])};
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImagePlus;
+import io.github.tatsunidas.radiomics.main.Utils;
+
+/**
+ * Resampling and discretisation, the preprocessing every extraction goes through.
+ *
+ * @author tatsunidas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreprocessingBenchmark {
+
+	@Param({"16", "32", "64"})
+	public int roiSize;
+
+	@Param({"16", "64"})
+	public int nBins;
+
+	@Param({"2.0x2.0x2.0", "0.8x0.8x3.0"})
+	public String spacing;
+
+	ImagePlus img;
+	ImagePlus mask;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ImagePlus[] phantom = Phantoms.sphere(roiSize, spacing);
+		img = phantom[0];
+		mask = phantom[1];
+	}
+
+	/**
+	 * resampled to 1mm iso, like the default of the IBSI configurations.
+	 */
+	@Benchmark
+	public ImagePlus trilinearInterpolationImage() {
+		return Utils.trilinearInterpolation(img, false, 1.0, 1.0, 1.0);
+	}
+
+	@Benchmark
+	public ImagePlus trilinearInterpolationMask() {
+		return Utils.trilinearInterpolation(mask, true, 1.0, 1.0, 1.0);
+	}
+
+	@Benchmark
+	public ImagePlus discrete() throws Exception {
+		return Utils.discrete(img, mask, 1, nBins);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ij.ImagePlus;
+import io.github.tatsunidas.radiomics.main.Resampler;
+import io.github.tatsunidas.radiomics.main.ResamplingGrid;
+import io.github.tatsunidas.radiomics.main.Utils;
+
+/**
+ * 3D resampling to 1mm iso: the per-voxel interpolation the kernels replaced,
+ * against Resampler on one thread and on all cores.
+ *
+ * @author tatsunidas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResamplingBenchmark {
+
+	@Param({"64", "192"})
+	public int roiSize;
+
+	@Param({"0.8x0.8x3.0", "2.0x2.0x2.0"})
+	public String spacing;
+
+	float[] voxels;
+	int w;
+	int h;
+	int s;
+	ResamplingGrid grid;
+	float[][] splineWeights;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		ImagePlus img = Phantoms.sphere(roiSize, spacing)[0];
+		w = img.getWidth();
+		h = img.getHeight();
+		s = img.getStackSize();
+		voxels = new float[w * h * s];
+		for(int z = 0; z < s; z++) {
+			short[] pixels = (short[]) img.getStack().getProcessor(z + 1).getPixels();
+			for(int i = 0; i < pixels.length; i++) {
+				voxels[z * w * h + i] = pixels[i] & 0xffff;
+			}
+		}
+		grid = ResamplingGrid.of(img, 1.0, 1.0, 1.0);
+		splineWeights = Utils.initializeCubicSplineWeights(256);
+	}
+
+	/**
+	 * the former loop: x outermost, one TrilinearInterpolation2() per voxel, one thread.
+	 */
+	@Benchmark
+	public float[] trilinearPerVoxel() {
+		double[] xs = grid.coordinates(0);
+		double[] ys = grid.coordinates(1);
+		double[] zs = grid.coordinates(2);
+		int newW = xs.length;
+		int slice = newW * ys.length;
+		float[] deformed = new float[slice * zs.length];
+		for(int i = 0; i < newW; i++) {
+			for(int j = 0; j < ys.length; j++) {
+				for(int k = 0; k < zs.length; k++) {
+					deformed[k * slice + j * newW + i] = (float) Utils.TrilinearInterpolation2(voxels, w, h, s, xs[i], ys[j], zs[k]);
+				}
+			}
+		}
+		return deformed;
+	}
+
+	@Benchmark
+	public float[][] trilinear() {
+		return Resampler.trilinear(voxels, w, h, s, grid, false);
+	}
+
+	@Benchmark
+	public float[][] trilinearParallel() {
+		return Resampler.trilinear(voxels, w, h, s, grid, true);
+	}
+
+	@Benchmark
+	public float[][] tricubic() {
+		return Resampler.tricubic(voxels, w, h, s, splineWeights, grid, false);
+	}
+
+	@Benchmark
+	public float[][] tricubicParallel() {
+		return Resampler.tricubic(voxels, w, h, s, splineWeights, grid, true);
+	}
+
+	@Benchmark
+	public float[][] nearestNeighbourParallel() {
+		return Resampler.nearestNeighbour(voxels, w, h, s, grid, true);
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.ij.plugin.nifti;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.io.FileInfo;
+import ij.measure.Calibration;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+
+/**
+ * Reads a part of a single file NIfTI-1 volume (.nii or .nii.gz) without loading the rest.
+ *
+ * Uncompressed files are memory-mapped one slice at a time, compressed files are
+ * decompressed as a stream and only one slice is held at a time. Slices before the
+ * part are skipped, slices after it are not read.
+ *
+ * The voxels and the calibration are those of Nifti_Reader.load(), cut to the box.
+ * The calibration origin is moved by the box, so that the calibrated coordinates
+ * stay those of the whole volume, and the size of the whole volume is kept in the
+ * property FULL_SIZE.
+ *
+ * @author tatsunidas
+ *
+ */
+public class NiftiStreamReader {
+
+	/**
+	 * image property, {width, height, slices} of the whole volume.
+	 */
+	public static final String FULL_SIZE = "nifti_full_size";
+
+	private final File file;
+	private final FileInfo fi;
+	private final boolean compressed;
+	private final int width;
+	private final int height;
+	private final int slices;
+	private final int bytesPerVoxel;
+	private final ByteOrder order;
+
+	/**
+	 * Reads the header only.
+	 * @param file .nii or .nii.gz
+	 * @throws IOException if the header can not be read.
+	 * @throws IllegalArgumentException if the file is not a single file NIfTI, or its data type is not supported.
+	 */
+	public NiftiStreamReader(File file) throws IOException {
+		String name = file.getName().toLowerCase(Locale.ROOT);
+		if(!name.endsWith(".nii") && !name.endsWith(".nii.gz")) {
+			throw new IllegalArgumentException("NiftiStreamReader: not a .nii or .nii.gz file, " + file.getName());
+		}
+		this.file = file;
+		this.compressed = name.endsWith(".gz");
+		this.fi = new Nifti_Reader().readHeader(file.getAbsolutePath());
+		if(fi == null) {
+			throw new IllegalArgumentException("NiftiStreamReader: data type is not supported, " + file.getName());
+		}
+		switch(fi.fileType) {
+		case FileInfo.GRAY8:
+			bytesPerVoxel = 1;
+			break;
+		case FileInfo.GRAY16_SIGNED:
+		case FileInfo.GRAY16_UNSIGNED:
+			bytesPerVoxel = 2;
+			break;
+		case FileInfo.GRAY32_INT:
+		case FileInfo.GRAY32_UNSIGNED:
+		case FileInfo.GRAY32_FLOAT:
+			bytesPerVoxel = 4;
+			break;
+		case FileInfo.GRAY64_FLOAT:
+			bytesPerVoxel = 8;
+			break;
+		default:
+			throw new IllegalArgumentException("NiftiStreamReader: RGB data is not supported, " + file.getName());
+		}
+		width = fi.width;
+		height = fi.height;
+		slices = fi.nImages;
+		order = fi.intelByteOrder ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getSlices() {
+		return slices;
+	}
+
+	/**
+	 * Scans the volume slice by slice.
+	 * @param label voxel value of the roi, null for any value but 0.
+	 * @return {x0, y0, z0, x1, y1, z1} inclusive, or null if there is no such voxel.
+	 * @throws IOException
+	 */
+	public int[] boundingBox(Integer label) throws IOException {
+		final int[] box = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1, -1};
+		scan(0, slices - 1, (z, slice) -> {
+			for(int y = 0; y < height; y++) {
+				int row = y * width;
+				for(int x = 0; x < width; x++) {
+					double v = value(slice, row + x);
+					if(label == null ? v != 0 : v == label) {
+						box[0] = Math.min(box[0], x);
+						box[1] = Math.min(box[1], y);
+						box[2] = Math.min(box[2], z);
+						box[3] = Math.max(box[3], x);
+						box[4] = Math.max(box[4], y);
+						box[5] = Math.max(box[5], z);
+					}
+				}
+			}
+		});
+		return box[3] < 0 ? null : box;
+	}
+
+	/**
+	 * @return the whole volume
+	 * @throws IOException
+	 */
+	public ImagePlus read() throws IOException {
+		return read(new int[] {0, 0, 0, width - 1, height - 1, slices - 1});
+	}
+
+	/**
+	 * @param box {x0, y0, z0, x1, y1, z1} inclusive, inside the volume.
+	 * @return the voxels of the box
+	 * @throws IOException
+	 */
+	public ImagePlus read(int[] box) throws IOException {
+		if(box[0] < 0 || box[1] < 0 || box[2] < 0 || box[3] >= width || box[4] >= height || box[5] >= slices
+				|| box[0] > box[3] || box[1] > box[4] || box[2] > box[5]) {
+			throw new IllegalArgumentException("NiftiStreamReader: the box is out of the volume.");
+		}
+		final int w = box[3] - box[0] + 1;
+		final int h = box[4] - box[1] + 1;
+		final ImageStack stack = new ImageStack(w, h);
+		scan(box[2], box[5], (z, slice) -> {
+			ImageProcessor ip = createProcessor(w, h);
+			for(int y = 0; y < h; y++) {
+				int src = (y + box[1]) * width + box[0];
+				int dst = y * w;
+				for(int x = 0; x < w; x++) {
+					set(ip, dst + x, slice, src + x);
+				}
+			}
+			stack.addSlice(ip);
+		});
+		ImagePlus imp = new ImagePlus(file.getName(), stack);
+		Calibration cal = new Calibration(imp);
+		cal.pixelWidth = fi.pixelWidth;
+		cal.pixelHeight = fi.pixelHeight;
+		cal.pixelDepth = fi.pixelDepth;
+		cal.frameInterval = fi.frameInterval;
+		if(fi.unit != null) {
+			cal.setUnit(fi.unit);
+		}
+		if(fi.fileType == FileInfo.GRAY16_SIGNED) {
+			cal.setSigned16BitCalibration();
+		}
+		cal.xOrigin = -box[0];
+		cal.yOrigin = -box[1];
+		cal.zOrigin = -box[2];
+		imp.setCalibration(cal);
+		imp.setProperty(FULL_SIZE, new int[] {width, height, slices});
+		return imp;
+	}
+
+	/**
+	 * Reads the bounding box of a label of the mask, and the margin around it, from the image and the mask.
+	 * @param image .nii or .nii.gz
+	 * @param mask .nii or .nii.gz of the same size
+	 * @param label roi label
+	 * @param margin voxels added around the bounding box, cut at the sides of the volume.
+	 * @return {image, mask}, or null if the mask has no voxel of the label.
+	 * @throws IOException
+	 * @throws IllegalArgumentException if a file is not supported, or the sizes do not match.
+	 */
+	public static ImagePlus[] readAroundRoi(File image, File mask, int label, int margin) throws IOException {
+		NiftiStreamReader imageReader = new NiftiStreamReader(image);
+		NiftiStreamReader maskReader = new NiftiStreamReader(mask);
+		if(imageReader.width != maskReader.width || imageReader.height != maskReader.height || imageReader.slices != maskReader.slices) {
+			throw new IllegalArgumentException("NiftiStreamReader: image and mask sizes are different.");
+		}
+		int[] box = maskReader.boundingBox(label);
+		if(box == null) {
+			return null;
+		}
+		int[] size = {imageReader.width, imageReader.height, imageReader.slices};
+		for(int a = 0; a < 3; a++) {
+			box[a] = Math.max(0, box[a] - margin);
+			box[a + 3] = Math.min(size[a] - 1, box[a + 3] + margin);
+		}
+		return new ImagePlus[] {imageReader.read(box), maskReader.read(box)};
+	}
+
+	private interface SliceVisitor {
+		void visit(int z, ByteBuffer slice);
+	}
+
+	private void scan(int z0, int z1, SliceVisitor visitor) throws IOException {
+		final int sliceBytes = width * height * bytesPerVoxel;
+		final long start = fi.getOffset() + (long) z0 * sliceBytes;
+		if(!compressed) {
+			try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				for(int z = z0; z <= z1; z++) {
+					ByteBuffer slice = channel.map(FileChannel.MapMode.READ_ONLY, start + (long) (z - z0) * sliceBytes, sliceBytes);
+					visitor.visit(z, slice.order(order));
+				}
+			}
+			return;
+		}
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 1 << 16), 1 << 16))) {
+			long skip = start;
+			while(skip > 0) {
+				long skipped = in.skip(skip);
+				if(skipped <= 0) {
+					if(in.read() < 0) {
+						throw new EOFException("NiftiStreamReader: unexpected end of " + file.getName());
+					}
+					skipped = 1;
+				}
+				skip -= skipped;
+			}
+			byte[] bytes = new byte[sliceBytes];
+			ByteBuffer slice = ByteBuffer.wrap(bytes).order(order);
+			for(int z = z0; z <= z1; z++) {
+				in.readFully(bytes);
+				visitor.visit(z, slice);
+			}
+		}
+	}
+
+	/*
+	 * stored value of voxel i of a slice, as read by Nifti_Reader.load() before its calibration.
+	 */
+	private double value(ByteBuffer slice, int i) {
+		switch(fi.fileType) {
+		case FileInfo.GRAY8:
+			return slice.get(i) & 0xff;
+		case FileInfo.GRAY16_SIGNED:
+			return slice.getShort(2 * i);
+		case FileInfo.GRAY16_UNSIGNED:
+			return slice.getShort(2 * i) & 0xffff;
+		case FileInfo.GRAY32_INT:
+			return slice.getInt(4 * i);
+		case FileInfo.GRAY32_UNSIGNED:
+			return slice.getInt(4 * i) & 0xffffffffL;
+		case FileInfo.GRAY32_FLOAT:
+			return slice.getFloat(4 * i);
+		default:
+			return slice.getDouble(8 * i);
+		}
+	}
+
+	private ImageProcessor createProcessor(int w, int h) {
+		switch(fi.fileType) {
+		case FileInfo.GRAY8:
+			return new ByteProcessor(w, h);
+		case FileInfo.GRAY16_SIGNED:
+		case FileInfo.GRAY16_UNSIGNED:
+			return new ShortProcessor(w, h);
+		default:
+			return new FloatProcessor(w, h);
+		}
+	}
+
+	/*
+	 * pixel as ImageJ stores it: signed 16 bit shifted by 32768 (see Calibration.setSigned16BitCalibration()),
+	 * 32 bit integers and 64 bit reals as float.
+	 */
+	private void set(ImageProcessor ip, int dst, ByteBuffer slice, int src) {
+		switch(fi.fileType) {
+		case FileInfo.GRAY8:
+			((byte[]) ip.getPixels())[dst] = slice.get(src);
+			break;
+		case FileInfo.GRAY16_SIGNED:
+			((short[]) ip.getPixels())[dst] = (short) (slice.getShort(2 * src) + 32768);
+			break;
+		case FileInfo.GRAY16_UNSIGNED:
+			((short[]) ip.getPixels())[dst] = slice.getShort(2 * src);
+			break;
+		default:
+			((float[]) ip.getPixels())[dst] = (float) value(slice, src);
+		}
+	}
+}
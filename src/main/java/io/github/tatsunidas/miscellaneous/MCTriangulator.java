@@ -45,8 +45,18 @@ public class MCTriangulator {
 
 	private List<Point3f> vertices = new ArrayList<>();
 
+	/*
+	 * position of imp in the volume it was cut from (-origin of the calibration), in voxels of the mesh.
+	 * The vertices of a stack cut out of a volume are then those of the whole volume, to the bit.
+	 */
+	private double ox, oy, oz;
+
 	public List<Point3f> getTriangles(ImagePlus imp, double threshold, int resamplingF) {
 		vertices.clear();
+		Calibration org = imp.getCalibration();
+		ox = -org.xOrigin / Math.max(1, resamplingF);
+		oy = -org.yOrigin / Math.max(1, resamplingF);
+		oz = -org.zOrigin / Math.max(1, resamplingF);
 
 		// 1. 飛ばし読み（step）ではなく、画像を実際にリサンプルする
 		ImagePlus processedImp = imp;
@@ -170,9 +180,9 @@ public class MCTriangulator {
 		double mu = (Math.abs(v1 - v2) < 1e-10) ? 0.5 : (t - v1) / (v2 - v1);
 
 		// 【重要】(x1 + mu*(x2-x1) - 1.0) の「-1.0」がパディング相殺
-		float rx = (float) ((x1 + mu * (x2 - x1) - 1.0) * dx);
-		float ry = (float) ((y1 + mu * (y2 - y1) - 1.0) * dy);
-		float rz = (float) ((z1 + mu * (z2 - z1) - 1.0) * dz);
+		float rx = (float) (((x1 + ox) + mu * (x2 - x1) - 1.0) * dx);
+		float ry = (float) (((y1 + oy) + mu * (y2 - y1) - 1.0) * dy);
+		float rz = (float) (((z1 + oz) + mu * (z2 - z1) - 1.0) * dz);
 
 		return new Point3f(rx, ry, rz);
 	}
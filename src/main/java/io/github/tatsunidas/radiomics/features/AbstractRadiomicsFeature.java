@@ -4,6 +4,11 @@ import java.util.HashMap;
 import java.util.Map;
 
 import ij.ImagePlus;
+import io.github.tatsunidas.radiomics.main.ExtractionCache;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
+import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
  * 
@@ -52,4 +57,91 @@ public abstract class AbstractRadiomicsFeature implements RadiomicsFeature{
 		 */
 		this.mask = mask;
 	}
+
+	/**
+	 * Calculation settings of this feature.
+	 * @return ExtractionSettings of the settings map, or the static settings of RadiomicsJ.
+	 */
+	protected ExtractionSettings config() {
+		return ExtractionSettings.of(settings);
+	}
+
+	/**
+	 * Discretised image handed over by the pipeline (RadiomicsFeature.PRE_DISC_IMG),
+	 * or the legacy static RadiomicsJ.discretiseImp.
+	 * @return null if the feature has to discretise by itself.
+	 */
+	@SuppressWarnings("deprecation")
+	protected ImagePlus preDiscretised() {
+		if (settings != null) {
+			Object disc = settings.get(RadiomicsFeature.PRE_DISC_IMG);
+			if (disc instanceof ImagePlus) {
+				return (ImagePlus) disc;
+			}
+			if (settings.get(RadiomicsFeature.EXTRACTION_SETTINGS) instanceof ExtractionSettings) {
+				// an explicit run never reads the static hand-off.
+				return null;
+			}
+		}
+		return RadiomicsJ.discretiseImp;
+	}
+
+	/**
+	 * Cache shared by the families of the run (RadiomicsFeature.EXTRACTION_CACHE).
+	 * @return null if the feature is used alone.
+	 */
+	protected ExtractionCache cache() {
+		Object cache = settings == null ? null : settings.get(RadiomicsFeature.EXTRACTION_CACHE);
+		return cache instanceof ExtractionCache ? (ExtractionCache) cache : null;
+	}
+
+	/*
+	 * The helpers below go through the cache of the run if any, otherwise to Utils.
+	 * The results may be shared with the other families, never modify them.
+	 */
+
+	protected ImagePlus discrete(ImagePlus img, ImagePlus mask, int label, int nBins) throws Exception {
+		ExtractionCache cache = cache();
+		return cache != null ? cache.discrete(img, mask, label, nBins) : Utils.discrete(img, mask, label, nBins);
+	}
+
+	protected ImagePlus discreteByBinWidth(ImagePlus img, ImagePlus mask, int label, double binWidth, Double rangeMin) throws Exception {
+		ExtractionCache cache = cache();
+		return cache != null ? cache.discreteByBinWidth(img, mask, label, binWidth, rangeMin)
+				: Utils.discreteByBinWidth(img, mask, label, binWidth, rangeMin);
+	}
+
+	protected int numOfBinsByMax(ImagePlus discretised, ImagePlus mask, int label) {
+		ExtractionCache cache = cache();
+		return cache != null ? cache.numOfBinsByMax(discretised, mask, label) : Utils.getNumOfBinsByMax(discretised, mask, label);
+	}
+
+	/**
+	 * @return sorted voxel values in the roi.
+	 */
+	protected double[] roiVoxels(ImagePlus img, ImagePlus mask, int label) {
+		ExtractionCache cache = cache();
+		return cache != null ? cache.voxels(img, mask, label) : Utils.getVoxels(img, mask, label);
+	}
+
+	protected HashMap<String, double[]> roiBoundingBox(ImagePlus mask, int label) {
+		ExtractionCache cache = cache();
+		return cache != null ? cache.boundingBox(mask, label) : Utils.getRoiBoundingBoxInfo(mask, label, RadiomicsJ.debug);
+	}
+
+	/**
+	 * @return histogram of the discretised voxels in the roi.
+	 */
+	protected int[] roiHistogram(ImagePlus discretised, ImagePlus mask, int label) {
+		ExtractionCache cache = cache();
+		return cache != null ? cache.histogram(discretised, mask, label) : Utils.getHistogram(Utils.getVoxels(discretised, mask, label));
+	}
+
+	/**
+	 * @return discretised grey levels of the roi, cropped to its bounding box.
+	 */
+	protected RoiVolume roiVolume(ImagePlus discretised, ImagePlus mask, int label, int nBins) throws Exception {
+		ExtractionCache cache = cache();
+		return cache != null ? cache.volume(discretised, mask, label, nBins) : RoiVolume.of(discretised, mask, label, nBins);
+	}
 }
@@ -27,7 +27,6 @@ import ij.measure.Calibration;
 import ij.measure.CurveFitter;
 import ij.util.Tools;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
 import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
@@ -107,7 +106,7 @@ public class FractalFeatures extends AbstractRadiomicsFeature{
 		}
 		
 		//isovoxelize
-		this.mask = Utils.isoVoxelizeWithInterpolation(this.mask, true);
+		this.mask = Utils.isoVoxelizeWithInterpolation(this.mask, true, config().getInterpolation3D(), config().getMaskPartialVolumeThreshold());
 		this.mask = Utils.createMaskCopyAsGray8(this.mask, this.label);
 		this.edges = Utils.createRoiSet(this.mask, this.label);
 		
@@ -141,7 +140,7 @@ public class FractalFeatures extends AbstractRadiomicsFeature{
 			}
 		}
 		//isovoxelize
-		this.mask = Utils.isoVoxelizeWithInterpolation(this.mask, true);
+		this.mask = Utils.isoVoxelizeWithInterpolation(this.mask, true, config().getInterpolation3D(), config().getMaskPartialVolumeThreshold());
 		this.mask = Utils.createMaskCopyAsGray8(this.mask, this.label);
 		this.edges = Utils.createRoiSet(this.mask, this.label);
 	}
@@ -163,7 +162,7 @@ public class FractalFeatures extends AbstractRadiomicsFeature{
 		 * get dimension
 		 */
 		//get margin by aabb
-		HashMap<String, double[]> xyzAABB = Utils.getRoiBoundingBoxInfo(mask, this.label, RadiomicsJ.debug);
+		HashMap<String, double[]> xyzAABB = roiBoundingBox(mask, this.label);
 
 		int n = boxSizes.length;
 		float[] sizes_log = new float[n];
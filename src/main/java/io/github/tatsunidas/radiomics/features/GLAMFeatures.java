@@ -27,9 +27,9 @@ import java.util.stream.IntStream;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.process.ImageProcessor;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.FFT3D;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
-import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
  * Gray Level Affinity Metrics, the GLAM family.
@@ -107,6 +107,11 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 	 * Sub sampling trades accuracy for speed on very large rois.
 	 */
 	int maxReferenceVoxels;
+	/**
+	 * Count the shell pairs by 3D FFT convolution of the gray level indicator
+	 * volumes instead of scanning the neighbourhood of every reference voxel.
+	 */
+	boolean fftPairCounts;
 	/** Divide each shell by the part of it that lies inside the roi. */
 	boolean boundaryCorrection;
 	/** Number of shuffles for the randomised state, zero selects the closed form. */
@@ -179,18 +184,18 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 		}
 		this.mask = mask;
 
-		this.nBins = nBins == null ? RadiomicsJ.nBins : nBins;
-		this.binWidth = binWidth == null ? RadiomicsJ.binWidth : binWidth;
-		this.maxRadius = maxRadius == null ? RadiomicsJ.glamMaxRadius : maxRadius;
+		this.nBins = nBins == null ? config().getNBins() : nBins;
+		this.binWidth = binWidth == null ? config().getBinWidth() : binWidth;
+		this.maxRadius = maxRadius == null ? config().getGlamMaxRadius() : maxRadius;
 		applyGlobalAlgorithmSettings();
 
-		if (RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if (preDiscretised() != null) {
+			discImg = preDiscretised();
 		} else if (useBinCount) {
-			discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+			discImg = discrete(this.img, this.mask, this.label, this.nBins);
 		} else {
-			discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-			this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+			discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+			this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 		}
 
 		compute();
@@ -223,7 +228,7 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 		if (nBinsValue != null && !(nBinsValue instanceof Integer)) {
 			throw new IllegalArgumentException("'nBins' must be an Integer.");
 		}
-		this.nBins = nBinsValue == null ? RadiomicsJ.nBins : (Integer) nBinsValue;
+		this.nBins = nBinsValue == null ? config().getNBins() : (Integer) nBinsValue;
 
 		Object binWidthValue = settings.get(RadiomicsFeature.BinWidth);
 		if (binWidthValue == null && !useBinCount) {
@@ -232,13 +237,13 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 		if (binWidthValue != null && !(binWidthValue instanceof Double)) {
 			throw new IllegalArgumentException("'BinWidth' must be a Double.");
 		}
-		this.binWidth = binWidthValue == null ? RadiomicsJ.binWidth : (Double) binWidthValue;
+		this.binWidth = binWidthValue == null ? config().getBinWidth() : (Double) binWidthValue;
 
 		Object radiusValue = settings.get(RadiomicsFeature.GLAM_MAX_RADIUS);
 		if (radiusValue != null && !(radiusValue instanceof Integer)) {
 			throw new IllegalArgumentException("'GLAM_MAX_RADIUS' must be an Integer.");
 		}
-		this.maxRadius = radiusValue == null ? RadiomicsJ.glamMaxRadius : (Integer) radiusValue;
+		this.maxRadius = radiusValue == null ? config().getGlamMaxRadius() : (Integer) radiusValue;
 		applyGlobalAlgorithmSettings();
 
 		if (mask == null) {
@@ -248,13 +253,13 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 		}
 
 		try {
-			if (RadiomicsJ.discretiseImp != null) {
-				discImg = RadiomicsJ.discretiseImp;
+			if (preDiscretised() != null) {
+				discImg = preDiscretised();
 			} else if (useBinCount) {
-				discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+				discImg = discrete(this.img, this.mask, this.label, this.nBins);
 			} else {
-				discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 			compute();
 		} catch (Exception e) {
@@ -267,14 +272,16 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 	}
 
 	private void applyGlobalAlgorithmSettings() {
-		this.maxReferenceVoxels = RadiomicsJ.glamMaxReferenceVoxels;
-		this.boundaryCorrection = RadiomicsJ.glamBoundaryCorrection;
-		this.numRandomisations = RadiomicsJ.glamNumRandomisations;
-		this.randomSeed = RadiomicsJ.glamRandomSeed;
-		this.savitzkyGolayWindow = RadiomicsJ.glamSavitzkyGolayWindow;
-		this.savitzkyGolayPolynomial = RadiomicsJ.glamSavitzkyGolayPolynomial;
-		this.peakProminence = RadiomicsJ.glamPeakProminence;
-		this.maxLocalShellRadius = RadiomicsJ.glamMaxLocalShellRadius;
+		ExtractionSettings config = config();
+		this.maxReferenceVoxels = config.getGlamMaxReferenceVoxels();
+		this.fftPairCounts = config.isGlamFftPairCounts();
+		this.boundaryCorrection = config.isGlamBoundaryCorrection();
+		this.numRandomisations = config.getGlamNumRandomisations();
+		this.randomSeed = config.getGlamRandomSeed();
+		this.savitzkyGolayWindow = config.getGlamSavitzkyGolayWindow();
+		this.savitzkyGolayPolynomial = config.getGlamSavitzkyGolayPolynomial();
+		this.peakProminence = config.getGlamPeakProminence();
+		this.maxLocalShellRadius = config.getGlamMaxLocalShellRadius();
 		if (this.maxRadius < 2) {
 			this.maxRadius = 2;
 		}
@@ -463,18 +470,23 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 	 * @return g[r][alpha][beta] with r from 1 to maxRadius
 	 */
 	private double[][][] calculateRadialDistribution(int[] levelOfVoxel) {
-		final int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), roiVoxelCount));
-		List<ShellCounts> partial = IntStream.range(0, workers).parallel().mapToObj(worker -> {
-			ShellCounts local = new ShellCounts(maxRadius, nBins);
-			int from = (int) ((long) roiVoxelCount * worker / workers);
-			int to = (int) ((long) roiVoxelCount * (worker + 1) / workers);
-			scanNeighbourhoods(from, to, levelOfVoxel, local);
-			return local;
-		}).collect(java.util.stream.Collectors.toList());
-
-		ShellCounts merged = new ShellCounts(maxRadius, nBins);
-		for (ShellCounts local : partial) {
-			merged.add(local);
+		ShellCounts merged;
+		if (fftPairCounts) {
+			merged = convolveShells(levelOfVoxel);
+		} else {
+			final int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), roiVoxelCount));
+			List<ShellCounts> partial = IntStream.range(0, workers).parallel().mapToObj(worker -> {
+				ShellCounts local = new ShellCounts(maxRadius, nBins);
+				int from = (int) ((long) roiVoxelCount * worker / workers);
+				int to = (int) ((long) roiVoxelCount * (worker + 1) / workers);
+				scanNeighbourhoods(from, to, levelOfVoxel, local);
+				return local;
+			}).collect(java.util.stream.Collectors.toList());
+
+			merged = new ShellCounts(maxRadius, nBins);
+			for (ShellCounts local : partial) {
+				merged.add(local);
+			}
 		}
 
 		shellOccupancy = merged.occupancy;
@@ -578,6 +590,261 @@ public class GLAMFeatures extends AbstractRadiomicsFeature implements Texture {
 		}
 	}
 
+	/**
+	 * The counts of scanNeighbourhoods, taken from 3D FFT convolutions instead of
+	 * a scan.
+	 *
+	 * With I(beta) the indicator volume of gray level beta and K(r) the indicator
+	 * of the lattice offsets of shell r, the number of beta voxels in shell r
+	 * around a voxel x is the convolution (I(beta) * K(r))(x), and the number of
+	 * roi voxels there, the shell occupancy, is the same convolution of the roi
+	 * indicator. Each convolution is one product of spectra, and the reference
+	 * voxels then read their counts off the result, so the per reference ratios
+	 * of the boundary correction come out exactly as the scan gives them.
+	 *
+	 * The volumes are cropped to the roi and padded by the reach of the shells,
+	 * so that the circular convolution does not wrap. Every count is an integer,
+	 * so rounding the convolutions recovers them exactly, and that leaves room to
+	 * pack: two gray levels go through one complex transform as its real and
+	 * imaginary part, and two shells share one kernel, see the loop below.
+	 *
+	 * The cost is one transform of the padded roi per two gray levels per two
+	 * shells, it grows with maxRadius instead of its cube.
+	 */
+	private ShellCounts convolveShells(int[] levelOfVoxel) {
+		ShellCounts out = new ShellCounts(maxRadius, nBins);
+		int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, z0 = Integer.MAX_VALUE;
+		int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE, z1 = Integer.MIN_VALUE;
+		for (int i = 0; i < roiVoxelCount; i++) {
+			x0 = Math.min(x0, voxelX[i]);
+			y0 = Math.min(y0, voxelY[i]);
+			z0 = Math.min(z0, voxelZ[i]);
+			x1 = Math.max(x1, voxelX[i]);
+			y1 = Math.max(y1, voxelY[i]);
+			z1 = Math.max(z1, voxelZ[i]);
+		}
+		// no pair is further apart than the extent of the roi
+		final int reachX = Math.min(maxRadius, x1 - x0);
+		final int reachY = Math.min(maxRadius, y1 - y0);
+		final int reachZ = Math.min(maxRadius, z1 - z0);
+		final int squaredLimit = (maxRadius + 1) * (maxRadius + 1);
+		int farthest = Math.min(reachX * reachX + reachY * reachY + reachZ * reachZ, squaredLimit - 1);
+		final int lastShell = shellOfSquaredDistance[farthest];
+		if (lastShell < 1) {
+			return out;
+		}
+
+		final int boxX = x1 - x0 + 1;
+		final int boxY = y1 - y0 + 1;
+		final int boxZ = z1 - z0 + 1;
+		FFT3D fft = new FFT3D(FFT3D.goodSize(boxX + reachX), FFT3D.goodSize(boxY + reachY),
+				FFT3D.goodSize(boxZ + reachZ));
+		final int nx = fft.getWidth();
+		final int ny = fft.getHeight();
+		final int nz = fft.getDepth();
+		final int size = fft.size();
+		int[] grid = new int[roiVoxelCount];
+		for (int i = 0; i < roiVoxelCount; i++) {
+			grid[i] = ((voxelZ[i] - z0) * ny + (voxelY[i] - y0)) * nx + (voxelX[i] - x0);
+		}
+
+		// grid index of every offset of every shell, negative offsets wrap around
+		int[] shellSize = new int[lastShell + 1];
+		for (int dz = -reachZ; dz <= reachZ; dz++) {
+			for (int dy = -reachY; dy <= reachY; dy++) {
+				for (int dx = -reachX; dx <= reachX; dx++) {
+					int squared = dz * dz + dy * dy + dx * dx;
+					if (squared == 0 || squared >= squaredLimit) {
+						continue;
+					}
+					shellSize[shellOfSquaredDistance[squared]]++;
+				}
+			}
+		}
+		int[][] shellOffsets = new int[lastShell + 1][];
+		for (int r = 1; r <= lastShell; r++) {
+			shellOffsets[r] = new int[shellSize[r]];
+			shellSize[r] = 0;
+		}
+		for (int dz = -reachZ; dz <= reachZ; dz++) {
+			for (int dy = -reachY; dy <= reachY; dy++) {
+				for (int dx = -reachX; dx <= reachX; dx++) {
+					int squared = dz * dz + dy * dy + dx * dx;
+					if (squared == 0 || squared >= squaredLimit) {
+						continue;
+					}
+					int shell = shellOfSquaredDistance[squared];
+					shellOffsets[shell][shellSize[shell]++] = (((dz + nz) % nz) * ny + (dy + ny) % ny) * nx
+							+ (dx + nx) % nx;
+				}
+			}
+		}
+
+		// spectrum of the roi, for the occupancy
+		double[] roiRe = new double[size];
+		double[] roiIm = new double[size];
+		for (int i = 0; i < roiVoxelCount; i++) {
+			roiRe[grid[i]] = 1d;
+		}
+		fft.forward(roiRe, roiIm, boxX, boxY, boxZ);
+
+		// the gray levels that occur, two per spectrum
+		int[] present = new int[nBins];
+		int levels = 0;
+		int[] counts = new int[nBins];
+		for (int i = 0; i < roiVoxelCount; i++) {
+			counts[levelOfVoxel[i]]++;
+		}
+		for (int level = 0; level < nBins; level++) {
+			if (counts[level] > 0) {
+				present[levels++] = level;
+			}
+		}
+		final int spectra = (levels + 1) / 2;
+		// keep as many spectra as half of the free heap holds, the others are transformed again when needed
+		Runtime runtime = Runtime.getRuntime();
+		long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		int kept = (int) Math.min(spectra, Math.max(0L, freeHeap / 2 / (16L * size)));
+		double[][] levelRe = new double[kept][];
+		double[][] levelIm = new double[kept][];
+		for (int p = 0; p < kept; p++) {
+			levelRe[p] = new double[size];
+			levelIm[p] = new double[size];
+			levelSpectrum(fft, grid, boxX, boxY, boxZ, levelOfVoxel, present, levels, p, levelRe[p], levelIm[p]);
+		}
+
+		double[] kernelRe = new double[size];
+		double[] kernelIm = new double[size];
+		double[] workRe = new double[size];
+		double[] workIm = new double[size];
+		int[][] occupancy = new int[4][roiVoxelCount];
+		int[][] neighbours = new int[4][roiVoxelCount];
+		long[] scale = new long[2];
+		for (int r = 1; r <= lastShell; r += 4) {
+			/*
+			 * Four shells per round. The counts are integers no larger than the shell,
+			 * so shell r + 1 rides on shell r scaled by the size of shell r plus one,
+			 * and the two are told apart again after rounding. That pair goes in the
+			 * real part of the kernel, shells r + 2 and r + 3 in the imaginary part,
+			 * and both spectra are real because the shells are symmetric.
+			 */
+			java.util.Arrays.fill(kernelRe, 0d);
+			java.util.Arrays.fill(kernelIm, 0d);
+			for (int k = 0; k < 2; k++) {
+				int shell = r + 2 * k;
+				double[] kernel = k == 0 ? kernelRe : kernelIm;
+				scale[k] = shell <= lastShell ? shellOffsets[shell].length + 1 : 1;
+				if (shell <= lastShell) {
+					for (int offset : shellOffsets[shell]) {
+						kernel[offset] = 1d;
+					}
+				}
+				if (shell + 1 <= lastShell) {
+					for (int offset : shellOffsets[shell + 1]) {
+						kernel[offset] = scale[k];
+					}
+				}
+			}
+			fft.forward(kernelRe, kernelIm);
+			// roi * (K(r, r + 1) + i K(r + 2, r + 3)), the occupancies of all four shells
+			for (int k = 0; k < size; k++) {
+				workRe[k] = roiRe[k] * kernelRe[k] - roiIm[k] * kernelIm[k];
+				workIm[k] = roiRe[k] * kernelIm[k] + roiIm[k] * kernelRe[k];
+			}
+			fft.inverse(workRe, workIm, boxX, boxY, boxZ);
+			unpack(workRe, grid, scale[0], occupancy[0], occupancy[1]);
+			unpack(workIm, grid, scale[1], occupancy[2], occupancy[3]);
+			for (int t = 0; t < 4 && r + t <= lastShell; t++) {
+				int shell = r + t;
+				for (int i = 0; i < roiVoxelCount; i++) {
+					if (isReferenceVoxel[i] && occupancy[t][i] > 0) {
+						out.validReferences[shell][levelOfVoxel[i]]++;
+						out.occupancy[shell] += occupancy[t][i];
+					}
+				}
+			}
+
+			for (int p = 0; p < spectra; p++) {
+				int first = present[2 * p];
+				int second = 2 * p + 1 < levels ? present[2 * p + 1] : -1;
+				for (int k = 0; k < 2 && r + 2 * k <= lastShell; k++) {
+					double[] kernel = k == 0 ? kernelRe : kernelIm;
+					if (p < kept) {
+						for (int j = 0; j < size; j++) {
+							workRe[j] = levelRe[p][j] * kernel[j];
+							workIm[j] = levelIm[p][j] * kernel[j];
+						}
+					} else {
+						levelSpectrum(fft, grid, boxX, boxY, boxZ, levelOfVoxel, present, levels, p, workRe, workIm);
+						for (int j = 0; j < size; j++) {
+							workRe[j] *= kernel[j];
+							workIm[j] *= kernel[j];
+						}
+					}
+					fft.inverse(workRe, workIm, boxX, boxY, boxZ);
+					unpack(workRe, grid, scale[k], neighbours[0], neighbours[1]);
+					unpack(workIm, grid, scale[k], neighbours[2], neighbours[3]);
+					for (int t = 0; t < 2 && r + 2 * k + t <= lastShell; t++) {
+						int shell = r + 2 * k + t;
+						int[] shellOccupancy = occupancy[2 * k + t];
+						for (int i = 0; i < roiVoxelCount; i++) {
+							int occupied = shellOccupancy[i];
+							if (!isReferenceVoxel[i] || occupied == 0) {
+								continue;
+							}
+							int alpha = levelOfVoxel[i];
+							int count = neighbours[t][i];
+							if (count > 0) {
+								out.pairs[shell][alpha][first] += count;
+								out.ratios[shell][alpha][first] += count / (double) occupied;
+							}
+							count = neighbours[2 + t][i];
+							if (second >= 0 && count > 0) {
+								out.pairs[shell][alpha][second] += count;
+								out.ratios[shell][alpha][second] += count / (double) occupied;
+							}
+						}
+					}
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Splits the rounded convolution of a kernel pair at every roi voxel into the
+	 * count of the first shell and that of the second, which was scaled.
+	 */
+	private void unpack(double[] convolution, int[] grid, long scale, int[] first, int[] second) {
+		for (int i = 0; i < roiVoxelCount; i++) {
+			long packed = Math.round(convolution[grid[i]]);
+			long high = packed / scale;
+			first[i] = (int) (packed - high * scale);
+			second[i] = (int) high;
+		}
+	}
+
+	/**
+	 * Spectrum of the indicator volumes of the gray levels present[2p] and
+	 * present[2p + 1], the first as the real part and the second as the imaginary
+	 * part.
+	 */
+	private void levelSpectrum(FFT3D fft, int[] grid, int boxX, int boxY, int boxZ, int[] levelOfVoxel,
+			int[] present, int levels, int p, double[] re, double[] im) {
+		java.util.Arrays.fill(re, 0d);
+		java.util.Arrays.fill(im, 0d);
+		int first = present[2 * p];
+		int second = 2 * p + 1 < levels ? present[2 * p + 1] : -1;
+		for (int i = 0; i < roiVoxelCount; i++) {
+			if (levelOfVoxel[i] == first) {
+				re[grid[i]] = 1d;
+			} else if (levelOfVoxel[i] == second) {
+				im[grid[i]] = 1d;
+			}
+		}
+		fft.forward(re, im, boxX, boxY, boxZ);
+	}
+
 	/**
 	 * The randomised reference state in closed form. See the class comment for the
 	 * derivation.
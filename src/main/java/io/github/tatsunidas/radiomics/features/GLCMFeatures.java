@@ -15,8 +15,7 @@
  */
 package io.github.tatsunidas.radiomics.features;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -27,9 +26,9 @@ import org.apache.commons.math3.stat.StatUtils;
 import ij.IJ;
 import ij.ImagePlus;
 import ij.measure.Calibration;
+import io.github.tatsunidas.radiomics.main.CooccurrenceCounter;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
-import io.github.tatsunidas.radiomics.main.Utils;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
 
 /**
  * 3.6.1 Joint maximum GYBY 3.6.2 Joint average 60VM 3.6.3 Joint variance UR99
@@ -59,15 +58,27 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	HashMap<String, double[]> aabb;
 	
 	final int label;
-	java.util.HashMap<Integer, double[][]> glcm_raw;// angle_id and glcm at it angle.
-	java.util.HashMap<Integer, double[][]> glcm;// angle_id and normalized glcm at it angle.
+	int[] glcm_raw;// counts of the 13 angles (angle id 14 to 26), [angle][i-1][j-1] flat.
+	double[] glcm;// normalized glcm, [matrix][i-1][j-1] flat. a matrix per angle (averaged), or one (merged).
+	int numOfMatrices;
+	int matrixSize;// nBins*nBins
+	boolean[] emptyMatrix;// no pair at this angle, for example, z angles of 2D.
 	boolean symmetry = true;// always true;
 	boolean normalization = true;// always true;
+	boolean merged = false;// if true, merge the matrices of all angles before calculating features.
 	int nBins;// 1 to N
 	double binWidth;
 	int delta = 1;
 	
-	HashMap<Integer, HashMap<String, Object>> coeffs;// angle_od and coefficients of it angle.
+	// coefficients of each matrix, [matrix][...] flat.
+	double[] px;// marginal row probabilities
+	double[] py;// marginal column probabilities
+	double[] pXAddY;// p_{i+j}, k = 2 to nBins*2
+	double[] pXSubY;// p_{|i-j|}, k = 0 to nBins-1
+	double[] meanX;
+	double[] meanY;
+	double[] stdDevX;
+	double[] stdDevY;
 	public static final String Px = "Px";
 	public static final String Py = "Py";
 	double eps = Math.ulp(1.0);// 2.220446049250313E-16
@@ -121,13 +132,13 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		this.orgCal = this.img.getCalibration();
 		
 		if(nBins == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = nBins;
 		}
 		
 		if(binWidth == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = binWidth;
 		}
@@ -135,30 +146,30 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		if (delta != null && delta > 0) {
 			this.delta = delta;
 		}else {
-			this.delta = RadiomicsJ.deltaGLCM;
+			this.delta = config().getDeltaGLCM();
 		}
 
 		//todo
 		setWeightingNorm(weightingNorm);
 		
 		// discretised by roi mask.
-		if(RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if(preDiscretised() != null) {
+			discImg = preDiscretised();
 		}else {
 			if(useBinCount) {
-				discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+				discImg = discrete(this.img, this.mask, this.label, this.nBins);
 			}else {
 				/*
 				 * Bin Width
 				 */
-				discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		}
 		w = this.img.getWidth();
 		h = this.img.getHeight();
 		s = this.img.getNSlices();
-		aabb = Utils.getRoiBoundingBoxInfo(this.mask, this.label, RadiomicsJ.debug);
+		aabb = roiBoundingBox(this.mask, this.label);
 		
 		calcGLCM();
 		
@@ -173,6 +184,39 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		settings.put(RadiomicsFeature.WEIGHTING_NORM, weightingNorm);
 	}
 	
+	/**
+	 * Features of co-occurrences counted elsewhere, for example by the sliding windows of a feature map.
+	 * No image is kept, and the counts are not copied.
+	 * 
+	 * @param counts symmetrical counts of the 13 angles, [angle][i-1][j-1] flat, see CooccurrenceCounter.count().
+	 * @param nBins number of grey levels of the counts.
+	 * @param cal voxel size, used by the weighting norm.
+	 * @param settings label, and optionally WEIGHTING_NORM and GLCM_MERGED.
+	 */
+	public GLCMFeatures(int[] counts, int nBins, Calibration cal, Map<String, Object> settings) {
+		super();
+		if (settings != null) {
+			this.settings = settings;
+		}
+		Object labelValue = this.settings.get(RadiomicsFeature.LABEL);
+		if (labelValue == null) {
+			throw new IllegalArgumentException("'label' is missing in settings.");
+		}
+		if (!(labelValue instanceof Integer)) {
+			throw new IllegalArgumentException("'label' must be an Integer.");
+		}
+		this.label = (Integer) labelValue;
+		if (counts == null || counts.length != CooccurrenceCounter.NUM_OF_DIRECTIONS * nBins * nBins) {
+			throw new IllegalArgumentException("GLCMFeatures: counts must have 13 * nBins * nBins elements.");
+		}
+		setMatrixOptions(this.settings);
+		this.orgCal = cal;
+		this.nBins = nBins;
+		this.matrixSize = nBins * nBins;
+		this.glcm_raw = counts;
+		normalize();
+	}
+	
 	@Override
 	public void buildup(Map<String, Object> settings) {
 				
@@ -181,7 +225,7 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'delta' must be an Integer.");
 		}
 		if (deltaValue == null) {
-			this.delta = RadiomicsJ.deltaGLCM;
+			this.delta = config().getDeltaGLCM();
 		}else {
 			this.delta = (Integer)deltaValue;
 		}
@@ -203,7 +247,7 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'nBins' must be an Integer.");
 		}
 		if(nBinsValue == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = (Integer) nBinsValue;
 		}
@@ -216,15 +260,12 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'BinWidth' must be a Double.");
 		}
 		if(bwValue == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = (Double)bwValue;
 		}
 		
-		Object norm = settings.get(RadiomicsFeature.WEIGHTING_NORM);
-		if(norm != null && (norm instanceof String)) {
-			setWeightingNorm((String)norm);
-		}
+		setMatrixOptions(settings);
 		
 		if (mask == null) {
 			// create full face mask
@@ -242,12 +283,12 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		
 		this.orgCal = this.img.getCalibration();
 		// discretised by roi mask.
-		if (RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if (preDiscretised() != null) {
+			discImg = preDiscretised();
 		} else {
 			if (useBinCount) {
 				try {
-					discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+					discImg = discrete(this.img, this.mask, this.label, this.nBins);
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
@@ -256,17 +297,17 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 				 * Bin Width
 				 */
 				try {
-					discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
+					discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		}
 		w = this.img.getWidth();
 		h = this.img.getHeight();
 		s = this.img.getNSlices();
-		aabb = Utils.getRoiBoundingBoxInfo(this.mask, this.label, RadiomicsJ.debug);
+		aabb = roiBoundingBox(this.mask, this.label);
 
 		calcGLCM();
 	}
@@ -327,6 +368,24 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		return null;
 	}
 
+	/**
+	 * weighting norm and merging of the angles.
+	 */
+	private void setMatrixOptions(Map<String, Object> settings) {
+		Object norm = settings.get(RadiomicsFeature.WEIGHTING_NORM);
+		if(norm != null && (norm instanceof String)) {
+			setWeightingNorm((String)norm);
+		}
+		
+		Object mergedValue = settings.get(RadiomicsFeature.GLCM_MERGED);
+		if (mergedValue != null && !(mergedValue instanceof Boolean)) {
+			throw new IllegalArgumentException("'GLCM_MERGED' must be a Boolean.");
+		}
+		if (mergedValue != null) {
+			this.merged = (Boolean) mergedValue;
+		}
+	}
+
 	private void setWeightingNorm(String weightingMethod) {
 		if (weightingMethod == null) {
 			this.weightingMethod = null;// none weighting (ignore weighting).
@@ -343,37 +402,20 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	/**
 	 * calculate glcm on 2d/3d (in 26 components, symmetrical.).
+	 * all 13 angles are counted in one sweep of the roi, see CooccurrenceCounter.
 	 * 
 	 * @return
 	 */
 	public void calcGLCM() {
-		glcm_raw = new java.util.HashMap<Integer, double[][]>();// phi_id and it glcm
-		HashMap<Integer, int[]> angles = Utils.buildAngles();
-		ArrayList<Integer> angle_ids = new ArrayList<>(angles.keySet());
-		Collections.sort(angle_ids);
-		int num_of_angles = angle_ids.size();
-		if (symmetry) {
-			/*
-			 * only calculate about 13 angles (symmetrical )
-			 */
-			for (int a = 14; a < num_of_angles; a++) {
-				double[][] glcm_at_a = calcGLCM2(a, angles.get(Integer.valueOf(a)), this.delta);
-				//GLCM matrices are weighted by weighting factor W and then normalized.
-				glcm_at_a = weighting(angles.get(Integer.valueOf(a)), glcm_at_a);
-				glcm_raw.put(a, glcm_at_a);
-			}
-		} else {
-			for (int a = 0; a < num_of_angles; a++) {
-				if (a == 13) {// skip own angle int[]{0,0,0}
-					continue;
-				}
-				double[][] glcm_at_a = calcGLCM2(a, angles.get(Integer.valueOf(a)), this.delta);
-				//GLCM matrices are weighted by weighting factor W and then normalized.
-				glcm_at_a = weighting(angles.get(Integer.valueOf(a)), glcm_at_a);
-				glcm_raw.put(a, glcm_at_a);
-			}
-		}
-		normalize(glcm_raw);
+		matrixSize = nBins * nBins;
+		try {
+			RoiVolume voxels = roiVolume(discImg, mask, label, nBins);
+			glcm_raw = CooccurrenceCounter.count(voxels, this.delta, voxels.getDepth() > 1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			glcm_raw = new int[CooccurrenceCounter.NUM_OF_DIRECTIONS * matrixSize];
+		}
+		normalize();
 	}
 
 	/**
@@ -388,9 +430,6 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 		ImagePlus img = discImg;
 
-		if (glcm_raw == null) {
-			glcm_raw = new java.util.HashMap<Integer, double[][]>();
-		}
 		if (delta < 1) {
 			delta = 1;
 		}
@@ -459,9 +498,6 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 		ImagePlus img = discImg;
 
-		if (glcm_raw == null) {
-			glcm_raw = new java.util.HashMap<Integer, double[][]>();
-		}
 		if (delta < 1) {
 			delta = 1;
 		}
@@ -479,7 +515,7 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		int offsetZ = angle[0] * delta;
 		
 		if(this.aabb == null) {
-			aabb = Utils.getRoiBoundingBoxInfo(mask, this.label, RadiomicsJ.debug);
+			aabb = roiBoundingBox(mask, this.label);
 		}
 		int xMin = (int) aabb.get("x")[0];
 		int xMax = (int) aabb.get("x")[1];
@@ -565,29 +601,48 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		return norm_glcm;
 	}
 
-	public HashMap<Integer, double[][]> normalize(java.util.HashMap<Integer, double[][]> glcm_raw) {
-
-		glcm = new HashMap<Integer, double[][]>();// final glcm set of each angles
-		ArrayList<Integer> anglesKey = new ArrayList<>(glcm_raw.keySet());
-		Collections.sort(anglesKey);
-		
-		/*
-		 * if do distance weighting, do first merge all angles, then calculate features.
-		 */
-		for (Integer a : anglesKey) {
-			double[][] glcm_raw_at_a = glcm_raw.get(a);
+	/**
+	 * GLCM matrices are weighted by weighting factor W and then normalized.
+	 * if merged, the weighted matrices of all angles are added first.
+	 */
+	private void normalize() {
+		int[][] angles = CooccurrenceCounter.directions();
+		numOfMatrices = merged ? 1 : angles.length;
+		glcm = new double[numOfMatrices * matrixSize];
+		emptyMatrix = new boolean[numOfMatrices];
+		double[] raw = new double[matrixSize];
+		for (int m = 0; m < numOfMatrices; m++) {
+			int aFrom = merged ? 0 : m;
+			int aTo = merged ? angles.length : m + 1;
+			boolean empty = true;
+			Arrays.fill(raw, 0d);
+			for (int a = aFrom; a < aTo; a++) {
+				double w = weight(angles[a]);
+				int base = a * matrixSize;
+				for (int ij = 0; ij < matrixSize; ij++) {
+					int count = glcm_raw[base + ij];
+					if (count == 0) {
+						continue;
+					}
+					empty = false;
+					raw[ij] += count * w;
+				}
+			}
 			// skip all zero matrix
-			if (glcm_raw_at_a == null) {
-				glcm.put(a, null);
+			emptyMatrix[m] = empty;
+			if (empty) {
 				continue;
 			}
-			double[][] norm_glcm_at_a = normalize(glcm_raw_at_a);
-			glcm.put(a, norm_glcm_at_a);
+			double sum = 0d;
+			for (int ij = 0; ij < matrixSize; ij++) {
+				sum += raw[ij];
+			}
+			int base = m * matrixSize;
+			for (int ij = 0; ij < matrixSize; ij++) {
+				glcm[base + ij] = raw[ij] / sum;
+			}
 		}
-
 		calculateCoefficients();
-
-		return glcm;
 	}
 
 	private void calculateCoefficients() {
@@ -613,87 +668,52 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		 * numpy.sum((self.P_glcm * numpy.log2(self.P_glcm + eps)), (1, 2)) # shape =
 		 * (Nv, angles)
 		 */
-
-		/*
-		 * coeffs : angle and coeffs of it angle glcm
-		 */
-		coeffs = new HashMap<Integer, HashMap<String, Object>>();
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		for (Integer a : angles) {
-			double[][] glcm_a = glcm.get(a);
-			if (glcm_a == null) {
-				this.coeffs.put(a, null);
+		int addK = (nBins * 2) - 1;
+		px = new double[numOfMatrices * nBins];
+		py = new double[numOfMatrices * nBins];
+		pXAddY = new double[numOfMatrices * addK];
+		pXSubY = new double[numOfMatrices * nBins];
+		meanX = new double[numOfMatrices];
+		meanY = new double[numOfMatrices];
+		stdDevX = new double[numOfMatrices];
+		stdDevY = new double[numOfMatrices];
+		for (int a = 0; a < numOfMatrices; a++) {
+			if (emptyMatrix[a]) {
 				continue;
 			}
-			HashMap<String, Object> coeffs_a = new HashMap<>();
-			double[] px = new double[nBins];
-			double[] py = new double[nBins];
-			//p_{i+j}
-			double[] pXAddY = new double[(nBins * 2) - 1];// 2 to nBins*2
-			//p_{i-j}
-			double[] pXSubY = new double[nBins];
-			double ux = 0.0;
-			double uy = 0.0;
-			double stdevx = 0.0;
-			double stdevy = 0.0;
-
+			int base = a * matrixSize;
+			int m = a * nBins;
+			int add = a * addK;
 			// Px(i) the marginal row probabilities
 			// Py(i) the marginal column probabilities
-			// First, initialize the arrays to 0
-			for (int i = 0; i < nBins; i++) {
-				px[i] = 0.0;
-				py[i] = 0.0;
-			}
-
+			// p_{i+j} and p_{i-j} in the same sweep.
 			for (int i = 0; i < nBins; i++) {
 				for (int j = 0; j < nBins; j++) {
-					px[i] += glcm_a[i][j];// sum of the cols at row
-					py[i] += glcm_a[j][i];// sum of the rows at col
+					double pij = glcm[base + i * nBins + j];
+					px[m + i] += pij;// sum of the cols at row
+					py[m + i] += glcm[base + j * nBins + i];// sum of the rows at col
+					pXAddY[add + i + j] += pij;
+					pXSubY[m + Math.abs(i - j)] += pij;
 				}
 			}
+			double ux = 0.0;
+			double uy = 0.0;
 			// calculate meanx and meany
 			for (int i = 1; i <= nBins; i++) {
-				ux += (i * px[i - 1]);
-				uy += (i * py[i - 1]);
+				ux += (i * px[m + i - 1]);
+				uy += (i * py[m + i - 1]);
 			}
 			// calculate stdevx and stdevy
+			double stdevx = 0.0;
+			double stdevy = 0.0;
 			for (int i = 1; i <= nBins; i++) {
-				stdevx += ((Math.pow((i - ux), 2)) * px[i - 1]);
-				stdevy += ((Math.pow((i - uy), 2)) * py[i - 1]);
-			}
-			stdevx = Math.sqrt(stdevx);
-			stdevy = Math.sqrt(stdevy);
-
-			int addK_max = nBins * 2;
-			for (int k = 2; k <= addK_max; k++) {
-				for (int i = 1; i <= nBins; i++) {
-					for (int j = 1; j <= nBins; j++) {
-						if (k == (i + j)) {
-							pXAddY[k - 2] += glcm_a[i - 1][j - 1];
-						}
-					}
-				}
+				stdevx += ((Math.pow((i - ux), 2)) * px[m + i - 1]);
+				stdevy += ((Math.pow((i - uy), 2)) * py[m + i - 1]);
 			}
-			int subK_max = nBins;
-			for (int k = 0; k < subK_max; k++) {
-				for (int i = 1; i <= nBins; i++) {
-					for (int j = 1; j <= nBins; j++) {
-						if (k == Math.abs(i - j)) {
-							pXSubY[k] += glcm_a[i - 1][j - 1];
-						}
-					}
-				}
-			}
-			coeffs_a.put("Px", px);
-			coeffs_a.put("Py", py);
-			coeffs_a.put("MeanX", ux);
-			coeffs_a.put("MeanY", uy);
-			coeffs_a.put("pXAddY", pXAddY);
-			coeffs_a.put("pXSubY", pXSubY);
-			coeffs_a.put("StdDevX", stdevx);
-			coeffs_a.put("StdDevY", stdevy);
-			this.coeffs.put(a, coeffs_a);
+			meanX[a] = ux;
+			meanY[a] = uy;
+			stdDevX[a] = Math.sqrt(stdevx);
+			stdDevY[a] = Math.sqrt(stdevy);
 		}
 	}
 	
@@ -707,12 +727,30 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	 * @return weighted glcm_raw
 	 */
 	public double[][] weighting(int[] angleVector, double[][] glcm_raw){
+		double w = weight(angleVector);
+		if(w == 1d) {
+			return glcm_raw;
+		}
+		double[][] weighted = new double[nBins][nBins];
+		for(int i=0;i<nBins;i++) {
+			for(int j=0;j<nBins;j++) {
+				weighted[i][j] = glcm_raw[i][j]*w;
+			}
+		}
+		return weighted;
+	}
+
+	/**
+	 * @param angleVector
+	 * @return weighting factor of the angle, 1 if no weighting.
+	 */
+	private double weight(int[] angleVector) {
 		double dx = orgCal.pixelWidth * angleVector[2];
 		double dy = orgCal.pixelHeight* angleVector[1];
 		double dz = orgCal.pixelDepth* angleVector[0];
 		double distance = 1d;
 		if(this.weightingMethod == null || this.weightingMethod.equals("no_weighting")) {
-			return glcm_raw;
+			return 1d;
 		}else if (this.weightingMethod.equals("manhattan")) {
 			distance = dx+dy+dz;
 		}else if (this.weightingMethod.equals("euclidian")) {
@@ -726,33 +764,24 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 			}
 			distance = max;
 		}else {
-			return glcm_raw;
-		}
-		double w = Math.exp(-1*Math.pow(distance,2));
-		double[][] weighted = new double[nBins][nBins];
-		for(int i=0;i<nBins;i++) {
-			for(int j=0;j<nBins;j++) {
-				weighted[i][j] = glcm_raw[i][j]*w;
-			}
+			return 1d;
 		}
-		return weighted;
+		return Math.exp(-1*Math.pow(distance,2));
 	}
 
 	public double getJointMaximum() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
+		for (int a = 0; a < numOfMatrices; a++) {
 			//for example, at force2D calculation only used 4 angles.
-			if(glcm_a ==null) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double max_a = 0d;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					double v = glcm_a[i - 1][j - 1];
+					double v = glcm[base + (i - 1) * nBins + j - 1];
 					if (max_a < v) {
 						max_a = v;
 					}
@@ -766,20 +795,18 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// =====================================================================================================
 	public double getJointAverage() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
+		for (int a = 0; a < numOfMatrices; a++) {
 			//for example, at force2D calculation only used 4 angles.
-			if(glcm_a ==null) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double res_a = 0d;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					res_a += glcm_a[i - 1][j - 1] * (double) (i);
+					res_a += glcm[base + (i - 1) * nBins + j - 1] * (double) (i);
 				}
 			}
 			res_set[itr] = res_a;
@@ -793,27 +820,25 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	// in Haralick 1973)
 	// also called Sum of Squares.
 	public double getJointVariance() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
+		for (int a = 0; a < numOfMatrices; a++) {
 			//for example, at force2D calculation only used 4 angles.
-			if(glcm_a ==null) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double myu_a = 0d;// joint average at angle
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					myu_a += glcm_a[i - 1][j - 1] * (double) (i);
+					myu_a += glcm[base + (i - 1) * nBins + j - 1] * (double) (i);
 				}
 			}
 
 			double res_a = 0d;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					res_a += Math.pow(i - myu_a, 2) * glcm_a[i - 1][j - 1];
+					res_a += Math.pow(i - myu_a, 2) * glcm[base + (i - 1) * nBins + j - 1];
 				}
 			}
 			res_set[itr] = res_a;
@@ -825,21 +850,19 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	// ===============================================================================================
 	// calculate the entropy (Haralick et al., 1973; Walker, et al., 1995)
 	public double getJointEntropy() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
+		for (int a = 0; a < numOfMatrices; a++) {
 			//for example, at force2D calculation only used 4 angles.
-			if(glcm_a ==null) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double entropy = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					if (glcm_a[i - 1][j - 1] != 0) {
-						entropy = entropy - (glcm_a[i - 1][j - 1] * ((Math.log(glcm_a[i - 1][j - 1]+eps)) / Math.log(2.0)));
+					if (glcm[base + (i - 1) * nBins + j - 1] != 0) {
+						entropy = entropy - (glcm[base + (i - 1) * nBins + j - 1] * ((Math.log(glcm[base + (i - 1) * nBins + j - 1]+eps)) / Math.log(2.0)));
 					}
 				}
 			}
@@ -851,18 +874,16 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// =====================================================================================================
 	public double getDifferenceAverage() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXSubY = (double[]) coeffs.get(a).get("pXSubY");
+			int sub = a * nBins;
 			double res_a = 0.0;
 			for (int k = 0; k < nBins; k++) {
-				res_a += pXSubY[k] * k;
+				res_a += pXSubY[sub + k] * k;
 			}
 			res_set[itr] = res_a;
 			itr++;
@@ -872,22 +893,20 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// =====================================================================================================
 	public double getDifferenceVariance() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXSubY = (double[]) coeffs.get(a).get("pXSubY");
+			int sub = a * nBins;
 			double res_a = 0.0;
 			double diff_avg = 0d;
 			for (int k = 0; k < nBins; k++) {
-				diff_avg += pXSubY[k] * k;
+				diff_avg += pXSubY[sub + k] * k;
 			}
 			for (int k = 0; k < nBins; k++) {
-				res_a += Math.pow((k - diff_avg), 2) * pXSubY[k];
+				res_a += Math.pow((k - diff_avg), 2) * pXSubY[sub + k];
 			}
 			res_set[itr] = res_a;
 			itr++;
@@ -897,19 +916,17 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// =====================================================================================================
 	public double getDifferenceEntropy() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXSubY = (double[]) coeffs.get(a).get("pXSubY");
+			int sub = a * nBins;
 			double res_a = 0.0;
 
 			for (int k = 0; k < nBins; k++) {
-				res_a -= pXSubY[k] * (Math.log(pXSubY[k]+eps) / Math.log(2.0));
+				res_a -= pXSubY[sub + k] * (Math.log(pXSubY[sub + k]+eps) / Math.log(2.0));
 			}
 			res_set[itr] = res_a;
 			itr++;
@@ -918,18 +935,16 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getSumAverage() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXAddY = (double[]) coeffs.get(a).get("pXAddY");
+			int add = a * ((nBins * 2) - 1);
 			double res_a = 0.0;
 			for (int k = 2; k <= nBins * 2; k++) {
-				res_a += pXAddY[k - 2] * k;
+				res_a += pXAddY[add + k - 2] * k;
 			}
 			res_set[itr] = res_a;
 			itr++;
@@ -938,22 +953,20 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getSumVariance() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXAddY = (double[]) coeffs.get(a).get("pXAddY");
+			int add = a * ((nBins * 2) - 1);
 			double myu = 0;
 			for (int k = 2; k <= nBins * 2; k++) {
-				myu += pXAddY[k - 2] * k;
+				myu += pXAddY[add + k - 2] * k;
 			}
 			double res_a = 0.0;
 			for (int k = 2; k <= nBins * 2; k++) {
-				res_a += Math.pow(k - myu, 2) * pXAddY[k - 2];
+				res_a += Math.pow(k - myu, 2) * pXAddY[add + k - 2];
 			}
 			res_set[itr] = res_a;
 			itr++;
@@ -962,18 +975,16 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getSumEntropy() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXAddY = (double[]) coeffs.get(a).get("pXAddY");
+			int add = a * ((nBins * 2) - 1);
 			double res_a = 0.0;
 			for (int k = 2; k <= nBins * 2; k++) {
-				res_a += pXAddY[k - 2] * (Math.log(pXAddY[k - 2]+eps) / Math.log(2.0));
+				res_a += pXAddY[add + k - 2] * (Math.log(pXAddY[add + k - 2]+eps) / Math.log(2.0));
 			}
 			res_set[itr] = -1 * res_a;
 			itr++;
@@ -989,20 +1000,18 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	 * @return
 	 */
 	public double getAngular2ndMoment() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
-			if(glcm_a==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double res_a = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					if (glcm_a[i - 1][j - 1] != 0) {
-						res_a += glcm_a[i - 1][j - 1] * glcm_a[i - 1][j - 1];
+					if (glcm[base + (i - 1) * nBins + j - 1] != 0) {
+						res_a += glcm[base + (i - 1) * nBins + j - 1] * glcm[base + (i - 1) * nBins + j - 1];
 					}
 				}
 			}
@@ -1016,20 +1025,18 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	// (formula 15.39, Bankman, 2009) energy weighted by pixel value difference
 	// same as Inertia.
 	public double getContrast() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
-			if(glcm_a==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double contrast = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					if (glcm_a[i - 1][j - 1] != 0) {
-						contrast += Math.pow(i - j, 2) * (glcm_a[i - 1][j - 1]);
+					if (glcm[base + (i - 1) * nBins + j - 1] != 0) {
+						contrast += Math.pow(i - j, 2) * (glcm[base + (i - 1) * nBins + j - 1]);
 					}
 				}
 			}
@@ -1040,20 +1047,18 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getDissimilarity() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
-			if(glcm_a==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double res_a = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					if (glcm_a[i - 1][j - 1] != 0) {
-						res_a += Math.abs(i - j) * (glcm_a[i - 1][j - 1]);
+					if (glcm[base + (i - 1) * nBins + j - 1] != 0) {
+						res_a += Math.abs(i - j) * (glcm[base + (i - 1) * nBins + j - 1]);
 					}
 				}
 			}
@@ -1064,18 +1069,16 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getInverseDifference() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXSubY = (double[]) coeffs.get(a).get("pXSubY");
+			int sub = a * nBins;
 			double res_a = 0.0;
 			for (int k = 0; k < nBins; k++) {
-				res_a += pXSubY[k] / (1.0 + k);
+				res_a += pXSubY[sub + k] / (1.0 + k);
 			}
 			res_set[itr] = res_a;
 			itr++;
@@ -1084,18 +1087,16 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getNormalisedInverseDifference() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(coeffs.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXSubY = (double[]) coeffs.get(a).get("pXSubY");
+			int sub = a * nBins;
 			double res_a = 0.0;
 			for (int k = 0; k < nBins; k++) {
-				res_a += pXSubY[k] / (1.0 + k / (double) nBins);
+				res_a += pXSubY[sub + k] / (1.0 + k / (double) nBins);
 			}
 			res_set[itr] = res_a;
 			itr++;
@@ -1104,20 +1105,18 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getInverseDifferenceMoment() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			double glcm_a[][] = glcm.get(a);
-			if(glcm_a==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
+			int base = a * matrixSize;
 			double res_a = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					if (glcm_a[i - 1][j - 1] != 0) {
-						res_a += glcm_a[i - 1][j - 1] / (1.0 + (Math.pow(i - j, 2)));
+					if (glcm[base + (i - 1) * nBins + j - 1] != 0) {
+						res_a += glcm[base + (i - 1) * nBins + j - 1] / (1.0 + (Math.pow(i - j, 2)));
 					}
 				}
 			}
@@ -1128,20 +1127,18 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getNormalisedInverseDifferenceMoment() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double glcm_a[][] = glcm.get(a);
+			int base = a * matrixSize;
 			double res_a = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					if (glcm_a[i - 1][j - 1] != 0) {
-						res_a += glcm_a[i - 1][j - 1] / (1.0 + (Math.pow(i - j, 2) / Math.pow(nBins, 2)));
+					if (glcm[base + (i - 1) * nBins + j - 1] != 0) {
+						res_a += glcm[base + (i - 1) * nBins + j - 1] / (1.0 + (Math.pow(i - j, 2) / Math.pow(nBins, 2)));
 					}
 				}
 			}
@@ -1152,19 +1149,17 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 
 	public double getInverseVariance() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[] pXSubY = (double[]) coeffs.get(a).get("pXSubY");
+			int sub = a * nBins;
 			double res_a = 0.0;
 			for (int k = 1; k < nBins; k++) { // 1 <= k <= Ng-1
-//				if (!Double.isNaN(Double.valueOf(pXSubY[k])) && pXSubY[k] != 0) {
-					res_a += pXSubY[k] / (double) (k * k);
+//				if (!Double.isNaN(Double.valueOf(pXSubY[sub + k])) && pXSubY[sub + k] != 0) {
+					res_a += pXSubY[sub + k] / (double) (k * k);
 //				}
 			}
 			res_set[itr] = res_a;
@@ -1180,23 +1175,21 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	 * currently; will give Walker as an option in the future
 	 */
 	public double getCorrelation() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double[][] glcm_a = glcm.get(a);
-			double meanX = (double) coeffs.get(a).get("MeanX");
-			double meanY = (double) coeffs.get(a).get("MeanY");
-			double stdevX = (double) coeffs.get(a).get("StdDevX");
-			double stdevY = (double) coeffs.get(a).get("StdDevY");
+			int base = a * matrixSize;
+			double meanX = this.meanX[a];
+			double meanY = this.meanY[a];
+			double stdevX = this.stdDevX[a];
+			double stdevY = this.stdDevY[a];
 			double res_a = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					res_a += ((i - meanX) * (j - meanY)) * glcm_a[i - 1][j - 1];
+					res_a += ((i - meanX) * (j - meanY)) * glcm[base + (i - 1) * nBins + j - 1];
 				}
 			}
 			res_set[itr] = (1d / (stdevX * stdevY)) * res_a;
@@ -1208,19 +1201,17 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// =====================================================================================================
 	public double getAutocorrection() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double glcm_a[][] = glcm.get(a);
+			int base = a * matrixSize;
 			double res_a = 0d;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					res_a += glcm_a[i - 1][j - 1] * (double) (i * j);
+					res_a += glcm[base + (i - 1) * nBins + j - 1] * (double) (i * j);
 				}
 			}
 			res_set[itr] = res_a;
@@ -1231,21 +1222,19 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// =====================================================================================================
 	public double getClusterTendency() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double glcm_a[][] = glcm.get(a);
-			double meanX = (double) coeffs.get(a).get("MeanX");
-			double meanY = (double) coeffs.get(a).get("MeanY");
+			int base = a * matrixSize;
+			double meanX = this.meanX[a];
+			double meanY = this.meanY[a];
 			double res_a = 0d;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					res_a += (Math.pow((i + j - meanX - meanY), 2) * glcm_a[i - 1][j - 1]);
+					res_a += (Math.pow((i + j - meanX - meanY), 2) * glcm[base + (i - 1) * nBins + j - 1]);
 				}
 			}
 			res_set[itr] = res_a;
@@ -1261,21 +1250,19 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 	 * @return
 	 */
 	public double getClusterShade() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double glcm_a[][] = glcm.get(a);
-			double meanX = (double) coeffs.get(a).get("MeanX");
-			double meanY = (double) coeffs.get(a).get("MeanY");
+			int base = a * matrixSize;
+			double meanX = this.meanX[a];
+			double meanY = this.meanY[a];
 			double res_a = 0d;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					res_a += (Math.pow((i + j - meanX - meanY), 3) * glcm_a[i - 1][j - 1]);
+					res_a += (Math.pow((i + j - meanX - meanY), 3) * glcm[base + (i - 1) * nBins + j - 1]);
 				}
 			}
 			res_set[itr] = res_a;
@@ -1286,21 +1273,19 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// =====================================================================================================
 	public double getClusterProminence() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double glcm_a[][] = glcm.get(a);
-			double meanX = (double) coeffs.get(a).get("MeanX");
-			double meanY = (double) coeffs.get(a).get("MeanY");
+			int base = a * matrixSize;
+			double meanX = this.meanX[a];
+			double meanY = this.meanY[a];
 			double res_a = 0d;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					res_a += (Math.pow((i + j - meanX - meanY), 4) * glcm_a[i - 1][j - 1]);
+					res_a += (Math.pow((i + j - meanX - meanY), 4) * glcm[base + (i - 1) * nBins + j - 1]);
 				}
 			}
 			res_set[itr] = res_a;
@@ -1317,25 +1302,22 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// ===============================================================================================
 	public double getInformationalMeasureOfCorrelation1() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double glcm_a[][] = glcm.get(a);
-			double[] Px = (double[]) coeffs.get(a).get("Px");
-			double[] Py = (double[]) coeffs.get(a).get("Py");
+			int base = a * matrixSize;
+			int m = a * nBins;
 			double HXY = 0.0; // JointEntropy
 			double HXY1 = 0.0;
 			double HX = 0d;
 			for (int i = 1; i <= nBins; i++) {
-				HX -= Px[i - 1] * ((Math.log(Px[i - 1]+ eps)) / Math.log(2.0));
+				HX -= px[m + i - 1] * ((Math.log(px[m + i - 1]+ eps)) / Math.log(2.0));
 				for (int j = 1; j <= nBins; j++) {
-					HXY -= (glcm_a[i - 1][j - 1] * ((Math.log(glcm_a[i - 1][j - 1]+ eps)) / Math.log(2.0)));
-					HXY1 -= (glcm_a[i - 1][j - 1] * (Math.log((Px[i - 1] * Py[j - 1]) + eps) / Math.log(2.0)));
+					HXY -= (glcm[base + (i - 1) * nBins + j - 1] * ((Math.log(glcm[base + (i - 1) * nBins + j - 1]+ eps)) / Math.log(2.0)));
+					HXY1 -= (glcm[base + (i - 1) * nBins + j - 1] * (Math.log((px[m + i - 1] * py[m + j - 1]) + eps) / Math.log(2.0)));
 				}
 			}
 			res_set[itr] = (HXY - HXY1) / HX;
@@ -1346,23 +1328,20 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 
 	// ===============================================================================================
 	public double getInformationalMeasureOfCorrelation2() {
-		ArrayList<Integer> angles = new ArrayList<>(glcm.keySet());
-		Collections.sort(angles);
-		double[] res_set = new double[angles.size()];
+		double[] res_set = new double[numOfMatrices];
 		int itr = 0;
-		for (Integer a : angles) {
-			if(glcm.get(a)==null) {
+		for (int a = 0; a < numOfMatrices; a++) {
+			if(emptyMatrix[a]) {
 				continue;
 			}
-			double glcm_a[][] = glcm.get(a);
-			double[] Px = (double[]) coeffs.get(a).get("Px");
-			double[] Py = (double[]) coeffs.get(a).get("Py");
+			int base = a * matrixSize;
+			int m = a * nBins;
 			double HXY = 0.0; // JointEntropy
 			double HXY2 = 0.0;
 			for (int i = 1; i <= nBins; i++) {
 				for (int j = 1; j <= nBins; j++) {
-					HXY = HXY - glcm_a[i - 1][j - 1] * (Math.log((glcm_a[i - 1][j - 1]) + eps) / Math.log(2.0));
-					HXY2 = HXY2 - Px[i - 1] * Py[j - 1] * (Math.log((Px[i - 1] * Py[j - 1]) + eps) / Math.log(2.0));
+					HXY = HXY - glcm[base + (i - 1) * nBins + j - 1] * (Math.log((glcm[base + (i - 1) * nBins + j - 1]) + eps) / Math.log(2.0));
+					HXY2 = HXY2 - px[m + i - 1] * py[m + j - 1] * (Math.log((px[m + i - 1] * py[m + j - 1]) + eps) / Math.log(2.0));
 				}
 			}
 			double res_a = Math.sqrt(1. - (Math.exp(-2. * (HXY2 - HXY))));
@@ -1479,19 +1458,37 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 		return getContrast();
 	}
 
+	/**
+	 * @param angle {z, y, x} vector of Utils.buildAngles(), one of the angle ids 14 to 26.
+	 * @return normalized glcm at the angle, the merged glcm if merged. null if no pair.
+	 */
 	public double[][] getMatrix(int[] angle) {
-		if (glcm == null || glcm.size() < 1) {
+		if (glcm == null || numOfMatrices < 1) {
 			return null;
 		}
-		HashMap<Integer, int[]> angles = Utils.buildAngles();
-		ArrayList<Integer> angles_key = new ArrayList<>(glcm.keySet());
-		for (Integer a_id : angles_key) {
-			int[] ang = angles.get(a_id);
+		int a = matrixIndex(angle);
+		if (a < 0 || emptyMatrix[a]) {
+			return null;
+		}
+		double[][] mat = new double[nBins][nBins];
+		for (int i = 0; i < nBins; i++) {
+			System.arraycopy(glcm, a * matrixSize + i * nBins, mat[i], 0, nBins);
+		}
+		return mat;
+	}
+
+	private int matrixIndex(int[] angle) {
+		if (merged) {
+			return 0;
+		}
+		int[][] angles = CooccurrenceCounter.directions();
+		for (int a = 0; a < angles.length; a++) {
+			int[] ang = angles[a];
 			if (ang[0] == angle[0] && ang[1] == angle[1] && ang[2] == angle[2]) {
-				return glcm.get(a_id);
+				return a;
 			}
 		}
-		return null;
+		return -1;
 	}
 
 //	public String toString() {
@@ -1509,19 +1506,39 @@ public class GLCMFeatures extends AbstractRadiomicsFeature implements Texture{
 //	}
 
 	public void checkCoefficients(int angle_id, String key) {
-		if (coeffs != null && coeffs.size() > 0) {
-			HashMap<String, Object> coeff_a = coeffs.get(angle_id);
-			Object obj = coeff_a.get(key);
-			if (obj != null) {
-				if (obj instanceof Double) {
-					System.out.println(key + " is " + (double) obj);
-				} else if (obj instanceof double[]) {
-					System.out.println(key + " is ");
-					double[] o = (double[]) obj;
-					for (int i = 0; i < o.length; i++) {
-						System.out.println(o[i]);
-					}
-				}
+		if (emptyMatrix == null) {
+			return;
+		}
+		int a = merged ? 0 : angle_id - 14;
+		if (a < 0 || a >= numOfMatrices || emptyMatrix[a]) {
+			return;
+		}
+		double[] o = null;
+		int from = a * nBins;
+		int len = nBins;
+		if (key.equals("Px")) {
+			o = px;
+		} else if (key.equals("Py")) {
+			o = py;
+		} else if (key.equals("pXAddY")) {
+			o = pXAddY;
+			len = (nBins * 2) - 1;
+			from = a * len;
+		} else if (key.equals("pXSubY")) {
+			o = pXSubY;
+		} else if (key.equals("MeanX")) {
+			System.out.println(key + " is " + meanX[a]);
+		} else if (key.equals("MeanY")) {
+			System.out.println(key + " is " + meanY[a]);
+		} else if (key.equals("StdDevX")) {
+			System.out.println(key + " is " + stdDevX[a]);
+		} else if (key.equals("StdDevY")) {
+			System.out.println(key + " is " + stdDevY[a]);
+		}
+		if (o != null) {
+			System.out.println(key + " is ");
+			for (int i = from; i < from + len; i++) {
+				System.out.println(o[i]);
 			}
 		}
 	}
@@ -31,8 +31,11 @@ import ij.ImagePlus;
 import ij.ImageStack;
 import ij.measure.Calibration;
 import ij.process.ByteProcessor;
+import ij.process.ImageProcessor;
+import io.github.tatsunidas.radiomics.main.ConnectedZones;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
 import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
 import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
@@ -65,6 +68,7 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 	
 	double[][] gldzm_raw;
 	double[][] gldzm;// normalised
+	int maxDistance;// largest distance to the roi edge, see getDistanceMap(RoiVolume)
 	
 	double Ns = 0d;//sum of zone size count, without normalize
 	double mu_i=0.0;
@@ -141,30 +145,30 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		}
 		
 		if(nBins == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = nBins;
 		}
 		
 		if(binWidth == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = binWidth;
 		}
 		
 		// discretise by roi mask.
 		try {
-			if (RadiomicsJ.discretiseImp != null) {
-				discImg = RadiomicsJ.discretiseImp;
+			if (preDiscretised() != null) {
+				discImg = preDiscretised();
 			} else {
 				if (useBinCount) {
-					discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+					discImg = discrete(this.img, this.mask, this.label, this.nBins);
 				} else {
 					/*
 					 * do Fixed Bin Width
 					 */
-					discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-					this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+					discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+					this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 				}
 			}
 		} catch (Exception e) {
@@ -192,6 +196,14 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 	
 	public void buildup(Map<String, Object> settings) {
+		Object morphoMaskValue = settings.get(RadiomicsFeature.MORPHO_MASK);
+		if (morphoMaskValue != null && !(morphoMaskValue instanceof ImagePlus)) {
+			throw new IllegalArgumentException("'MORPHO_MASK' must be an ImagePlus.");
+		}
+		if (morphoMaskValue != null) {
+			this.morphoMask = (ImagePlus) morphoMaskValue;
+		}
+		
 		Object useBinValue = settings.get(RadiomicsFeature.USE_BIN_COUNT);
 		if (useBinValue == null) {
 			throw new IllegalArgumentException("'useBinCount:boolean' is missing in settings.");
@@ -209,7 +221,7 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'nBins' must be an Integer.");
 		}
 		if(nBinsValue == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = (Integer) nBinsValue;
 		}
@@ -222,7 +234,7 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'BinWidth' must be a Double.");
 		}
 		if(bwValue == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = (Double)bwValue;
 		}
@@ -248,12 +260,12 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		
 		this.orgCal = this.img.getCalibration();
 		// discretised by roi mask.
-		if (RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if (preDiscretised() != null) {
+			discImg = preDiscretised();
 		} else {
 			if (useBinCount) {
 				try {
-					discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+					discImg = discrete(this.img, this.mask, this.label, this.nBins);
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
@@ -262,11 +274,11 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 				 * Bin Width
 				 */
 				try {
-					discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
+					discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		}
 		w = this.img.getWidth();
@@ -277,7 +289,7 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		Collections.sort(angle_ids);
 		
 		//todo
-//		aabb = Utils.getRoiBoundingBoxInfo(this.mask, this.label, RadiomicsJ.debug);
+//		aabb = roiBoundingBox(this.mask, this.label);
 
 		try{
 			fillMatrix();
@@ -294,48 +306,18 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		gldzm = null;
 		//<grayVal - count zones by distance>
 		HashMap<Integer, Integer[]> gldzm_map = new HashMap<Integer,Integer[]>();
-		int w = discImg.getWidth();
-		int h= discImg.getHeight();
-		int s = discImg.getNSlices();
-		Integer[][][] voxels = Utils.prepareVoxels(discImg, mask, label, nBins);//[z][y][x], temp voxels at it angle, for count up.
+		RoiVolume voxels = roiVolume(discImg, mask, label, nBins);//cropped to the roi
 		/*
 		 * IBSI: the roi edge is determined by the morphological mask,
 		 * whereas grey levels are determined by the intensity mask.
 		 */
-		Integer[][][] distance_map = getDistanceMap(morphoMask != null ? morphoMask : mask);
-		//search dist max
-		int distance_max = 1;
-		for(int z=0;z<s;z++) {
-			for (int y = 0; y<h; y++) {
-				for (int x = 0; x < w; x++) {
-					if(distance_map[z][y][x] == null) {
-						continue;
-					}
-					if (distance_max < distance_map[z][y][x]) {
-						distance_max = distance_map[z][y][x];
-					}
-				}
-			}
-		}
-		//get blobs
-		ArrayList<ArrayList<Point3i>> blobs = collectBlobs(voxels);
-		
-		for(ArrayList<Point3i> blob : blobs) {
-			if(blob == null || blob.size() < 1) {
-				continue;
-			}
-			Integer blob_grayLevel = null;
-			//search distance min in blob area
-			int d = Integer.MAX_VALUE;
-			for(Point3i p : blob) {
-				int dv = distance_map[p.z][p.y][p.x];
-				if (d > dv) {
-					d = dv;
-					if(blob_grayLevel == null) {
-						blob_grayLevel = Integer.valueOf(voxels[p.z][p.y][p.x]);
-					}
-				}
-			}
+		int[] distance_map = getDistanceMap(voxels);
+		int distance_max = Math.max(1, maxDistance);
+		ConnectedZones zones = ConnectedZones.of(voxels, distance_map);
+		for(int zone=0;zone<zones.getCount();zone++) {
+			int blob_grayLevel = zones.getGreyLevel(zone);
+			//distance min in blob area
+			int d = zones.getMinDistance(zone);
 			if(d < 1) {
 				//throw exception ??
 				continue;
@@ -344,12 +326,8 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 				//init matrix
 				//[zoneDistance1_count, zoneDistance2_count...] array for each gray level.
 				Integer[] distance_zone_count = new Integer[distance_max];
-//				for(Integer c : distance_zone_count) {
-//					c = Integer.valueOf(0);//DO NOT USE
-//				}
-				int itr = 0;
-				for(@SuppressWarnings("unused") Integer c : distance_zone_count) {
-					distance_zone_count[itr++] = Integer.valueOf(0);
+				for(int itr=0;itr<distance_max;itr++) {
+					distance_zone_count[itr] = Integer.valueOf(0);
 				}
 				distance_zone_count[d-1] = Integer.valueOf(1);//d is 1 based.
 				gldzm_map.put(blob_grayLevel, distance_zone_count);
@@ -375,6 +353,10 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 	
 	
+	/**
+	 * @deprecated zones of the matrix are found by ConnectedZones, that is linear in the size of the roi.
+	 */
+	@Deprecated
 	public ArrayList<ArrayList<Point3i>> collectBlobs(Integer[][][] src){
 		int s = src.length;
 		int h = src[0].length;
@@ -592,8 +574,85 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		int w = mask.getWidth();
 		int h = mask.getHeight();
 		int s = mask.getNSlices();
-		byte[][][] label_ones = convertToLabelFrom(mask);
+		int[][][] distances = erodeDistances(convertToLabelFrom(mask), s == 1);
 		Integer[][][] distance_map = new Integer[s][h][w];
+		for(int z=0;z<s;z++) {
+			for (int y = 0; y < h; y++) {
+				for (int x = 0; x < w; x++) {
+					if(distances[z][y][x] > 0) {
+						distance_map[z][y][x] = distances[z][y][x];
+					}
+				}
+			}
+		}
+		return distance_map;
+	}
+	
+	/**
+	 * Distance to the roi edge on the bounding box of roi, 0 out of the roi edge.
+	 * Also sets maxDistance, the largest distance of the roi edge.
+	 * 
+	 * The edge mask (morphological mask, or mask) is eroded over its bounding box
+	 * plus one voxel margin only, that gives the same distances as getDistanceMap(ImagePlus).
+	 * @param roi grey levels of the intensity mask.
+	 * @return distances, indexed as roi.
+	 */
+	protected int[] getDistanceMap(RoiVolume roi) throws Exception {
+		ImagePlus edgeMask = morphoMask != null ? morphoMask : mask;
+		int[] distances = new int[roi.size()];
+		maxDistance = 0;
+		int[] box = RoiVolume.boundingBox(edgeMask, label);
+		if(box == null || roi.size() == 0) {
+			return distances;
+		}
+		int x0 = Math.max(0, Math.min(box[0], roi.getX0()) - 1);
+		int y0 = Math.max(0, Math.min(box[1], roi.getY0()) - 1);
+		int z0 = Math.max(0, Math.min(box[2], roi.getZ0()) - 1);
+		int x1 = Math.min(edgeMask.getWidth() - 1, Math.max(box[3], roi.getX0() + roi.getWidth() - 1) + 1);
+		int y1 = Math.min(edgeMask.getHeight() - 1, Math.max(box[4], roi.getY0() + roi.getHeight() - 1) + 1);
+		int z1 = Math.min(edgeMask.getNSlices() - 1, Math.max(box[5], roi.getZ0() + roi.getDepth() - 1) + 1);
+		int cw = x1 - x0 + 1;
+		int ch = y1 - y0 + 1;
+		int cs = z1 - z0 + 1;
+		byte[][][] label_ones = new byte[cs][ch][cw];//z-y-x order !!
+		for(int z=0;z<cs;z++) {
+			ImageProcessor mp = edgeMask.getStack().getProcessor(z0 + z + 1);
+			for(int y=0;y<ch;y++) {
+				for(int x=0;x<cw;x++) {
+					label_ones[z][y][x] = (int) mp.getf(x0 + x, y0 + y) == this.label ? (byte) 1 : (byte) 0;
+				}
+			}
+		}
+		int[][][] cropped = erodeDistances(label_ones, edgeMask.getNSlices() == 1);
+		for(int z=0;z<cs;z++) {
+			for(int y=0;y<ch;y++) {
+				for(int x=0;x<cw;x++) {
+					if(maxDistance < cropped[z][y][x]) {
+						maxDistance = cropped[z][y][x];
+					}
+				}
+			}
+		}
+		for(int z=0;z<roi.getDepth();z++) {
+			for(int y=0;y<roi.getHeight();y++) {
+				for(int x=0;x<roi.getWidth();x++) {
+					distances[roi.index(x, y, z)] = cropped[roi.getZ0() + z - z0][roi.getY0() + y - y0][roi.getX0() + x - x0];
+				}
+			}
+		}
+		return distances;
+	}
+	
+	/**
+	 * @param label_ones z-y-x order, 1 in the roi.
+	 * @param is2D erode by 4 connected, otherwise by 6 connected.
+	 * @return distance of each voxel, 0 out of the roi.
+	 */
+	private int[][][] erodeDistances(byte[][][] label_ones, boolean is2D) {
+		int s = label_ones.length;
+		int h = label_ones[0].length;
+		int w = label_ones[0][0].length;
+		int[][][] distance_map = new int[s][h][w];
 		byte[][][] current_eroded_res = Arrays.stream(label_ones)
 	             .map((byte[][] slice) -> slice.clone())
 	             .toArray((int length) -> new byte[length][][]);
@@ -602,7 +661,7 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 			byte[][][] prev_reoded_res = Arrays.stream(current_eroded_res)
 					.map((byte[][] slice) -> slice.clone())
 		            .toArray((int length) -> new byte[length][][]);
-			if(s == 1) {
+			if(is2D) {
 				current_eroded_res = erode_by_4connected(current_eroded_res);
 			}else {
 				current_eroded_res = erode_by_6connected(current_eroded_res);
@@ -945,7 +1004,7 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 	 * @return
 	 */
 	private Double getDistancePercentage() {
-		int Nv = Utils.getVoxels(discImg, mask, this.label).length;
+		int Nv = roiVoxels(discImg, mask, this.label).length;
 		if(Nv == 0) {
 			return null;
 		}
@@ -992,7 +1051,7 @@ public class GLDZMFeatures extends AbstractRadiomicsFeature implements Texture{
 	protected double[][] map2matrix(HashMap<Integer,Integer[]> gldzm){
 		ArrayList<Integer> keys = new ArrayList<>(gldzm.keySet());
 		Collections.sort(keys);
-		double gray_max = StatUtils.max(Utils.getVoxels(discImg, mask, label));
+		double gray_max = StatUtils.max(roiVoxels(discImg, mask, label));
 		int distance_level = gldzm.get(keys.get(0)).length;
 		double[][] res = new double[(int)gray_max][distance_level];
 		int itr = 0;
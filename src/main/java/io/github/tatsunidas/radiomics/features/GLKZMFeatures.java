@@ -1,18 +1,14 @@
 package io.github.tatsunidas.radiomics.features;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import javax.swing.JOptionPane;
 
-import javax.vecmath.Point3i;
-
 import ij.ImagePlus;
 import ij.process.ByteProcessor;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
 import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
@@ -54,14 +50,14 @@ public class GLKZMFeatures extends GLDZMFeatures implements Texture{
 		}
 		kineticsMap = kinetics;
 		if(useBinCount) {
-			kineticsDiscMap = Utils.discrete(kineticsMap, super.mask, super.label, kinetics_nBins);
+			kineticsDiscMap = discrete(kineticsMap, super.mask, super.label, kinetics_nBins);
 			this.kinetics_nBins = kinetics_nBins;
 		}else {
 			/*
 			 * do Fixed Bin Width
 			 */
-			kineticsDiscMap = Utils.discreteByBinWidth(kineticsMap, super.mask, super.label, binWidth);
-			this.kinetics_nBins = Utils.getNumOfBinsByMax(kineticsDiscMap, super.mask, super.label);
+			kineticsDiscMap = discreteByBinWidth(kineticsMap, super.mask, super.label, binWidth, config().getRangeMin());
+			this.kinetics_nBins = numOfBinsByMax(kineticsDiscMap, super.mask, super.label);
 		}
 		//add settings
 		super.settings.put(RadiomicsFeature.KINETICS_IMG, kineticsMap);
@@ -70,72 +66,26 @@ public class GLKZMFeatures extends GLDZMFeatures implements Texture{
 		super.settings.put(RadiomicsFeature.KINETICS_BinWidth, binWidth);
 	}
 	
-	public void fillMatrix() throws Exception {
-		gldzm_raw = null;//init
-		gldzm = null;
-		//<grayVal - count zones by distance>
-		HashMap<Integer, Integer[]> gldzm_map = new HashMap<Integer,Integer[]>();
-		int w = discImg.getWidth();
-		int h= discImg.getHeight();
-		int s = discImg.getNSlices();
-		Integer[][][] voxels = Utils.prepareVoxels(discImg, super.mask, super.label, super.nBins);//[z][y][x], temp voxels at it angle, for count up.
-		Integer[][][] distance_map = getDistanceMap(kineticsDiscMap);
-		//search distance max
-		int distance_max = 1;
-		for(int z=0;z<s;z++) {
-			for (int y = 0; y<h; y++) {
-				for (int x = 0; x < w; x++) {
-					if(distance_map[z][y][x] == null) {
-						continue;
-					}
-					if (distance_max < distance_map[z][y][x]) {
-						distance_max = distance_map[z][y][x];
-					}
-				}
-			}
-		}
-		//get blobs
-		ArrayList<ArrayList<Point3i>> blobs = collectBlobs(voxels);
-		
-		for(ArrayList<Point3i> blob : blobs) {
-			if(blob == null || blob.size() < 1) {
-				continue;
-			}
-			Integer blob_grayLevel = null;
-			//search distance min in blob area
-			int d = Integer.MAX_VALUE;
-			for(Point3i p : blob) {
-				int dv = distance_map[p.z][p.y][p.x];
-				if (d > dv) {
-					d = dv;
-					if(blob_grayLevel == null) {
-						blob_grayLevel = Integer.valueOf(voxels[p.z][p.y][p.x]);
-					}
-				}
-			}
-			if(d < 1) {
+	/**
+	 * The discretised kinetics of the roi voxels are used as their distance.
+	 */
+	@Override
+	protected int[] getDistanceMap(RoiVolume roi) throws Exception {
+		//same mask and label, the bounding box is the same as roi.
+		RoiVolume kinetics = roiVolume(kineticsDiscMap, super.mask, super.label, kinetics_nBins);
+		int[] distances = new int[roi.size()];
+		maxDistance = 0;
+		for(int i=0;i<distances.length;i++) {
+			int d = kinetics.get(i);
+			if(d == RoiVolume.OUTSIDE) {
 				continue;
 			}
-			if(gldzm_map.get(blob_grayLevel) == null) {
-				//init matrix
-				//[zoneDistance1_count, zoneDistance2_count...] array for each gray level.
-				Integer[] distance_zone_count = new Integer[distance_max];
-//				for(Integer c : distance_zone_count) {
-//					c = Integer.valueOf(0);//DO NOT USE
-//				}
-				int itr = 0;
-				for(@SuppressWarnings("unused") Integer c : distance_zone_count) {
-					distance_zone_count[itr++] = Integer.valueOf(0);
-				}
-				distance_zone_count[d-1] = Integer.valueOf(1);//d is 1 based.
-				gldzm_map.put(blob_grayLevel, distance_zone_count);
-			}else {
-				gldzm_map.get(blob_grayLevel)[d-1]++;
+			distances[i] = d;
+			if(maxDistance < d) {
+				maxDistance = d;
 			}
 		}
-		gldzm_raw = map2matrix(gldzm_map);
-		gldzm = normalize(gldzm_raw);
-		calculateCoefficients();
+		return distances;
 	}
 	
 	@Override
@@ -169,7 +119,6 @@ public class GLKZMFeatures extends GLDZMFeatures implements Texture{
 	
 	public static boolean test() {
 		try {
-			RadiomicsJ.discretiseImp = null;//init, fail safe.
 			byte[] pix = new byte[] {1,2,3,4,5,6,7,8,9};
 			byte[] m = new byte[] {1,1,1,1,1,1,1,1,1};
 			byte[] k = new byte[] {1,0,3,0,5,0,6,0,8};
@@ -21,15 +21,17 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.stat.StatUtils;
-import javax.vecmath.Point3i;
 
 import ij.IJ;
 import ij.ImagePlus;
 import ij.measure.Calibration;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
 import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
+import io.github.tatsunidas.radiomics.main.RunLengthCounter;
 import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
@@ -45,7 +47,7 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 	int w;
 	int h;
 	int s;
-	Integer[][][] voxels = null;
+	RoiVolume voxels = null;// discretised roi, cropped to its bounding box.
 	
 	final int label;
 	java.util.HashMap<Integer, double[][]> glrlm_raw;// angle_id and glrlm at it angle.
@@ -53,6 +55,7 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 	boolean normalization = true;// always true;
 	int nBins;// 1 to N
 	double binWidth;
+	int numOfVoxels;// in the roi, for run percentage.
 
 	HashMap<Integer, HashMap<String, Object>> coeffs;// angle_od and coefficients of it angle.
 	double eps = Math.ulp(1.0);// 2.220446049250313E-16
@@ -94,34 +97,34 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 		if (nBins != null) {
 			this.nBins = nBins;
 		} else {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}
 		
 		if (binWidth != null) {
 			this.binWidth = binWidth;
 		} else {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}
 
 		setWeightingNorm(weightingNorm);
 		
-		if(RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if(preDiscretised() != null) {
+			discImg = preDiscretised();
 		}else {
 			if(useBinCount) {
-				discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+				discImg = discrete(this.img, this.mask, this.label, this.nBins);
 			}else {
 				/*
 				 * do Fixed Bin Width
 				 */
-				discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		}
 		w = discImg.getWidth();
 		h= discImg.getHeight();
 		s = discImg.getNSlices();
-		voxels = Utils.prepareVoxels(discImg, this.mask, this.label, this.nBins);
+		voxels = roiVolume(discImg, this.mask, this.label, this.nBins);
 		
 		try{
 			fillGLRLM();
@@ -142,6 +145,39 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 		settings.put(RadiomicsFeature.WEIGHTING_NORM, weightingNorm);
 	}
 	
+	/**
+	 * Features of runs counted elsewhere, for example by the sliding windows of a feature map.
+	 * No image is kept.
+	 * 
+	 * @param counts number of runs of the 13 angles (angle id 14 to 26), [angle][grey level - 1][run length - 1].
+	 * @param numOfVoxels number of voxels in the roi.
+	 * @param settings label.
+	 */
+	public GLRLMFeatures(int[][][] counts, int numOfVoxels, Map<String, Object> settings) {
+		super();
+		if (settings != null) {
+			this.settings = settings;
+		}
+		Object labelValue = this.settings.get(RadiomicsFeature.LABEL);
+		if (labelValue == null) {
+			throw new IllegalArgumentException("'label' is missing in settings.");
+		}
+		if (!(labelValue instanceof Integer)) {
+			throw new IllegalArgumentException("'label' must be an Integer.");
+		}
+		this.label = (Integer) labelValue;
+		if (counts == null || counts.length != 13) {
+			throw new IllegalArgumentException("GLRLMFeatures: counts of the 13 angles are required.");
+		}
+		this.nBins = counts[0].length;
+		this.numOfVoxels = numOfVoxels;
+		glrlm_raw = new HashMap<Integer, double[][]>();
+		for (int a = 0; a < counts.length; a++) {
+			glrlm_raw.put(14 + a, toMatrix(counts[a], nBins));
+		}
+		normalize(glrlm_raw);
+	}
+	
 	public void buildup(Map<String, Object> settings) {
 		
 		Object useBinValue = settings.get(RadiomicsFeature.USE_BIN_COUNT);
@@ -161,7 +197,7 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'nBins' must be an Integer.");
 		}
 		if(nBinsValue == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = (Integer) nBinsValue;
 		}
@@ -174,7 +210,7 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'BinWidth' must be a Double.");
 		}
 		if(bwValue == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = (Double)bwValue;
 		}
@@ -200,12 +236,12 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 		
 		this.orgCal = this.img.getCalibration();
 		// discretised by roi mask.
-		if (RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if (preDiscretised() != null) {
+			discImg = preDiscretised();
 		} else {
 			if (useBinCount) {
 				try {
-					discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+					discImg = discrete(this.img, this.mask, this.label, this.nBins);
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
@@ -214,11 +250,11 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 				 * Bin Width
 				 */
 				try {
-					discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
+					discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		}
 		w = this.img.getWidth();
@@ -226,7 +262,7 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 		s = this.img.getNSlices();
 		
 		try{
-			voxels = Utils.prepareVoxels(discImg, this.mask, this.label, this.nBins);
+			voxels = roiVolume(discImg, this.mask, this.label, this.nBins);
 			fillGLRLM();
 		}catch(StackOverflowError | Exception e) {
 			System.out.println("Stack Overflow occured when executing fillGLRLM().");
@@ -256,50 +292,58 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 	
 	public void fillGLRLM() throws Exception {
 		glrlm_raw = new HashMap<Integer, double[][]>();//angle_id and 
+		numOfVoxels = voxels.countRoiVoxels();
 		HashMap<Integer, int[]> angles = Utils.buildAngles();
 		ArrayList<Integer> angle_ids = new ArrayList<>(angles.keySet());
 		Collections.sort(angle_ids);
 		int num_of_angles = angle_ids.size();
 		/*
-		 * only calculate about 13 angles
+		 * only calculate about 13 angles, each angle walks the voxels once, on its own thread.
 		 */
+		double[][][] glrlm_at = new double[num_of_angles][][];
+		IntStream.range(14, num_of_angles).parallel().forEach(a -> {
+			glrlm_at[a] = calcGLRLM(a, angles.get(Integer.valueOf(a)));
+		});
 		for (int a = 14; a < num_of_angles; a++) {
-			double[][] glrlm_at_a = calcGLRLM(a, angles.get(Integer.valueOf(a)));
 			//TODO weighting before normalize
-			glrlm_raw.put(a, glrlm_at_a);
+			glrlm_raw.put(a, glrlm_at[a]);
 		}
 		normalize(glrlm_raw);
 		
 	}
 	
 	
-	public double[][] calcGLRLM(final Integer angle_id, final int[] angle) throws Exception {
-		//[z][y][x], temp voxels at it angle, for count up.
-		Integer[][][] voxels = copyVoxels(this.voxels);
-		HashMap<Integer, HashMap<Integer,Integer>> glrlm_map_a = new HashMap<Integer, HashMap<Integer,Integer>>();
-		for(int grayLevel=1;grayLevel<=nBins;grayLevel++) {
-			//size and count
-			HashMap<Integer,Integer> glrlm_row = new HashMap<Integer,Integer>();
-			for(int z=0;z<s;z++) {
-				for(int y=0;y<h;y++) {
-					for(int x=0;x<w;x++) {
-						if (voxels[z][y][x] == null) {
-							continue;
-						}
-						if (voxels[z][y][x] == Integer.MIN_VALUE) {
-							continue;
-						}
-						if(voxels[z][y][x] == grayLevel) {
-							Integer run_length = countNeighbor(grayLevel, voxels, x, y, z, angle);
-							glrlm_row.put(run_length, glrlm_row.get(run_length) == null ? 1:glrlm_row.get(run_length)+1);
-						}
-					}
+	/**
+	 * @param angle_id
+	 * @param angle z,y,x, see Utils.buildAngles().
+	 * @return run counts [grey level - 1][run length - 1].
+	 * run lengths up to nBins (keep (i,j) shape), or up to the longest run of this angle if it is longer.
+	 */
+	public double[][] calcGLRLM(final Integer angle_id, final int[] angle) {
+		int[][] counts = RunLengthCounter.count(voxels, angle[2], angle[1]*-1/*adjust vector direction and coordinate direction in Y axis.*/, angle[0]);
+		return toMatrix(counts, nBins);
+	}
+	
+	/**
+	 * @return run counts as double, run lengths up to nBins, or up to the longest run if it is longer.
+	 */
+	private static double[][] toMatrix(int[][] counts, int nBins) {
+		int longest = 0;
+		for(int i=0;i<nBins;i++) {
+			for(int j=counts[i].length-1;j>=longest;j--) {
+				if(counts[i][j] != 0) {
+					longest = j+1;
+					break;
 				}
 			}
-			//discrete level is 1 to Ng.
-			glrlm_map_a.put(grayLevel, glrlm_row);
 		}
-		return map2matrix(glrlm_map_a);
+		double[][] glrlm_a = new double[nBins][Math.max(nBins, longest)];
+		for(int i=0;i<nBins;i++) {
+			for(int j=0;j<longest;j++) {
+				glrlm_a[i][j] = counts[i][j];
+			}
+		}
+		return glrlm_a;
 	}
 	
 	public double[][] normalize(double[][] glrlm_raw_at_angle){
@@ -346,179 +390,6 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 	
 	
-	private int countNeighbor(final int grayLevel, Integer[][][] voxels, final int seedX, final int seedY, final int seedZ, final int[] angle) {
-		ArrayList<Point3i> runs = new ArrayList<Point3i>();
-		if(voxels[seedZ][seedY][seedX] == grayLevel) {
-			runs.add(new Point3i(seedX, seedY, seedZ));
-			voxels[seedZ][seedY][seedX] = Integer.MIN_VALUE;
-		}else {
-			return 0;
-		}
-		Point3i fp = new Point3i();
-		Point3i bp = new Point3i();
-		int seedX_f = seedX;
-		int seedY_f = seedY;
-		int seedZ_f = seedZ;
-		int seedX_b = seedX;
-		int seedY_b = seedY;
-		int seedZ_b = seedZ;
-
-		while(fp!=null || bp!=null) {
-			if(fp !=null) {
-				fp = connectedForword(voxels, grayLevel, seedX_f, seedY_f, seedZ_f, w, h, s, angle);
-			}
-			if(bp != null) {
-				bp = connectedBackword(voxels, grayLevel, seedX_b, seedY_b, seedZ_b, w, h, s, angle);
-			}
-			if(fp != null) {
-				runs.add(fp);
-				seedX_f = fp.x;
-				seedY_f = fp.y;
-				seedZ_f = fp.z;
-				voxels[seedZ_f][seedY_f][seedX_f] = Integer.MIN_VALUE;
-			}
-			if(bp != null) {
-				runs.add(bp);
-				seedX_b = bp.x;
-				seedY_b = bp.y;
-				seedZ_b = bp.z;
-				voxels[seedZ_b][seedY_b][seedX_b] = Integer.MIN_VALUE;
-			}
-		};
-		
-		return runs.size();
-	}
-	
-	
-//	private ArrayList<Point3i> connectedNeighbor(final int seedX, final int seedY, final int seedZ, final int max_w , final int max_h, final int max_s, final int[] angle){
-//		ArrayList<Point3i> connected = new ArrayList<Point3i>();
-//		/*
-//		 * forward and backward
-//		 */
-//		int connected_f_x = seedX + angle[2];//forwarding
-//		int connected_f_y = seedY + angle[1];//forwarding
-//		int connected_f_z = seedZ + angle[0];//forwarding
-//		int connected_b_x = seedX - angle[2];//backward
-//		int connected_b_y = seedY - angle[1];//backward
-//		int connected_b_z = seedZ - angle[0];//backward
-//		if(!Utils.isOutOfRange(new Point3i(connected_f_x, connected_f_y, connected_f_z), max_w, max_h, max_s)) {
-//			connected.add(new Point3i(connected_f_x, connected_f_y, connected_f_z));
-//		}
-//		if(!Utils.isOutOfRange(new Point3i(connected_b_x, connected_b_y, connected_b_z), max_w, max_h, max_s)) {
-//			connected.add(new Point3i(connected_b_x, connected_b_y, connected_b_z));
-//		}
-//		return connected;
-//	}
-	
-//	private ArrayList<Point3i> connectedNeighbor2(Integer[][][] voxels, final int grayLevel, final int seedX, final int seedY, final int seedZ, final int max_w , final int max_h, final int max_s, final int[] angle){
-//		ArrayList<Point3i> connected = new ArrayList<Point3i>();
-//		/*
-//		 * forward and backward
-//		 */
-//		int connected_f_x = seedX + angle[2];//forwarding
-//		int connected_f_y = seedY + angle[1];//forwarding
-//		int connected_f_z = seedZ + angle[0];//forwarding
-//		int connected_b_x = seedX - angle[2];//backward
-//		int connected_b_y = seedY - angle[1];//backward
-//		int connected_b_z = seedZ - angle[0];//backward
-//		if(!Utils.isOutOfRange(new Point3i(connected_f_x, connected_f_y, connected_f_z), max_w, max_h, max_s)) {
-//			if(voxels[connected_f_z][connected_f_y][connected_f_x] != null) {
-//				if(voxels[connected_f_z][connected_f_y][connected_f_x] == grayLevel) {
-//					connected.add(new Point3i(connected_f_x, connected_f_y, connected_f_z));
-//				}
-//			}
-//		}
-//		if(!Utils.isOutOfRange(new Point3i(connected_b_x, connected_b_y, connected_b_z), max_w, max_h, max_s)) {
-//			if(voxels[connected_b_z][connected_b_y][connected_b_x] != null) {
-//				if(voxels[connected_b_z][connected_b_y][connected_b_x] == grayLevel) {
-//					connected.add(new Point3i(connected_b_x, connected_b_y, connected_b_z));
-//				}
-//			}
-//		}
-//		return connected.size() > 0 ? connected:null;
-//	}
-	
-	private Point3i connectedForword(Integer[][][] voxels, final int grayLevel, final int seedX, final int seedY, final int seedZ, final int max_w , final int max_h, final int max_s, final int[] angle){
-		/*
-		 * forward
-		 */
-		int connected_f_x = seedX + angle[2];
-		int connected_f_y = seedY - angle[1];//adjust vector direction and coordinate direction in Y axis.
-		int connected_f_z = seedZ + angle[0];
-		if(!Utils.isOutOfRange(new Point3i(connected_f_x, connected_f_y, connected_f_z), max_w, max_h, max_s)) {
-			if(voxels[connected_f_z][connected_f_y][connected_f_x] != null) {
-				if(voxels[connected_f_z][connected_f_y][connected_f_x] == grayLevel) {
-					return new Point3i(connected_f_x, connected_f_y, connected_f_z);
-				}
-			}
-		}
-		return null;
-	}
-	
-	private Point3i connectedBackword(Integer[][][] voxels, final int grayLevel, final int seedX, final int seedY, final int seedZ, final int max_w , final int max_h, final int max_s, final int[] angle){
-		/*
-		 * backward
-		 */
-		int connected_b_x = seedX - angle[2];
-		int connected_b_y = seedY + angle[1];//adjust vector direction and coordinate direction in Y axis.
-		int connected_b_z = seedZ - angle[0];
-
-		if(!Utils.isOutOfRange(new Point3i(connected_b_x, connected_b_y, connected_b_z), max_w, max_h, max_s)) {
-			if(voxels[connected_b_z][connected_b_y][connected_b_x] != null) {
-				if(voxels[connected_b_z][connected_b_y][connected_b_x] == grayLevel) {
-					return new Point3i(connected_b_x, connected_b_y, connected_b_z);
-				}
-			}
-		}
-		return null;
-	}
-	
-	private Integer[][][] copyVoxels(final Integer[][][] v){
-		int s = v.length;
-		int h = v[0].length;
-		int w = v[0][0].length;
-		Integer v2[][][] = new Integer[s][h][w];
-		for(int z=0;z<s;z++) {
-			for(int y=0;y<h;y++) {
-				for(int x=0;x<w;x++) {
-					if(v[z][y][x] != null) {
-						v2[z][y][x] = Integer.valueOf((int)v[z][y][x]); 
-					}
-				}
-			}
-		}
-		return v2;
-	}
-	
-	
-	private double[][] map2matrix(HashMap<Integer, HashMap<Integer,Integer>> glrlm_map){
-		int length_max = 0;
-		ArrayList<Integer> grayValues = new ArrayList<>(glrlm_map.keySet());
-		Collections.sort(grayValues);
-		for(Integer gl:grayValues) {
-			HashMap<Integer,Integer> length_count_pair = glrlm_map.get(gl);
-			for(Integer len:length_count_pair.keySet()) {
-				if(len > length_max) {
-					length_max = len;
-				}
-			}
-		}
-//		glrlm = new double[discreteLevel][length_max];//also ok, here, keep (i,j) shape, 
-		double[][] glrlm = new double[nBins][nBins];//(i,j matrices)
-		
-		for(int row=1;row<=nBins;row++) {
-			HashMap<Integer,Integer> length_count_pair = glrlm_map.get(row);
-			for(int col=1;col<=nBins;col++) {
-				Integer count = length_count_pair.get(col);
-				if(count == null) {
-					count = 0;
-				}
-				glrlm[row-1][col-1] = (double)count; 
-			}
-		}
-		return glrlm;
-	}
-	
 	private void calculateCoefficients(){
 		if(glrlm == null || glrlm.size() < 1) {
 			return;
@@ -965,7 +836,6 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 		Collections.sort(angles);
 		double[] res_set = new double[angles.size()];
 		int itr = 0;
-		double voxels[] = Utils.getVoxels(discImg, mask, this.label);
 		for (Integer a : angles) {
 			double glrlm_a[][] = glrlm_raw.get(a);//IMPORTANT, no-normalized
 			int Nr_a = glrlm_a[0].length;//length size
@@ -976,7 +846,7 @@ public class GLRLMFeatures extends AbstractRadiomicsFeature implements Texture{
 					Ns_a += glrlm_a[i-1][j-1];
 				}
 			}
-			rp_a = Ns_a/voxels.length;
+			rp_a = Ns_a/numOfVoxels;
 			res_set[itr] = rp_a;
 			itr++;
 		}
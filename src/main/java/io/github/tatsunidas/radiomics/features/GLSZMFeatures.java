@@ -15,20 +15,17 @@
  */
 package io.github.tatsunidas.radiomics.features;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import javax.vecmath.Point3i;
-
 import ij.ImagePlus;
 import ij.measure.Calibration;
+import io.github.tatsunidas.radiomics.main.ConnectedZones;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
 import io.github.tatsunidas.radiomics.main.RadiomicsJ;
-import io.github.tatsunidas.radiomics.main.Utils;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
 
 /**
  * GrayLevelSizeZoneMatrix
@@ -52,9 +49,6 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 	double[][] glszm_raw;
 	double[][] glszm;// normalized
 	
-	HashMap<Integer, int[]> angles = Utils.buildAngles();
-	ArrayList<Integer> angle_ids;//0 to 26
-	
 	boolean normalization = true;// always true;
 	int nBins;// 1 to N
 	double binWidth;
@@ -95,32 +89,29 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		this.mask = mask;
 		
 		if(nBins == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = nBins;
 		}
 		
 		if(binWidth == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = binWidth;
 		}
 		
-		angle_ids = new ArrayList<>(angles.keySet());//0 to 26
-		Collections.sort(angle_ids);
-		
 		// discretised by roi mask.
-		if(RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if(preDiscretised() != null) {
+			discImg = preDiscretised();
 		}else {
 			if(useBinCount) {
-				discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+				discImg = discrete(this.img, this.mask, this.label, this.nBins);
 			}else {
 				/*
 				 * do Fixed Bin Width
 				 */
-				discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		}
 		
@@ -165,7 +156,7 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'nBins' must be an Integer.");
 		}
 		if(nBinsValue == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = (Integer) nBinsValue;
 		}
@@ -178,7 +169,7 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'BinWidth' must be a Double.");
 		}
 		if(bwValue == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = (Double)bwValue;
 		}
@@ -204,12 +195,12 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		
 		this.orgCal = this.img.getCalibration();
 		// discretised by roi mask.
-		if (RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if (preDiscretised() != null) {
+			discImg = preDiscretised();
 		} else {
 			if (useBinCount) {
 				try {
-					discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+					discImg = discrete(this.img, this.mask, this.label, this.nBins);
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
@@ -218,18 +209,16 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 				 * Bin Width
 				 */
 				try {
-					discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
+					discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		}
 		w = this.img.getWidth();
 		h = this.img.getHeight();
 		s = this.img.getNSlices();
-		angle_ids = new ArrayList<>(angles.keySet());//0 to 26
-		Collections.sort(angle_ids);
 		try{
 			fillGLSZM();
 		}catch(StackOverflowError | Exception e) {
@@ -246,37 +235,22 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 		glszm_raw = null;//init
 		glszm = null;
 		HashMap<Integer, HashMap<Integer,Integer>> glszm_map = new HashMap<Integer, HashMap<Integer,Integer>>();
-		Integer[][][] voxels = Utils.prepareVoxels(discImg, mask, label, nBins);//[z][y][x], temp voxels at it angle, for count up.
 		for(int grayLevel=1;grayLevel<=nBins;grayLevel++) {
-			//size and count
-			HashMap<Integer,Integer> glszm_row = new HashMap<Integer,Integer>();
-			for(int z=0;z<s;z++) {
-				for(int y=0;y<h;y++) {
-					for(int x=0;x<w;x++) {
-						if (voxels[z][y][x] == null) {
-							continue;
-						}
-						if (voxels[z][y][x] == Integer.MIN_VALUE) {
-							continue;
-						}
-						if(voxels[z][y][x] == grayLevel) {
-							Integer sizeOfZone = 0;//init
-//							sizeOfZone = countNeighbor(grayLevel, voxels, sizeOfZone, x, y, z);//grayLevel, voxels, zone, x, y, z
-							sizeOfZone = countNeighbor2(grayLevel, voxels, sizeOfZone, x, y, z);//grayLevel, voxels, zone, x, y, z
-							glszm_row.put(sizeOfZone, glszm_row.get(sizeOfZone) == null ? 1:glszm_row.get(sizeOfZone)+1);
-						}
-					}
-				}
-			}
-			///1 to Ng
-			glszm_map.put(grayLevel, glszm_row);
+			///1 to Ng, size and count
+			glszm_map.put(grayLevel, new HashMap<Integer,Integer>());
+		}
+		RoiVolume voxels = roiVolume(discImg, mask, label, nBins);//cropped to the roi
+		ConnectedZones zones = ConnectedZones.of(voxels);
+		for(int zone=0;zone<zones.getCount();zone++) {
+			HashMap<Integer,Integer> glszm_row = glszm_map.get(zones.getGreyLevel(zone));
+			int sizeOfZone = zones.getSize(zone);
+			glszm_row.put(sizeOfZone, glszm_row.get(sizeOfZone) == null ? 1:glszm_row.get(sizeOfZone)+1);
 		}
 		glszm_raw = map2matrix(glszm_map);
 		glszm = normalize(glszm_raw);//count Ns
 		calculateCoefficients();
 	}
 	
-	
 	private double[][] normalize(double[][] glszm_raw){
 		// skip all zero matrix
 		if (glszm_raw == null) {
@@ -337,121 +311,6 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 //		return sizeOfZone;
 //	}
 	
-	private int countNeighbor2(final int grayLevel, Integer[][][] voxels, Integer sizeOfZone, int seedX, int seedY, int seedZ) {
-		/*
-		 * IMPORTANT
-		 */
-		/*************************************************/
-		if (voxels[seedZ][seedY][seedX] == null || voxels[seedZ][seedY][seedX] == Integer.MIN_VALUE) {
-			return sizeOfZone;
-		}
-		/*************************************************/
-
-		if (voxels[seedZ][seedY][seedX] == Integer.valueOf(grayLevel)) {
-			sizeOfZone++;
-			voxels[seedZ][seedY][seedX] = Integer.MIN_VALUE;
-		}
-		//26 connected
-		ArrayList<Point3i> connected = connectedNeighbor2(voxels, grayLevel, seedX, seedY, seedZ, w, h, s);
-		int seedX2 = 0;
-		int seedY2 = 0;
-		int seedZ2 = 0;
-		while(connected!=null) {
-			if(connected != null) {
-				ArrayList<Point3i> connected_itr = new ArrayList<>();
-				for (Point3i np : connected) {
-					if (np == null) {
-						// out of pixels coordinate
-						continue;
-					}
-					if (voxels[np.z][np.y][np.x] == null) {
-						continue;
-					}
-					if (voxels[np.z][np.y][np.x] == Integer.MIN_VALUE) {
-						continue;
-					}
-					if (voxels[np.z][np.y][np.x] == grayLevel) {
-						sizeOfZone++;
-						voxels[np.z][np.y][np.x] = Integer.MIN_VALUE;
-						seedX2 = np.x;
-						seedY2 = np.y;
-						seedZ2 = np.z;
-						ArrayList<Point3i> connected_ = connectedNeighbor2(voxels, grayLevel, seedX2, seedY2, seedZ2, w, h, s);
-						if(connected_ != null) {
-							connected_itr.addAll(connected_);
-						}
-					}
-				}
-				connected.addAll(connected_itr);
-				connected = updateConnectedNeighbours(voxels, grayLevel, connected);
-			}
-		}
-		return sizeOfZone;
-	}
-	
-	
-//	private ArrayList<Point3i> connectedNeighbor(int seedX, int seedY, int seedZ, int max_w , int max_h, int max_s){
-//		ArrayList<Point3i> connect26 = new ArrayList<Point3i>();
-//		for(Integer a_id:angle_ids) {
-//			if(Integer.valueOf(13) == a_id) {
-//				continue;//0,0,0
-//			}
-//			int[] a = angles.get(a_id);
-//			int nX = seedX+a[2];
-//			int nY = seedY+(a[1]*-1);
-//			int nZ = seedZ+a[0];
-//			Point3i neighbor = new Point3i(nX,nY,nZ);
-//			if(!Utils.isOutOfRange(new Point3i(nX,nY,nZ), max_w , max_h, max_s)) connect26.add(neighbor);
-//		}
-//		return connect26;
-//	}
-	
-	private ArrayList<Point3i> connectedNeighbor2(Integer[][][] voxels, final int grayLevel, final int seedX, final int seedY, final int seedZ, final int max_w , final int max_h, final int max_s){
-		ArrayList<Point3i> connected = new ArrayList<Point3i>();
-		for(Integer a_id:angle_ids) {
-			if(Integer.valueOf(13) == a_id) {
-				continue;//0,0,0
-			}
-			int[] a = angles.get(a_id);
-			int nX = seedX+a[2];
-			int nY = seedY+(a[1]*-1);//adjust y direction from vector
-			int nZ = seedZ+a[0];
-			Point3i neighbour = new Point3i(nX,nY,nZ);
-			if(!Utils.isOutOfRange(neighbour, max_w, max_h, max_s)) {
-				if(voxels[nZ][nY][nX] != null) {
-					if(voxels[nZ][nY][nX] == grayLevel) {
-						connected.add(neighbour);
-					}
-				}
-			}
-		}
-		return connected.size() > 0 ? connected:null;
-	}
-	
-	private ArrayList<Point3i> updateConnectedNeighbours(final Integer[][][] voxels, final int grayLevel, ArrayList<Point3i> connected) {
-		if(connected == null) {
-			return null;
-		}
-		if(connected.size() ==0 || connected.isEmpty()) {
-			connected = null;
-			return null;
-		}
-		ArrayList<Point3i> remove = new ArrayList<Point3i>();
-		for(Point3i p:connected) {
-			if (voxels[p.z][p.y][p.x] == null || voxels[p.z][p.y][p.x] == Integer.MIN_VALUE) {
-				remove.add(p);
-			}
-		}
-		connected.removeAll(remove);
-		if(connected.size() ==0 || connected.isEmpty()) {
-			connected = null;
-			return null;
-		}else {
-			return connected;
-		}
-	}
-	
-	
 	/*
 	 * grayLevel - <zone size, zone count>
 	 */
@@ -682,7 +541,7 @@ public class GLSZMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 	
 	private Double getZonePercentage() {
-		int Nv = Utils.getVoxels(discImg, mask, this.label).length;
+		int Nv = roiVoxels(discImg, mask, this.label).length;
 		if(Nv == 0) {
 			return null;
 		}
@@ -25,8 +25,6 @@ import org.apache.commons.math3.stat.StatUtils;
 import ij.ImagePlus;
 import ij.measure.Calibration;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
-import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
  * 
@@ -101,7 +99,18 @@ public class IntensityBasedStatisticalFeatures extends AbstractRadiomicsFeature{
 	 * @param mask : label mask. if null, full face mask will be applied.
 	 */
 	public IntensityBasedStatisticalFeatures(ImagePlus img, ImagePlus mask, int label) {
-		super(img, mask, null);
+		this(img, mask, label, null);
+	}
+	
+	/**
+	 * For sub-classes, that do their own buildup.
+	 * @param img : original
+	 * @param mask : label mask. if null, full face mask will be applied.
+	 * @param label
+	 * @param settings : null-able.
+	 */
+	protected IntensityBasedStatisticalFeatures(ImagePlus img, ImagePlus mask, int label, Map<String, Object> settings) {
+		super(img, mask, settings);
 		this.label = label;
 		orgCal = img.getCalibration().copy();
 		//after label defined.
@@ -113,17 +122,17 @@ public class IntensityBasedStatisticalFeatures extends AbstractRadiomicsFeature{
 		/*
 		 * density shift value is no negative. 
 		 */
-		this.densityShift = RadiomicsJ.densityShift;
+		this.densityShift = config().getDensityShift();
 		if(this.densityShift < 0d) {
 			System.out.println("Density shift value is should be non negative. It will use zero instead in this calculation.");
 			this.densityShift = 0.0;
 		}
 		//get voxels and sort array.
-		voxels = Utils.getVoxels(this.img, this.mask, this.label);
+		voxels = roiVoxels(this.img, this.mask, this.label);
 		
-		settings.put(RadiomicsFeature.IMAGE, this.img);
-		settings.put(RadiomicsFeature.MASK, this.mask);
-		settings.put(RadiomicsFeature.LABEL, this.label);
+		this.settings.put(RadiomicsFeature.IMAGE, this.img);
+		this.settings.put(RadiomicsFeature.MASK, this.mask);
+		this.settings.put(RadiomicsFeature.LABEL, this.label);
 	}
 	
 	public void buildup(Map<String, Object> settings) {
@@ -137,19 +146,19 @@ public class IntensityBasedStatisticalFeatures extends AbstractRadiomicsFeature{
 		/*
 		 * density shift value is no negative. 
 		 */
-		this.densityShift = RadiomicsJ.densityShift;
+		this.densityShift = config().getDensityShift();
 		if(this.densityShift < 0d) {
 			System.out.println("Density shift value is should be non negative. It will use zero instead in this calculation.");
 			this.densityShift = 0.0;
 		}
 		//get voxels and sort array.
-		voxels = Utils.getVoxels(this.img, this.mask, this.label);
+		voxels = roiVoxels(this.img, this.mask, this.label);
 		
 	}
 	
 	protected int countRoiVoxel() {
 		if(voxels == null) {
-			voxels = Utils.getVoxels(img, mask, this.label);
+			voxels = roiVoxels(img, mask, this.label);
 		}
 		return voxels.length;
 	}
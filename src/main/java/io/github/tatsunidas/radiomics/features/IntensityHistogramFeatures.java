@@ -20,7 +20,6 @@ import java.util.Map;
 import java.util.Set;
 
 import ij.ImagePlus;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
 import io.github.tatsunidas.radiomics.main.Utils;
 
 /**
@@ -73,12 +72,12 @@ public class IntensityHistogramFeatures extends IntensityBasedStatisticalFeature
 	public IntensityHistogramFeatures(ImagePlus img, ImagePlus mask, Integer label, boolean useBinCount, Integer nBins, Double binWidth) throws Exception {
 		super(img,mask,label);
 		if(nBins == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = nBins;
 		}
 		if(binWidth == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = binWidth;
 		}
@@ -86,19 +85,62 @@ public class IntensityHistogramFeatures extends IntensityBasedStatisticalFeature
 		 * super.IntensityBasedStatisticalFeatures variables
 		 * calibrations already set in super objects.
 		 */
+		disc_img = discretise(useBinCount);
+		buildup(settings);
+	}
+	
+	public IntensityHistogramFeatures(ImagePlus img, ImagePlus mask, Map<String, Object> settings) throws Exception {
+		super(img, mask, labelOf(settings), settings);
+		Object useBinValue = settings.get(RadiomicsFeature.USE_BIN_COUNT);
+		if (useBinValue == null) {
+			throw new IllegalArgumentException("'useBinCount:boolean' is missing in settings.");
+		}
+		if (!(useBinValue instanceof Boolean)) {
+			throw new IllegalArgumentException("'useBinCount' must be a Boolean.");
+		}
+		boolean useBinCount = (Boolean)useBinValue;
+		Object nBinsValue = settings.get(RadiomicsFeature.nBins);
+		if (nBinsValue != null && !(nBinsValue instanceof Integer)) {
+			throw new IllegalArgumentException("'nBins' must be an Integer.");
+		}
+		this.nBins = nBinsValue == null ? config().getNBins() : (Integer)nBinsValue;
+		Object bwValue = settings.get(RadiomicsFeature.BinWidth);
+		if (bwValue != null && !(bwValue instanceof Double)) {
+			throw new IllegalArgumentException("'BinWidth' must be a Double.");
+		}
+		this.binWidth = bwValue == null ? config().getBinWidth() : (Double)bwValue;
+		/*
+		 * the pipeline discretised the same image with the same parameters already.
+		 */
+		ImagePlus pre = preDiscretised();
+		disc_img = pre != null ? pre : discretise(useBinCount);
+		buildup(settings);
+	}
+	
+	private static int labelOf(Map<String, Object> settings) {
+		Object labelValue = settings == null ? null : settings.get(RadiomicsFeature.LABEL);
+		if (labelValue == null) {
+			throw new IllegalArgumentException("'label' is missing in settings.");
+		}
+		if (!(labelValue instanceof Integer)) {
+			throw new IllegalArgumentException("'label' must be an Integer.");
+		}
+		return (Integer) labelValue;
+	}
+	
+	private ImagePlus discretise(boolean useBinCount) throws Exception {
 		if(useBinCount) {
-			disc_img = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+			return discrete(this.img, this.mask, this.label, this.nBins);
 		}else {
-			disc_img = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
+			return discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
 		}
-		buildup(settings);
 	}
 	
 	@Override
 	public void buildup(Map<String, Object> settings) {
 		// replace discretised voxels from super class.
-		voxels = Utils.getVoxels(disc_img, mask, label);
-		hist = Utils.getHistogram(voxels);
+		voxels = roiVoxels(disc_img, mask, label);
+		hist = roiHistogram(disc_img, mask, label);
 	}
 	
 
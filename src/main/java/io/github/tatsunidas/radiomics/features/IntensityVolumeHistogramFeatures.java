@@ -89,15 +89,15 @@ public class IntensityVolumeHistogramFeatures extends AbstractRadiomicsFeature{
 		 */
 		if(mode ==1) {
 			this.continuousCalibrated = true;
-			dciImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, RadiomicsJ.IVH_binWidth);
-			cciImg = Utils.convertBinCenter2Intensity(this.img, dciImg, this.mask, this.label, RadiomicsJ.IVH_binWidth);
+			dciImg = discreteByBinWidth(this.img, this.mask, this.label, config().getIVHBinWidth(), config().getRangeMin());
+			cciImg = Utils.convertBinCenter2Intensity(this.img, dciImg, this.mask, this.label, config().getIVHBinWidth(), config().getRangeMin());
 			if(dciImg == null || cciImg == null) {
 				throw new IllegalArgumentException("IntensityVolumeHistogramFeature calculation was failed. Please check image data.");
 			}
 			calculateIVHistogram4CCI(false);//init cciIVHisto;
 		}else if(mode ==2) {
 			this.continuousCalibrated = false;
-			dciImg = Utils.discrete(this.img, this.mask, this.label, RadiomicsJ.IVH_binCount);
+			dciImg = discrete(this.img, this.mask, this.label, config().getIVHBinCount());
 			if(dciImg == null) {
 				throw new IllegalArgumentException("IntensityVolumeHistogramFeature calculation was failed. Please check image data.");
 			}
@@ -111,8 +111,8 @@ public class IntensityVolumeHistogramFeatures extends AbstractRadiomicsFeature{
 		settings.put(RadiomicsFeature.MASK, this.mask);
 		settings.put(RadiomicsFeature.LABEL, this.label);
 		settings.put(RadiomicsFeature.IVH_MODE, mode);
-		settings.put(RadiomicsFeature.BinCount_IVH, RadiomicsJ.IVH_binCount);
-		settings.put(RadiomicsFeature.BinWidth_IVH, RadiomicsJ.IVH_binWidth);
+		settings.put(RadiomicsFeature.BinCount_IVH, config().getIVHBinCount());
+		settings.put(RadiomicsFeature.BinWidth_IVH, config().getIVHBinWidth());
 		
 	}
 	
@@ -133,11 +133,11 @@ public class IntensityVolumeHistogramFeatures extends AbstractRadiomicsFeature{
 		if(mode ==1) {
 			this.continuousCalibrated = true;
 			try {
-				dciImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, RadiomicsJ.IVH_binWidth);
+				dciImg = discreteByBinWidth(this.img, this.mask, this.label, config().getIVHBinWidth(), config().getRangeMin());
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
-			cciImg = Utils.convertBinCenter2Intensity(this.img, dciImg, this.mask, this.label, RadiomicsJ.IVH_binWidth);
+			cciImg = Utils.convertBinCenter2Intensity(this.img, dciImg, this.mask, this.label, config().getIVHBinWidth(), config().getRangeMin());
 			if(dciImg == null || cciImg == null) {
 				throw new IllegalArgumentException("IntensityVolumeHistogramFeature calculation was failed. Please check image data.");
 			}
@@ -145,7 +145,7 @@ public class IntensityVolumeHistogramFeatures extends AbstractRadiomicsFeature{
 		}else if(mode ==2) {
 			this.continuousCalibrated = false;
 			try {
-				dciImg = Utils.discrete(this.img, this.mask, this.label, RadiomicsJ.IVH_binCount);
+				dciImg = discrete(this.img, this.mask, this.label, config().getIVHBinCount());
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -189,16 +189,16 @@ public class IntensityVolumeHistogramFeatures extends AbstractRadiomicsFeature{
 		HashMap<Double, double[]> iv_histo = new HashMap<>();
 
 		// 1. 全ボクセルを取得
-		double[] discretisedVoxels = Utils.getVoxels(dciImg, mask, label);
+		double[] discretisedVoxels = roiVoxels(dciImg, mask, label);
 		int totalVoxels = discretisedVoxels.length;
 		if (totalVoxels == 0)
 			return iv_histo;
 
 		// 2. 最小・最大値の決定 (Gamma計算用)
 		double min, max;
-		if (RadiomicsJ.rangeMin != null && RadiomicsJ.rangeMax != null) {
-			min = RadiomicsJ.rangeMin;
-			max = RadiomicsJ.rangeMax;
+		if (config().getRangeMin() != null && config().getRangeMax() != null) {
+			min = config().getRangeMin();
+			max = config().getRangeMax();
 		} else {
 			// StatUtilsを使うと2回走査になるため、ループ内で求めるか、事前に求める
 			// ここでは元のロジックに合わせてUtils.getVoxels(img...)から取るか、
@@ -263,16 +263,16 @@ public class IntensityVolumeHistogramFeatures extends AbstractRadiomicsFeature{
 		HashMap<Double, double[]> iv_histo = new HashMap<>();
 
 		// 1. 全ボクセルを取得 (CCI画像から直接取得)
-		double[] discretisedVoxels_cci = Utils.getVoxels(cciImg, mask, label);
+		double[] discretisedVoxels_cci = roiVoxels(cciImg, mask, label);
 		int totalVoxels = discretisedVoxels_cci.length;
 		if (totalVoxels == 0)
 			return iv_histo;
 
 		// 2. 最小・最大値の決定
 		double min, max;
-		if (RadiomicsJ.rangeMin != null && RadiomicsJ.rangeMax != null) {
-			min = RadiomicsJ.rangeMin;
-			max = RadiomicsJ.rangeMax;
+		if (config().getRangeMin() != null && config().getRangeMax() != null) {
+			min = config().getRangeMin();
+			max = config().getRangeMax();
 		} else {
 			min = Double.MAX_VALUE;
 			max = -Double.MAX_VALUE;
@@ -15,18 +15,16 @@
  */
 package io.github.tatsunidas.radiomics.features;
 
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import javax.vecmath.Point3i;
-
 import org.apache.commons.math3.stat.StatUtils;
 import ij.ImagePlus;
 import ij.measure.Calibration;
+import ij.process.ImageProcessor;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
-import io.github.tatsunidas.radiomics.main.Utils;
+import io.github.tatsunidas.radiomics.main.SphericalMeanFilter;
 
 /**
  * 
@@ -45,6 +43,12 @@ public class LocalIntensityFeatures extends AbstractRadiomicsFeature{
 	double px;
 	double py;
 	double pz;
+	
+	/*
+	 * intensity of the roi voxels, and the mean of the sphere around each of them.
+	 */
+	double[] roiValues;
+	double[] sphericalMeans;
 		
 	public LocalIntensityFeatures(ImagePlus img, ImagePlus mask, Map<String, Object> settings) {
 		super(img, mask, settings);
@@ -111,37 +115,16 @@ public class LocalIntensityFeatures extends AbstractRadiomicsFeature{
 	}
 	
 	private Double getLocalIntensityPeak() {		
-		double r = Math.cbrt(3/(4*Math.PI));//spherical volume radius.//0.6203504908994 cm
-		r *= 10;// from "cm" to "mm"
 		//search maximum
-		double[] voxels = Utils.getVoxels(img, mask, this.label);
+		double[] voxels = roiVoxels(img, mask, this.label);
 		double max = StatUtils.max(voxels);
+		filterRoi();
 		double local_int_peak = 0;
-		for(int z=0;z<s;z++) {
-			float[][] iSlice = img.getStack().getProcessor(z+1).getFloatArray();
-			float[][] mSlice = mask.getStack().getProcessor(z+1).getFloatArray();
-			for(int y=0;y<h;y++) {
-				for(int x=0;x<w;x++) {
-					int lbl = (int) mSlice[x][y];
-					if(lbl == label) {
-						double val = iSlice[x][y];
-						if(val >= max) {
-							//find max voxel
-							Point3i peak = new Point3i(x,y,z);
-							double svs[] = getSphericalVoxels(peak, r, px, py, pz);
-							if(svs != null) {
-								double res = StatUtils.mean(svs);
-								if(local_int_peak < res) {
-									local_int_peak = res;
-								}
-							}else {
-								// if null, only exists peak point it self.
-								if(local_int_peak < val) {
-									local_int_peak = val;
-								}
-							}
-						}
-					}
+		for(int i = 0; i < roiValues.length; i++) {
+			if(roiValues[i] >= max) {
+				//find max voxel
+				if(local_int_peak < sphericalMeans[i]) {
+					local_int_peak = sphericalMeans[i];
 				}
 			}
 		}
@@ -149,88 +132,63 @@ public class LocalIntensityFeatures extends AbstractRadiomicsFeature{
 	}
 	
 	private Double getGlobalIntensityPeak() {
-		double r = Math.cbrt(3/(4*Math.PI));//spherical volume radius.//0.6203504908994 cm
-		r *= 10;// from "cm" to "mm"
+		filterRoi();
 		double global_int_peak = 0;
-		for(int z=0;z<s;z++) {
-			float[][] iSlice = img.getStack().getProcessor(z+1).getFloatArray();
-			float[][] mSlice = mask.getStack().getProcessor(z+1).getFloatArray();
-			for(int y=0;y<h;y++) {
-				for(int x=0;x<w;x++) {
-					int lbl = (int) mSlice[x][y];
-					if(lbl == label) {
-						Point3i app = new Point3i(x,y,z);
-						double svs[] = getSphericalVoxels(app, r, px, py, pz);
-						if(svs != null) {
-							double res = StatUtils.mean(svs);
-							if(global_int_peak < res) {
-								global_int_peak = res;
-							}
-						}else {
-							// if null, only exists peak point it self.
-							double val = iSlice[x][y];
-							if(val > global_int_peak) {
-								global_int_peak = val;
-							}
-						}
-					}
-				}
+		for(double res : sphericalMeans) {
+			if(global_int_peak < res) {
+				global_int_peak = res;
 			}
 		}
 		return global_int_peak;
 	}
 	
 	/*
-	 * Unit is mm !! both radius and voxel sizes. 
+	 * Mean intensity of the 1 cm3 sphere around every roi voxel, computed once for both peaks.
+	 * Local intensity was calculated by using without mask.
 	 */
-	private double[] getSphericalVoxels(Point3i peak, double radius, double px, double py, double pz) {
-		int searchRangeX = (int) Math.round(radius/px);
-		int searchRangeY = (int) Math.round(radius/py);
-		int searchRangeZ = (int) Math.round(radius/pz);
-		if(searchRangeX == 0 && searchRangeY == 0 && searchRangeZ == 0) {
-			return null;
+	private void filterRoi() {
+		if(sphericalMeans != null) {
+			return;
 		}
-		ArrayList<Double> spherical_voxels = new ArrayList<>();
-		for(int z=peak.z-searchRangeZ; z<=peak.z+searchRangeZ;z++) {
-			if(z < 0 || z >= s) continue;
-			img.setPosition(z+1);
-			for(int y=peak.y-searchRangeY;y<=peak.y+searchRangeY;y++) {
-				if(y < 0 || y >= h) continue;
-				for(int x=peak.x-searchRangeX;x<=peak.x+searchRangeX;x++) {
-					if(x < 0 || x >= w) continue;
-					double length = Math.sqrt(Math.pow((x-peak.x)*px, 2) + Math.pow((y-peak.y)*py, 2) + Math.pow((z-peak.z)*pz, 2));
-					if(length > radius) {
-						continue;
+		double r = Math.cbrt(3/(4*Math.PI));//spherical volume radius.//0.6203504908994 cm
+		r *= 10;// from "cm" to "mm"
+		SphericalMeanFilter filter = new SphericalMeanFilter(r, px, py, pz);
+		int n = 0;
+		for(int z=0;z<s;z++) {
+			ImageProcessor mp = mask.getStack().getProcessor(z+1);
+			for(int y=0;y<h;y++) {
+				for(int x=0;x<w;x++) {
+					if((int) mp.getf(x, y) == label) {
+						n++;
 					}
-					/*
-					 * including itself.
-					 */
-//					if(x == peak.x && y == peak.y && z == peak.z) {
-//						continue;
-//					}
-					/*
-					 * Local intensity was calculated by using without mask. 
-					 */
-//					int lbl = (int) orgMask.getStack().getProcessor(z+1).getPixelValue(x, y);
-//					if(lbl == label) {
-						double val = img.getProcessor().getPixelValue(x, y);
-						spherical_voxels.add(val);
-//					}
 				}
 			}
 		}
-		if(spherical_voxels.size() < 1) {
-			return null;
+		int[] xs = new int[n];
+		int[] ys = new int[n];
+		int[] zs = new int[n];
+		roiValues = new double[n];
+		n = 0;
+		for(int z=0;z<s;z++) {
+			ImageProcessor ip = img.getStack().getProcessor(z+1);
+			ImageProcessor mp = mask.getStack().getProcessor(z+1);
+			for(int y=0;y<h;y++) {
+				for(int x=0;x<w;x++) {
+					if((int) mp.getf(x, y) == label) {
+						xs[n] = x;
+						ys[n] = y;
+						zs[n] = z;
+						roiValues[n++] = ip.getf(x, y);
+					}
+				}
+			}
 		}
-		Double[] res = spherical_voxels.toArray(new Double[spherical_voxels.size()]);
-		double[] res2 = new double[res.length];
-		int i = 0;
-		for(Double v:res) {
-			res2[i++] = v;
+		if(filter.isSingleVoxel()) {
+			// only exists peak point it self.
+			sphericalMeans = roiValues.clone();
+		}else {
+			sphericalMeans = filter.apply(img, xs, ys, zs);
 		}
-		res = null;
-		spherical_voxels = null;
-		return res2;
 	}
 
 
@@ -30,6 +30,10 @@ package io.github.tatsunidas.radiomics.features;
  * 3.1.27 Integrated intensity 99N0 
  * 3.1.28 Moran's I index N365 
  * 3.1.29 Geary's C measure NPT7
+ * 
+ * Not IBSI, the feature name itself is used as the identifier.
+ * Minimum Feret diameter
+ * Maximum Feret diameter
  */
 public enum MorphologicalFeatureType{
 	VolumeMesh("RNU0"),
@@ -60,7 +64,9 @@ public enum MorphologicalFeatureType{
 	AreaDensity_ConvexHull("7T7F"),
 	IntegratedIntensity("99N0"),
 	MoransIIndex("N365"),
-	GearysCMeasure("NPT7");
+	GearysCMeasure("NPT7"),
+	MinimumFeretDiameter("MinimumFeretDiameter"),
+	MaximumFeretDiameter("MaximumFeretDiameter");
 	
 	private String id;
 	
@@ -16,8 +16,10 @@
 package io.github.tatsunidas.radiomics.features;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,6 +41,7 @@ import ij.ImagePlus;
 import ij.measure.Calibration;
 import ij.process.ImageProcessor;
 import io.github.tatsunidas.miscellaneous.MCTriangulator;
+import io.github.tatsunidas.radiomics.main.FFT3D;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
 import io.github.tatsunidas.radiomics.main.RadiomicsJ;
 import io.github.tatsunidas.radiomics.main.Utils;
@@ -74,6 +77,8 @@ import io.github.tatsunidas.radiomics.main.Utils;
  * 3.1.27 Integrated intensity 99N0
  * 3.1.28 Moran's I index N365
  * 3.1.29 Geary's C measure NPT7
+ * Minimum Feret diameter (not IBSI)
+ * Maximum Feret diameter (not IBSI)
  * 
  * @author tatsunidas
  *
@@ -116,11 +121,31 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 	double eps = Math.ulp(1.0);// 2.220446049250313E-16
 	
 	MCTriangulator mct = null;
+	
+	/*
+	 * the length of a cross product is its distance to (0, 0, 0), not to the calibration origin,
+	 * which is not 0 for a stack cut out of a volume.
+	 */
+	private static final Point3f ZERO = new Point3f();
+
 	List<Point3f> points;//mesh triangles
 	
 	Double mesh_v;//mesh volume
 	Double surfaceArea;
 	
+	Point3d[] hullVertices;//convex hull of the mesh
+	int[][] hullFaces;//counter clockwise from outside, empty if the mesh is flat
+	Double maximumDiameter;
+	Double minimumFeret;
+	
+	/**
+	 * If true, Moran's I index and Geary's C measure may be computed by FFT convolution,
+	 * see ExtractionSettings.isFftSpatialAutocorrelation() and isSpatialAutocorrelationByFFT().
+	 */
+	boolean fftSpatialAutocorrelation;
+	Boolean autocorrelationByFFT;//backend taken for this roi, null until asked
+	double[] autocorrelationSums;//n, sum of the weights, sum of squares, Moran and Geary numerators
+	
 	public MorphologicalFeatures(ImagePlus img, ImagePlus mask, Map<String,Object> settings) {
 		super(img,mask,settings);
 		Object labelValue = settings.get(RadiomicsFeature.LABEL);
@@ -152,6 +177,14 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 	}
 	
 	public void buildup(Map<String,Object> settings) {
+		
+		Object intensityMaskValue = settings.get(RadiomicsFeature.INTENSITY_MASK);
+		if (intensityMaskValue != null && !(intensityMaskValue instanceof ImagePlus)) {
+			throw new IllegalArgumentException("'INTENSITY_MASK' must be an ImagePlus.");
+		}
+		if (intensityMaskValue != null) {
+			this.intensityMask = (ImagePlus) intensityMaskValue;
+		}
 				
 		if (mask == null) {
 			// if null, create full face mask
@@ -201,7 +234,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 			}
 		}
 		//original voxels, inside the morphological mask
-		voxels = Utils.getVoxels(this.img, this.mask, this.label);
+		voxels = roiVoxels(this.img, this.mask, this.label);
 		/*
 		 * Xgl, inside the intensity mask.
 		 * Identical to "voxels" unless re-segmentation removed voxels.
@@ -209,7 +242,8 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		if(this.intensityMask == null) {
 			this.intensityMask = this.mask;
 		}
-		voxels_gl = Utils.getVoxels(this.img, this.intensityMask, this.label);
+		voxels_gl = roiVoxels(this.img, this.intensityMask, this.label);
+		fftSpatialAutocorrelation = config().isFftSpatialAutocorrelation();
 
 		settings.put(RadiomicsFeature.IMAGE, this.img);
 		settings.put(RadiomicsFeature.MASK, this.mask);
@@ -275,9 +309,13 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		}else if (name.equals(MorphologicalFeatureType.IntegratedIntensity.name())) {
 			return getIntegratedIntensity();
 		}else if (name.equals(MorphologicalFeatureType.MoransIIndex.name())) {
-			return getMoransIIndex_IBSI2();
+			return isSpatialAutocorrelationByFFT() ? getMoransIIndexByFFT() : getMoransIIndex_IBSI2();
 		}else if (name.equals(MorphologicalFeatureType.GearysCMeasure.name())) {
-			return getGearysCMeasure2();
+			return isSpatialAutocorrelationByFFT() ? getGearysCMeasureByFFT() : getGearysCMeasure2();
+		}else if (name.equals(MorphologicalFeatureType.MinimumFeretDiameter.name())) {
+			return getMinimumFeretDiameter();
+		}else if (name.equals(MorphologicalFeatureType.MaximumFeretDiameter.name())) {
+			return getMaximumFeretDiameter();
 		}
 		return null;
 	}
@@ -320,7 +358,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 	
 	private Double getVolumeByVoxelCounting() {
 		if(voxels == null) {
-			voxels = Utils.getVoxels(img, mask, this.label);
+			voxels = roiVoxels(img, mask, this.label);
 		}
 		if(voxels == null) {
 			return 0d;
@@ -349,7 +387,6 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		if(this.mct != null && this.points != null) {
 			surfaceArea = 0d;
 			final int nPoints = points.size();
-			final Point3f origin = new Point3f((float)orgCal.xOrigin, (float)orgCal.yOrigin, (float)orgCal.zOrigin);
 			for (int n = 0; n < nPoints; n += 3) {
 				final Point3f point0 = points.get(n);
 				final Point3f point1 = points.get(n+1);
@@ -364,14 +401,13 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 				crossVector.x = (float) (y1 * z2 - z1 * y2);
 				crossVector.y = (float) (z1 * x2 - x1 * z2);
 				crossVector.z = (float) (x1 * y2 - y1 * x2);
-				final double deltaArea = 0.5 * crossVector.distance(origin);
+				final double deltaArea = 0.5 * crossVector.distance(ZERO);
 				surfaceArea += deltaArea;
 			}
 			return surfaceArea;
 		}
 		surfaceArea = 0d;
 		final int nPoints = points.size();
-		final Point3f origin = new Point3f((float)orgCal.xOrigin, (float)orgCal.yOrigin, (float)orgCal.zOrigin);
 //		System.out.println("Calculating surface area.., num of points : " + nPoints / 3);
 		for (int n = 0; n < nPoints; n += 3) {
 			// https://github.com/mdoube/BoneJ/blob/17ee483603afa8a7efb745512be60a29e093c94e/src/org/doube/geometry/Vectors.java#L19
@@ -388,7 +424,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 			crossVector.x = (float) (y1 * z2 - z1 * y2);
 			crossVector.y = (float) (z1 * x2 - x1 * z2);
 			crossVector.z = (float) (x1 * y2 - y1 * x2);
-			final double deltaArea = 0.5 * crossVector.distance(origin);
+			final double deltaArea = 0.5 * crossVector.distance(ZERO);
 			surfaceArea += deltaArea;
 		}
 		return surfaceArea;
@@ -444,7 +480,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 //			crossVector.x = (float) (y1 * z2 - z1 * y2);
 //			crossVector.y = (float) (z1 * x2 - x1 * z2);
 //			crossVector.z = (float) (x1 * y2 - y1 * x2);
-//			final double deltaArea = 0.5 * crossVector.distance(origin);
+//			final double deltaArea = 0.5 * crossVector.distance(ZERO);
 //			surfaceArea += deltaArea;
 //		}
 //		return surfaceArea;
@@ -569,13 +605,14 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		double x_sum=0.0, y_sum=0.0, z_sum=0.0;
 		double voxelCount = Double.MIN_VALUE;
 		for(int z=0;z<s;z++) {
-			img.setPosition(z+1);
-			mask.setPosition(z+1);
+			ImageProcessor ip = img.getStack().getProcessor(z+1);
+			ip.setCalibrationTable(img.getCalibration().getCTable());
+			ImageProcessor mp = mask.getStack().getProcessor(z+1);
 			for(int y=0; y<h ; y++) {
 				for(int x=0; x<w; x++) {
-					int lbl_val = (int)mask.getProcessor().getPixelValue(x, y);
+					int lbl_val = (int)mp.getPixelValue(x, y);
 					if (lbl_val == label) {
-						double v = (double)img.getProcessor().getPixelValue(x, y)+0.0d;
+						double v = (double)ip.getPixelValue(x, y)+0.0d;
 						sum1 += v;
 						x_gl_sum += (x+0.5)*v;
 						y_gl_sum += (y+0.5)*v;
@@ -659,51 +696,300 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		return max;
 	}
 	
+	/*
+	 * when digital phantom1 test,
+	 * reference value is not clear.
+	 * In validation sheet = 11.7.
+	 * In reference manual = 13.1.
+	 * here, we calculate reference manual basis.
+	 * 
+	 * if you need validation sheet basis results,
+	 * use getMaximum3DDiameterByMeshByOriginal().
+	 * 
+	 * The farthest pair of mesh vertices is a pair of convex hull vertices,
+	 * therefore only the hull vertices are compared.
+	 */
 	private Double getMaximum3DDiameterByMesh() {
-		if(this.mct != null && this.points != null) {
-			Double max = 0d;
-			final int nPoints = points.size();
-			for (int n = 0; n < nPoints; n++) {
-				Point3f point0 = points.get(n);
-				for(int m = 0; m < nPoints; m++) {
-					if(n == m) {
-						continue;
-					}
-					Point3f point1 = points.get(m);
-					double d = point0.distance(point1);
-					if(max < d){
-						max = d;
-					}
+		if(this.maximumDiameter != null) {
+			return maximumDiameter;
+		}
+		if(!buildConvexHull()) {
+			return Double.NaN;
+		}
+		this.maximumDiameter = Double.valueOf(maximumDistance(hullVertices));
+		return maximumDiameter;
+	}
+	
+	/**
+	 * Largest distance between two parallel planes that touch the mesh.
+	 * It is the maximum 3D diameter (L0JK).
+	 * Not an IBSI feature.
+	 */
+	private Double getMaximumFeretDiameter() {
+		return getMaximum3DDiameterByMesh();
+	}
+	
+	/**
+	 * Smallest distance between two parallel planes that enclose the mesh,
+	 * that is the minimum width of its convex hull.
+	 * Not an IBSI feature.
+	 * 
+	 * The planes of the minimum width touch the hull on a face and a vertex,
+	 * or on two edges (Houle and Toussaint, 1988). Both kinds of directions are tried,
+	 * and the width along each one is measured over all hull vertices.
+	 */
+	private Double getMinimumFeretDiameter() {
+		if(this.minimumFeret != null) {
+			return minimumFeret;
+		}
+		if(!buildConvexHull()) {
+			return Double.NaN;
+		}
+		if(hullFaces.length == 0) {
+			// flat mesh
+			this.minimumFeret = 0d;
+			return minimumFeret;
+		}
+		final int nv = hullVertices.length;
+		final int nf = hullFaces.length;
+		double cx = 0, cy = 0, cz = 0;
+		for(Point3d v : hullVertices) {
+			cx += v.x;
+			cy += v.y;
+			cz += v.z;
+		}
+		cx /= nv;
+		cy /= nv;
+		cz /= nv;
+		double min = Double.MAX_VALUE;
+		// face - vertex, outward face normals by Newell's method.
+		double[][] normals = new double[nf][];
+		for(int f = 0; f < nf; f++) {
+			int[] face = hullFaces[f];
+			double nx = 0, ny = 0, nz = 0;
+			for(int k = 0; k < face.length; k++) {
+				Point3d a = hullVertices[face[k]];
+				Point3d b = hullVertices[face[(k + 1) % face.length]];
+				nx += (a.y - b.y) * (a.z + b.z);
+				ny += (a.z - b.z) * (a.x + b.x);
+				nz += (a.x - b.x) * (a.y + b.y);
+			}
+			double len = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if(len == 0) {
+				continue;
+			}
+			Point3d a = hullVertices[face[0]];
+			if(nx * (a.x - cx) + ny * (a.y - cy) + nz * (a.z - cz) < 0) {
+				len = -len;
+			}
+			normals[f] = new double[] {nx / len, ny / len, nz / len};
+			min = Math.min(min, hullWidth(normals[f]));
+		}
+		// edge - edge, each edge is shared by two faces.
+		HashMap<Long, int[]> shared = new HashMap<>();
+		for(int f = 0; f < nf; f++) {
+			int[] face = hullFaces[f];
+			for(int k = 0; k < face.length; k++) {
+				int a = face[k];
+				int b = face[(k + 1) % face.length];
+				Long key = Long.valueOf((long) Math.min(a, b) * nv + Math.max(a, b));
+				int[] edge = shared.get(key);
+				if(edge == null) {
+					shared.put(key, new int[] {a, b, f, -1});
+				}else {
+					edge[3] = f;
 				}
 			}
-			return Double.valueOf(max);
 		}
-		/*
-		 * when digital phantom1 test,
-		 * reference value is not clear.
-		 * In validation sheet = 11.7.
-		 * In reference manual = 13.1.
-		 * here, we calculate reference manual basis.
-		 * 
-		 * if you need validation sheet basis results,
-		 * use getMaximum3DDiameterByMeshByOriginal().
-		 */
-		Double max = 0d;
-		final int nPoints = points.size();
-		for (int n = 0; n < nPoints; n++) {
-			Point3f point0 = points.get(n);
-			for(int m = 0; m < nPoints; m++) {
-				if(n == m) {
+		List<double[]> edges = new ArrayList<>();
+		for(int[] edge : shared.values()) {
+			if(edge[3] < 0 || normals[edge[2]] == null || normals[edge[3]] == null) {
+				continue;
+			}
+			double[] n1 = normals[edge[2]];
+			double[] n2 = normals[edge[3]];
+			double[] n12 = cross(n1, n2);
+			if(dot(n12, n12) < 1e-18) {
+				// between coplanar faces, covered by face - vertex.
+				continue;
+			}
+			Point3d a = hullVertices[edge[0]];
+			Point3d b = hullVertices[edge[1]];
+			// {point, direction, normal 1, normal 2, normal 1 x normal 2}
+			edges.add(new double[] {a.x, a.y, a.z, b.x - a.x, b.y - a.y, b.z - a.z,
+					n1[0], n1[1], n1[2], n2[0], n2[1], n2[2], n12[0], n12[1], n12[2]});
+		}
+		double[] u = new double[3];
+		for(int i = 0; i < edges.size(); i++) {
+			double[] e1 = edges.get(i);
+			for(int j = i + 1; j < edges.size(); j++) {
+				double[] e2 = edges.get(j);
+				u[0] = e1[4] * e2[5] - e1[5] * e2[4];
+				u[1] = e1[5] * e2[3] - e1[3] * e2[5];
+				u[2] = e1[3] * e2[4] - e1[4] * e2[3];
+				double len = Math.sqrt(u[0] * u[0] + u[1] * u[1] + u[2] * u[2]);
+				if(len < 1e-12) {
+					// parallel edges, covered by face - vertex.
 					continue;
 				}
-				Point3f point1 = points.get(m);
-				double d = point0.distance(point1);
-				if(max < d){
-					max = d;
+				u[0] /= len;
+				u[1] /= len;
+				u[2] /= len;
+				int s1 = edgeSupports(e1, u);
+				if(s1 == 0 || edgeSupports(e2, u) != -s1) {
+					continue;
 				}
+				min = Math.min(min, hullWidth(u));
 			}
 		}
-		return Double.valueOf(max);
+		this.minimumFeret = Double.valueOf(min);
+		return minimumFeret;
+	}
+	
+	/*
+	 * 1 if the edge touches the supporting plane of the hull in direction u,
+	 * -1 if it does in direction -u, 0 otherwise.
+	 * u is perpendicular to the edge, so it only has to lie between the normals of its faces.
+	 */
+	private static int edgeSupports(double[] edge, double[] u) {
+		final double tol = -1e-12;
+		double alpha = (u[1] * edge[11] - u[2] * edge[10]) * edge[12]
+				+ (u[2] * edge[9] - u[0] * edge[11]) * edge[13]
+				+ (u[0] * edge[10] - u[1] * edge[9]) * edge[14];
+		double beta = (edge[7] * u[2] - edge[8] * u[1]) * edge[12]
+				+ (edge[8] * u[0] - edge[6] * u[2]) * edge[13]
+				+ (edge[6] * u[1] - edge[7] * u[0]) * edge[14];
+		if(alpha >= tol && beta >= tol) {
+			return 1;
+		}
+		if(alpha <= -tol && beta <= -tol) {
+			return -1;
+		}
+		return 0;
+	}
+	
+	/*
+	 * extent of the hull vertices along the unit vector u.
+	 */
+	private double hullWidth(double[] u) {
+		double lo = Double.MAX_VALUE;
+		double hi = -Double.MAX_VALUE;
+		for(Point3d v : hullVertices) {
+			double p = u[0] * v.x + u[1] * v.y + u[2] * v.z;
+			if(p < lo) {
+				lo = p;
+			}
+			if(p > hi) {
+				hi = p;
+			}
+		}
+		return hi - lo;
+	}
+	
+	private static double[] cross(double[] a, double[] b) {
+		return new double[] {a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+	}
+	
+	private static double dot(double[] a, double[] b) {
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+	
+	/*
+	 * Convex hull of the mesh vertices, built once.
+	 * false if no mesh.
+	 */
+	private boolean buildConvexHull() {
+		if(hullVertices != null) {
+			return true;
+		}
+		if(points == null || points.size() == 0) {
+			return false;
+		}
+		Point3d[] unique = uniqueVertices(points);
+		try {
+			QuickHull3D hull = new QuickHull3D();
+			hull.build(unique);
+			hullVertices = hull.getVertices();
+			hullFaces = hull.getFaces();
+		}catch(IllegalArgumentException e) {
+			// less than 4 vertices, or all of them on a plane.
+			hullVertices = unique;
+			hullFaces = new int[0][];
+		}
+		return true;
+	}
+	
+	/*
+	 * Marching cubes repeats each vertex in every triangle around it (about 6 times).
+	 */
+	private static Point3d[] uniqueVertices(List<Point3f> triangles) {
+		LinkedHashSet<Point3f> unique = new LinkedHashSet<>(triangles);
+		Point3d[] vertices = new Point3d[unique.size()];
+		int itr = 0;
+		for(Point3f pf : unique) {
+			vertices[itr++] = new Point3d(pf.x, pf.y, pf.z);
+		}
+		return vertices;
+	}
+	
+	/*
+	 * Exact largest distance between two of the vertices.
+	 * Vertices are visited from the farthest to the centroid,
+	 * two vertices cannot be farther apart than the sum of their distances to it.
+	 */
+	private static double maximumDistance(Point3d[] vertices) {
+		final int n = vertices.length;
+		if(n < 2) {
+			return 0d;
+		}
+		double cx = 0, cy = 0, cz = 0;
+		for(Point3d v : vertices) {
+			cx += v.x;
+			cy += v.y;
+			cz += v.z;
+		}
+		cx /= n;
+		cy /= n;
+		cz /= n;
+		final double[] r = new double[n];
+		Integer[] order = new Integer[n];
+		for(int i = 0; i < n; i++) {
+			r[i] = vertices[i].distance(new Point3d(cx, cy, cz));
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(r[b], r[a]));
+		double[] x = new double[n];
+		double[] y = new double[n];
+		double[] z = new double[n];
+		double[] rs = new double[n];
+		for(int i = 0; i < n; i++) {
+			Point3d v = vertices[order[i]];
+			x[i] = v.x;
+			y[i] = v.y;
+			z[i] = v.z;
+			rs[i] = r[order[i]];
+		}
+		double max2 = 0;
+		double max = 0;
+		for(int i = 0; i < n; i++) {
+			if(rs[i] + rs[i] <= max) {
+				break;
+			}
+			for(int j = i + 1; j < n; j++) {
+				if(rs[i] + rs[j] <= max) {
+					break;
+				}
+				double dx = x[i] - x[j];
+				double dy = y[i] - y[j];
+				double dz = z[i] - z[j];
+				double d2 = dx * dx + dy * dy + dz * dz;
+				if(d2 > max2) {
+					max2 = d2;
+					max = Math.sqrt(d2);
+				}
+			}
+		}
+		return Math.sqrt(max2);
 	}
 	
 	/**
@@ -727,21 +1013,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		MCTriangulator mct = new MCTriangulator();//DO NOT replace field variable.
 		int resamplingF = 2; // 1 to N.
 		List<Point3f> points_ = mct.getTriangles(mask, threshold, resamplingF);
-		Double max = 0d;
-		final int nPoints = points_.size();
-		for (int n = 0; n < nPoints; n++) {
-			Point3f point0 = points_.get(n);
-			for(int m = 0; m < nPoints; m++) {
-				if(n == m) {
-					continue;
-				}
-				Point3f point1 = points_.get(m);
-				double d = point0.distance(point1);
-				if(max < d){
-					max = d;
-				}
-			}
-		}
+		Double max = maximumDistance(uniqueVertices(points_));
 		mct = null;
 		points_ = null;
 		return Double.valueOf(max);
@@ -1149,7 +1421,6 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 			}else {
 				surfaceArea = 0d;
 				final int nPoints = points.size();
-				final Point3f origin = new Point3f((float)orgCal.xOrigin, (float)orgCal.yOrigin, (float)orgCal.zOrigin);
 				for (int n = 0; n < nPoints; n += 3) {
 					final Point3f point0 = points.get(n);
 					final Point3f point1 = points.get(n+1);
@@ -1164,7 +1435,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 					crossVector.x = (float) (y1 * z2 - z1 * y2);
 					crossVector.y = (float) (z1 * x2 - x1 * z2);
 					crossVector.z = (float) (x1 * y2 - y1 * x2);
-					final double deltaArea = 0.5 * crossVector.distance(origin);
+					final double deltaArea = 0.5 * crossVector.distance(ZERO);
 					surfaceArea += deltaArea;
 				}
 				double[] aabb = getAxisAlignedBoundingBoxExtents();
@@ -1177,7 +1448,6 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		
 		Double sumArea = 0d;
 		final int nPoints = points.size();
-		final Point3f origin = new Point3f((float)orgCal.xOrigin, (float)orgCal.yOrigin, (float)orgCal.zOrigin);
 		for (int n = 0; n < nPoints; n += 3) {
 			final Point3f point0 = points.get(n);
 			final Point3f point1 = points.get(n+1);
@@ -1192,7 +1462,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 			crossVector.x = (float) (y1 * z2 - z1 * y2);
 			crossVector.y = (float) (z1 * x2 - x1 * z2);
 			crossVector.z = (float) (x1 * y2 - y1 * x2);
-			final double deltaArea = 0.5 * crossVector.distance(origin);
+			final double deltaArea = 0.5 * crossVector.distance(ZERO);
 			sumArea += deltaArea;
 		}
 		double[] aabb = getAxisAlignedBoundingBoxExtents();
@@ -1490,12 +1760,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		if(points == null || points.size()==0) {
 			return Double.NaN;
 		}
-		Point3d[] points_hull = new Point3d[points.size()];
-		int itr = 0;
-		for(Point3f pf : points) {
-			Point3d pd = new Point3d(pf.x, pf.y, pf.z);
-			points_hull[itr++] = pd;
-		}
+		Point3d[] points_hull = uniqueVertices(points);
 		QuickHull3D hull = new QuickHull3D();
 		hull.build(points_hull);
 		hull.triangulate();
@@ -1529,12 +1794,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		}
 		double v = Math.abs(getVolumeByMesh());
 		
-		Point3d[] points_hull = new Point3d[points.size()];
-		int itr = 0;
-		for(Point3f pf : points) {
-			Point3d pd = new Point3d(pf.x, pf.y, pf.z);
-			points_hull[itr++] = pd;
-		}
+		Point3d[] points_hull = uniqueVertices(points);
 		QuickHull3D hull = new QuickHull3D();
 		hull.build(points_hull);
 		hull.triangulate();
@@ -1579,7 +1839,7 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		if(this.voxels_gl != null) {
 			voxels = this.voxels_gl;
 		}else {
-			voxels = Utils.getVoxels(img, intensityMask != null ? intensityMask : mask, /*keep original label*/this.label);
+			voxels = roiVoxels(img, intensityMask != null ? intensityMask : mask, /*keep original label*/this.label);
 		}
 		if(voxels == null || voxels.length == 0) {
 			return 0d;
@@ -1612,12 +1872,12 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		double index = 0;
 		double sumw = 0;
 		if(this.voxels == null) {
-			this.voxels = Utils.getVoxels(img, mask, /*original label*/label);
+			this.voxels = roiVoxels(img, mask, /*original label*/label);
 		}
 		if(voxels == null || voxels.length == 0) {
 			return null;
 		}
-		HashMap<String, double[]> xyzMaskGeo = Utils.getRoiBoundingBoxInfo(mask, /*keep original*/label, RadiomicsJ.debug);//axis aligned bb
+		HashMap<String, double[]> xyzMaskGeo = roiBoundingBox(mask, /*keep original*/label);//axis aligned bb
 		double[] aabbX = xyzMaskGeo.get("x");//0:min 1:max
 		double[] aabbY = xyzMaskGeo.get("y");
 		double[] aabbZ = xyzMaskGeo.get("z");
@@ -1670,12 +1930,12 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		double index = 0;
 		double sumw = 0;
 		if(this.voxels == null) {
-			voxels = Utils.getVoxels(img, mask, label);
+			voxels = roiVoxels(img, mask, label);
 		}
 		if(voxels == null || voxels.length == 0) {
 			return null;
 		}
-		HashMap<String, double[]> xyzMaskGeo = Utils.getRoiBoundingBoxInfo(mask, /*keep original*/label, RadiomicsJ.debug);//axis aligned bb
+		HashMap<String, double[]> xyzMaskGeo = roiBoundingBox(mask, /*keep original*/label);//axis aligned bb
 		double[] aabbX = xyzMaskGeo.get("x");//0:min 1:max
 		double[] aabbY = xyzMaskGeo.get("y");
 		double[] aabbZ = xyzMaskGeo.get("z");
@@ -1740,13 +2000,13 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		 */
 		ImagePlus glMask = intensityMask != null ? intensityMask : mask;
 		if(this.voxels_gl == null) {
-			this.voxels_gl = Utils.getVoxels(img, glMask, /*keep original*/label);
+			this.voxels_gl = roiVoxels(img, glMask, /*keep original*/label);
 		}
 		double[] voxels = this.voxels_gl;
 		if(voxels == null || voxels.length == 0) {
 			return null;
 		}
-		HashMap<String, double[]> xyzMaskGeo = Utils.getRoiBoundingBoxInfo(glMask, /*keep original*/label, RadiomicsJ.debug);//axis aligned bb
+		HashMap<String, double[]> xyzMaskGeo = roiBoundingBox(glMask, /*keep original*/label);//axis aligned bb
 		double[] aabbX = xyzMaskGeo.get("x");//0:min 1:max
 		double[] aabbY = xyzMaskGeo.get("y");
 		double[] aabbZ = xyzMaskGeo.get("z");
@@ -1826,13 +2086,13 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		 */
 		ImagePlus glMask = intensityMask != null ? intensityMask : mask;
 		if(this.voxels_gl == null) {
-			this.voxels_gl = Utils.getVoxels(img, glMask, /*keep original*/label);
+			this.voxels_gl = roiVoxels(img, glMask, /*keep original*/label);
 		}
 		double[] voxels = this.voxels_gl;
 		if(voxels == null || voxels.length == 0) {
 			return null;
 		}
-		HashMap<String, double[]> xyzMaskGeo = Utils.getRoiBoundingBoxInfo(glMask, /*keep original*/label, RadiomicsJ.debug);//axis aligned bb
+		HashMap<String, double[]> xyzMaskGeo = roiBoundingBox(glMask, /*keep original*/label);//axis aligned bb
 		double[] aabbX = xyzMaskGeo.get("x");//0:min 1:max
 		double[] aabbY = xyzMaskGeo.get("y");
 		double[] aabbZ = xyzMaskGeo.get("z");
@@ -1890,6 +2150,180 @@ public class MorphologicalFeatures extends AbstractRadiomicsFeature{
 		return Double.valueOf(index);
 	}
 
+	
+	/**
+	 * Moran's I index (N365), same as getMoransIIndex_IBSI2(),
+	 * with the sums over the voxel pairs taken from FFT convolutions.
+	 */
+	private Double getMoransIIndexByFFT() {
+		double[] sums = autocorrelationSums();
+		if(sums == null) {
+			return null;
+		}
+		return Double.valueOf((sums[0] / sums[1]) * (sums[3] / sums[2]));
+	}
+	
+	/**
+	 * Geary's C measure (NPT7), same as getGearysCMeasure2(),
+	 * with the sums over the voxel pairs taken from FFT convolutions.
+	 */
+	private Double getGearysCMeasureByFFT() {
+		double[] sums = autocorrelationSums();
+		if(sums == null) {
+			return null;
+		}
+		return Double.valueOf(((sums[0] - 1) / (2 * sums[1])) * (sums[4] / sums[2]));
+	}
+	
+	/**
+	 * FFT or pair loop for this roi, when fftSpatialAutocorrelation allows the FFT.
+	 * 
+	 * The FFT holds three double arrays of the bounding box padded to twice its extent,
+	 * that is, its memory follows the box and not the voxel count : a thin long roi
+	 * (a vessel) in a large box would not fit. It is taken only if the arrays fit in
+	 * half of the free heap, and if its three transforms, about size * log2(size) steps each,
+	 * cost less than the n * (n - 1) / 2 steps of the pair loop.
+	 * 
+	 * @return true if Moran's I and Geary's C of this roi are computed by FFT.
+	 */
+	public boolean isSpatialAutocorrelationByFFT() {
+		if(autocorrelationByFFT != null) {
+			return autocorrelationByFFT;
+		}
+		autocorrelationByFFT = false;
+		if(!fftSpatialAutocorrelation || voxels_gl == null || voxels_gl.length < 2) {
+			return false;
+		}
+		ImagePlus glMask = intensityMask != null ? intensityMask : mask;
+		HashMap<String, double[]> xyzMaskGeo = roiBoundingBox(glMask, /*keep original*/label);
+		long size = 1;
+		for(String axis : new String[] {"x", "y", "z"}) {
+			int box = (int) xyzMaskGeo.get(axis)[1] - (int) xyzMaskGeo.get(axis)[0] + 1;
+			size *= FFT3D.goodSize(2 * box - 1);
+		}
+		Runtime runtime = Runtime.getRuntime();
+		long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		if(size > Integer.MAX_VALUE || 3 * 8 * size > freeHeap / 2) {
+			return false;
+		}
+		double n = voxels_gl.length;
+		double transforms = 3 * size * (Math.log(size) / Math.log(2));
+		autocorrelationByFFT = transforms < n * (n - 1) / 2;
+		return autocorrelationByFFT;
+	}
+	
+	/**
+	 * Sums over the pairs of different voxels i, j in the intensity mask,
+	 * with w_ij = 1/|x_i - x_j| measured with the voxel spacing, and c = x - mean;
+	 *   sum of w_ij,
+	 *   Moran : sum of w_ij c_i c_j,
+	 *   Geary : sum of w_ij (c_i - c_j)^2 = 2 sum of w_ij c_i^2 - 2 sum of w_ij c_i c_j.
+	 * With K the 1/d kernel (0 at d = 0), m the roi indicator, all of them are read
+	 * off the convolutions K*m and K*c at the roi voxels. m and c go through one
+	 * complex transform as its real and imaginary part. K is real and even, so its
+	 * spectrum is real too : the real part of the product gives K*m and the imaginary part K*c.
+	 * 
+	 * The volume is cropped to the roi and padded to at least twice its extent - 1,
+	 * so that the circular convolution does not wrap.
+	 * 
+	 * @return {n, sum of the weights, sum of c^2, Moran numerator, Geary numerator},
+	 * null if the roi is empty.
+	 */
+	private double[] autocorrelationSums() {
+		if(autocorrelationSums != null) {
+			return autocorrelationSums;
+		}
+		ImagePlus glMask = intensityMask != null ? intensityMask : mask;
+		if(this.voxels_gl == null) {
+			this.voxels_gl = roiVoxels(img, glMask, /*keep original*/label);
+		}
+		if(voxels_gl == null || voxels_gl.length == 0) {
+			return null;
+		}
+		double vx = img.getCalibration().pixelWidth;
+		double vy = img.getCalibration().pixelHeight;
+		double vz = img.getCalibration().pixelDepth;
+		HashMap<String, double[]> xyzMaskGeo = roiBoundingBox(glMask, /*keep original*/label);//axis aligned bb
+		final int x0 = (int) xyzMaskGeo.get("x")[0];
+		final int y0 = (int) xyzMaskGeo.get("y")[0];
+		final int z0 = (int) xyzMaskGeo.get("z")[0];
+		final int boxX = (int) xyzMaskGeo.get("x")[1] - x0 + 1;
+		final int boxY = (int) xyzMaskGeo.get("y")[1] - y0 + 1;
+		final int boxZ = (int) xyzMaskGeo.get("z")[1] - z0 + 1;
+		FFT3D fft = new FFT3D(FFT3D.goodSize(2 * boxX - 1), FFT3D.goodSize(2 * boxY - 1), FFT3D.goodSize(2 * boxZ - 1));
+		final int nx = fft.getWidth();
+		final int ny = fft.getHeight();
+		final int nz = fft.getDepth();
+		final int size = fft.size();
+		
+		// 1/d at every offset the roi can hold, negative offsets wrap around
+		double[] kernel = new double[size];
+		for(int dz = -(boxZ - 1); dz < boxZ; dz++) {
+			for(int dy = -(boxY - 1); dy < boxY; dy++) {
+				for(int dx = -(boxX - 1); dx < boxX; dx++) {
+					if(dx == 0 && dy == 0 && dz == 0) {
+						continue;
+					}
+					double d = Math.sqrt(dx * vx * dx * vx + dy * vy * dy * vy + dz * vz * dz * vz);
+					kernel[(((dz + nz) % nz) * ny + (dy + ny) % ny) * nx + (dx + nx) % nx] = 1d / d;
+				}
+			}
+		}
+		// its imaginary part is rounding only, and is dropped before the roi arrays are taken.
+		fft.forward(kernel, new double[size]);
+		
+		double mu = StatUtils.mean(voxels_gl);
+		double[] re = new double[size];
+		double[] im = new double[size];
+		int n = 0;
+		for(int z = 0; z < boxZ; z++) {
+			ImageProcessor ip = img.getStack().getProcessor(z0 + z + 1);
+			ImageProcessor mp = glMask.getStack().getProcessor(z0 + z + 1);
+			for(int y = 0; y < boxY; y++) {
+				for(int x = 0; x < boxX; x++) {
+					if((int) mp.getf(x0 + x, y0 + y) != label) {
+						continue;
+					}
+					int i = (z * ny + y) * nx + x;
+					re[i] = 1d;
+					im[i] = ip.getf(x0 + x, y0 + y) - mu;
+					n++;
+				}
+			}
+		}
+		double[] values = new double[n];
+		int[] grid = new int[n];
+		n = 0;
+		for(int i = 0; i < size; i++) {
+			if(re[i] != 0) {
+				grid[n] = i;
+				values[n++] = im[i];
+			}
+		}
+		fft.forward(re, im, boxX, boxY, boxZ);
+		for(int i = 0; i < size; i++) {
+			re[i] *= kernel[i];
+			im[i] *= kernel[i];
+		}
+		kernel = null;
+		fft.inverse(re, im, boxX, boxY, boxZ);
+		
+		double sumw = 0;
+		double sumsq = 0;
+		double moran = 0;
+		double squares = 0;
+		for(int k = 0; k < n; k++) {
+			double c = values[k];
+			double km = re[grid[k]];
+			sumw += km;
+			sumsq += c * c;
+			moran += c * im[grid[k]];
+			squares += c * c * km;
+		}
+		this.autocorrelationSums = new double[] {n, sumw, sumsq, moran, 2 * squares - 2 * moran};
+		return autocorrelationSums;
+	}
+
 
 	@Override
 	public Set<String> getAvailableFeatures() {
@@ -15,20 +15,15 @@
  */
 package io.github.tatsunidas.radiomics.features;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import javax.vecmath.Point3i;
-
 import ij.ImagePlus;
-import ij.process.ImageProcessor;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
-import io.github.tatsunidas.radiomics.main.Utils;
+import io.github.tatsunidas.radiomics.main.NeighbourhoodCounter;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
 
 /**
  * @author tatsunidas <t_kobayashi@vis-ionary.com>
@@ -37,11 +32,8 @@ import io.github.tatsunidas.radiomics.main.Utils;
 public class NGLDMFeatures extends AbstractRadiomicsFeature implements Texture{
 	
 	double[][] gldm = null;
-	HashMap<Integer, HashMap<Integer,Integer>> gldm_map;
 	int alpha = 0;//coarseness parameter of neighbor
 	int delta = 1;//neighbor range
-	HashMap<Integer, int[]> angles = Utils.buildAngles();
-	ArrayList<Integer> angle_ids;
 	
 	ImagePlus discImg;
 	
@@ -101,37 +93,35 @@ public class NGLDMFeatures extends AbstractRadiomicsFeature implements Texture{
 		if (nBins != null) {
 			this.nBins = nBins;
 		} else {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}
 
 		if (binWidth == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = binWidth;
 		}
 		
 		// discretised by roi mask.
 		if (useBinCount) {
-			discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+			discImg = discrete(this.img, this.mask, this.label, this.nBins);
 		} else {
 			//Fixed Bin Width
-			discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-			this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask,this.label);
+			discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+			this.nBins = numOfBinsByMax(discImg, this.mask,this.label);
 		}
 		
 		if (delta != null && delta > 0) {
 			this.delta = delta;
 		} else {
-			this.delta = RadiomicsJ.deltaNGLevelDM;
+			this.delta = config().getDeltaNGLDM();
 		}
 
 		if (alpha != null && alpha >= 0) {
 			this.alpha = alpha;
 		} else {
-			this.alpha = RadiomicsJ.alpha;
+			this.alpha = config().getAlpha();
 		}
-		angle_ids = new ArrayList<>(angles.keySet());// 0 to 26
-		Collections.sort(angle_ids);
 		fillGLDM();
 		
 		settings = new HashMap<>();
@@ -148,6 +138,30 @@ public class NGLDMFeatures extends AbstractRadiomicsFeature implements Texture{
 	}
 	
 	
+	/**
+	 * Features of neighbouring grey level dependences counted elsewhere,
+	 * for example by the sliding windows of a feature map. No image is kept.
+	 * 
+	 * @param counts number of voxels [grey level - 1][number of dependent neighbours], see NeighbourhoodCounter.ngldm().
+	 * @param settings label.
+	 */
+	public NGLDMFeatures(int[][] counts, Map<String, Object> settings) {
+		super();
+		if (settings != null) {
+			this.settings = settings;
+		}
+		Object labelValue = this.settings.get(RadiomicsFeature.LABEL);
+		if (labelValue == null) {
+			throw new IllegalArgumentException("'label' is missing in settings.");
+		}
+		if (!(labelValue instanceof Integer)) {
+			throw new IllegalArgumentException("'label' must be an Integer.");
+		}
+		this.label = (Integer) labelValue;
+		this.nBins = counts.length;
+		fillGLDM(counts);
+	}
+	
 	public void buildup(Map<String,Object> settings) {
 				
 		if (mask == null) {
@@ -176,7 +190,7 @@ public class NGLDMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'nBins' must be an Integer.");
 		}
 		if(nBinsValue == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = (Integer) nBinsValue;
 		}
@@ -189,19 +203,21 @@ public class NGLDMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'BinWidth' must be a Double.");
 		}
 		if(bwValue == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = (Double)bwValue;
 		}
 				
 		// discretised by roi mask.
 		try {
-			if (useBinCount) {
-				discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+			if (preDiscretised() != null) {
+				discImg = preDiscretised();
+			} else if (useBinCount) {
+				discImg = discrete(this.img, this.mask, this.label, this.nBins);
 			} else {
 				// Fixed Bin Width
-				discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -212,7 +228,7 @@ public class NGLDMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'delta' must be an Integer.");
 		}
 		if (deltaValue == null) {
-			this.delta = RadiomicsJ.deltaGLCM;
+			this.delta = config().getDeltaNGLDM();
 		}else {
 			this.delta = (Integer)deltaValue;
 		}
@@ -222,100 +238,47 @@ public class NGLDMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'alpha' must be an Integer.");
 		}
 		if (alphaValue == null) {
-			this.alpha = RadiomicsJ.alpha;
+			this.alpha = config().getAlpha();
 		}else {
 			this.alpha = (Integer)alphaValue;
 		}
 		
-		angle_ids = new ArrayList<>(angles.keySet());// 0 to 26
-		Collections.sort(angle_ids);
 		fillGLDM();
 	}
 	
 	public void fillGLDM() {
-		gldm_map = new HashMap<Integer, HashMap<Integer,Integer>>();
-		for(int grayLevel=1;grayLevel<=nBins;grayLevel++) {
-			//size and count
-			HashMap<Integer,Integer> gldm_row = new HashMap<Integer,Integer>();
-			for(int z=0;z<s;z++) {
-				float[][] iSlice = discImg.getStack().getProcessor(z+1).getFloatArray();
-				float[][] mSlice = mask.getStack().getProcessor(z+1).getFloatArray();
-				for (int y = 0; y < h; y++) {
-					for (int x = 0; x < w; x++) {
-						int lbl = (int) mSlice[x][y];
-						if(lbl != label) {
-							continue;
-						}
-						float val = iSlice[x][y];
-						if(Float.isNaN(val)) {
-							continue;
-						}
-						if (((int)val) == grayLevel) {
-							ArrayList<Point3i> neighbor = connectedNeighbor(x,y,z,w,h,s);
-							int count = 0;
-							for (Point3i p : neighbor) {
-								ImageProcessor ip = discImg.getStack().getProcessor(p.z+1);
-								//ImageProcessor mp = mask.getStack().getProcessor(p.z+1);
-								float fv = ip.getf(p.x, p.y);
-								if(!Float.isNaN(fv)) {
-									if (Math.abs(grayLevel - ((int)fv)) <= alpha) {
-										count++;
-									}
-								}
-							}
-							gldm_row.put(count, gldm_row.get(count) == null ? 1 : gldm_row.get(count) + 1);
-						}
-					}
-				}
-			}
-			gldm_map.put(grayLevel, gldm_row);
-		}
-		map2matrix(gldm_map);
-	}
-	
-	private ArrayList<Point3i> connectedNeighbor(int seedX, int seedY, int seedZ, int max_w , int max_h, int max_s){
-		ArrayList<Point3i> neighbors = new ArrayList<Point3i>();
-		for(int d=1;d<=delta;d++) {
-			for(Integer a_id:angle_ids) {
-				if(Integer.valueOf(13) == a_id) {
-					continue;//0,0,0
-				}
-				int[] a = angles.get(a_id);
-				int nX = seedX+(a[2]*d);
-				int nY = seedY+(a[1]*d*-1);//adjust y direction from vector
-				int nZ = seedZ+(a[0]*d);
-				Point3i neighbor = new Point3i(nX,nY,nZ);
-				if(!Utils.isOutOfRange(new Point3i(nX,nY,nZ), max_w , max_h, max_s)) neighbors.add(neighbor);
-			}
+		int[][] counts;//[gray level - 1][number of dependent neighbours]
+		try {
+			RoiVolume voxels = roiVolume(discImg, mask, label, nBins);
+			counts = new NeighbourhoodCounter(voxels, delta).ngldm(alpha, voxels.getDepth() > 1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			counts = new int[nBins][1];
 		}
-		return neighbors;
+		fillGLDM(counts);
 	}
 	
-	
-	private double[][] map2matrix(HashMap<Integer, HashMap<Integer,Integer>> gldm_map){
+	/**
+	 * @param counts columns beyond the largest number of dependent neighbours are ignored.
+	 */
+	private void fillGLDM(int[][] counts) {
 		size_max = 0;
-		for(Integer gl:gldm_map.keySet()) {
-			HashMap<Integer,Integer> size_count_pair = gldm_map.get(gl);
-			for(Integer size:size_count_pair.keySet()) {
-				if(size > size_max) {
-					size_max = size;
+		for(int row=0;row<nBins;row++) {
+			for(int col=counts[row].length-1;col>size_max;col--) {
+				if(counts[row][col] != 0) {
+					size_max = col;
+					break;
 				}
 			}
 		}
 		gldm = new double[nBins][size_max+1];// 0 to num of count
 		Ns = 0.0;
-		for(int row=1;row<=nBins;row++) {
-			HashMap<Integer,Integer> size_count_pair = gldm_map.get(row);
+		for(int row=0;row<nBins;row++) {
 			for(int col=0;col<=size_max;col++) { //start from 0
-				Integer count = size_count_pair.get(col);
-				if(count == null) {
-					count = 0;
-				}
-				gldm[row-1][col] = (double)count; 
-				Ns += (double)count;
+				gldm[row][col] = (double)counts[row][col];
+				Ns += (double)counts[row][col];
 			}
 		}
-		return gldm;
 	}
 	
 
@@ -15,22 +15,17 @@
  */
 package io.github.tatsunidas.radiomics.features;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import javax.vecmath.Point3i;
-
 import ij.IJ;
 import ij.ImagePlus;
 import ij.measure.Calibration;
-import ij.process.ImageProcessor;
 import io.github.tatsunidas.radiomics.main.ImagePreprocessing;
-import io.github.tatsunidas.radiomics.main.RadiomicsJ;
-import io.github.tatsunidas.radiomics.main.Utils;
+import io.github.tatsunidas.radiomics.main.NeighbourhoodCounter;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
 
 /**
  * @author tatsunidas <t_kobayashi@vis-ionary.com>
@@ -52,8 +47,6 @@ public class NGTDMFeatures extends AbstractRadiomicsFeature implements Texture{
 	int nBins;//discretised gray level
 	double binWidth;
 	int delta = 1;//search range
-	HashMap<Integer, int[]> angles = Utils.buildAngles();
-	ArrayList<Integer> angle_ids;
 	
 	//basic stats
 	double Nvp;
@@ -105,43 +98,41 @@ public class NGTDMFeatures extends AbstractRadiomicsFeature implements Texture{
 		if(nBins != null) {
 			this.nBins = nBins;
 		}else {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}
 		
 		if(binWidth != null) {
 			this.binWidth = binWidth;
 		}else {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}
 		
-		if (RadiomicsJ.discretiseImp != null) {
-			discImg = RadiomicsJ.discretiseImp;
+		if (preDiscretised() != null) {
+			discImg = preDiscretised();
 		} else {
 			if (useBinCount) {
 				/*
 				 * Fixed Bin Number
 				 */
-				discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+				discImg = discrete(this.img, this.mask, this.label, this.nBins);
 			} else {
 				/*
 				 * Fixed Bin Size
 				 */
 				if(binWidth == null) {
-					binWidth = RadiomicsJ.binWidth;
+					binWidth = config().getBinWidth();
 				}
-				discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, binWidth);
-				this.nBins = Utils.getNumOfBinsByMax(discImg,this.mask, this.label);
+				discImg = discreteByBinWidth(this.img, this.mask, this.label, binWidth, config().getRangeMin());
+				this.nBins = numOfBinsByMax(discImg,this.mask, this.label);
 			}
 		}
 			
 		if (delta != null && delta > 0) {
 			this.delta = delta;
 		} else {
-			this.delta = RadiomicsJ.deltaNGToneDM;
+			this.delta = config().getDeltaNGTDM();
 		}
 
-		angle_ids = new ArrayList<>(angles.keySet());// 0 to 26
-		Collections.sort(angle_ids);
 		fillNGTDM(false);
 		
 		settings.put(RadiomicsFeature.IMAGE, img);
@@ -154,6 +145,30 @@ public class NGTDMFeatures extends AbstractRadiomicsFeature implements Texture{
 		settings.put(RadiomicsFeature.BinWidth, binWidth);
 	}
 	
+	/**
+	 * Features of neighbourhood grey tone differences counted elsewhere,
+	 * for example by the sliding windows of a feature map. No image is kept.
+	 * 
+	 * @param nisi {n_i, s_i} of each grey level [grey level - 1], see NeighbourhoodCounter.ngtdm().
+	 * @param settings label.
+	 */
+	public NGTDMFeatures(double[][] nisi, Map<String, Object> settings) {
+		super();
+		if (settings != null) {
+			this.settings = settings;
+		}
+		Object labelValue = this.settings.get(RadiomicsFeature.LABEL);
+		if (labelValue == null) {
+			throw new IllegalArgumentException("'label' is missing in settings.");
+		}
+		if (!(labelValue instanceof Integer)) {
+			throw new IllegalArgumentException("'label' must be an Integer.");
+		}
+		this.label = (Integer) labelValue;
+		this.nBins = nisi.length;
+		fillNGTDM(nisi);
+	}
+	
 	public void buildup(Map<String,Object> settings) {
 		if (mask == null) {
 			// create full face mask
@@ -181,7 +196,7 @@ public class NGTDMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'nBins' must be an Integer.");
 		}
 		if(nBinsValue == null) {
-			this.nBins = RadiomicsJ.nBins;
+			this.nBins = config().getNBins();
 		}else {
 			this.nBins = (Integer) nBinsValue;
 		}
@@ -194,19 +209,21 @@ public class NGTDMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'BinWidth' must be a Double.");
 		}
 		if(bwValue == null) {
-			this.binWidth = RadiomicsJ.binWidth;
+			this.binWidth = config().getBinWidth();
 		}else {
 			this.binWidth = (Double)bwValue;
 		}
 				
 		// discretised by roi mask.
 		try {
-			if (useBinCount) {
-				discImg = Utils.discrete(this.img, this.mask, this.label, this.nBins);
+			if (preDiscretised() != null) {
+				discImg = preDiscretised();
+			} else if (useBinCount) {
+				discImg = discrete(this.img, this.mask, this.label, this.nBins);
 			} else {
 				// Fixed Bin Width
-				discImg = Utils.discreteByBinWidth(this.img, this.mask, this.label, this.binWidth);
-				this.nBins = Utils.getNumOfBinsByMax(discImg, this.mask, this.label);
+				discImg = discreteByBinWidth(this.img, this.mask, this.label, this.binWidth, config().getRangeMin());
+				this.nBins = numOfBinsByMax(discImg, this.mask, this.label);
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -217,63 +234,39 @@ public class NGTDMFeatures extends AbstractRadiomicsFeature implements Texture{
 			throw new IllegalArgumentException("'delta' must be an Integer.");
 		}
 		if (deltaValue == null) {
-			this.delta = RadiomicsJ.deltaNGToneDM;
+			this.delta = config().getDeltaNGTDM();
 		}else {
 			this.delta = (Integer)deltaValue;
 		}
 				
-		angle_ids = new ArrayList<>(angles.keySet());// 0 to 26
-		Collections.sort(angle_ids);
 		fillNGTDM(false);;
 	}
 	
+	/**
+	 * @param amadaAlgorithms if true, neighbours out of the mask were counted when they have a grey level.
+	 * the discretised image has no grey level out of the roi, both give the same matrix, kept for compatibility.
+	 */
 	public void fillNGTDM(boolean amadaAlgorithms) {
+		ngtdm = new double[nBins][4];//[i, Ni, Pi, Si]
+		double[][] nisi;//[Ni, Si]
+		try {
+			RoiVolume voxels = roiVolume(discImg, mask, label, nBins);
+			nisi = new NeighbourhoodCounter(voxels, delta).ngtdm(voxels.getDepth() > 1);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return;
+		}
+		fillNGTDM(nisi);
+	}
+	
+	private void fillNGTDM(double[][] nisi) {
 		ngtdm = new double[nBins][4];//[i, Ni, Pi, Si]
 		Nvp = 0d; //sum of neighbor i
+		Ngp = 0d;
 		for(int grayLevel=1;grayLevel<=nBins;grayLevel++) {
-			double si = 0d; //Neighbourhood grey tone difference
-			int ni = 0;// the total number of voxels have this gray level
-			for(int z=0;z<s;z++) {
-				float[][] iSlice = discImg.getStack().getProcessor(z+1).getFloatArray();
-				float[][] mSlice = mask.getStack().getProcessor(z+1).getFloatArray();
-				for(int y=0;y<h;y++) {
-					for(int x=0;x<w;x++) {
-						//check voxel is in roi
-						int lbl = (int) mSlice[x][y];
-						if(lbl != this.label) {
-							continue;
-						}
-						float val = iSlice[x][y];
-						if(Float.isNaN(val)) {
-							continue;
-						}
-						if(((int)val) == grayLevel) {
-							double blob_sum = 0.0;
-							int numOfValidNeighbor = 0;
-							ArrayList<Point3i> neighbor = connectedNeighbor(x,y,z,w,h,s);
-							for(Point3i p : neighbor) {
-								if(!amadaAlgorithms) {
-									int lbl_ = (int) mask.getStack().getProcessor(p.z + 1).getPixelValue(p.x, p.y);
-									if (lbl_ != this.label) {
-										continue;
-									}
-								}
-								ImageProcessor ip = discImg.getStack().getProcessor(p.z+1);
-								float fv = ip.getf(p.x, p.y);
-								if(!Float.isNaN(fv)) {
-									blob_sum += fv;
-									numOfValidNeighbor++;
-								}
-							}
-							if(numOfValidNeighbor != 0) {
-								si += Math.abs(grayLevel-(blob_sum/numOfValidNeighbor));
-							}
-							ni++;
-						}
-					}
-				}
-			}
-			ngtdm[grayLevel-1] = new double[]{(double)grayLevel, (double)ni, 0.0d, si};
+			double ni = nisi[grayLevel-1][0];// the total number of voxels have this gray level
+			double si = nisi[grayLevel-1][1];//Neighbourhood grey tone difference
+			ngtdm[grayLevel-1] = new double[]{(double)grayLevel, ni, 0.0d, si};
 			Nvp += ni;
 			if(si != 0.0) {
 				Ngp++;
@@ -285,24 +278,6 @@ public class NGTDMFeatures extends AbstractRadiomicsFeature implements Texture{
 		}
 	}
 	
-	private ArrayList<Point3i> connectedNeighbor(int seedX, int seedY, int seedZ, int max_w , int max_h, int max_s){
-		ArrayList<Point3i> neighbors = new ArrayList<Point3i>();
-		for(int i=1; i<= delta;i++) {
-			for(Integer a_id:angle_ids) {
-				if(Integer.valueOf(13) == a_id) {
-					continue;//0,0,0
-				}
-				int[] a = angles.get(a_id);
-				int nX = seedX+(a[2]*i);
-				int nY = seedY+(a[1]*i*-1);
-				int nZ = seedZ+(a[0]*i);
-				Point3i neighbor = new Point3i(nX,nY,nZ);
-				if(!Utils.isOutOfRange(new Point3i(nX,nY,nZ), max_w , max_h, max_s)) neighbors.add(neighbor);
-			}
-		}
-		return neighbors;
-	}
-	
 	public Double calculate(String id) {
 		String name = NGTDMFeatureType.findType(id);
 		if (name.equals(NGTDMFeatureType.Coarseness.name())) {
@@ -34,7 +34,21 @@ public interface RadiomicsFeature {
 
 	//GLAM, largest distance in voxels at which the radial distribution is evaluated
 	public static final String GLAM_MAX_RADIUS = "GLAM_MAX_RADIUS";
-	
+
+	//GLCM, Boolean. if true, the matrices of all angles are merged before calculating features, else features are averaged over the angles (default).
+	public static final String GLCM_MERGED = "GLCM_MERGED";
+
+	//ExtractionSettings of the run. if absent, the static settings of RadiomicsJ are used.
+	public static final String EXTRACTION_SETTINGS = "EXTRACTION_SETTINGS";
+	//already discretised image of the run (input), that lets the families skip re-discretisation.
+	public static final String PRE_DISC_IMG = "PRE_DISC_IMG";
+	//Morphological, intensity(re-segmented) mask. null-able, then MASK is used.
+	public static final String INTENSITY_MASK = "INTENSITY_MASK";
+	//GLDZM, morphological mask that gives the roi edge. null-able, then MASK is used.
+	public static final String MORPHO_MASK = "MORPHO_MASK";
+	//ExtractionCache of the run, shares discretised images, roi voxels, bounding box and histogram between the families. null-able.
+	public static final String EXTRACTION_CACHE = "EXTRACTION_CACHE";
+
 	/**
 	 * calculate feature
 	 * @param featureId
@@ -38,6 +38,7 @@ public class Shape2DFeatures extends AbstractRadiomicsFeature{
 	Roi roi;
 	
 	Analyzer analyzer;
+	ResultsTable measured;
 	
 	int w;
 	int h;
@@ -114,8 +115,11 @@ public class Shape2DFeatures extends AbstractRadiomicsFeature{
 		this.img.setRoi(this.roi);
 		int measurements = Analyzer.ALL_STATS;
 		ImageStatistics stats = this.img.getStatistics(measurements);
-		Analyzer.setMeasurements(measurements);
-		analyzer = new Analyzer();
+		/*
+		 * own table, not the system results table : slices may be computed on several threads.
+		 */
+		measured = new ResultsTable();
+		analyzer = new Analyzer(this.img, measurements, measured);
 		analyzer.saveResults(stats, roi);
 		
 		settings.put("IMAGE", this.img);
@@ -195,16 +199,14 @@ public class Shape2DFeatures extends AbstractRadiomicsFeature{
 	}
 	
 	private Double getPerimeter() {
-		@SuppressWarnings("static-access")
-		ResultsTable rt =analyzer.getResultsTable(); // get the system results table
+		ResultsTable rt = measured;
 		int counter = rt.getCounter();
 		double perimeter = rt.getValueAsDouble(ResultsTable.PERIMETER, counter-1);
 		return perimeter;
 	}
 	
 	private Double getPerimeterSurfaceRatio() {
-		@SuppressWarnings("static-access")
-		ResultsTable rt =analyzer.getResultsTable(); // get the system results table
+		ResultsTable rt = measured;
 		int counter = rt.getCounter();
 		double area = rt.getValueAsDouble(ResultsTable.AREA, counter-1);
 		double perimeter = rt.getValueAsDouble(ResultsTable.PERIMETER, counter-1);
@@ -212,8 +214,7 @@ public class Shape2DFeatures extends AbstractRadiomicsFeature{
 	}
 	
 	private Double getCircularity() {
-		@SuppressWarnings("static-access")
-		ResultsTable rt =analyzer.getResultsTable(); // get the system results table
+		ResultsTable rt = measured;
 		int counter = rt.getCounter();
 		double area = rt.getValueAsDouble(ResultsTable.AREA, counter-1);
 		double perimeter = rt.getValueAsDouble(ResultsTable.PERIMETER, counter-1);
@@ -222,8 +223,7 @@ public class Shape2DFeatures extends AbstractRadiomicsFeature{
 	
 	
 	private Double getSphericity() {
-		@SuppressWarnings("static-access")
-		ResultsTable rt = analyzer.getResultsTable(); // get the system results table
+		ResultsTable rt = measured;
 		int counter = rt.getCounter();//rt.size() is more suitable ?
 		double area = rt.getValueAsDouble(ResultsTable.AREA, counter-1);
 		double perimeter = rt.getValueAsDouble(ResultsTable.PERIMETER, counter-1);
@@ -419,8 +419,7 @@ public class Shape2DFeatures extends AbstractRadiomicsFeature{
 	}
 	
 	private Double getAreaFraction(){
-		@SuppressWarnings("static-access")
-		ResultsTable rt =analyzer.getResultsTable(); // get the system results table
+		ResultsTable rt = measured;
 		int counter = rt.getCounter();
 		double af = rt.getValueAsDouble(ResultsTable.AREA_FRACTION, counter-1);
 		return af;
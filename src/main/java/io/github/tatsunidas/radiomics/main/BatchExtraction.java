@@ -0,0 +1,445 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ij.measure.ResultsTable;
+
+/**
+ * Feature extraction of many image/mask cases.
+ *
+ * The cases are listed in a manifest (csv: image, mask, label) and processed by a
+ * fixed pool of workers, each case by its own RadiomicsJ(ExtractionSettings).
+ * At most maxCasesInMemory cases are decoded at the same time, the manifest is not
+ * read ahead further than that (back-pressure).
+ * Each case gives one row (force2D: one row per slice) that is streamed into a single
+ * ResultSink (csv by default), in the order of the manifest. A case that fails is logged
+ * and skipped, it never stops the other cases. So is a row the sink refuses (a csv can not
+ * take a column its header does not have).
+ *
+ * @author tatsunidas
+ *
+ */
+public class BatchExtraction {
+
+	/**
+	 * leading columns of the output table.
+	 */
+	public static final String COL_IMAGE = "Image";
+	public static final String COL_MASK = "Mask";
+	public static final String COL_LABEL = "Label";
+
+	private final ExtractionSettings settings;
+
+	private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+	/**
+	 * 0 : same as workers.
+	 */
+	private int maxCasesInMemory = 0;
+
+	/**
+	 *
+	 * @param settings calculation settings, shared by every case.
+	 */
+	public BatchExtraction(ExtractionSettings settings) {
+		if(settings == null) {
+			throw new IllegalArgumentException("BatchExtraction: settings must be non-null.");
+		}
+		this.settings = settings;
+	}
+
+	/**
+	 * @param workers number of cases computed at the same time (>= 1).
+	 */
+	public BatchExtraction setWorkers(int workers) {
+		if(workers < 1) {
+			throw new IllegalArgumentException("BatchExtraction: workers should be >= 1, but " + workers);
+		}
+		this.workers = workers;
+		return this;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Upper limit of the cases held in memory (decoded and not yet computed).
+	 * Values lower than workers leave some workers idle.
+	 * @param maxCasesInMemory 0 : same as workers.
+	 */
+	public BatchExtraction setMaxCasesInMemory(int maxCasesInMemory) {
+		if(maxCasesInMemory < 0) {
+			throw new IllegalArgumentException("BatchExtraction: maxCasesInMemory should be >= 0, but " + maxCasesInMemory);
+		}
+		this.maxCasesInMemory = maxCasesInMemory;
+		return this;
+	}
+
+	public int getMaxCasesInMemory() {
+		return maxCasesInMemory == 0 ? workers : maxCasesInMemory;
+	}
+
+	/**
+	 * One line of the manifest.
+	 */
+	public static final class BatchCase {
+		private final String image;
+		private final String mask;
+		private final Integer label;
+
+		/**
+		 * @param image image file or series folder. (same as RadiomicsJ.execute(File, File, Integer))
+		 * @param mask mask file or series folder.
+		 * @param label null-able, then the target label of the settings is used.
+		 */
+		public BatchCase(String image, String mask, Integer label) {
+			if(image == null || mask == null) {
+				throw new IllegalArgumentException("BatchCase: image and mask paths must be non-null.");
+			}
+			this.image = image;
+			this.mask = mask;
+			this.label = label;
+		}
+
+		public String getImage() {
+			return image;
+		}
+
+		public String getMask() {
+			return mask;
+		}
+
+		public Integer getLabel() {
+			return label;
+		}
+
+		@Override
+		public String toString() {
+			return image + ", " + mask + ", " + label;
+		}
+	}
+
+	/**
+	 * A case that could not be computed.
+	 */
+	public static final class BatchFailure {
+		private final int index;
+		private final BatchCase batchCase;
+		private final Throwable cause;
+
+		BatchFailure(int index, BatchCase batchCase, Throwable cause) {
+			this.index = index;
+			this.batchCase = batchCase;
+			this.cause = cause;
+		}
+
+		/**
+		 * @return position in the manifest, 0 to N-1.
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		public BatchCase getCase() {
+			return batchCase;
+		}
+
+		public Throwable getCause() {
+			return cause;
+		}
+	}
+
+	/**
+	 * Read a manifest.
+	 *
+	 * One case per line, "image,mask[,label]". A header line starting with "image" is skipped,
+	 * as well as blank lines and lines starting with "#". Values may be double-quoted.
+	 * Relative paths are resolved against the folder of the manifest.
+	 *
+	 * @param manifest csv file
+	 * @return cases in the order of the manifest
+	 * @throws IOException
+	 */
+	public static List<BatchCase> readManifest(File manifest) throws IOException {
+		if(manifest == null || !manifest.isFile()) {
+			throw new IOException("BatchExtraction: can not read manifest -> " + manifest);
+		}
+		File base = manifest.getAbsoluteFile().getParentFile();
+		List<BatchCase> cases = new ArrayList<>();
+		try (BufferedReader br = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			int lineNo = 0;
+			while((line = br.readLine()) != null) {
+				lineNo++;
+				if(lineNo == 1 && line.startsWith("\uFEFF")) {
+					line = line.substring(1);//BOM
+				}
+				String trimmed = line.trim();
+				if(trimmed.isEmpty() || trimmed.startsWith("#")) {
+					continue;
+				}
+				List<String> cols = splitCsvLine(trimmed);
+				if(cases.isEmpty() && cols.get(0).equalsIgnoreCase("image")) {
+					continue;//header
+				}
+				if(cols.size() < 2) {
+					throw new IOException("BatchExtraction: manifest line " + lineNo + " needs image and mask paths -> " + line);
+				}
+				Integer label = null;
+				if(cols.size() > 2 && !cols.get(2).isEmpty()) {
+					try {
+						label = Integer.valueOf(cols.get(2));
+					}catch(NumberFormatException e) {
+						throw new IOException("BatchExtraction: manifest line " + lineNo + " has invalid label -> " + cols.get(2));
+					}
+				}
+				cases.add(new BatchCase(resolve(base, cols.get(0)), resolve(base, cols.get(1)), label));
+			}
+		}
+		return cases;
+	}
+
+	private static String resolve(File base, String path) {
+		File f = new File(path);
+		if(!f.isAbsolute() && base != null) {
+			f = new File(base, path);
+		}
+		return f.getAbsolutePath();
+	}
+
+	private static List<String> splitCsvLine(String line) {
+		List<String> cols = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		boolean quoted = false;
+		for(int i=0;i<line.length();i++) {
+			char c = line.charAt(i);
+			if(c == '"') {
+				if(quoted && i+1 < line.length() && line.charAt(i+1) == '"') {
+					sb.append('"');
+					i++;
+				}else {
+					quoted = !quoted;
+				}
+			}else if(c == ',' && !quoted) {
+				cols.add(sb.toString().trim());
+				sb.setLength(0);
+			}else {
+				sb.append(c);
+			}
+		}
+		cols.add(sb.toString().trim());
+		return cols;
+	}
+
+	/**
+	 * Compute all cases and stream the rows into output.
+	 *
+	 * @param cases see readManifest()
+	 * @param output csv file, or columnar file if it ends with ColumnarFileSink.EXTENSION. Overwritten.
+	 * @return failed cases, empty if all cases were computed.
+	 * @throws IOException when the output can not be written.
+	 * @throws InterruptedException when the calling thread was interrupted, the cases not started yet are dropped.
+	 */
+	public List<BatchFailure> run(List<BatchCase> cases, File output) throws IOException, InterruptedException {
+		try (ResultSink sink = output.getName().endsWith(ColumnarFileSink.EXTENSION) ? new ColumnarFileSink(output) : new CsvResultSink(output)) {
+			return run(cases, sink);
+		}
+	}
+
+	/**
+	 * Compute all cases and stream the rows into out.
+	 * The columns are Image, Mask, Label and the features of the first computed case,
+	 * a later case with a column they do not have is a failure.
+	 *
+	 * @param cases see readManifest()
+	 * @param out csv destination, not closed.
+	 * @return failed cases, empty if all cases were computed.
+	 * @throws IOException when out can not be written.
+	 * @throws InterruptedException when the calling thread was interrupted, the cases not started yet are dropped.
+	 */
+	public List<BatchFailure> run(List<BatchCase> cases, Writer out) throws IOException, InterruptedException {
+		return run(cases, new CsvResultSink(out));
+	}
+
+	/**
+	 * Compute all cases and stream the rows into sink, in the order of the manifest.
+	 * The leading columns are Image, Mask and Label.
+	 *
+	 * @param cases see readManifest()
+	 * @param sink destination of the rows, flushed but not closed.
+	 * @return failed cases, empty if all cases were computed.
+	 * @throws IOException when sink can not be written.
+	 * @throws InterruptedException when the calling thread was interrupted, the cases not started yet are dropped.
+	 */
+	public List<BatchFailure> run(List<BatchCase> cases, ResultSink sink) throws IOException, InterruptedException {
+		List<BatchFailure> failures = Collections.synchronizedList(new ArrayList<>());
+		OrderedRows stream = new OrderedRows(sink, cases, failures);
+		AtomicInteger threadNo = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+			Thread t = new Thread(r, "RadiomicsJ-batch-" + threadNo.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		/*
+		 * one permit per case in memory, released when the case is done.
+		 * submission blocks here, so the queue of the pool never grows.
+		 */
+		Semaphore inMemory = new Semaphore(getMaxCasesInMemory());
+		try {
+			for(int i=0;i<cases.size();i++) {
+				final int index = i;
+				final BatchCase c = cases.get(i);
+				inMemory.acquire();
+				try {
+					pool.execute(() -> {
+						try {
+							stream.put(index, compute(c));
+						}catch(Throwable t) {
+							failures.add(new BatchFailure(index, c, t));
+							System.err.println("RadiomicsJ batch: case " + (index+1) + " failed, skip it -> " + c + " : " + t);
+							if(RadiomicsJ.debug) {
+								t.printStackTrace();
+							}
+							stream.put(index, null);
+						}finally {
+							inMemory.release();
+						}
+					});
+				}catch(RuntimeException e) {
+					inMemory.release();
+					throw e;
+				}
+			}
+		}finally {
+			pool.shutdown();
+			while(!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				//keep waiting the running cases.
+			}
+		}
+		stream.finish();
+		List<BatchFailure> sorted = new ArrayList<>(failures);
+		sorted.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+		return sorted;
+	}
+
+	/**
+	 * @return rows of one case, column name to value.
+	 */
+	private List<Map<String, Object>> compute(BatchCase c) throws Exception {
+		File image = new File(c.getImage());
+		File mask = new File(c.getMask());
+		if(!image.exists() || !mask.exists()) {
+			throw new FileNotFoundException("image or mask not found.");
+		}
+		Integer label = c.getLabel() != null ? c.getLabel() : settings.getTargetLabel();
+		RadiomicsJ radiomics = new RadiomicsJ(settings);
+		ResultsTable rt = radiomics.execute(image, mask, label);
+		if(rt == null || rt.size() == 0) {
+			throw new Exception("RadiomicsJ returned no result. Please check image, mask and label.");
+		}
+		List<Map<String, Object>> rows = new ArrayList<>();
+		for(int row=0;row<rt.size();row++) {
+			Map<String, Object> values = new LinkedHashMap<>();
+			values.put(COL_IMAGE, c.getImage());
+			values.put(COL_MASK, c.getMask());
+			//several labels (STRING_targetLabels) are told by the row label.
+			String rowLabel = rt.getLabel(row);
+			values.put(COL_LABEL, rowLabel != null ? rowLabel : String.valueOf(label));
+			for(String h : rt.getHeadings()) {
+				if(h == null || h.trim().isEmpty() || h.equals("Label")) {
+					continue;
+				}
+				if(h.contains("OperationalInfo_")) {
+					values.put(h, rt.getStringValue(h, row));
+				}else {
+					values.put(h, rt.getValue(h, row));
+				}
+			}
+			rows.add(values);
+		}
+		return rows;
+	}
+
+	/**
+	 * Gives the rows to the sink in the order of the manifest, as soon as all previous cases are done.
+	 * A row the sink refuses makes its case a failure, the rows after it are still given.
+	 */
+	private static final class OrderedRows {
+		private final ResultSink sink;
+		private final List<BatchCase> cases;
+		private final List<BatchFailure> failures;
+		private final TreeMap<Integer, List<Map<String, Object>>> pending = new TreeMap<>();
+		private int next = 0;
+		private IOException error;
+
+		OrderedRows(ResultSink sink, List<BatchCase> cases, List<BatchFailure> failures) {
+			this.sink = sink;
+			this.cases = cases;
+			this.failures = failures;
+		}
+
+		/**
+		 * @param rows null if the case failed.
+		 */
+		synchronized void put(int index, List<Map<String, Object>> rows) {
+			pending.put(index, rows == null ? Collections.emptyList() : rows);
+			while(!pending.isEmpty() && pending.firstKey() == next) {
+				List<Map<String, Object>> ready = pending.pollFirstEntry().getValue();
+				int done = next++;
+				if(error != null) {
+					continue;
+				}
+				try {
+					for(Map<String, Object> row : ready) {
+						sink.add(row);
+					}
+				} catch (IOException e) {
+					error = e;
+				} catch (IllegalArgumentException e) {
+					failures.add(new BatchFailure(done, cases.get(done), e));
+					System.err.println("RadiomicsJ batch: rows of case " + (done+1) + " not written -> " + cases.get(done) + " : " + e.getMessage());
+				}
+			}
+		}
+
+		synchronized void finish() throws IOException {
+			if(error != null) {
+				throw error;
+			}
+			sink.flush();
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.process.FloatProcessor;
+
+/**
+ * Images read from a buffer holding a whole volume, as the Python bindings pass NumPy arrays.
+ *
+ * The Python side hands the memory of the array over as a direct ByteBuffer
+ * (jpype.nio.convertToDirectBuffer), without copying it. Each slice is then filled
+ * by one bulk read of the buffer, instead of converting the voxels one by one in Python.
+ * ImageJ keeps its pixels in Java arrays, so this read is the only copy.
+ *
+ * The returned image holds no reference to the buffer, it can be given to any number
+ * of feature families, and the array can be released afterwards.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class BufferImages {
+
+	private BufferImages() {
+	}
+
+	/**
+	 * @param buffer voxels of a C ordered (z, y, x) array, in the native byte order.
+	 * @param dtype NumPy name of the voxel type: float32, float64, int8, uint8, bool, int16, uint16, int32, uint32 or int64.
+	 * @param width
+	 * @param height
+	 * @param depth 1 for a 2D array.
+	 * @param pixelWidth
+	 * @param pixelHeight
+	 * @param pixelDepth
+	 * @param title
+	 * @return 32 bit image of depth slices.
+	 */
+	public static ImagePlus floatImage(ByteBuffer buffer, String dtype, int width, int height, int depth,
+			double pixelWidth, double pixelHeight, double pixelDepth, String title) {
+		if (buffer == null) {
+			throw new IllegalArgumentException("BufferImages: buffer is null.");
+		}
+		if (width < 1 || height < 1 || depth < 1) {
+			throw new IllegalArgumentException("BufferImages: width, height and depth must be 1 or more.");
+		}
+		int plane = width * height;
+		long size = (long) plane * depth;
+		int bytes = bytesPerVoxel(dtype);
+		ByteBuffer voxels = buffer.duplicate().order(ByteOrder.nativeOrder());
+		voxels.rewind();
+		if (voxels.remaining() < size * bytes) {
+			throw new IllegalArgumentException("BufferImages: the buffer holds " + voxels.remaining() + " bytes, "
+					+ width + "x" + height + "x" + depth + " " + dtype + " needs " + size * bytes + ".");
+		}
+		ImageStack stack = new ImageStack(width, height);
+		for (int z = 0; z < depth; z++) {
+			float[] pixels = new float[plane];
+			readSlice(voxels, dtype, z * plane, pixels);
+			stack.addSlice(new FloatProcessor(width, height, pixels));
+		}
+		ImagePlus imp = new ImagePlus(title, stack);
+		Calibration cal = new Calibration();
+		cal.pixelWidth = pixelWidth;
+		cal.pixelHeight = pixelHeight;
+		cal.pixelDepth = pixelDepth;
+		imp.setCalibration(cal);
+		return imp;
+	}
+
+	private static int bytesPerVoxel(String dtype) {
+		switch (String.valueOf(dtype)) {
+		case "int8":
+		case "uint8":
+		case "bool":
+			return 1;
+		case "int16":
+		case "uint16":
+			return 2;
+		case "float32":
+		case "int32":
+		case "uint32":
+			return 4;
+		case "float64":
+		case "int64":
+			return 8;
+		default:
+			throw new IllegalArgumentException("BufferImages: unsupported dtype " + dtype + ".");
+		}
+	}
+
+	/*
+	 * reads the voxels [from, from + pixels.length) of the buffer.
+	 */
+	private static void readSlice(ByteBuffer voxels, String dtype, int from, float[] pixels) {
+		int n = pixels.length;
+		switch (dtype) {
+		case "float32": {
+			FloatBuffer b = voxels.asFloatBuffer();
+			b.position(from);
+			b.get(pixels);
+			break;
+		}
+		case "float64": {
+			DoubleBuffer b = voxels.asDoubleBuffer();
+			for (int i = 0; i < n; i++) {
+				pixels[i] = (float) b.get(from + i);
+			}
+			break;
+		}
+		case "int8":
+			for (int i = 0; i < n; i++) {
+				pixels[i] = voxels.get(from + i);
+			}
+			break;
+		case "uint8":
+		case "bool":
+			for (int i = 0; i < n; i++) {
+				pixels[i] = voxels.get(from + i) & 0xff;
+			}
+			break;
+		case "int16": {
+			ShortBuffer b = voxels.asShortBuffer();
+			for (int i = 0; i < n; i++) {
+				pixels[i] = b.get(from + i);
+			}
+			break;
+		}
+		case "uint16": {
+			ShortBuffer b = voxels.asShortBuffer();
+			for (int i = 0; i < n; i++) {
+				pixels[i] = b.get(from + i) & 0xffff;
+			}
+			break;
+		}
+		case "int32": {
+			IntBuffer b = voxels.asIntBuffer();
+			for (int i = 0; i < n; i++) {
+				pixels[i] = b.get(from + i);
+			}
+			break;
+		}
+		case "uint32": {
+			IntBuffer b = voxels.asIntBuffer();
+			for (int i = 0; i < n; i++) {
+				pixels[i] = b.get(from + i) & 0xffffffffL;
+			}
+			break;
+		}
+		default: {
+			LongBuffer b = voxels.asLongBuffer();
+			for (int i = 0; i < n; i++) {
+				pixels[i] = b.get(from + i);
+			}
+		}
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ResultSink writing a columnar binary file, in row groups as the rows come.
+ *
+ * The rows are held in a ColumnarResultTable until rowGroupSize rows are there, then
+ * written column after column: all the values of a feature are next to each other,
+ * as in Parquet, but without its dependencies.
+ * Each row group carries its own columns, so a later case may add columns.
+ * A crash loses the rows of the group not yet written, read() skips a group cut by the crash.
+ *
+ * <pre>
+ * file      : "RJCF", int version, row group ...
+ * row group : int rows, int columns, column ...
+ * column    : UTF name, byte type (0 : double, 1 : text), rows values
+ *             (double : (rows + 7) / 8 bytes of the rows given, as BitSet.toByteArray(), and the doubles, NaN if missing.
+ *              text : int length of the UTF-8 bytes and the bytes, -1 if missing)
+ * </pre>
+ * Numbers are big-endian, as DataOutputStream writes them.
+ *
+ * @author tatsunidas
+ *
+ */
+public class ColumnarFileSink implements ResultSink {
+
+	public static final String EXTENSION = ".rjcf";
+
+	private static final byte[] MAGIC = {'R', 'J', 'C', 'F'};
+	private static final int VERSION = 1;
+	private static final byte DOUBLE = 0;
+	private static final byte TEXT = 1;
+
+	private final DataOutputStream out;
+	private final int rowGroupSize;
+	private final ColumnarResultTable group = new ColumnarResultTable();
+
+	/**
+	 * row groups of 64 rows.
+	 * @param file overwritten. Missing folders are created.
+	 */
+	public ColumnarFileSink(File file) throws IOException {
+		this(file, 64);
+	}
+
+	/**
+	 * @param file overwritten. Missing folders are created.
+	 * @param rowGroupSize rows written at once (>= 1). 1 writes each row as it comes.
+	 */
+	public ColumnarFileSink(File file, int rowGroupSize) throws IOException {
+		if(rowGroupSize < 1) {
+			throw new IllegalArgumentException("ColumnarFileSink: rowGroupSize should be >= 1, but " + rowGroupSize);
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		if(parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		this.rowGroupSize = rowGroupSize;
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
+		out.write(MAGIC);
+		out.writeInt(VERSION);
+		out.flush();
+	}
+
+	@Override
+	public void add(Map<String, Object> row) throws IOException {
+		group.add(row);
+		if(group.size() >= rowGroupSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * writes the rows held as a row group.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if(group.size() > 0) {
+			writeGroup();
+			group.clear();
+		}
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		}finally {
+			out.close();
+		}
+	}
+
+	private void writeGroup() throws IOException {
+		int rows = group.size();
+		List<String> names = group.getColumnNames();
+		out.writeInt(rows);
+		out.writeInt(names.size());
+		for(int c=0;c<names.size();c++) {
+			out.writeUTF(names.get(c));
+			double[] numbers = group.numbers(c);
+			if(numbers != null) {
+				out.writeByte(DOUBLE);
+				byte[] valued = Arrays.copyOf(group.given(c).toByteArray(), (rows + 7) / 8);
+				out.write(valued);
+				for(int r=0;r<rows;r++) {
+					out.writeDouble(numbers[r]);
+				}
+			}else {
+				out.writeByte(TEXT);
+				String[] texts = group.texts(c);
+				for(int r=0;r<rows;r++) {
+					if(texts[r] == null) {
+						out.writeInt(-1);
+						continue;
+					}
+					byte[] bytes = texts[r].getBytes(StandardCharsets.UTF_8);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a file of ColumnarFileSink.
+	 * A row group cut by a crash of the writer is skipped, the rows before it are returned.
+	 * A group is cut when the file ends in it, or when a count, a length, a name or a type
+	 * in it can not be the one the writer wrote (a block of the crash left with other bytes).
+	 *
+	 * @return all the rows of the complete row groups.
+	 * @throws IOException if file is not a file of ColumnarFileSink.
+	 */
+	public static ColumnarResultTable read(File file) throws IOException {
+		ColumnarResultTable table = new ColumnarResultTable();
+		//no count or length of a complete group is larger than the file.
+		long limit = Files.size(file.toPath());
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			byte[] magic = new byte[MAGIC.length];
+			in.readFully(magic);
+			for(int i=0;i<MAGIC.length;i++) {
+				if(magic[i] != MAGIC[i]) {
+					throw new IOException("ColumnarFileSink: not a columnar result file -> " + file);
+				}
+			}
+			int version = in.readInt();
+			if(version != VERSION) {
+				throw new IOException("ColumnarFileSink: unsupported version " + version + " -> " + file);
+			}
+			while(true) {
+				int rows;
+				try {
+					rows = in.readInt();
+				}catch(EOFException e) {
+					break;//end of the last group.
+				}
+				try {
+					//a text cell takes 4 bytes at least, a number 8, a column 3 (name and type).
+					checkCount(rows, limit / 4);
+					int columns = checkCount(in.readInt(), limit / 3);
+					String[] names = new String[columns];
+					Object[] data = new Object[columns];
+					BitSet[] valued = new BitSet[columns];
+					for(int c=0;c<columns;c++) {
+						names[c] = in.readUTF();
+						byte type = in.readByte();
+						if(type == DOUBLE) {
+							checkCount(rows, limit / 8);
+							byte[] bits = new byte[(rows + 7) / 8];
+							in.readFully(bits);
+							valued[c] = BitSet.valueOf(bits);
+							if(valued[c].length() > rows) {
+								throw new EOFException("rows given out of range");
+							}
+							double[] numbers = new double[rows];
+							for(int r=0;r<rows;r++) {
+								numbers[r] = in.readDouble();
+							}
+							data[c] = numbers;
+						}else if(type == TEXT) {
+							String[] texts = new String[rows];
+							for(int r=0;r<rows;r++) {
+								int length = in.readInt();
+								if(length == -1) {
+									continue;
+								}
+								checkCount(length, limit);
+								byte[] bytes = new byte[length];
+								in.readFully(bytes);
+								texts[r] = new String(bytes, StandardCharsets.UTF_8);
+							}
+							data[c] = texts;
+						}else {
+							throw new EOFException("unknown column type " + type);
+						}
+					}
+					table.addColumns(rows, names, data, valued);
+				}catch(EOFException | UTFDataFormatException e) {
+					System.out.println("ColumnarFileSink: the last row group of " + file + " is incomplete, skip it. -> " + e.getMessage());
+					break;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return count, if it is in 0 to max.
+	 * @throws EOFException otherwise, the group was cut.
+	 */
+	private static int checkCount(int count, long max) throws EOFException {
+		if(count < 0 || count > max) {
+			throw new EOFException("count out of range " + count);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ij.measure.ResultsTable;
+
+/**
+ * In memory ResultSink, one primitive array per column.
+ *
+ * A feature column is a double[], 8 bytes a cell, without the boxing and the per cell
+ * column look up of ResultsTable. Text columns are String[]. A numeric column that
+ * receives a text other than "NaN" becomes a text column.
+ * Columns first seen in a later row are missing in the rows before : NaN, and null
+ * once the column is text. A missing cell stays null when its column becomes text,
+ * only the values given become String.valueOf(double).
+ *
+ * @author tatsunidas
+ *
+ */
+public class ColumnarResultTable implements ResultSink {
+
+	private final List<String> names = new ArrayList<>();
+	private final Map<String, Integer> index = new HashMap<>();
+	/*
+	 * per column, one of them is null.
+	 * cells from size to the capacity are always NaN (text: null).
+	 */
+	private final List<double[]> numbers = new ArrayList<>();
+	private final List<String[]> texts = new ArrayList<>();
+	/*
+	 * numeric columns : rows given a value, the NaN of the other rows are missing cells.
+	 */
+	private final List<BitSet> given = new ArrayList<>();
+	private int size = 0;
+	private int capacity = 16;
+
+	@Override
+	public void add(Map<String, Object> row) {
+		ensureCapacity(size + 1);
+		for(Map.Entry<String, Object> e : row.entrySet()) {
+			Object v = e.getValue();
+			if(v == null) {
+				continue;
+			}
+			set(column(e.getKey(), v), size, v);
+		}
+		size++;
+	}
+
+	/**
+	 * appends rows given column by column, e.g. a row group of ColumnarFileSink.
+	 * @param columns double[] or String[] of length rows.
+	 * @param givenRows per double[] column, the rows with a value. The other rows are missing.
+	 */
+	void addColumns(int rows, String[] columnNames, Object[] columns, BitSet[] givenRows) {
+		ensureCapacity(size + rows);
+		for(int c=0;c<columnNames.length;c++) {
+			Object data = columns[c];
+			if(data instanceof double[]) {
+				BitSet valued = givenRows[c];
+				if(valued.isEmpty()) {
+					continue;
+				}
+				int col = column(columnNames[c], 0d);
+				if(numbers.get(col) != null) {
+					System.arraycopy(data, 0, numbers.get(col), size, rows);
+					for(int r=valued.nextSetBit(0);r>=0;r=valued.nextSetBit(r+1)) {
+						given.get(col).set(size + r);
+					}
+					continue;
+				}
+				for(int r=valued.nextSetBit(0);r>=0;r=valued.nextSetBit(r+1)) {
+					set(col, size + r, ((double[])data)[r]);
+				}
+			}else {
+				String[] strings = (String[])data;
+				int col = -1;
+				for(int r=0;r<rows;r++) {
+					if(strings[r] == null) {
+						continue;
+					}
+					if(col < 0) {
+						col = column(columnNames[c], strings[r]);
+					}
+					set(col, size + r, strings[r]);
+				}
+			}
+		}
+		size += rows;
+	}
+
+	@Override
+	public void flush() {
+		//nothing to write.
+	}
+
+	@Override
+	public void close() {
+		//rows are kept.
+	}
+
+	/**
+	 * @return number of rows.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public List<String> getColumnNames() {
+		return Collections.unmodifiableList(names);
+	}
+
+	public boolean hasColumn(String column) {
+		return index.containsKey(column);
+	}
+
+	/**
+	 * @return true if column holds numbers (double), false if text.
+	 */
+	public boolean isNumeric(String column) {
+		return numbers.get(columnIndex(column)) != null;
+	}
+
+	/**
+	 * @return value of a numeric column, a text column is parsed (NaN if it is not a number, or missing).
+	 */
+	public double getValue(String column, int row) {
+		checkRow(row);
+		int col = columnIndex(column);
+		double[] values = numbers.get(col);
+		if(values != null) {
+			return values[row];
+		}
+		String text = texts.get(col)[row];
+		if(text == null) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(text);
+		}catch(NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * @return value as text, null if missing. Numbers are written by String.valueOf(double).
+	 */
+	public String getStringValue(String column, int row) {
+		checkRow(row);
+		int col = columnIndex(column);
+		double[] values = numbers.get(col);
+		if(values != null) {
+			return given.get(col).get(row) ? String.valueOf(values[row]) : null;
+		}
+		return texts.get(col)[row];
+	}
+
+	/**
+	 * @return copy of a numeric column, one value per row.
+	 */
+	public double[] getColumn(String column) {
+		double[] values = numbers.get(columnIndex(column));
+		if(values == null) {
+			throw new IllegalArgumentException("ColumnarResultTable: " + column + " is not a numeric column.");
+		}
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * @return one row, column name to Double or String, missing cells are left out.
+	 */
+	public Map<String, Object> getRow(int row) {
+		checkRow(row);
+		Map<String, Object> values = new LinkedHashMap<>();
+		for(int c=0;c<names.size();c++) {
+			if(numbers.get(c) != null) {
+				if(given.get(c).get(row)) {
+					values.put(names.get(c), numbers.get(c)[row]);
+				}
+			}else if(texts.get(c)[row] != null) {
+				values.put(names.get(c), texts.get(c)[row]);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @return rows as an ImageJ ResultsTable, e.g. to show them. Column "Label" becomes the row label.
+	 * Missing numbers are NaN, missing texts are empty.
+	 */
+	public ResultsTable toResultsTable() {
+		ResultsTable rt = new ResultsTable();
+		for(int row=0;row<size;row++) {
+			rt.incrementCounter();
+			for(int c=0;c<names.size();c++) {
+				String name = names.get(c);
+				if(numbers.get(c) != null) {
+					rt.addValue(name, numbers.get(c)[row]);
+				}else if(name.equals("Label")) {
+					if(texts.get(c)[row] != null) {
+						rt.addLabel(texts.get(c)[row]);
+					}
+				}else {
+					String text = texts.get(c)[row];
+					rt.addValue(name, text == null ? "" : text);
+				}
+			}
+		}
+		return rt;
+	}
+
+	/**
+	 * remove all the rows and columns.
+	 */
+	public void clear() {
+		names.clear();
+		index.clear();
+		numbers.clear();
+		texts.clear();
+		given.clear();
+		size = 0;
+	}
+
+	/*
+	 * raw columns, for ColumnarFileSink.
+	 */
+	double[] numbers(int col) {
+		return numbers.get(col);
+	}
+
+	String[] texts(int col) {
+		return texts.get(col);
+	}
+
+	BitSet given(int col) {
+		return given.get(col);
+	}
+
+	private int columnIndex(String column) {
+		Integer col = index.get(column);
+		if(col == null) {
+			throw new IllegalArgumentException("ColumnarResultTable: column not found -> " + column);
+		}
+		return col;
+	}
+
+	private void checkRow(int row) {
+		if(row < 0 || row >= size) {
+			throw new IllegalArgumentException("ColumnarResultTable: row out of range -> " + row);
+		}
+	}
+
+	/**
+	 * @return index of column, a new column takes its type from the first value.
+	 */
+	private int column(String column, Object first) {
+		Integer col = index.get(column);
+		if(col != null) {
+			return col;
+		}
+		col = names.size();
+		names.add(column);
+		index.put(column, col);
+		if(first instanceof Number || "NaN".equals(first)) {
+			double[] values = new double[capacity];
+			Arrays.fill(values, Double.NaN);
+			numbers.add(values);
+			texts.add(null);
+			given.add(new BitSet());
+		}else {
+			numbers.add(null);
+			texts.add(new String[capacity]);
+			given.add(null);
+		}
+		return col;
+	}
+
+	private void set(int col, int row, Object v) {
+		double[] values = numbers.get(col);
+		if(values != null) {
+			if(v instanceof Number) {
+				values[row] = ((Number)v).doubleValue();
+				given.get(col).set(row);
+				return;
+			}
+			if("NaN".equals(v)) {
+				values[row] = Double.NaN;
+				given.get(col).set(row);
+				return;
+			}
+			toText(col, row);
+		}
+		texts.get(col)[row] = v instanceof Number ? String.valueOf(((Number)v).doubleValue()) : v.toString();
+	}
+
+	/**
+	 * numeric column to text, the numbers given before row as String.valueOf(double).
+	 * Missing cells stay null.
+	 */
+	private void toText(int col, int row) {
+		double[] values = numbers.get(col);
+		BitSet valued = given.get(col);
+		String[] strings = new String[capacity];
+		for(int r=0;r<row;r++) {
+			if(valued.get(r)) {
+				strings[r] = String.valueOf(values[r]);
+			}
+		}
+		numbers.set(col, null);
+		texts.set(col, strings);
+		given.set(col, null);
+	}
+
+	private void ensureCapacity(int rows) {
+		if(rows <= capacity) {
+			return;
+		}
+		int grown = Math.max(rows, capacity + (capacity >> 1));
+		for(int c=0;c<names.size();c++) {
+			double[] values = numbers.get(c);
+			if(values != null) {
+				double[] copy = Arrays.copyOf(values, grown);
+				Arrays.fill(copy, capacity, grown, Double.NaN);
+				numbers.set(c, copy);
+			}else {
+				texts.set(c, Arrays.copyOf(texts.get(c), grown));
+			}
+		}
+		capacity = grown;
+	}
+}
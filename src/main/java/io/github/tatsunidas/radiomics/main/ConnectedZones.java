@@ -0,0 +1,214 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.Arrays;
+
+/**
+ * Zones (connected voxels of the same grey level) of a RoiVolume, as used by GLSZM and GLDZM.
+ *
+ * 26-connected in 3D, 8-connected in 2D (a volume of one slice has no neighbour in z).
+ * Voxels out of the roi, and grey levels below 1, do not belong to any zone.
+ *
+ * All zones are found in one raster scan with union-find: each voxel is joined to its
+ * 13 already scanned neighbours of the same grey level. A second scan numbers the zones
+ * in the order of their first voxel, and sums their sizes and minimum distances.
+ * Time is linear in the size of the volume, whatever the size of the zones.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class ConnectedZones {
+
+	/**
+	 * zone of the voxels out of any zone.
+	 */
+	public static final int NO_ZONE = -1;
+
+	/*
+	 * {dx, dy, dz} of the neighbours scanned before the voxel (x fastest, then y, then z).
+	 */
+	private static final int[][] PREVIOUS_NEIGHBOURS;
+	static {
+		int[][] n = new int[13][];
+		int k = 0;
+		for(int dz = -1; dz <= 0; dz++) {
+			for(int dy = -1; dy <= 1; dy++) {
+				for(int dx = -1; dx <= 1; dx++) {
+					if(dz == 0 && (dy > 0 || (dy == 0 && dx >= 0))) {
+						continue;
+					}
+					n[k++] = new int[] {dx, dy, dz};
+				}
+			}
+		}
+		PREVIOUS_NEIGHBOURS = n;
+	}
+
+	private final int[] zoneOfVoxel;
+	private final int count;
+	private final int[] sizes;
+	private final int[] greyLevels;
+	private final int[] minDistances;
+
+	private ConnectedZones(int[] zoneOfVoxel, int count, int[] sizes, int[] greyLevels, int[] minDistances) {
+		this.zoneOfVoxel = zoneOfVoxel;
+		this.count = count;
+		this.sizes = sizes;
+		this.greyLevels = greyLevels;
+		this.minDistances = minDistances;
+	}
+
+	/**
+	 * @param volume grey levels.
+	 * @return zones, without distances.
+	 */
+	public static ConnectedZones of(RoiVolume volume) {
+		return of(volume, null);
+	}
+
+	/**
+	 * @param volume grey levels.
+	 * @param distances null-able, a distance per voxel indexed as volume (e.g, distance to the roi edge for GLDZM).
+	 * @return zones, with the minimum distance of each zone if distances is given.
+	 */
+	public static ConnectedZones of(RoiVolume volume, int[] distances) {
+		int w = volume.getWidth();
+		int h = volume.getHeight();
+		int s = volume.getDepth();
+		int n = volume.size();
+		if(distances != null && distances.length != n) {
+			throw new IllegalArgumentException("ConnectedZones: distances must have the size of the volume.");
+		}
+		// union-find forest, -1 out of zones. A root is always the smallest index of its tree.
+		int[] parent = new int[n];
+		for(int z = 0; z < s; z++) {
+			for(int y = 0; y < h; y++) {
+				for(int x = 0; x < w; x++) {
+					int i = (z * h + y) * w + x;
+					int g = volume.get(i);
+					if(g < 1) {
+						parent[i] = NO_ZONE;
+						continue;
+					}
+					parent[i] = i;
+					for(int[] d : PREVIOUS_NEIGHBOURS) {
+						int nx = x + d[0];
+						int ny = y + d[1];
+						int nz = z + d[2];
+						if(nx < 0 || ny < 0 || nz < 0 || nx >= w || ny >= h) {
+							continue;
+						}
+						int ni = (nz * h + ny) * w + nx;
+						if(volume.get(ni) == g) {
+							union(parent, i, ni);
+						}
+					}
+				}
+			}
+		}
+		// number the zones. the root comes first in the scan, so it is numbered before its members.
+		int[] zoneOfVoxel = new int[n];
+		int count = 0;
+		for(int i = 0; i < n; i++) {
+			if(parent[i] == NO_ZONE) {
+				zoneOfVoxel[i] = NO_ZONE;
+				continue;
+			}
+			int root = find(parent, i);
+			zoneOfVoxel[i] = root == i ? count++ : zoneOfVoxel[root];
+		}
+		int[] sizes = new int[count];
+		int[] greyLevels = new int[count];
+		int[] minDistances = null;
+		if(distances != null) {
+			minDistances = new int[count];
+			Arrays.fill(minDistances, Integer.MAX_VALUE);
+		}
+		for(int i = 0; i < n; i++) {
+			int zone = zoneOfVoxel[i];
+			if(zone == NO_ZONE) {
+				continue;
+			}
+			sizes[zone]++;
+			greyLevels[zone] = volume.get(i);
+			if(minDistances != null && distances[i] < minDistances[zone]) {
+				minDistances[zone] = distances[i];
+			}
+		}
+		return new ConnectedZones(zoneOfVoxel, count, sizes, greyLevels, minDistances);
+	}
+
+	private static int find(int[] parent, int i) {
+		while(parent[i] != i) {
+			// path halving
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private static void union(int[] parent, int a, int b) {
+		int ra = find(parent, a);
+		int rb = find(parent, b);
+		if(ra == rb) {
+			return;
+		}
+		if(ra < rb) {
+			parent[rb] = ra;
+		}else {
+			parent[ra] = rb;
+		}
+	}
+
+	/**
+	 * @return number of zones.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @param zone 0 to getCount()-1.
+	 * @return number of voxels of the zone.
+	 */
+	public int getSize(int zone) {
+		return sizes[zone];
+	}
+
+	public int getGreyLevel(int zone) {
+		return greyLevels[zone];
+	}
+
+	/**
+	 * @return minimum distance of the voxels of the zone.
+	 * @throws IllegalStateException if no distance was given.
+	 */
+	public int getMinDistance(int zone) {
+		if(minDistances == null) {
+			throw new IllegalStateException("ConnectedZones: no distances were given.");
+		}
+		return minDistances[zone];
+	}
+
+	/**
+	 * @param i index of the volume.
+	 * @return zone of the voxel, or NO_ZONE.
+	 */
+	public int getZone(int i) {
+		return zoneOfVoxel[i];
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Grey level co-occurrences of a RoiVolume in the 13 directions, as used by GLCM.
+ *
+ * The directions are the angle ids 14 to 26 of Utils.buildAngles(), the other 13 are
+ * their opposites and are counted through symmetry: a pair (i, j) adds to [i][j] and [j][i].
+ * Voxels out of the roi, and grey levels below 1, do not make pairs.
+ *
+ * All directions are counted in one sweep over the volume, into one flat
+ * int[13 * nBins * nBins], [direction][i - 1][j - 1].
+ * Slabs of slices may be counted in parallel, counts are integers so the result does not depend on it.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class CooccurrenceCounter {
+
+	public static final int NUM_OF_DIRECTIONS = 13;
+	/*
+	 * the largest number of counts the slabs may hold at the same time.
+	 */
+	private static final int MAX_PARTIAL_COUNTS = 1 << 24;
+
+	private CooccurrenceCounter() {
+	}
+
+	/**
+	 * @return {z, y, x} unit vector of each direction, as Utils.buildAngles().
+	 */
+	public static int[][] directions() {
+		HashMap<Integer, int[]> angles = Utils.buildAngles();
+		int[][] directions = new int[NUM_OF_DIRECTIONS][];
+		for(int k = 0; k < NUM_OF_DIRECTIONS; k++) {
+			directions[k] = angles.get(Integer.valueOf(14 + k));
+		}
+		return directions;
+	}
+
+	/**
+	 * @param volume grey levels 1 to volume.getNBins().
+	 * @param delta distance between i and j, 1 or more.
+	 * @param parallel if true, slabs of slices are counted by the common fork/join pool.
+	 * @return symmetrical co-occurrence counts, [direction][i - 1][j - 1] flat.
+	 */
+	public static int[] count(RoiVolume volume, int delta, boolean parallel) {
+		if(delta < 1) {
+			throw new IllegalArgumentException("CooccurrenceCounter: delta must be 1 or more.");
+		}
+		final int nBins = volume.getNBins();
+		final int s = volume.getDepth();
+		final int matrixSize = nBins * nBins;
+		final int[][] steps = new int[NUM_OF_DIRECTIONS][];
+		final int[] offsets = new int[NUM_OF_DIRECTIONS];
+		int[][] directions = directions();
+		for(int k = 0; k < NUM_OF_DIRECTIONS; k++) {
+			int[] a = directions[k];
+			int dx = a[2] * delta;
+			int dy = a[1] * delta * -1;//adjust vector direction and coordinate direction in Y axis.
+			int dz = a[0] * delta;
+			steps[k] = new int[] {dx, dy, dz};
+			offsets[k] = (dz * volume.getHeight() + dy) * volume.getWidth() + dx;
+		}
+		int workers = 1;
+		if(parallel) {
+			workers = Math.min(Runtime.getRuntime().availableProcessors(), s);
+			workers = Math.min(workers, Math.max(1, MAX_PARTIAL_COUNTS / Math.max(1, NUM_OF_DIRECTIONS * matrixSize)));
+		}
+		if(workers < 2) {
+			int[] counts = new int[NUM_OF_DIRECTIONS * matrixSize];
+			countSlices(volume, delta, steps, offsets, 0, s, counts);
+			return counts;
+		}
+		final int slabs = workers;
+		List<int[]> partial = IntStream.range(0, slabs).parallel().mapToObj(slab -> {
+			int[] local = new int[NUM_OF_DIRECTIONS * matrixSize];
+			countSlices(volume, delta, steps, offsets, (int) ((long) s * slab / slabs), (int) ((long) s * (slab + 1) / slabs), local);
+			return local;
+		}).collect(Collectors.toList());
+		int[] counts = partial.get(0);
+		for(int p = 1; p < partial.size(); p++) {
+			int[] local = partial.get(p);
+			for(int i = 0; i < counts.length; i++) {
+				counts[i] += local[i];
+			}
+		}
+		return counts;
+	}
+
+	/*
+	 * counts the pairs whose first voxel is in the slices zFrom to zTo - 1.
+	 */
+	private static void countSlices(RoiVolume volume, int delta, int[][] steps, int[] offsets, int zFrom, int zTo, int[] counts) {
+		int w = volume.getWidth();
+		int h = volume.getHeight();
+		int s = volume.getDepth();
+		int nBins = volume.getNBins();
+		int matrixSize = nBins * nBins;
+		for(int z = zFrom; z < zTo; z++) {
+			boolean interiorZ = z >= delta && z < s - delta;
+			for(int y = 0; y < h; y++) {
+				boolean interiorZY = interiorZ && y >= delta && y < h - delta;
+				int i = volume.index(0, y, z);
+				for(int x = 0; x < w; x++, i++) {
+					int vi = volume.get(i);
+					if(vi < 1) {
+						continue;
+					}
+					boolean interior = interiorZY && x >= delta && x < w - delta;
+					for(int k = 0; k < NUM_OF_DIRECTIONS; k++) {
+						int vj;
+						if(interior) {
+							vj = volume.get(i + offsets[k]);
+						}else {
+							int[] d = steps[k];
+							vj = volume.get(x + d[0], y + d[1], z + d[2]);
+						}
+						if(vj < 1) {
+							continue;
+						}
+						int base = k * matrixSize;
+						counts[base + (vi - 1) * nBins + (vj - 1)]++;
+						counts[base + (vj - 1) * nBins + (vi - 1)]++;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ResultSink writing a csv, each row as it comes.
+ *
+ * The header is the columns of the first row. Later rows are written in that order,
+ * a column they miss is "NaN". A row with a column the first row did not have is refused
+ * (IllegalArgumentException, nothing of it is written) : a csv can not add columns once
+ * its header is written, ColumnarFileSink can.
+ * Each row is flushed, so the rows written survive a crash of the run.
+ *
+ * @author tatsunidas
+ *
+ */
+public class CsvResultSink implements ResultSink {
+
+	private final Writer out;
+	private List<String> header;
+	private Set<String> columns;
+
+	/**
+	 * @param file csv file, overwritten. Missing folders are created.
+	 */
+	public CsvResultSink(File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if(parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		this.out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param out csv destination, closed by close().
+	 */
+	public CsvResultSink(Writer out) {
+		if(out == null) {
+			throw new IllegalArgumentException("CsvResultSink: out must be non-null.");
+		}
+		this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+	}
+
+	/**
+	 * @return columns of the file, null before the first row.
+	 */
+	public List<String> getHeader() {
+		return header;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if row has a column that is not in the header.
+	 */
+	@Override
+	public void add(Map<String, Object> row) throws IOException {
+		if(header == null) {
+			header = new ArrayList<>(row.keySet());
+			columns = new HashSet<>(header);
+			writeLine(header);
+		}
+		for(String column : row.keySet()) {
+			if(!columns.contains(column)) {
+				throw new IllegalArgumentException("CsvResultSink: column " + column + " is not in the header (the columns of the first row), the row is not written. ColumnarFileSink takes new columns.");
+			}
+		}
+		List<String> line = new ArrayList<>(header.size());
+		for(String h : header) {
+			Object v = row.get(h);
+			line.add(v == null ? "NaN" : v.toString());
+		}
+		writeLine(line);
+		out.flush();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void writeLine(List<String> values) throws IOException {
+		for(int i=0;i<values.size();i++) {
+			if(i > 0) {
+				out.write(',');
+			}
+			out.write(quote(values.get(i)));
+		}
+		out.write(System.lineSeparator());
+	}
+
+	private static String quote(String v) {
+		if(v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0) {
+			return "\"" + v.replace("\"", "\"\"") + "\"";
+		}
+		return v;
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import ij.ImagePlus;
+
+/**
+ * Intermediates shared by the feature families of one extraction.
+ *
+ * Most families discretise the same image with the same parameters, collect the same
+ * roi voxels and look for the same bounding box. This cache does each of them once,
+ * and hands the same result to all families (RadiomicsFeature.EXTRACTION_CACHE).
+ * The zone and run length matrices share the RoiVolume of the discretised image as well.
+ *
+ * Entries are keyed by the identity of the image and mask, the label,
+ * and the discretisation parameters. Therefore,
+ * <ul>
+ * <li>one cache belongs to one extraction. Never modify the images while it is used.</li>
+ * <li>returned arrays, maps and images are shared. Read them only.</li>
+ * </ul>
+ * Thread safe, a value asked by several families at once is computed only once.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class ExtractionCache {
+
+	private static final String DISC_COUNT = "discrete";
+	private static final String DISC_WIDTH = "discreteByBinWidth";
+	private static final String NUM_BINS = "numOfBinsByMax";
+	private static final String VOXELS = "voxels";
+	private static final String BBOX = "boundingBox";
+	private static final String HISTOGRAM = "histogram";
+	private static final String VOLUME = "volume";
+
+	private final ConcurrentHashMap<Key, FutureTask<Object>> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Discretised by fixed bin count, see Utils.discrete().
+	 */
+	public ImagePlus discrete(ImagePlus img, ImagePlus mask, int label, int nBins) throws Exception {
+		return (ImagePlus) get(new Key(DISC_COUNT, img, mask, label, nBins),
+				() -> Utils.discrete(img, mask, label, nBins));
+	}
+
+	/**
+	 * Discretised by fixed bin width, see Utils.discreteByBinWidth().
+	 * @param rangeMin null-able, lower bound of the re-segmentation range.
+	 */
+	public ImagePlus discreteByBinWidth(ImagePlus img, ImagePlus mask, int label, double binWidth, Double rangeMin) throws Exception {
+		return (ImagePlus) get(new Key(DISC_WIDTH, img, mask, label, binWidth, rangeMin),
+				() -> Utils.discreteByBinWidth(img, mask, label, binWidth, rangeMin));
+	}
+
+	/**
+	 * Register an image discretised outside of this cache (e.g, by the preprocessing of RadiomicsJ),
+	 * so that the families asking for the same discretisation get it back.
+	 * @param useBinCount true : nBins is used, false : binWidth and rangeMin are used.
+	 * @param nBinsByMax null-able, the bin count found in the discretised image, if known.
+	 */
+	public void putDiscretised(ImagePlus img, ImagePlus mask, int label, boolean useBinCount,
+			int nBins, double binWidth, Double rangeMin, ImagePlus discretised, Integer nBinsByMax) {
+		if(discretised == null) {
+			return;
+		}
+		Key key = useBinCount ? new Key(DISC_COUNT, img, mask, label, nBins) : new Key(DISC_WIDTH, img, mask, label, binWidth, rangeMin);
+		put(key, discretised);
+		if(nBinsByMax != null) {
+			put(new Key(NUM_BINS, discretised, mask, label), nBinsByMax);
+		}
+	}
+
+	/**
+	 * see Utils.getNumOfBinsByMax().
+	 */
+	public int numOfBinsByMax(ImagePlus discretised, ImagePlus mask, int label) {
+		return (Integer) unchecked(new Key(NUM_BINS, discretised, mask, label),
+				() -> Utils.getNumOfBinsByMax(discretised, mask, label));
+	}
+
+	/**
+	 * Sorted voxel values in the roi, see Utils.getVoxels().
+	 * @return shared array, never modify it.
+	 */
+	public double[] voxels(ImagePlus img, ImagePlus mask, int label) {
+		return (double[]) unchecked(new Key(VOXELS, img, mask, label),
+				() -> Utils.getVoxels(img, mask, label));
+	}
+
+	/**
+	 * Axis aligned bounding box of the roi, see Utils.getRoiBoundingBoxInfo().
+	 * @return shared map, never modify it.
+	 */
+	@SuppressWarnings("unchecked")
+	public HashMap<String, double[]> boundingBox(ImagePlus mask, int label) {
+		return (HashMap<String, double[]>) unchecked(new Key(BBOX, mask, label),
+				() -> Utils.getRoiBoundingBoxInfo(mask, label, RadiomicsJ.debug));
+	}
+
+	/**
+	 * Histogram of the discretised voxels in the roi, see Utils.getHistogram(double[]).
+	 * @return shared array, never modify it.
+	 */
+	public int[] histogram(ImagePlus discretised, ImagePlus mask, int label) {
+		return (int[]) unchecked(new Key(HISTOGRAM, discretised, mask, label),
+				() -> Utils.getHistogram(voxels(discretised, mask, label)));
+	}
+
+	/**
+	 * Discretised grey levels of the roi, cropped to its bounding box, see RoiVolume.of().
+	 */
+	public RoiVolume volume(ImagePlus discretised, ImagePlus mask, int label, int nBins) throws Exception {
+		return (RoiVolume) get(new Key(VOLUME, discretised, mask, label, nBins),
+				() -> RoiVolume.of(discretised, mask, label, nBins));
+	}
+
+	/**
+	 * number of cached values.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	private void put(Key key, Object value) {
+		FutureTask<Object> task = new FutureTask<>(() -> value);
+		task.run();
+		entries.put(key, task);
+	}
+
+	private Object unchecked(Key key, Callable<Object> loader) {
+		try {
+			return get(key, loader);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Object get(Key key, Callable<Object> loader) throws Exception {
+		FutureTask<Object> task = entries.get(key);
+		if(task == null) {
+			FutureTask<Object> created = new FutureTask<>(loader);
+			task = entries.putIfAbsent(key, created);
+			if(task == null) {
+				task = created;
+				created.run();
+			}
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			// do not keep the failure, the next caller may try again.
+			entries.remove(key, task);
+			Throwable cause = e.getCause();
+			if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			if(cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
+	/**
+	 * Images are compared by identity (ImagePlus does not override equals()),
+	 * the parameters by value.
+	 */
+	private static final class Key {
+		private final Object[] parts;
+		private final int hash;
+
+		Key(Object... parts) {
+			this.parts = parts;
+			this.hash = Arrays.hashCode(parts);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(this == o) {
+				return true;
+			}
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			return Arrays.equals(parts, ((Key) o).parts);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
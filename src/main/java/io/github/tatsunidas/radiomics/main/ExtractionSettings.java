@@ -0,0 +1,1019 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import ij.process.ImageProcessor;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+
+/**
+ * Immutable calculation settings of one extraction run.
+ *
+ * The settings of RadiomicsJ used to live in static fields only, therefore two
+ * extractions in the same JVM could not run at the same time without leaking their
+ * settings into each other. An ExtractionSettings is created once per run (see Builder),
+ * handed to RadiomicsJ(ExtractionSettings), and then read by preprocess(), compute()
+ * and the buildup(Map) of every feature family, through RadiomicsFeature.EXTRACTION_SETTINGS.
+ *
+ * The static fields of RadiomicsJ are kept as the legacy mode, that is when no
+ * ExtractionSettings is given. See fromStatics().
+ *
+ * @author tatsunidas
+ *
+ */
+public final class ExtractionSettings {
+
+	/**
+	 * The families that are enabled unless the settings say otherwise.
+	 */
+	private static final Set<SettingParams> DEFAULT_FAMILIES = Collections.unmodifiableSet(EnumSet.of(
+			SettingParams.BOOL_enableOperationalInfo,
+			SettingParams.BOOL_enableDiagnostics,
+			SettingParams.BOOL_enableMorphological,
+			SettingParams.BOOL_enableLocalIntensityFeatures,
+			SettingParams.BOOL_enableIntensityBasedStatistics,
+			SettingParams.BOOL_enableIntensityHistogram,
+			SettingParams.BOOL_enableIntensityVolumeHistogram,
+			SettingParams.BOOL_enableGLCM,
+			SettingParams.BOOL_enableGLRLM,
+			SettingParams.BOOL_enableGLSZM,
+			SettingParams.BOOL_enableGLDZM,
+			SettingParams.BOOL_enableNGTDM,
+			SettingParams.BOOL_enableNGLDM,
+			SettingParams.BOOL_enableFractal));
+
+	private final int interpolation2D;
+	private final int interpolationMask2D;
+	private final int interpolation3D;
+	private final int interpolationMask3D;
+	private final double maskPartialVolumeThreshold;
+	private final boolean interpolationIntensityRounding;
+	private final int targetLabel;
+	private final boolean normalize;
+	private final boolean removeOutliers;
+	private final double zScore;
+	private final double normalizeScale;
+	private final double densityShift;
+	private final Double rangeMin;
+	private final Double rangeMax;
+	private final boolean useFixedBinNumber;
+	private final int nBins;
+	private final double binWidth;
+	private final double[] resamplingFactorXYZ;
+	private final int ivhBinCount;
+	private final double ivhBinWidth;
+	private final int ivhMode;
+	private final int alpha;
+	private final int deltaGLCM;
+	private final int deltaNGTDM;
+	private final int deltaNGLDM;
+	private final int glamMaxRadius;
+	private final int glamMaxReferenceVoxels;
+	private final boolean glamFftPairCounts;
+	private final boolean glamBoundaryCorrection;
+	private final int glamNumRandomisations;
+	private final long glamRandomSeed;
+	private final int glamSavitzkyGolayWindow;
+	private final int glamSavitzkyGolayPolynomial;
+	private final double glamPeakProminence;
+	private final int glamMaxLocalShellRadius;
+	private final String weightingNorm;
+	private final int[] boxSizes;
+	private final boolean force2D;
+	private final boolean activateNoDefaultFeatures;
+	private final boolean fftSpatialAutocorrelation;
+	private final String imageFilters;
+	private final String filterBackend;
+	private final int familyParallelism;
+	private final int niftiLoadMargin;
+	private final boolean cropToRoi;
+	private final String targetLabels;
+	private final int sliceParallelism;
+	private final Set<SettingParams> enabledFamilies;
+
+	private ExtractionSettings(Builder b) {
+		this.interpolation2D = b.interpolation2D;
+		this.interpolationMask2D = b.interpolationMask2D;
+		this.interpolation3D = b.interpolation3D;
+		this.interpolationMask3D = b.interpolationMask3D;
+		this.maskPartialVolumeThreshold = b.maskPartialVolumeThreshold;
+		this.interpolationIntensityRounding = b.interpolationIntensityRounding;
+		this.targetLabel = b.targetLabel;
+		this.normalize = b.normalize;
+		this.removeOutliers = b.removeOutliers;
+		this.zScore = b.zScore;
+		this.normalizeScale = b.normalizeScale;
+		this.densityShift = b.densityShift;
+		this.rangeMin = b.rangeMin;
+		this.rangeMax = b.rangeMax;
+		this.useFixedBinNumber = b.useFixedBinNumber;
+		this.nBins = b.nBins;
+		this.binWidth = b.binWidth;
+		this.resamplingFactorXYZ = b.resamplingFactorXYZ == null ? null : b.resamplingFactorXYZ.clone();
+		this.ivhBinCount = b.ivhBinCount;
+		this.ivhBinWidth = b.ivhBinWidth;
+		this.ivhMode = b.ivhMode;
+		this.alpha = b.alpha;
+		this.deltaGLCM = b.deltaGLCM;
+		this.deltaNGTDM = b.deltaNGTDM;
+		this.deltaNGLDM = b.deltaNGLDM;
+		this.glamMaxRadius = b.glamMaxRadius;
+		this.glamMaxReferenceVoxels = b.glamMaxReferenceVoxels;
+		this.glamFftPairCounts = b.glamFftPairCounts;
+		this.glamBoundaryCorrection = b.glamBoundaryCorrection;
+		this.glamNumRandomisations = b.glamNumRandomisations;
+		this.glamRandomSeed = b.glamRandomSeed;
+		this.glamSavitzkyGolayWindow = b.glamSavitzkyGolayWindow;
+		this.glamSavitzkyGolayPolynomial = b.glamSavitzkyGolayPolynomial;
+		this.glamPeakProminence = b.glamPeakProminence;
+		this.glamMaxLocalShellRadius = b.glamMaxLocalShellRadius;
+		this.weightingNorm = b.weightingNorm;
+		this.boxSizes = b.boxSizes == null ? null : b.boxSizes.clone();
+		this.force2D = b.force2D;
+		this.activateNoDefaultFeatures = b.activateNoDefaultFeatures;
+		this.fftSpatialAutocorrelation = b.fftSpatialAutocorrelation;
+		this.imageFilters = b.imageFilters;
+		this.filterBackend = b.filterBackend;
+		this.familyParallelism = b.familyParallelism;
+		this.niftiLoadMargin = b.niftiLoadMargin;
+		this.cropToRoi = b.cropToRoi;
+		this.targetLabels = b.targetLabels;
+		this.sliceParallelism = b.sliceParallelism;
+		EnumSet<SettingParams> families = EnumSet.noneOf(SettingParams.class);
+		families.addAll(b.enabledFamilies);
+		this.enabledFamilies = Collections.unmodifiableSet(families);
+	}
+
+	/**
+	 * @return settings that have the documented default values.
+	 */
+	public static ExtractionSettings defaults() {
+		return new Builder().build();
+	}
+
+	/**
+	 * @return a new builder, starting from the default values.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @param prop settings file contents, see SettingParams.
+	 * @return default values overwritten by the given properties.
+	 */
+	public static ExtractionSettings fromProperties(Properties prop) {
+		return new Builder().load(prop).build();
+	}
+
+	/**
+	 * Snapshot of the static (legacy) settings of RadiomicsJ.
+	 *
+	 * The family flags are instance fields of RadiomicsJ, therefore the snapshot
+	 * has the default families. RadiomicsJ.getSettings() adds its own flags.
+	 *
+	 * @return current static settings.
+	 */
+	public static ExtractionSettings fromStatics() {
+		Builder b = new Builder();
+		b.interpolation2D = RadiomicsJ.interpolation2D;
+		b.interpolationMask2D = RadiomicsJ.interpolation_mask2D;
+		b.interpolation3D = RadiomicsJ.interpolation3D;
+		b.interpolationMask3D = RadiomicsJ.interpolation_mask3D;
+		b.maskPartialVolumeThreshold = RadiomicsJ.mask_PartialVolumeThreshold;
+		b.interpolationIntensityRounding = RadiomicsJ.interpolation_intensity_rounding;
+		b.targetLabel = RadiomicsJ.targetLabel;
+		b.normalize = RadiomicsJ.normalize;
+		b.removeOutliers = RadiomicsJ.removeOutliers;
+		b.zScore = RadiomicsJ.zScore;
+		b.normalizeScale = RadiomicsJ.normalizeScale;
+		b.densityShift = RadiomicsJ.densityShift == null ? 0d : RadiomicsJ.densityShift;
+		b.rangeMin = RadiomicsJ.rangeMin;
+		b.rangeMax = RadiomicsJ.rangeMax;
+		b.useFixedBinNumber = RadiomicsJ.BOOL_USE_FixedBinNumber;
+		b.nBins = RadiomicsJ.nBins;
+		b.binWidth = RadiomicsJ.binWidth;
+		b.resamplingFactorXYZ = RadiomicsJ.resamplingFactorXYZ;
+		b.ivhBinCount = RadiomicsJ.IVH_binCount;
+		b.ivhBinWidth = RadiomicsJ.IVH_binWidth;
+		b.ivhMode = RadiomicsJ.IVH_mode;
+		b.alpha = RadiomicsJ.alpha;
+		b.deltaGLCM = RadiomicsJ.deltaGLCM;
+		b.deltaNGTDM = RadiomicsJ.deltaNGToneDM;
+		b.deltaNGLDM = RadiomicsJ.deltaNGLevelDM;
+		b.glamMaxRadius = RadiomicsJ.glamMaxRadius;
+		b.glamMaxReferenceVoxels = RadiomicsJ.glamMaxReferenceVoxels;
+		b.glamFftPairCounts = RadiomicsJ.glamFftPairCounts;
+		b.glamBoundaryCorrection = RadiomicsJ.glamBoundaryCorrection;
+		b.glamNumRandomisations = RadiomicsJ.glamNumRandomisations;
+		b.glamRandomSeed = RadiomicsJ.glamRandomSeed;
+		b.glamSavitzkyGolayWindow = RadiomicsJ.glamSavitzkyGolayWindow;
+		b.glamSavitzkyGolayPolynomial = RadiomicsJ.glamSavitzkyGolayPolynomial;
+		b.glamPeakProminence = RadiomicsJ.glamPeakProminence;
+		b.glamMaxLocalShellRadius = RadiomicsJ.glamMaxLocalShellRadius;
+		b.weightingNorm = RadiomicsJ.weightingNorm;
+		b.boxSizes = RadiomicsJ.box_sizes;
+		b.force2D = RadiomicsJ.force2D;
+		b.activateNoDefaultFeatures = RadiomicsJ.activate_no_default_features;
+		b.fftSpatialAutocorrelation = RadiomicsJ.fftSpatialAutocorrelation;
+		b.imageFilters = RadiomicsJ.imageFilters;
+		b.filterBackend = RadiomicsJ.filterBackend;
+		b.familyParallelism = RadiomicsJ.familyParallelism;
+		b.niftiLoadMargin = RadiomicsJ.niftiLoadMargin;
+		b.cropToRoi = RadiomicsJ.cropToRoi;
+		b.targetLabels = RadiomicsJ.targetLabels;
+		b.sliceParallelism = RadiomicsJ.sliceParallelism;
+		return b.build();
+	}
+
+	/**
+	 * Settings of a feature calculation.
+	 *
+	 * @param settings settings map of a feature family. null-able.
+	 * @return RadiomicsFeature.EXTRACTION_SETTINGS of the map if present, else the static settings.
+	 */
+	public static ExtractionSettings of(Map<String, Object> settings) {
+		if (settings != null) {
+			Object s = settings.get(RadiomicsFeature.EXTRACTION_SETTINGS);
+			if (s instanceof ExtractionSettings) {
+				return (ExtractionSettings) s;
+			}
+		}
+		return fromStatics();
+	}
+
+	/**
+	 * @return a builder initialised with these settings.
+	 */
+	public Builder toBuilder() {
+		Builder b = new Builder();
+		b.interpolation2D = interpolation2D;
+		b.interpolationMask2D = interpolationMask2D;
+		b.interpolation3D = interpolation3D;
+		b.interpolationMask3D = interpolationMask3D;
+		b.maskPartialVolumeThreshold = maskPartialVolumeThreshold;
+		b.interpolationIntensityRounding = interpolationIntensityRounding;
+		b.targetLabel = targetLabel;
+		b.normalize = normalize;
+		b.removeOutliers = removeOutliers;
+		b.zScore = zScore;
+		b.normalizeScale = normalizeScale;
+		b.densityShift = densityShift;
+		b.rangeMin = rangeMin;
+		b.rangeMax = rangeMax;
+		b.useFixedBinNumber = useFixedBinNumber;
+		b.nBins = nBins;
+		b.binWidth = binWidth;
+		b.resamplingFactorXYZ = resamplingFactorXYZ;
+		b.ivhBinCount = ivhBinCount;
+		b.ivhBinWidth = ivhBinWidth;
+		b.ivhMode = ivhMode;
+		b.alpha = alpha;
+		b.deltaGLCM = deltaGLCM;
+		b.deltaNGTDM = deltaNGTDM;
+		b.deltaNGLDM = deltaNGLDM;
+		b.glamMaxRadius = glamMaxRadius;
+		b.glamMaxReferenceVoxels = glamMaxReferenceVoxels;
+		b.glamFftPairCounts = glamFftPairCounts;
+		b.glamBoundaryCorrection = glamBoundaryCorrection;
+		b.glamNumRandomisations = glamNumRandomisations;
+		b.glamRandomSeed = glamRandomSeed;
+		b.glamSavitzkyGolayWindow = glamSavitzkyGolayWindow;
+		b.glamSavitzkyGolayPolynomial = glamSavitzkyGolayPolynomial;
+		b.glamPeakProminence = glamPeakProminence;
+		b.glamMaxLocalShellRadius = glamMaxLocalShellRadius;
+		b.weightingNorm = weightingNorm;
+		b.boxSizes = boxSizes;
+		b.force2D = force2D;
+		b.activateNoDefaultFeatures = activateNoDefaultFeatures;
+		b.fftSpatialAutocorrelation = fftSpatialAutocorrelation;
+		b.imageFilters = imageFilters;
+		b.filterBackend = filterBackend;
+		b.familyParallelism = familyParallelism;
+		b.niftiLoadMargin = niftiLoadMargin;
+		b.cropToRoi = cropToRoi;
+		b.targetLabels = targetLabels;
+		b.sliceParallelism = sliceParallelism;
+		b.enabledFamilies = EnumSet.noneOf(SettingParams.class);
+		b.enabledFamilies.addAll(enabledFamilies);
+		return b;
+	}
+
+	/**
+	 * Write these settings back to the static fields of RadiomicsJ (legacy mode).
+	 * The family flags are not static, so they are not written.
+	 */
+	void applyToStatics() {
+		RadiomicsJ.interpolation2D = interpolation2D;
+		RadiomicsJ.interpolation_mask2D = interpolationMask2D;
+		RadiomicsJ.interpolation3D = interpolation3D;
+		RadiomicsJ.interpolation_mask3D = interpolationMask3D;
+		RadiomicsJ.mask_PartialVolumeThreshold = maskPartialVolumeThreshold;
+		RadiomicsJ.interpolation_intensity_rounding = interpolationIntensityRounding;
+		RadiomicsJ.targetLabel = targetLabel;
+		RadiomicsJ.normalize = normalize;
+		RadiomicsJ.removeOutliers = removeOutliers;
+		RadiomicsJ.zScore = zScore;
+		RadiomicsJ.normalizeScale = normalizeScale;
+		RadiomicsJ.densityShift = densityShift;
+		RadiomicsJ.rangeMin = rangeMin;
+		RadiomicsJ.rangeMax = rangeMax;
+		RadiomicsJ.BOOL_USE_FixedBinNumber = useFixedBinNumber;
+		RadiomicsJ.nBins = nBins;
+		RadiomicsJ.binWidth = binWidth;
+		RadiomicsJ.resamplingFactorXYZ = getResamplingFactorXYZ();
+		RadiomicsJ.IVH_binCount = ivhBinCount;
+		RadiomicsJ.IVH_binWidth = ivhBinWidth;
+		RadiomicsJ.IVH_mode = ivhMode;
+		RadiomicsJ.alpha = alpha;
+		RadiomicsJ.deltaGLCM = deltaGLCM;
+		RadiomicsJ.deltaNGToneDM = deltaNGTDM;
+		RadiomicsJ.deltaNGLevelDM = deltaNGLDM;
+		RadiomicsJ.glamMaxRadius = glamMaxRadius;
+		RadiomicsJ.glamMaxReferenceVoxels = glamMaxReferenceVoxels;
+		RadiomicsJ.glamFftPairCounts = glamFftPairCounts;
+		RadiomicsJ.glamBoundaryCorrection = glamBoundaryCorrection;
+		RadiomicsJ.glamNumRandomisations = glamNumRandomisations;
+		RadiomicsJ.glamRandomSeed = glamRandomSeed;
+		RadiomicsJ.glamSavitzkyGolayWindow = glamSavitzkyGolayWindow;
+		RadiomicsJ.glamSavitzkyGolayPolynomial = glamSavitzkyGolayPolynomial;
+		RadiomicsJ.glamPeakProminence = glamPeakProminence;
+		RadiomicsJ.glamMaxLocalShellRadius = glamMaxLocalShellRadius;
+		RadiomicsJ.weightingNorm = weightingNorm;
+		RadiomicsJ.box_sizes = getBoxSizes();
+		RadiomicsJ.force2D = force2D;
+		RadiomicsJ.activate_no_default_features = activateNoDefaultFeatures;
+		RadiomicsJ.fftSpatialAutocorrelation = fftSpatialAutocorrelation;
+		RadiomicsJ.imageFilters = imageFilters;
+		RadiomicsJ.filterBackend = filterBackend;
+		RadiomicsJ.familyParallelism = familyParallelism;
+		RadiomicsJ.niftiLoadMargin = niftiLoadMargin;
+		RadiomicsJ.cropToRoi = cropToRoi;
+		RadiomicsJ.targetLabels = targetLabels;
+		RadiomicsJ.sliceParallelism = sliceParallelism;
+	}
+
+	/**
+	 * interpolation for image, NEAREST_NEIGHBOR=0, BILINEAR=1, BICUBIC=2.
+	 */
+	public int getInterpolation2D() {
+		return interpolation2D;
+	}
+
+	public int getInterpolationMask2D() {
+		return interpolationMask2D;
+	}
+
+	/**
+	 * RadiomicsJ.TRILINEAR, NEAREST3D, TRICUBIC_SPLINE or TRICUBIC_POLYNOMIAL.
+	 */
+	public int getInterpolation3D() {
+		return interpolation3D;
+	}
+
+	public int getInterpolationMask3D() {
+		return interpolationMask3D;
+	}
+
+	public double getMaskPartialVolumeThreshold() {
+		return maskPartialVolumeThreshold;
+	}
+
+	public boolean isInterpolationIntensityRounding() {
+		return interpolationIntensityRounding;
+	}
+
+	public int getTargetLabel() {
+		return targetLabel;
+	}
+
+	public boolean isNormalize() {
+		return normalize;
+	}
+
+	public boolean isRemoveOutliers() {
+		return removeOutliers;
+	}
+
+	public double getZScore() {
+		return zScore;
+	}
+
+	public double getNormalizeScale() {
+		return normalizeScale;
+	}
+
+	public double getDensityShift() {
+		return densityShift;
+	}
+
+	/**
+	 * @return re-segmentation range min, null-able.
+	 */
+	public Double getRangeMin() {
+		return rangeMin;
+	}
+
+	/**
+	 * @return re-segmentation range max, null-able.
+	 */
+	public Double getRangeMax() {
+		return rangeMax;
+	}
+
+	public boolean isUseFixedBinNumber() {
+		return useFixedBinNumber;
+	}
+
+	public int getNBins() {
+		return nBins;
+	}
+
+	public double getBinWidth() {
+		return binWidth;
+	}
+
+	/**
+	 * @return copy of the resampling voxel size {x,y,z}, or null if no resampling.
+	 */
+	public double[] getResamplingFactorXYZ() {
+		return resamplingFactorXYZ == null ? null : resamplingFactorXYZ.clone();
+	}
+
+	public int getIVHBinCount() {
+		return ivhBinCount;
+	}
+
+	public double getIVHBinWidth() {
+		return ivhBinWidth;
+	}
+
+	public int getIVHMode() {
+		return ivhMode;
+	}
+
+	public int getAlpha() {
+		return alpha;
+	}
+
+	public int getDeltaGLCM() {
+		return deltaGLCM;
+	}
+
+	public int getDeltaNGTDM() {
+		return deltaNGTDM;
+	}
+
+	public int getDeltaNGLDM() {
+		return deltaNGLDM;
+	}
+
+	public int getGlamMaxRadius() {
+		return glamMaxRadius;
+	}
+
+	public int getGlamMaxReferenceVoxels() {
+		return glamMaxReferenceVoxels;
+	}
+
+	public boolean isGlamFftPairCounts() {
+		return glamFftPairCounts;
+	}
+
+	public boolean isGlamBoundaryCorrection() {
+		return glamBoundaryCorrection;
+	}
+
+	public int getGlamNumRandomisations() {
+		return glamNumRandomisations;
+	}
+
+	public long getGlamRandomSeed() {
+		return glamRandomSeed;
+	}
+
+	public int getGlamSavitzkyGolayWindow() {
+		return glamSavitzkyGolayWindow;
+	}
+
+	public int getGlamSavitzkyGolayPolynomial() {
+		return glamSavitzkyGolayPolynomial;
+	}
+
+	public double getGlamPeakProminence() {
+		return glamPeakProminence;
+	}
+
+	public int getGlamMaxLocalShellRadius() {
+		return glamMaxLocalShellRadius;
+	}
+
+	/**
+	 * @return weighting norm, null-able.
+	 */
+	public String getWeightingNorm() {
+		return weightingNorm;
+	}
+
+	/**
+	 * @return copy of the fractal box sizes, or null to use the default sizes.
+	 */
+	public int[] getBoxSizes() {
+		return boxSizes == null ? null : boxSizes.clone();
+	}
+
+	public boolean isForce2D() {
+		return force2D;
+	}
+
+	public boolean isActivateNoDefaultFeatures() {
+		return activateNoDefaultFeatures;
+	}
+
+	/**
+	 * @return true if Moran's I index and Geary's C measure may be computed by 3D FFT convolution,
+	 * for the rois it is cheaper for and fits in the heap.
+	 */
+	public boolean isFftSpatialAutocorrelation() {
+		return fftSpatialAutocorrelation;
+	}
+
+	/**
+	 * @return filters of the filter bank separated by ';', null-able. See FilterSpec.
+	 */
+	public String getImageFilters() {
+		return imageFilters;
+	}
+
+	/**
+	 * @return convolution backend of the filter bank, "auto", "separable" or "fft".
+	 */
+	public String getFilterBackend() {
+		return filterBackend;
+	}
+
+	/**
+	 * @return number of feature families computed at the same time by compute().
+	 * 0 : all cores (fork/join common pool), 1 : one after another, n : own pool of n threads.
+	 */
+	public int getFamilyParallelism() {
+		return familyParallelism;
+	}
+
+	/**
+	 * @return voxels read around the roi bounding box of a NIfTI mask, -1 : the whole volume.
+	 */
+	public int getNiftiLoadMargin() {
+		return niftiLoadMargin;
+	}
+
+	/**
+	 * @return true if the preprocessing runs on the roi bounding box and the neighbourhood the families read only.
+	 */
+	public boolean isCropToRoi() {
+		return cropToRoi;
+	}
+
+	/**
+	 * @return labels extracted in one pass, one row per label.
+	 * null : INT_label only, empty : all the labels of the mask.
+	 */
+	public int[] getTargetLabels() {
+		return parseTargetLabels(targetLabels);
+	}
+
+	/**
+	 * @return number of slices computed at the same time by force2D extraction.
+	 * 0 : all cores (fork/join common pool), 1 : one after another, n : own pool of n threads.
+	 */
+	public int getSliceParallelism() {
+		return sliceParallelism;
+	}
+
+	/**
+	 * @param labels "all", or labels 1 to 255 separated by ','. e.g. "1,3,5"
+	 * @return labels in ascending order without duplicates, empty for "all", null if labels is null or not valid.
+	 */
+	public static int[] parseTargetLabels(String labels) {
+		if(labels == null || labels.trim().isEmpty()) {
+			return null;
+		}
+		if(labels.trim().equalsIgnoreCase("all")) {
+			return new int[0];
+		}
+		TreeSet<Integer> set = new TreeSet<>();
+		for(String label : labels.split(",")) {
+			int n;
+			try {
+				n = Integer.parseInt(label.trim());
+			}catch(NumberFormatException e) {
+				return null;
+			}
+			if(n < 1 || n > 255) {
+				return null;
+			}
+			set.add(n);
+		}
+		int[] parsed = new int[set.size()];
+		int i = 0;
+		for(Integer n : set) {
+			parsed[i++] = n;
+		}
+		return parsed;
+	}
+
+	/**
+	 * @param family one of the SettingParams.BOOL_enable*
+	 * @return true if the family is enabled.
+	 */
+	public boolean isEnabled(SettingParams family) {
+		return enabledFamilies.contains(family);
+	}
+
+	/**
+	 * @return unmodifiable set of the enabled families (SettingParams.BOOL_enable*).
+	 */
+	public Set<SettingParams> getEnabledFamilies() {
+		return enabledFamilies;
+	}
+
+	/**
+	 * Mutable builder of ExtractionSettings.
+	 * The range checks are those of the settings file, see load(Properties).
+	 */
+	public static final class Builder {
+
+		private int interpolation2D = ImageProcessor.NEAREST_NEIGHBOR;
+		private int interpolationMask2D = ImageProcessor.NEAREST_NEIGHBOR;
+		private int interpolation3D = RadiomicsJ.TRILINEAR;
+		private int interpolationMask3D = RadiomicsJ.TRILINEAR;
+		private double maskPartialVolumeThreshold = 0.5;
+		private boolean interpolationIntensityRounding = false;
+		private int targetLabel = 1;
+		private boolean normalize = false;
+		private boolean removeOutliers = false;
+		private double zScore = 3d;
+		private double normalizeScale = 1.0;
+		private double densityShift = 0d;
+		private Double rangeMin = null;
+		private Double rangeMax = null;
+		private boolean useFixedBinNumber = true;
+		private int nBins = 32;
+		private double binWidth = 25d;
+		private double[] resamplingFactorXYZ = null;
+		private int ivhBinCount = 1000;
+		private double ivhBinWidth = 2.5;
+		private int ivhMode = 0;
+		private int alpha = 0;
+		private int deltaGLCM = 1;
+		private int deltaNGTDM = 1;
+		private int deltaNGLDM = 1;
+		private int glamMaxRadius = 100;
+		private int glamMaxReferenceVoxels = 0;
+		private boolean glamFftPairCounts = false;
+		private boolean glamBoundaryCorrection = true;
+		private int glamNumRandomisations = 0;
+		private long glamRandomSeed = 42L;
+		private int glamSavitzkyGolayWindow = 7;
+		private int glamSavitzkyGolayPolynomial = 3;
+		private double glamPeakProminence = 4d;
+		private int glamMaxLocalShellRadius = 30;
+		private String weightingNorm = null;
+		private int[] boxSizes = null;
+		private boolean force2D = false;
+		private boolean activateNoDefaultFeatures = false;
+		private boolean fftSpatialAutocorrelation = true;
+		private String imageFilters = null;
+		private String filterBackend = FilterBank.AUTO;
+		private int familyParallelism = 0;
+		private int niftiLoadMargin = -1;
+		private boolean cropToRoi = false;
+		private String targetLabels = null;
+		private int sliceParallelism = 1;
+		private EnumSet<SettingParams> enabledFamilies = EnumSet.copyOf(DEFAULT_FAMILIES);
+
+		private Builder() {
+		}
+
+		public Builder interpolation2D(int v) { this.interpolation2D = v; return this; }
+		public Builder interpolationMask2D(int v) { this.interpolationMask2D = v; return this; }
+		public Builder interpolation3D(int v) { this.interpolation3D = v; return this; }
+		public Builder interpolationMask3D(int v) { this.interpolationMask3D = v; return this; }
+		public Builder maskPartialVolumeThreshold(double v) { this.maskPartialVolumeThreshold = v; return this; }
+		public Builder interpolationIntensityRounding(boolean v) { this.interpolationIntensityRounding = v; return this; }
+		public Builder targetLabel(int v) { this.targetLabel = v; return this; }
+		public Builder normalize(boolean v) { this.normalize = v; return this; }
+		public Builder removeOutliers(boolean v) { this.removeOutliers = v; return this; }
+		public Builder zScore(double v) { this.zScore = v; return this; }
+		public Builder normalizeScale(double v) { this.normalizeScale = v; return this; }
+		public Builder densityShift(double v) { this.densityShift = v; return this; }
+		public Builder rangeMin(Double v) { this.rangeMin = v; return this; }
+		public Builder rangeMax(Double v) { this.rangeMax = v; return this; }
+		public Builder useFixedBinNumber(boolean v) { this.useFixedBinNumber = v; return this; }
+		public Builder nBins(int v) { this.nBins = v; return this; }
+		public Builder binWidth(double v) { this.binWidth = v; return this; }
+		public Builder resamplingFactorXYZ(double[] v) { this.resamplingFactorXYZ = v == null ? null : v.clone(); return this; }
+		public Builder ivhBinCount(int v) { this.ivhBinCount = v; return this; }
+		public Builder ivhBinWidth(double v) { this.ivhBinWidth = v; return this; }
+		public Builder ivhMode(int v) { this.ivhMode = v; return this; }
+		public Builder alpha(int v) { this.alpha = v; return this; }
+		public Builder deltaGLCM(int v) { this.deltaGLCM = v; return this; }
+		public Builder deltaNGTDM(int v) { this.deltaNGTDM = v; return this; }
+		public Builder deltaNGLDM(int v) { this.deltaNGLDM = v; return this; }
+		public Builder glamMaxRadius(int v) { this.glamMaxRadius = v; return this; }
+		public Builder glamMaxReferenceVoxels(int v) { this.glamMaxReferenceVoxels = v; return this; }
+		public Builder glamFftPairCounts(boolean v) { this.glamFftPairCounts = v; return this; }
+		public Builder glamBoundaryCorrection(boolean v) { this.glamBoundaryCorrection = v; return this; }
+		public Builder glamNumRandomisations(int v) { this.glamNumRandomisations = v; return this; }
+		public Builder glamRandomSeed(long v) { this.glamRandomSeed = v; return this; }
+		public Builder glamSavitzkyGolayWindow(int v) { this.glamSavitzkyGolayWindow = v; return this; }
+		public Builder glamSavitzkyGolayPolynomial(int v) { this.glamSavitzkyGolayPolynomial = v; return this; }
+		public Builder glamPeakProminence(double v) { this.glamPeakProminence = v; return this; }
+		public Builder glamMaxLocalShellRadius(int v) { this.glamMaxLocalShellRadius = v; return this; }
+		public Builder weightingNorm(String v) { this.weightingNorm = v; return this; }
+		public Builder boxSizes(int[] v) { this.boxSizes = v == null ? null : v.clone(); return this; }
+		public Builder force2D(boolean v) { this.force2D = v; return this; }
+		public Builder activateNoDefaultFeatures(boolean v) { this.activateNoDefaultFeatures = v; return this; }
+		public Builder fftSpatialAutocorrelation(boolean v) { this.fftSpatialAutocorrelation = v; return this; }
+		public Builder imageFilters(String v) { this.imageFilters = v; return this; }
+		public Builder filterBackend(String v) { this.filterBackend = v; return this; }
+		public Builder familyParallelism(int v) { this.familyParallelism = Math.max(0, v); return this; }
+		public Builder niftiLoadMargin(int v) { this.niftiLoadMargin = Math.max(-1, v); return this; }
+		public Builder cropToRoi(boolean v) { this.cropToRoi = v; return this; }
+		public Builder targetLabels(String v) { this.targetLabels = v; return this; }
+		public Builder sliceParallelism(int v) { this.sliceParallelism = Math.max(0, v); return this; }
+
+		/**
+		 * @param family one of the SettingParams.BOOL_enable*
+		 * @param enable
+		 */
+		public Builder enable(SettingParams family, boolean enable) {
+			if (!family.name().startsWith("BOOL_enable")) {
+				throw new IllegalArgumentException("ExtractionSettings: " + family.name() + " is not a feature family.");
+			}
+			if (enable) {
+				enabledFamilies.add(family);
+			} else {
+				enabledFamilies.remove(family);
+			}
+			return this;
+		}
+
+		/**
+		 * Overwrite the values found in the properties (settings file).
+		 * Invalid numbers are ignored and keep the current value, out of range numbers
+		 * are clamped, as RadiomicsJ always did.
+		 *
+		 * @param prop properties, null-able.
+		 * @return this
+		 */
+		public Builder load(Properties prop) {
+			if (prop == null) {
+				System.out.println("properties file is null. Calculation is performed by using default.");
+				return this;
+			}
+			for (Object key : prop.keySet()) {
+				if (!(key instanceof String)) {
+					continue;
+				}
+				String keyString = (String) key;
+				String val = prop.getProperty(keyString);
+				if (val == null) {
+					continue;
+				}
+				val = val.replace(" ", "");
+				val = val.replace("　", "");
+				val = val.replace("\n", "");
+				val = val.replace("\t", "");
+				if (val.length() == 0) {
+					continue;
+				}
+				SettingParams param;
+				try {
+					param = SettingParams.valueOf(keyString);
+				} catch (IllegalArgumentException e) {
+					//not a setting key
+					continue;
+				}
+				try {
+					apply(param, val);
+				} catch (NumberFormatException e) {
+					//keep current
+					continue;
+				}
+			}
+			return this;
+		}
+
+		private void apply(SettingParams param, String val) {
+			boolean bool = val.equals("1") || val.toLowerCase().equals("true");
+			switch (param) {
+			case INT_label: {
+				int n = Integer.parseInt(val);
+				targetLabel = n < 1 ? 1 : (n > 255 ? 255 : n);
+				break;
+			}
+			case INT_binCount:
+				nBins = Math.max(1, Integer.parseInt(val));
+				break;
+			case INT_interpolation2D: {
+				int n = Integer.parseInt(val);
+				interpolation2D = (n < 0 || n > 2) ? 0 : n;
+				break;
+			}
+			case INT_interpolation_mask2D: {
+				int n = Integer.parseInt(val);
+				interpolationMask2D = (n < 0 || n > 2) ? 0 : n;
+				break;
+			}
+			case INT_interpolation3D:
+				interpolation3D = Math.max(0, Integer.parseInt(val));
+				break;
+			case INT_interpolation_mask3D:
+				interpolationMask3D = Math.max(0, Integer.parseInt(val));
+				break;
+			case DOUBLE_binWidth: {
+				double n = Double.parseDouble(val);
+				if (n >= 0d) {
+					binWidth = n;
+				}
+				break;
+			}
+			case DOUBLE_zScore: {
+				double n = Double.parseDouble(val);
+				if (n >= 0d) {
+					zScore = n;
+				}
+				break;
+			}
+			case DOUBLE_normalizeScale: {
+				double n = Double.parseDouble(val);
+				if (n >= 0d) {
+					normalizeScale = n;
+				}
+				break;
+			}
+			case DOUBLE_densityShift: {
+				double n = Double.parseDouble(val);
+				if (n < 0d) {
+					System.out.println("RadiomicsJ:loadSettings::DOUBLE_densityShift must be non negative, but "
+							+ n + " was given. It is ignored, and " + densityShift + " is used.");
+				} else {
+					densityShift = n;
+				}
+				break;
+			}
+			case DOUBLE_rangeMax:
+				rangeMax = Double.valueOf(val);
+				break;
+			case DOUBLE_rangeMin:
+				rangeMin = Double.valueOf(val);
+				break;
+			case INT_alpha:
+				alpha = Math.max(0, Integer.parseInt(val));
+				break;
+			case INT_deltaGLCM:
+				deltaGLCM = Math.max(1, Integer.parseInt(val));
+				break;
+			case INT_deltaNGTDM:
+				deltaNGTDM = Math.max(1, Integer.parseInt(val));
+				break;
+			case INT_deltaNGLDM:
+				deltaNGLDM = Math.max(1, Integer.parseInt(val));
+				break;
+			case INT_GLAM_maxRadius:
+				glamMaxRadius = Math.max(2, Integer.parseInt(val));
+				break;
+			case INT_GLAM_maxReferenceVoxels:
+				glamMaxReferenceVoxels = Math.max(0, Integer.parseInt(val));
+				break;
+			case BOOL_GLAM_fftPairCounts:
+				glamFftPairCounts = bool;
+				break;
+			case BOOL_GLAM_boundaryCorrection:
+				glamBoundaryCorrection = bool;
+				break;
+			case INT_GLAM_numRandomisations:
+				glamNumRandomisations = Math.max(0, Integer.parseInt(val));
+				break;
+			case LONG_GLAM_randomSeed:
+				glamRandomSeed = Long.parseLong(val);
+				break;
+			case INT_GLAM_savitzkyGolayWindow: {
+				int n = Math.max(3, Integer.parseInt(val));
+				if (n % 2 == 0) {
+					//the window has to be odd, so that it has a centre sample
+					n = n + 1;
+				}
+				glamSavitzkyGolayWindow = n;
+				break;
+			}
+			case INT_GLAM_savitzkyGolayPolynomial:
+				glamSavitzkyGolayPolynomial = Math.max(1, Integer.parseInt(val));
+				break;
+			case DOUBLE_GLAM_peakProminence:
+				glamPeakProminence = Math.max(0d, Double.parseDouble(val));
+				break;
+			case INT_GLAM_maxLocalShellRadius:
+				glamMaxLocalShellRadius = Math.max(1, Integer.parseInt(val));
+				break;
+			case STRING_weightingNorm:
+				weightingNorm = Utils.isValidWeightingNormName(val) ? val : null;
+				break;
+			case INTARRAY_box_sizes:
+				//if string parsing was failed, set null automatically.
+				boxSizes = Utils.s2ints(val);
+				break;
+			case INT_IVH_binCount:
+				ivhBinCount = Math.max(1, Integer.parseInt(val));
+				break;
+			case DOUBLE_IVH_binWidth:
+				ivhBinWidth = Math.abs(Double.parseDouble(val));
+				break;
+			case INT_IVH_MODE:
+				ivhMode = Math.max(0, Integer.parseInt(val));
+				break;
+			case BOOL_USE_FixedBinNumber:
+				useFixedBinNumber = bool;
+				break;
+			case BOOL_normalize:
+				normalize = bool;
+				break;
+			case BOOL_removeOutliers:
+				removeOutliers = bool;
+				break;
+			case DOUBLEARRAY_resamplingFactorXYZ:
+				//if string parsing was failed, set null automatically.
+				resamplingFactorXYZ = Utils.s2doubles(val);
+				break;
+			case BOOL_force2D:
+				force2D = bool;
+				break;
+			case BOOL_activate_no_default_features:
+				activateNoDefaultFeatures = bool;
+				break;
+			case BOOL_fftSpatialAutocorrelation:
+				fftSpatialAutocorrelation = bool;
+				break;
+			case STRING_imageFilters:
+				imageFilters = FilterSpec.isValidList(val) ? val : null;
+				break;
+			case STRING_filterBackend:
+				filterBackend = FilterBank.isValidBackend(val) ? val.toLowerCase(Locale.ROOT) : FilterBank.AUTO;
+				break;
+			case INT_familyParallelism:
+				familyParallelism = Math.max(0, Integer.parseInt(val));
+				break;
+			case INT_niftiLoadMargin:
+				niftiLoadMargin = Math.max(-1, Integer.parseInt(val));
+				break;
+			case BOOL_cropToRoi:
+				cropToRoi = bool;
+				break;
+			case STRING_targetLabels:
+				targetLabels = parseTargetLabels(val) != null ? val : null;
+				break;
+			case INT_sliceParallelism:
+				sliceParallelism = Math.max(0, Integer.parseInt(val));
+				break;
+			case DOUBLE_Mask_PartialVolumeThareshold: {
+				double n = Double.parseDouble(val);
+				maskPartialVolumeThreshold = (n < 0 || n > 0.999) ? 0.5 : n;
+				break;
+			}
+			case BOOL_interpolation_intensity_rounding:
+				interpolationIntensityRounding = bool;
+				break;
+			default:
+				if (param.name().startsWith("BOOL_enable")) {
+					enable(param, bool);
+				}
+				break;
+			}
+		}
+
+		public ExtractionSettings build() {
+			return new ExtractionSettings(this);
+		}
+	}
+}
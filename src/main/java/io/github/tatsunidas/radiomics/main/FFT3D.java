@@ -0,0 +1,496 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.stream.IntStream;
+
+/**
+ * Complex discrete Fourier transform of a width x height x depth grid.
+ *
+ * The grid is held in two flat arrays, real and imaginary part, indexed
+ * (z * height + y) * width + x as the stacks of ImageJ. Each axis is
+ * transformed line by line with a mixed radix Cooley-Tukey FFT, so any size
+ * works, but sizes made of the factors 2, 3 and 5 are the fast ones: use
+ * goodSize() to pad a volume.
+ *
+ * Products of transforms are circular correlations/convolutions. To get the
+ * linear ones of volumes of extent L up to a shift of R, pad each axis to at
+ * least L + R.
+ *
+ * The lines of one axis are transformed by the common fork/join pool. Every
+ * line is computed the same way whatever the thread, so the result does not
+ * depend on it.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class FFT3D {
+
+	private final int width;
+	private final int height;
+	private final int depth;
+	private final Line xLine;
+	private final Line yLine;
+	private final Line zLine;
+
+	public FFT3D(int width, int height, int depth) {
+		if(width < 1 || height < 1 || depth < 1) {
+			throw new IllegalArgumentException("FFT3D: the grid must be at least 1 x 1 x 1.");
+		}
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		xLine = new Line(width);
+		yLine = height == width ? xLine : new Line(height);
+		zLine = depth == width ? xLine : (depth == height ? yLine : new Line(depth));
+	}
+
+	/**
+	 * @return the smallest size not below n whose only prime factors are 2, 3 and 5.
+	 */
+	public static int goodSize(int n) {
+		int size = Math.max(1, n);
+		while(true) {
+			int rest = size;
+			for(int p : new int[] {2, 3, 5}) {
+				while(rest % p == 0) {
+					rest /= p;
+				}
+			}
+			if(rest == 1) {
+				return size;
+			}
+			size++;
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return number of grid points, the length of the arrays.
+	 */
+	public int size() {
+		return width * height * depth;
+	}
+
+	/**
+	 * In place forward transform, X(k) = sum x(n) exp(-2 pi i k.n / N).
+	 */
+	public void forward(double[] re, double[] im) {
+		forward(re, im, width, height, depth);
+	}
+
+	/**
+	 * In place forward transform of a grid that is zero outside the box
+	 * [0, boxWidth) x [0, boxHeight) x [0, boxDepth), such as a padded volume.
+	 * The lines that only hold zeros are skipped.
+	 */
+	public void forward(double[] re, double[] im, int boxWidth, int boxHeight, int boxDepth) {
+		checkArrays(re, im);
+		final int plane = width * height;
+		final int rows = Math.min(height, boxHeight);
+		final int slices = Math.min(depth, boxDepth);
+		// x lines, the rows of a slice together
+		IntStream.range(0, slices).parallel().forEach(z -> {
+			Work work = new Work(width, rows, xLine);
+			xLine.transform(re, im, z * plane, 1, width, rows, work);
+		});
+		// y lines, all x of a slice together
+		IntStream.range(0, slices).parallel().forEach(z -> {
+			Work work = new Work(height, width, yLine);
+			yLine.transform(re, im, z * plane, width, 1, width, work);
+		});
+		// z lines, all x of a row together
+		IntStream.range(0, height).parallel().forEach(y -> {
+			Work work = new Work(depth, width, zLine);
+			zLine.transform(re, im, y * width, plane, 1, width, work);
+		});
+	}
+
+	/**
+	 * In place inverse transform, scaled by 1/N so that inverse(forward(x)) is x.
+	 */
+	public void inverse(double[] re, double[] im) {
+		inverse(re, im, width, height, depth);
+	}
+
+	/**
+	 * In place inverse transform, scaled by 1/N, of which only the box
+	 * [0, boxWidth) x [0, boxHeight) x [0, boxDepth) is wanted, such as the
+	 * volume of a padded convolution. The grid outside the box is left undefined.
+	 */
+	public void inverse(double[] re, double[] im, int boxWidth, int boxHeight, int boxDepth) {
+		checkArrays(re, im);
+		final int plane = width * height;
+		final int columns = Math.min(width, boxWidth);
+		final int rows = Math.min(height, boxHeight);
+		final int slices = Math.min(depth, boxDepth);
+		// conj(F(conj(X))) / N, the axes in the reverse order so that the box narrows the later ones
+		for(int i = 0; i < im.length; i++) {
+			im[i] = -im[i];
+		}
+		IntStream.range(0, height).parallel().forEach(y -> {
+			Work work = new Work(depth, width, zLine);
+			zLine.transform(re, im, y * width, plane, 1, width, work);
+		});
+		IntStream.range(0, slices).parallel().forEach(z -> {
+			Work work = new Work(height, width, yLine);
+			yLine.transform(re, im, z * plane, width, 1, width, work);
+		});
+		IntStream.range(0, slices).parallel().forEach(z -> {
+			Work work = new Work(width, rows, xLine);
+			xLine.transform(re, im, z * plane, 1, width, rows, work);
+		});
+		double scale = 1d / size();
+		for(int z = 0; z < slices; z++) {
+			for(int y = 0; y < rows; y++) {
+				int i = z * plane + y * width;
+				for(int x = 0; x < columns; x++, i++) {
+					re[i] *= scale;
+					im[i] = -im[i] * scale;
+				}
+			}
+		}
+	}
+
+	private void checkArrays(double[] re, double[] im) {
+		if(re.length != size() || im.length != size()) {
+			throw new IllegalArgumentException("FFT3D: the arrays must hold " + size() + " grid points.");
+		}
+	}
+
+	/*
+	 * buffers of one thread, two copies of the lines for the stages to swap.
+	 */
+	private static final class Work {
+		final double[][] re = new double[2][];
+		final double[][] im = new double[2][];
+		final double[] tRe;
+		final double[] tIm;
+
+		Work(int n, int lines, Line line) {
+			for(int b = 0; b < 2; b++) {
+				re[b] = new double[n * lines];
+				im[b] = new double[n * lines];
+			}
+			tRe = new double[line.maxFactor];
+			tIm = new double[line.maxFactor];
+		}
+	}
+
+	/*
+	 * 1D transforms of one length, Stockham autosort decimation in frequency.
+	 *
+	 * Several lines go through at once: element t of line c, at
+	 * offset + t * stride + c * lineStride in the grid, is copied to
+	 * t * lines + c, so that the innermost loop runs over contiguous memory. Each stage splits the sub transforms of the previous one by the
+	 * next factor, and writes them sorted, so that no bit reversal is needed.
+	 */
+	private static final class Line {
+
+		private static final double SIN_60 = Math.sqrt(3d) / 2d;
+		private static final double COS_72 = Math.cos(0.4 * Math.PI);
+		private static final double SIN_72 = Math.sin(0.4 * Math.PI);
+		private static final double COS_144 = Math.cos(0.8 * Math.PI);
+		private static final double SIN_144 = Math.sin(0.8 * Math.PI);
+
+		final int n;
+		final int[] factors;
+		final int maxFactor;
+		final double[] cos;
+		final double[] sin;
+
+		Line(int n) {
+			this.n = n;
+			this.factors = factorise(n);
+			int largest = 1;
+			for(int p : factors) {
+				largest = Math.max(largest, p);
+			}
+			maxFactor = largest;
+			cos = new double[n];
+			sin = new double[n];
+			for(int k = 0; k < n; k++) {
+				double angle = -2d * Math.PI * k / n;
+				cos[k] = Math.cos(angle);
+				sin[k] = Math.sin(angle);
+			}
+		}
+
+		private static int[] factorise(int n) {
+			int[] found = new int[32];
+			int count = 0;
+			int rest = n;
+			// 4 first, it saves a stage
+			while(rest % 4 == 0) {
+				found[count++] = 4;
+				rest /= 4;
+			}
+			for(int p = 2; rest > 1; p++) {
+				while(rest % p == 0) {
+					found[count++] = p;
+					rest /= p;
+				}
+			}
+			int[] factors = new int[count];
+			System.arraycopy(found, 0, factors, 0, count);
+			return factors;
+		}
+
+		void transform(double[] re, double[] im, int offset, int stride, int lineStride, int lines, Work work) {
+			if(n == 1) {
+				return;
+			}
+			double[] inRe = work.re[0];
+			double[] inIm = work.im[0];
+			for(int t = 0; t < n; t++) {
+				if(lineStride == 1) {
+					System.arraycopy(re, offset + t * stride, inRe, t * lines, lines);
+					System.arraycopy(im, offset + t * stride, inIm, t * lines, lines);
+					continue;
+				}
+				for(int c = 0, i = offset + t * stride; c < lines; c++, i += lineStride) {
+					inRe[t * lines + c] = re[i];
+					inIm[t * lines + c] = im[i];
+				}
+			}
+			int from = 0;
+			int batches = 1;
+			int m = n;
+			for(int p : factors) {
+				stage(work.re[from], work.im[from], work.re[1 - from], work.im[1 - from], batches * lines, m, p, work);
+				from = 1 - from;
+				batches *= p;
+				m /= p;
+			}
+			double[] outRe = work.re[from];
+			double[] outIm = work.im[from];
+			for(int t = 0; t < n; t++) {
+				if(lineStride == 1) {
+					System.arraycopy(outRe, t * lines, re, offset + t * stride, lines);
+					System.arraycopy(outIm, t * lines, im, offset + t * stride, lines);
+					continue;
+				}
+				for(int c = 0, i = offset + t * stride; c < lines; c++, i += lineStride) {
+					re[i] = outRe[t * lines + c];
+					im[i] = outIm[t * lines + c];
+				}
+			}
+		}
+
+		/*
+		 * one radix p stage. The input holds transforms of length m, element t of
+		 * them at t * block + u, u running over the block of batches and lines.
+		 * Sub transform f of length q = m / p gets
+		 *   z_f(t) = exp(-2 pi i t f / m) * sum_s x(t + s q) exp(-2 pi i s f / p)
+		 * and goes to element t of batch f, at (p t + f) * block + u.
+		 */
+		private void stage(double[] xRe, double[] xIm, double[] yRe, double[] yIm, int block, int m, int p, Work work) {
+			final int q = m / p;
+			final int step = n / m;
+			final int span = q * block;
+			for(int t = 0; t < q; t++) {
+				final int in = t * block;
+				final int out = p * t * block;
+				if(p == 2) {
+					int w = t * step;
+					double wRe = cos[w];
+					double wIm = sin[w];
+					for(int u = 0; u < block; u++) {
+						int i0 = in + u;
+						int i1 = i0 + span;
+						double aRe = xRe[i0];
+						double aIm = xIm[i0];
+						double bRe = xRe[i1];
+						double bIm = xIm[i1];
+						int o0 = out + u;
+						int o1 = o0 + block;
+						yRe[o0] = aRe + bRe;
+						yIm[o0] = aIm + bIm;
+						double dRe = aRe - bRe;
+						double dIm = aIm - bIm;
+						yRe[o1] = dRe * wRe - dIm * wIm;
+						yIm[o1] = dRe * wIm + dIm * wRe;
+					}
+				}else if(p == 4) {
+					int w1 = t * step;
+					double w1Re = cos[w1];
+					double w1Im = sin[w1];
+					double w2Re = cos[2 * w1];
+					double w2Im = sin[2 * w1];
+					double w3Re = cos[3 * w1];
+					double w3Im = sin[3 * w1];
+					for(int u = 0; u < block; u++) {
+						int i0 = in + u;
+						int i1 = i0 + span;
+						int i2 = i1 + span;
+						int i3 = i2 + span;
+						double sumAcRe = xRe[i0] + xRe[i2];
+						double sumAcIm = xIm[i0] + xIm[i2];
+						double difAcRe = xRe[i0] - xRe[i2];
+						double difAcIm = xIm[i0] - xIm[i2];
+						double sumBdRe = xRe[i1] + xRe[i3];
+						double sumBdIm = xIm[i1] + xIm[i3];
+						// -i (b - d)
+						double rotRe = xIm[i1] - xIm[i3];
+						double rotIm = xRe[i3] - xRe[i1];
+						int o0 = out + u;
+						int o1 = o0 + block;
+						int o2 = o1 + block;
+						int o3 = o2 + block;
+						yRe[o0] = sumAcRe + sumBdRe;
+						yIm[o0] = sumAcIm + sumBdIm;
+						double vRe = difAcRe + rotRe;
+						double vIm = difAcIm + rotIm;
+						yRe[o1] = vRe * w1Re - vIm * w1Im;
+						yIm[o1] = vRe * w1Im + vIm * w1Re;
+						vRe = sumAcRe - sumBdRe;
+						vIm = sumAcIm - sumBdIm;
+						yRe[o2] = vRe * w2Re - vIm * w2Im;
+						yIm[o2] = vRe * w2Im + vIm * w2Re;
+						vRe = difAcRe - rotRe;
+						vIm = difAcIm - rotIm;
+						yRe[o3] = vRe * w3Re - vIm * w3Im;
+						yIm[o3] = vRe * w3Im + vIm * w3Re;
+					}
+				}else if(p == 3) {
+					int w1 = t * step;
+					double w1Re = cos[w1];
+					double w1Im = sin[w1];
+					double w2Re = cos[2 * w1];
+					double w2Im = sin[2 * w1];
+					for(int u = 0; u < block; u++) {
+						int i0 = in + u;
+						int i1 = i0 + span;
+						int i2 = i1 + span;
+						double sumRe = xRe[i1] + xRe[i2];
+						double sumIm = xIm[i1] + xIm[i2];
+						double midRe = xRe[i0] - 0.5 * sumRe;
+						double midIm = xIm[i0] - 0.5 * sumIm;
+						// -i sin(60) (b - c)
+						double rotRe = SIN_60 * (xIm[i1] - xIm[i2]);
+						double rotIm = SIN_60 * (xRe[i2] - xRe[i1]);
+						int o0 = out + u;
+						int o1 = o0 + block;
+						int o2 = o1 + block;
+						yRe[o0] = xRe[i0] + sumRe;
+						yIm[o0] = xIm[i0] + sumIm;
+						double vRe = midRe + rotRe;
+						double vIm = midIm + rotIm;
+						yRe[o1] = vRe * w1Re - vIm * w1Im;
+						yIm[o1] = vRe * w1Im + vIm * w1Re;
+						vRe = midRe - rotRe;
+						vIm = midIm - rotIm;
+						yRe[o2] = vRe * w2Re - vIm * w2Im;
+						yIm[o2] = vRe * w2Im + vIm * w2Re;
+					}
+				}else if(p == 5) {
+					int w1 = t * step;
+					double w1Re = cos[w1];
+					double w1Im = sin[w1];
+					double w2Re = cos[2 * w1];
+					double w2Im = sin[2 * w1];
+					double w3Re = cos[3 * w1];
+					double w3Im = sin[3 * w1];
+					double w4Re = cos[4 * w1];
+					double w4Im = sin[4 * w1];
+					for(int u = 0; u < block; u++) {
+						int i0 = in + u;
+						int i1 = i0 + span;
+						int i2 = i1 + span;
+						int i3 = i2 + span;
+						int i4 = i3 + span;
+						double b1Re = xRe[i1] + xRe[i4];
+						double b1Im = xIm[i1] + xIm[i4];
+						double b2Re = xRe[i2] + xRe[i3];
+						double b2Im = xIm[i2] + xIm[i3];
+						double d1Re = xRe[i1] - xRe[i4];
+						double d1Im = xIm[i1] - xIm[i4];
+						double d2Re = xRe[i2] - xRe[i3];
+						double d2Im = xIm[i2] - xIm[i3];
+						double aRe = xRe[i0];
+						double aIm = xIm[i0];
+						double m1Re = aRe + COS_72 * b1Re + COS_144 * b2Re;
+						double m1Im = aIm + COS_72 * b1Im + COS_144 * b2Im;
+						double m2Re = aRe + COS_144 * b1Re + COS_72 * b2Re;
+						double m2Im = aIm + COS_144 * b1Im + COS_72 * b2Im;
+						// -i (sin72 d1 + sin144 d2) and -i (sin144 d1 - sin72 d2)
+						double r1Re = SIN_72 * d1Im + SIN_144 * d2Im;
+						double r1Im = -(SIN_72 * d1Re + SIN_144 * d2Re);
+						double r2Re = SIN_144 * d1Im - SIN_72 * d2Im;
+						double r2Im = -(SIN_144 * d1Re - SIN_72 * d2Re);
+						int o0 = out + u;
+						int o1 = o0 + block;
+						int o2 = o1 + block;
+						int o3 = o2 + block;
+						int o4 = o3 + block;
+						yRe[o0] = aRe + b1Re + b2Re;
+						yIm[o0] = aIm + b1Im + b2Im;
+						double vRe = m1Re + r1Re;
+						double vIm = m1Im + r1Im;
+						yRe[o1] = vRe * w1Re - vIm * w1Im;
+						yIm[o1] = vRe * w1Im + vIm * w1Re;
+						vRe = m2Re + r2Re;
+						vIm = m2Im + r2Im;
+						yRe[o2] = vRe * w2Re - vIm * w2Im;
+						yIm[o2] = vRe * w2Im + vIm * w2Re;
+						vRe = m2Re - r2Re;
+						vIm = m2Im - r2Im;
+						yRe[o3] = vRe * w3Re - vIm * w3Im;
+						yIm[o3] = vRe * w3Im + vIm * w3Re;
+						vRe = m1Re - r1Re;
+						vIm = m1Im - r1Im;
+						yRe[o4] = vRe * w4Re - vIm * w4Im;
+						yIm[o4] = vRe * w4Im + vIm * w4Re;
+					}
+				}else {
+					double[] tRe = work.tRe;
+					double[] tIm = work.tIm;
+					int root = n / p;
+					for(int u = 0; u < block; u++) {
+						for(int s = 0; s < p; s++) {
+							tRe[s] = xRe[in + s * span + u];
+							tIm[s] = xIm[in + s * span + u];
+						}
+						for(int f = 0; f < p; f++) {
+							double sumRe = 0d;
+							double sumIm = 0d;
+							for(int s = 0; s < p; s++) {
+								int r = (s * f % p) * root;
+								sumRe += tRe[s] * cos[r] - tIm[s] * sin[r];
+								sumIm += tRe[s] * sin[r] + tIm[s] * cos[r];
+							}
+							int w = (int) ((long) t * f * step % n);
+							int o = out + f * block + u;
+							yRe[o] = sumRe * cos[w] - sumIm * sin[w];
+							yIm[o] = sumRe * sin[w] + sumIm * cos[w];
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs the feature families of one extraction on a fork/join pool.
+ *
+ * The families only read the same preprocessed image and mask, so they can overlap.
+ * Each family fills its own columns (name to Double, or to String), and the results
+ * come back in the order the families were added, whatever order they finished in.
+ * That keeps the columns of the ResultsTable deterministic.
+ *
+ * Families touching state shared with the others (e.g, Shape2D sets a roi on the
+ * image and the static measurements of the ImageJ Analyzer) are added by addSerial(),
+ * and run on the calling thread before the others start.
+ *
+ * @author tatsunidas
+ *
+ */
+class FamilyScheduler {
+
+	/**
+	 * One feature family.
+	 */
+	interface Family {
+		/**
+		 * @param columns column name to value (Double, or String), in column order.
+		 */
+		void compute(LinkedHashMap<String, Object> columns) throws Exception;
+	}
+
+	private final List<String> names = new ArrayList<>();
+	private final List<Family> families = new ArrayList<>();
+	private final List<Boolean> serial = new ArrayList<>();
+
+	void add(String name, Family family) {
+		names.add(name);
+		families.add(family);
+		serial.add(false);
+	}
+
+	void addSerial(String name, Family family) {
+		names.add(name);
+		families.add(family);
+		serial.add(true);
+	}
+
+	List<String> getNames() {
+		return names;
+	}
+
+	/**
+	 * @param parallelism 0 : fork/join common pool, 1 : one after another on the calling thread,
+	 * n : own pool of n threads.
+	 * @param onFamilyDone called once per family when it finished, may be called from a worker thread. null-able.
+	 * @return columns of each family, in the order of add().
+	 * @throws Exception the first (in the order of add()) exception of the families.
+	 */
+	List<LinkedHashMap<String, Object>> run(int parallelism, Runnable onFamilyDone) throws Exception {
+		int n = families.size();
+		List<LinkedHashMap<String, Object>> results = new ArrayList<>(n);
+		for(int i=0;i<n;i++) {
+			results.add(new LinkedHashMap<>());
+		}
+		if(parallelism == 1 || n < 2) {
+			for(int i=0;i<n;i++) {
+				families.get(i).compute(results.get(i));
+				if(onFamilyDone != null) onFamilyDone.run();
+			}
+			return results;
+		}
+		for(int i=0;i<n;i++) {
+			if(serial.get(i)) {
+				families.get(i).compute(results.get(i));
+				if(onFamilyDone != null) onFamilyDone.run();
+			}
+		}
+		ForkJoinPool pool = parallelism == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<?>> tasks = new ArrayList<>(n);
+			for(int i=0;i<n;i++) {
+				if(serial.get(i)) {
+					tasks.add(null);
+					continue;
+				}
+				final Family family = families.get(i);
+				final LinkedHashMap<String, Object> columns = results.get(i);
+				tasks.add(pool.submit(() -> {
+					family.compute(columns);
+					if(onFamilyDone != null) onFamilyDone.run();
+					return null;
+				}));
+			}
+			Exception first = null;
+			for(ForkJoinTask<?> task : tasks) {
+				if(task == null) {
+					continue;
+				}
+				try {
+					task.get();
+				}catch(ExecutionException e) {
+					if(first == null) {
+						first = unwrap(e);
+					}
+				}
+			}
+			if(first != null) {
+				throw first;
+			}
+		}finally {
+			if(pool != ForkJoinPool.commonPool()) {
+				pool.shutdown();
+			}
+		}
+		return results;
+	}
+
+	private static Exception unwrap(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if(cause instanceof Error) {
+			throw (Error) cause;
+		}
+		if(cause instanceof Exception) {
+			return (Exception) cause;
+		}
+		return e;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import ij.IJ;
+
+/**
+ * Progress of a feature map, and a way to abort it.
+ *
+ * The map is computed tile by tile (bands of rows of one slice). Both methods may be
+ * called from worker threads, and should return quickly.
+ *
+ * @author tatsunidas
+ *
+ */
+public interface FeatureMapProgress {
+
+	/**
+	 * Called once per finished tile.
+	 *
+	 * @param done tiles finished so far.
+	 * @param total tiles of the map.
+	 */
+	void tileDone(int done, int total);
+
+	/**
+	 * Polled before each row. Once true, no new row is started and the map returns null.
+	 */
+	default boolean isCancelled() {
+		return false;
+	}
+
+	/**
+	 * @return progress shown in the ImageJ progress bar, cancelled by the Esc key.
+	 */
+	static FeatureMapProgress imageJ() {
+		return new FeatureMapProgress() {
+			@Override
+			public void tileDone(int done, int total) {
+				IJ.showProgress(done, total);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return IJ.escapePressed();
+			}
+		};
+	}
+}
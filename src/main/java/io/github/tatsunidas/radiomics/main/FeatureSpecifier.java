@@ -26,6 +26,17 @@ public class FeatureSpecifier<T extends RadiomicsFeature> {
 		this.displayName = featureClass.getSimpleName() + "_" + featureEnum.name();
 	}
 
+	/**
+	 * Same feature, with other settings. e.g, a copy of the settings per thread,
+	 * since the families write into the settings they are given.
+	 */
+	FeatureSpecifier(FeatureSpecifier<T> spec, Map<String, Object> settings) {
+		this.featureClass = spec.featureClass;
+		this.featureId = spec.featureId;
+		this.settings = settings;
+		this.displayName = spec.displayName;
+	}
+
 	public String getDisplayName() {
 		return displayName;
 	}
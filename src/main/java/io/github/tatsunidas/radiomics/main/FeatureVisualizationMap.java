@@ -9,10 +9,19 @@ import io.github.tatsunidas.radiomics.features.GLCMFeatures;
 import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
 //import io.github.tatsunidas.radiomics.features.Texture;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 /**
  * Usage: Map<String, ImagePlus fmap> fmaps = FeatureVisualizationMap.generate(...);
@@ -30,6 +39,11 @@ public class FeatureVisualizationMap {
 	 */
 	public static final int DEFAULT_MARGIN = 3;
 
+	/*
+	 * output rows of a tile of the parallel maps.
+	 */
+	private static final int TILE_ROWS = 8;
+
 	
 	/*
 	 * how to
@@ -289,34 +303,90 @@ public class FeatureVisualizationMap {
 	public static <T extends RadiomicsFeature> Map<String, ImagePlus> generate(
 			ImagePlus img, ImagePlus mask, int slice, int filter_size, boolean d2_mode, int stride, int margin,
 			Class<T> featureClass, Map<String, Object> settings, Enum<?>... featureEnums) {
+		return generate(img, mask, slice, filter_size, d2_mode, stride, margin, false, featureClass, settings,
+				featureEnums);
+	}
 
-		List<FeatureSpecifier<?>> featuresToCalculate = new ArrayList<>();
-		for(Enum<?> ftype: featureEnums) {
-			featuresToCalculate.add(new FeatureSpecifier<>(featureClass, ftype, settings));
-		}
-		
-		Map<String, ImagePlus> fmaps = new HashMap<>();
-		for (FeatureSpecifier<?> spec : featuresToCalculate) {
-			System.out.println("======================================================");
-			System.out.println("Generating feature map for: " + spec.getDisplayName());
+	/**
+	 * Same, optionally by sliding windows.
+	 *
+	 * @param incremental if true and the family is GLCM, GLRLM, NGTDM or NGLDM, the image is
+	 *                    discretised once and the windows are slid, see SlidingWindowTexture.
+	 *                    Much faster for whole volume maps, but the grey levels are those of
+	 *                    the whole roi instead of each window. Other families ignore it.
+	 */
+	public static <T extends RadiomicsFeature> Map<String, ImagePlus> generate(
+			ImagePlus img, ImagePlus mask, int slice, int filter_size, boolean d2_mode, int stride, int margin,
+			boolean incremental, Class<T> featureClass, Map<String, Object> settings, Enum<?>... featureEnums) {
+		return generate(img, mask, slice, filter_size, d2_mode, stride, margin, incremental, 1, null, featureClass,
+				settings, featureEnums);
+	}
 
-			FeatureCalculator calculator = new FeatureCalculatorFactory().create(spec);
+	/**
+	 * Same, on several threads.
+	 *
+	 * All the features are read from the same windows in one pass: the matrix of a window
+	 * is built once, whatever the number of features asked.
+	 *
+	 * @param parallelism 0 : fork/join common pool, 1 : on the calling thread, n : own pool of n threads.
+	 *                    The maps are the same whatever the parallelism.
+	 * @param progress    null-able, told about the tiles of the pass. Once it is cancelled,
+	 *                    no map is returned.
+	 */
+	public static <T extends RadiomicsFeature> Map<String, ImagePlus> generate(
+			ImagePlus img, ImagePlus mask, int slice, int filter_size, boolean d2_mode, int stride, int margin,
+			boolean incremental, int parallelism, FeatureMapProgress progress, Class<T> featureClass,
+			Map<String, Object> settings, Enum<?>... featureEnums) {
 
-			long startTime = System.currentTimeMillis();
-			// stride を渡して実行
-			ImagePlus featureMap = generateFeatureMap(img, mask, slice, calculator, filter_size, d2_mode, stride,
-					margin);
-			long endTime = System.currentTimeMillis();
-			System.out.println("--> Generation took " + (endTime - startTime) + " ms.");
+		System.out.println("======================================================");
+		System.out.println("Generating " + featureEnums.length + " feature maps of: " + featureClass.getSimpleName());
+
+		long startTime = System.currentTimeMillis();
+		// stride を渡して実行
+		Map<String, ImagePlus> fmaps = generateFeatureMaps(img, mask, slice, filter_size, d2_mode, stride, margin,
+				incremental, parallelism, progress, featureClass, settings, featureEnums);
+		long endTime = System.currentTimeMillis();
+		System.out.println("--> Generation took " + (endTime - startTime) + " ms.");
 
-			if (featureMap != null) {
-				String prefix = spec.getDisplayName() + (d2_mode ? "_2D" : "_3D");
-				featureMap.setTitle(prefix);
-				fmaps.put(prefix, featureMap);
-			}
-		}
 		System.out.println("======================================================");
 		System.out.println("All processing finished.");
+		return fmaps == null ? new HashMap<>() : fmaps;
+	}
+
+	/**
+	 * Maps of several features of one family, in one pass over the windows.
+	 *
+	 * Each window builds the matrix of the family once (one instance of featureClass, or one
+	 * slid window, see SlidingWindowTexture) and all the features are read from it. Asking for
+	 * the whole family costs about as much as one map.
+	 *
+	 * @param featureEnums e.g, GLCMFeatureType.values()
+	 * @return FeatureName_2D (or _3D) to its map, in the order of featureEnums.
+	 *         null if the image can not be discretised, or if the maps were cancelled.
+	 */
+	public static <T extends RadiomicsFeature> Map<String, ImagePlus> generateFeatureMaps(
+			ImagePlus image, ImagePlus mask, int slice, int filterSize, boolean d2_mode, int stride, int margin,
+			boolean incremental, int parallelism, FeatureMapProgress progress, Class<T> featureClass,
+			Map<String, Object> settings, Enum<?>... featureEnums) {
+		List<FeatureSpecifier<T>> specs = new ArrayList<>();
+		for (Enum<?> ftype : featureEnums) {
+			specs.add(new FeatureSpecifier<>(featureClass, ftype, settings));
+		}
+		String[] featureIds = new String[specs.size()];
+		for (int o = 0; o < featureIds.length; o++) {
+			featureIds[o] = specs.get(o).featureId;
+		}
+		ImagePlus[] maps = generateMaps(image, mask, slice, featureClass, settings, featureIds, filterSize, d2_mode,
+				stride, margin, incremental, parallelism, progress);
+		if (maps == null) {
+			return null;
+		}
+		Map<String, ImagePlus> fmaps = new LinkedHashMap<>();
+		for (int o = 0; o < maps.length; o++) {
+			String prefix = specs.get(o).getDisplayName() + (d2_mode ? "_2D" : "_3D");
+			maps[o].setTitle(prefix);
+			fmaps.put(prefix, maps[o]);
+		}
 		return fmaps;
 	}
 
@@ -353,7 +423,124 @@ public class FeatureVisualizationMap {
 	 */
 	public static ImagePlus generateFeatureMap(ImagePlus image, ImagePlus mask, int slice/*1 to N*/, FeatureCalculator calculator,
 			int filterSize, boolean d2_mode, int stride, int margin) {
+		checkInputs(image, mask, slice);
+		printIfLong(slice, null);
+		Windows windows = new Windows(image, mask, d2_mode, margin);
+		// the calculator may not be thread safe, so it stays on the calling thread.
+		ImagePlus[] maps = scan(image, mask, windows, slice, d2_mode, stride, 1, 1, null, () -> (x, y, z) -> {
+			ImagePlus sub_vol = windows.imageAround(x, y, z, filterSize, d2_mode);
+			ImagePlus sub_mask = windows.maskAround(x, y, z, filterSize, d2_mode);
+			return o -> calculator.calculate(sub_vol, sub_mask);
+		});
+		return maps[0];
+	}
+
+	/**
+	 * Feature map of GLCM, GLRLM, NGTDM or NGLDM by sliding windows, see SlidingWindowTexture.
+	 *
+	 * The image is discretised once over the roi (grown by the margin), and the window
+	 * counts are updated while the window slides along x, instead of cutting, discretising
+	 * and counting a sub-volume at every voxel. With a fixed bin number, the grey levels
+	 * are therefore those of the whole roi, not of each window.
+	 *
+	 * @param spec family, feature and settings, the family must be supported by SlidingWindowTexture.
+	 * @return null if the image can not be discretised.
+	 */
+	public static ImagePlus generateFeatureMap(ImagePlus image, ImagePlus mask, int slice/*1 to N*/, FeatureSpecifier<?> spec,
+			int filterSize, boolean d2_mode, int stride, int margin) {
+		if (!SlidingWindowTexture.supports(spec.featureClass)) {
+			throw new IllegalArgumentException(spec.featureClass.getSimpleName() + " can not be slid, please use a FeatureCalculator.");
+		}
+		return generateFeatureMap(image, mask, slice, spec, filterSize, d2_mode, stride, margin, true, 1, null);
+	}
+
+	/**
+	 * Feature map computed tile by tile on a fork/join pool.
+	 *
+	 * The output is split into tiles, bands of rows of one slice, so that a sliding window
+	 * still walks whole rows. Each worker thread takes its own scratch (a cursor of
+	 * SlidingWindowTexture, or a copy of the settings for the family constructors, which
+	 * write into them), and every tile writes its own output voxels. A voxel's value only
+	 * depends on its window, so the map is bit-identical to the one computed on the
+	 * calling thread, for a given stride and margin.
+	 *
+	 * @param incremental if true and the family is supported, windows are slid, see SlidingWindowTexture.
+	 * @param parallelism 0 : fork/join common pool, 1 : on the calling thread, n : own pool of n threads.
+	 * @param progress    null-able, told about each finished tile, and asked before each row if the map is cancelled.
+	 * @return null if the image can not be discretised, or if the map was cancelled.
+	 */
+	public static ImagePlus generateFeatureMap(ImagePlus image, ImagePlus mask, int slice/*1 to N*/, FeatureSpecifier<?> spec,
+			int filterSize, boolean d2_mode, int stride, int margin, boolean incremental, int parallelism,
+			FeatureMapProgress progress) {
+		ImagePlus[] maps = generateMaps(image, mask, slice, spec.featureClass, spec.settings, new String[] { spec.featureId },
+				filterSize, d2_mode, stride, margin, incremental, parallelism, progress);
+		return maps == null ? null : maps[0];
+	}
+
+	/*
+	 * maps of the features of one family, in one pass.
+	 */
+	private static ImagePlus[] generateMaps(ImagePlus image, ImagePlus mask, int slice,
+			Class<? extends RadiomicsFeature> featureClass, Map<String, Object> settings, String[] featureIds,
+			int filterSize, boolean d2_mode, int stride, int margin, boolean incremental, int parallelism,
+			FeatureMapProgress progress) {
+		if (parallelism < 0) {
+			throw new IllegalArgumentException("Parallelism must be 0 (common pool) or more.");
+		}
+		checkInputs(image, mask, slice);
+		printIfLong(slice, progress);
+		Windows windows = new Windows(image, mask, d2_mode, margin);
+		Supplier<WindowFeature> scratch;
+		if (incremental && SlidingWindowTexture.supports(featureClass)) {
+			SlidingWindowTexture texture;
+			try {
+				texture = SlidingWindowTexture.of(windows.image, windows.mask, featureClass, settings, filterSize, d2_mode);
+			} catch (Exception e) {
+				e.printStackTrace();
+				return null;
+			}
+			scratch = () -> {
+				SlidingWindowTexture cursor = texture.cursor();
+				return (x, y, z) -> {
+					RadiomicsFeature feature = cursor.moveTo(x, y, z);
+					return o -> feature.calculate(featureIds[o]);
+				};
+			};
+		} else {
+			Constructor<? extends RadiomicsFeature> constructor;
+			try {
+				constructor = featureClass.getConstructor(ImagePlus.class, ImagePlus.class, Map.class);
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException(featureClass.getSimpleName() + " has no (ImagePlus, ImagePlus, Map) constructor.", e);
+			}
+			scratch = () -> {
+				// the families write into their settings.
+				Map<String, Object> own = new HashMap<>(settings);
+				return (x, y, z) -> {
+					RadiomicsFeature feature = constructor.newInstance(windows.imageAround(x, y, z, filterSize, d2_mode),
+							windows.maskAround(x, y, z, filterSize, d2_mode), own);
+					return o -> feature.calculate(featureIds[o]);
+				};
+			};
+		}
+		return scan(image, mask, windows, slice, d2_mode, stride, featureIds.length, parallelism, progress, scratch);
+	}
+
+	/*
+	 * the window centred at (x, y, z), in the coordinates of the window images.
+	 */
+	private interface WindowFeature {
+		WindowValues at(int x, int y, int z) throws Exception;
+	}
+
+	/*
+	 * features of one window, by output.
+	 */
+	private interface WindowValues {
+		Double get(int output) throws Exception;
+	}
 
+	private static void checkInputs(ImagePlus image, ImagePlus mask, int slice) {
 		if(image == null || image.getNSlices() == 0) {
 			throw new IllegalArgumentException("Image is null or no slices, please check input images.");
 		}
@@ -363,47 +550,88 @@ public class FeatureVisualizationMap {
 		if (mask == null) {
 			throw new IllegalArgumentException("Null mask is not acceptable in FeatureMap...");
 		}
-		
-		int w = image.getWidth();
-		int h = image.getHeight();
 		int s = image.getNSlices();
-		
-		if (w != mask.getWidth() || h != mask.getHeight() || s != mask.getNSlices()) {
+		if (image.getWidth() != mask.getWidth() || image.getHeight() != mask.getHeight() || s != mask.getNSlices()) {
 			throw new IllegalArgumentException("Please input same dimension image and mask.");
 		}
 		if (slice != -1 && (slice > s || slice < 1)) {
 			throw new IllegalArgumentException("Please input valid slice position. This slice position out-of-range.");
 		}
-		if (slice == -1) {
+	}
+
+	private static void printIfLong(int slice, FeatureMapProgress progress) {
+		if (slice == -1 && progress == null) {
 			System.out.println("Take too long time to generate feature map..., Take time to coffee-break.");
 		}
+	}
 
-		// ★ strideを考慮して出力画像の縮小サイズを計算
-		int out_w = (int) Math.ceil((double) w / stride);
-		int out_h = (int) Math.ceil((double) h / stride);
+	/**
+	 * Image and mask the windows are cut from, read once as float pixels so that
+	 * any thread can cut windows from them.
+	 *
+	 * The windows are cut from a grown mask, so that a voxel on the edge of the roi
+	 * is measured in a full neighbourhood. Output positions still come from the
+	 * original mask, images padded by the margin are offset by it.
+	 */
+	private static final class Windows {
+		final ImagePlus image;
+		final ImagePlus mask;
+		final float[][] imagePixels;
+		final float[][] maskPixels;
 
-		/*
-		 * The windows are cut from a grown mask, so that a voxel on the edge of the roi
-		 * is measured in a full neighbourhood. Output positions still come from the
-		 * original mask, and the offset maps between the two coordinate systems.
-		 */
-		ImagePlus windowImage = image;
-		ImagePlus windowMask = mask;
-		int offsetXY = 0;
-		int offsetZ = 0;
-		if (margin > 0) {
-			int padZ = d2_mode ? 0 : margin;
-			if (roiReachesTheBorder(mask, margin, d2_mode)) {
-				windowImage = padWithMarchingLocalMean(image, margin, padZ);
-				windowMask = padWithZero(mask, margin, padZ);
-				offsetXY = margin;
-				offsetZ = padZ;
+		Windows(ImagePlus image, ImagePlus mask, boolean d2_mode, int margin) {
+			ImagePlus windowImage = image;
+			ImagePlus windowMask = mask;
+			if (margin > 0) {
+				int padZ = d2_mode ? 0 : margin;
+				if (roiReachesTheBorder(mask, margin, d2_mode)) {
+					windowImage = padWithMarchingLocalMean(image, margin, padZ);
+					windowMask = padWithZero(mask, margin, padZ);
+				}
+				windowMask = dilate(windowMask, margin, d2_mode);
 			}
-			windowMask = dilate(windowMask, margin, d2_mode);
+			this.image = windowImage;
+			this.mask = windowMask;
+			this.imagePixels = floatPixels(windowImage);
+			this.maskPixels = floatPixels(windowMask);
 		}
 
-		ImageStack outputStack = new ImageStack(out_w, out_h);
-		ImageStack maskStack = mask.getStack();
+		ImagePlus imageAround(int cx, int cy, int cz, int filterSize, boolean patch2DMode) {
+			return getSubVolume(image, imagePixels, cx, cy, cz, filterSize, patch2DMode);
+		}
+
+		ImagePlus maskAround(int cx, int cy, int cz, int filterSize, boolean patch2DMode) {
+			return getSubVolume(mask, maskPixels, cx, cy, cz, filterSize, patch2DMode);
+		}
+	}
+
+	private static float[][] floatPixels(ImagePlus imp) {
+		int s = imp.getNSlices();
+		float[][] pixels = new float[s][];
+		ImageStack stack = imp.getStack();
+		for (int z = 0; z < s; z++) {
+			pixels[z] = (float[]) stack.getProcessor(z + 1).convertToFloatProcessor().getPixels();
+		}
+		return pixels;
+	}
+
+	/*
+	 * visits the roi voxels of the slices with the stride in X and Y, tile by tile.
+	 * a tile is TILE_ROWS output rows of one slice.
+	 *
+	 * @return one map per output, null if cancelled.
+	 */
+	private static ImagePlus[] scan(ImagePlus image, ImagePlus mask, Windows windows, int slice, boolean d2_mode,
+			int stride, int outputs, int parallelism, FeatureMapProgress progress, Supplier<WindowFeature> scratch) {
+		int w = image.getWidth();
+		int h = image.getHeight();
+		int s = image.getNSlices();
+		int offsetXY = (windows.image.getWidth() - w) / 2;
+		int offsetZ = (windows.image.getNSlices() - s) / 2;
+
+		// ★ strideを考慮して出力画像の縮小サイズを計算
+		int out_w = (int) Math.ceil((double) w / stride);
+		int out_h = (int) Math.ceil((double) h / stride);
 
 		int z_start = 0;
 		int z_end = s;
@@ -411,58 +639,135 @@ public class FeatureVisualizationMap {
 			z_start = slice-1;
 			z_end = z_start+1;
 		}
+		final int first = z_start;
+		final int numOfSlices = z_end - z_start;
+		float[][] maskPixels = new float[numOfSlices][];
+		// [output][slice][y * out_w + x]
+		float[][][] outputPixels = new float[outputs][numOfSlices][out_w * out_h];
+		ImageStack maskStack = mask.getStack();
+		for (int k = 0; k < numOfSlices; k++) {
+			maskPixels[k] = (float[]) maskStack.getProcessor(first + k + 1).convertToFloatProcessor().getPixels();
+		}
 
-		for (int z = z_start; z < z_end; z++) {
-			FloatProcessor outputIp = new FloatProcessor(out_w, out_h);
-			FloatProcessor maskIp = maskStack.getProcessor(z + 1).convertToFloatProcessor();
-			System.out.println("Processing slice: " + (z + 1) + "/" + s);
-
+		final int bands = (out_h + TILE_ROWS - 1) / TILE_ROWS;
+		final int tiles = numOfSlices * bands;
+		AtomicInteger done = new AtomicInteger();
+		AtomicBoolean cancelled = new AtomicBoolean();
+		// scratch of the threads, a tile takes one and gives it back when finished.
+		ConcurrentLinkedQueue<WindowFeature> idle = new ConcurrentLinkedQueue<>();
+		IntConsumer tile = t -> {
+			if (cancelled.get()) {
+				return;
+			}
+			int k = t / bands;
+			int z = first + k;
+			int band = t % bands;
+			if (band == 0) {
+				System.out.println("Processing slice: " + (z + 1) + "/" + s);
+			}
+			WindowFeature feature = idle.poll();
+			if (feature == null) {
+				feature = scratch.get();
+			}
+			float[] maskIp = maskPixels[k];
+			int rowTo = Math.min(out_h, (band + 1) * TILE_ROWS);
 			// ★ y と x のループを stride 幅で進める
-			for (int y = 0; y < h; y += stride) {
-				int out_y = y / stride; // 出力先の縮小座標
+			for (int out_y = band * TILE_ROWS; out_y < rowTo; out_y++) {
+				if (progress != null && progress.isCancelled()) {
+					cancelled.set(true);
+					break;
+				}
+				int y = out_y * stride;
 				for (int x = 0; x < w; x += stride) {
 					int out_x = x / stride; // 出力先の縮小座標
-
-					if (maskIp.getf(x, y) < 1) {
-						outputIp.setf(out_x, out_y, 0f);
+					if (maskIp[y * w + x] < 1) {
 						continue;
 					}
-
-					// 部分抽出は「元画像の座標 (x, y)」で行う（重要）
-					// マージンを付けた場合は、その分だけ座標をずらして参照する
-					ImagePlus sub_vol = getSubVolume(windowImage, x + offsetXY, y + offsetXY, z + offsetZ, filterSize,
-							d2_mode);
-					ImagePlus sub_mask = getSubVolume(windowMask, x + offsetXY, y + offsetXY, z + offsetZ, filterSize,
-							d2_mode);
-
+					WindowValues values;
 					try {
-						Double value = calculator.calculate(sub_vol, sub_mask);
-						if (value == null || Double.isNaN(value) || Double.isInfinite(value)) {
-							outputIp.setf(out_x, out_y, 0f);
-						} else {
-							outputIp.setf(out_x, out_y, value.floatValue());
-						}
+						// 部分抽出は「元画像の座標 (x, y)」で行う（重要）
+						// マージンを付けた場合は、その分だけ座標をずらして参照する
+						values = feature.at(x + offsetXY, y + offsetXY, z + offsetZ);
 					} catch (Exception e) {
-						Throwable cause = e.getCause();
-						if (cause != null) {
-							System.err.println("--> Root Cause:");
-							cause.printStackTrace(); 
-						} else {
-							e.printStackTrace();
-						}
-						System.err.println("Error calculating feature at (" + x + "," + y + "," + z + "): " + e.getMessage());
-						outputIp.setf(out_x, out_y, 0f);
+						printError(e, x, y, z);
+						continue;
+					}
+					for (int o = 0; o < outputs; o++) {
+						outputPixels[o][k][out_y * out_w + out_x] = valueAt(values, o, x, y, z);
 					}
 				}
 			}
-			outputStack.addSlice(outputIp);
+			idle.add(feature);
+			if (progress != null && !cancelled.get()) {
+				progress.tileDone(done.incrementAndGet(), tiles);
+			}
+		};
+
+		if (parallelism == 1 || tiles < 2) {
+			for (int t = 0; t < tiles; t++) {
+				tile.accept(t);
+			}
+		} else {
+			ForkJoinPool pool = parallelism == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+			try {
+				List<ForkJoinTask<?>> tasks = new ArrayList<>(tiles);
+				for (int t = 0; t < tiles; t++) {
+					final int index = t;
+					tasks.add(pool.submit(() -> tile.accept(index)));
+				}
+				for (ForkJoinTask<?> task : tasks) {
+					task.join();
+				}
+			} finally {
+				if (pool != ForkJoinPool.commonPool()) {
+					pool.shutdown();
+				}
+			}
+		}
+		if (cancelled.get()) {
+			System.out.println("Feature map generation was cancelled.");
+			return null;
 		}
+
+		ImagePlus[] fmaps = new ImagePlus[outputs];
 		String name = d2_mode ? "FeatureMap_2D":"FeatureMap_3D";
-		ImagePlus fmap = new ImagePlus(name, outputStack);
-		fmap.setCalibration(image.getCalibration());
-		return fmap;
+		for (int o = 0; o < outputs; o++) {
+			ImageStack outputStack = new ImageStack(out_w, out_h);
+			for (int k = 0; k < numOfSlices; k++) {
+				outputStack.addSlice(new FloatProcessor(out_w, out_h, outputPixels[o][k]));
+			}
+			fmaps[o] = new ImagePlus(name, outputStack);
+			fmaps[o].setCalibration(image.getCalibration());
+		}
+		return fmaps;
+	}
+
+	/*
+	 * value of one output voxel, zero if the feature is not a finite number or fails.
+	 */
+	private static float valueAt(WindowValues values, int output, int x, int y, int z) {
+		try {
+			Double value = values.get(output);
+			if (value == null || Double.isNaN(value) || Double.isInfinite(value)) {
+				return 0f;
+			}
+			return value.floatValue();
+		} catch (Exception e) {
+			printError(e, x, y, z);
+			return 0f;
+		}
+	}
+
+	private static void printError(Exception e, int x, int y, int z) {
+		Throwable cause = e.getCause();
+		if (cause != null) {
+			System.err.println("--> Root Cause:");
+			cause.printStackTrace(); 
+		} else {
+			e.printStackTrace();
+		}
+		System.err.println("Error calculating feature at (" + x + "," + y + "," + z + "): " + e.getMessage());
 	}
-	
 
 	// ------------------------------------------------------------------
 	// margin around the roi
@@ -690,14 +995,16 @@ public class FeatureVisualizationMap {
      * 指定された座標を中心に、3Dフィルターサイズのサブボリュームを抽出する。
      * 画像の境界を越える場合は、存在する領域のみを抽出する。
      *
-     * @param originalImage 元の画像スタック
+     * @param originalImage 元の画像スタック（大きさとキャリブレーション）
+     * @param originalPixels 元の画像のfloat画素 [z][y * w + x]
      * @param cx 中心のx座標
      * @param cy 中心のy座標
      * @param cz 中心のz座標
      * @param filterSize フィルターの直径（奇数を推奨）
      * @return 抽出されたサブボリュームのImagePlus
      */
-	private static ImagePlus getSubVolume(ImagePlus originalImage, int cx, int cy, int cz/*0 to N-1*/, int filterSize, boolean patch2DMode) {
+	private static ImagePlus getSubVolume(ImagePlus originalImage, float[][] originalPixels, int cx, int cy, int cz/*0 to N-1*/,
+			int filterSize, boolean patch2DMode) {
 		int w = originalImage.getWidth();
 		int h = originalImage.getHeight();
 		int s = originalImage.getNSlices();
@@ -721,18 +1028,14 @@ public class FeatureVisualizationMap {
 		//int subS = zEnd - zStart + 1;
 
 		ImageStack subStack = new ImageStack(subW, subH);
-		ImageStack originalStack = originalImage.getStack();
 
 		for (int z = zStart; z <= zEnd; z++) {
-			FloatProcessor subIp = new FloatProcessor(subW, subH);
-			// originalStackは1-based index
-			FloatProcessor originalIp = originalStack.getProcessor(z + 1).convertToFloatProcessor();
+			float[] sub = new float[subW * subH];
+			float[] original = originalPixels[z];
 			for (int y = yStart; y <= yEnd; y++) {
-				for (int x = xStart; x <= xEnd; x++) {
-					subIp.setf(x - xStart, y - yStart, originalIp.getf(x, y));
-				}
+				System.arraycopy(original, y * w + xStart, sub, (y - yStart) * subW, subW);
 			}
-			subStack.addSlice(subIp);
+			subStack.addSlice(new FloatProcessor(subW, subH, sub));
 		}
 
 		ImagePlus subVolume = new ImagePlus("sub-volume", subStack);
@@ -0,0 +1,461 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.stream.IntStream;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import io.github.tatsunidas.radiomics.main.FilterKernels.Kernel1D;
+
+/**
+ * Filter responses of one image (IBSI 2 convolutional filters), see FilterSpec.
+ *
+ * The image is extended by mirroring (symmetric, the border voxel repeated) and the
+ * response has the size and the calibration of the image. Intensities are the calibrated ones.
+ *
+ * Two convolution backends:
+ * <ul>
+ * <li>separable : one pass of a 1D kernel per axis and per term of the filter,
+ *     the slices (x, y passes) or the rows (z pass) are run by the common fork/join pool.</li>
+ * <li>fft : the kernel is expanded to 3D and the correlation is taken by FFT3D,
+ *     gabor always uses it.</li>
+ * </ul>
+ * auto takes the separable passes while they cost less than the transforms.
+ *
+ * Each response is computed once, then handed to every caller, so that the feature
+ * families share it. Do not modify the returned images.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class FilterBank {
+
+	public static final String AUTO = "auto";
+	public static final String SEPARABLE = "separable";
+	public static final String FFT = "fft";
+
+	private final float[] volume;
+	private final int nx;
+	private final int ny;
+	private final int nz;
+	private final double[] spacing;
+	private final Calibration cal;
+	private final String backend;
+	private final ConcurrentHashMap<FilterSpec, FutureTask<ImagePlus>> responses = new ConcurrentHashMap<>();
+
+	/**
+	 * @param img image to filter
+	 * @param backend auto, separable or fft
+	 */
+	public FilterBank(ImagePlus img, String backend) {
+		if(img == null) {
+			throw new IllegalArgumentException("FilterBank: the image must be non-null.");
+		}
+		if(!isValidBackend(backend)) {
+			throw new IllegalArgumentException("FilterBank: unknown backend '" + backend + "', use auto, separable or fft.");
+		}
+		this.backend = backend.trim().toLowerCase(Locale.ROOT);
+		nx = img.getWidth();
+		ny = img.getHeight();
+		nz = img.getNSlices();
+		cal = img.getCalibration().copy();
+		cal.disableDensityCalibration();
+		spacing = new double[] {cal.pixelWidth, cal.pixelHeight, cal.pixelDepth};
+		volume = read(img);
+	}
+
+	/**
+	 * @param backend null-able
+	 * @return true if auto, separable or fft.
+	 */
+	public static boolean isValidBackend(String backend) {
+		if(backend == null) {
+			return false;
+		}
+		String b = backend.trim().toLowerCase(Locale.ROOT);
+		return b.equals(AUTO) || b.equals(SEPARABLE) || b.equals(FFT);
+	}
+
+	/**
+	 * Voxels read around a voxel to compute its responses. Farther voxels, and the
+	 * mirrored extension of the image, do not change the response of that voxel.
+	 * @param specs filters
+	 * @param spacing {x, y, z} voxel size
+	 * @return {x, y, z} in voxels
+	 */
+	public static int[] reach(List<FilterSpec> specs, double[] spacing) {
+		int[] reach = new int[3];
+		for(FilterSpec spec : specs) {
+			if(spec.getType() == FilterSpec.Type.GABOR) {
+				double[][] k = FilterKernels.gabor(spec, spacing[0], spacing[1]);
+				reach[0] = Math.max(reach[0], (int) k[2][0]);
+				reach[1] = Math.max(reach[1], (int) k[2][1]);
+				continue;
+			}
+			int energy = spec.getType() == FilterSpec.Type.LAWS ? spec.lawsDistance() : 0;
+			for(Kernel1D[] term : FilterKernels.separable(spec, spacing, false)) {
+				for(int a = 0; a < 3; a++) {
+					reach[a] = Math.max(reach[a], Math.max(term[a].before(), term[a].after()) + energy);
+				}
+			}
+		}
+		return reach;
+	}
+
+	/**
+	 * Responses of the filters, computed at the same time by the common fork/join pool.
+	 * @param specs filters
+	 * @return response of each filter, in the order of specs.
+	 */
+	public LinkedHashMap<FilterSpec, ImagePlus> responses(List<FilterSpec> specs) {
+		specs.parallelStream().forEach(this::response);
+		LinkedHashMap<FilterSpec, ImagePlus> map = new LinkedHashMap<>();
+		for(FilterSpec spec : specs) {
+			map.put(spec, response(spec));
+		}
+		return map;
+	}
+
+	/**
+	 * @param spec filter
+	 * @return float image of the response, computed on the first call only.
+	 */
+	public ImagePlus response(FilterSpec spec) {
+		FutureTask<ImagePlus> task = responses.get(spec);
+		if(task == null) {
+			FutureTask<ImagePlus> created = new FutureTask<>(() -> toImage(spec.toString(), filter(spec)));
+			task = responses.putIfAbsent(spec, created);
+			if(task == null) {
+				task = created;
+				created.run();
+			}
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			responses.remove(spec, task);
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private float[] filter(FilterSpec spec) {
+		boolean planar = nz == 1;
+		switch(spec.getType()) {
+		case GABOR:
+			return gabor(spec);
+		case LAWS:
+			if(spec.lawsDistance() > 0) {
+				// energy of the response, shared with laws() of the same kernels.
+				float[] r = read(response(FilterSpec.parse("laws(" + String.join("", spec.lawsKernels()) + ")")));
+				for(int i = 0; i < r.length; i++) {
+					r[i] = Math.abs(r[i]);
+				}
+				Kernel1D k = FilterKernels.mean(2 * spec.lawsDistance() + 1);
+				return passes(r, new Kernel1D[] {k, k, planar ? Kernel1D.IDENTITY : k});
+			}
+			return convolve(spec, planar);
+		default:
+			return convolve(spec, planar);
+		}
+	}
+
+	/**
+	 * response of the separable kernels of spec, by 1D passes or by FFT.
+	 */
+	private float[] convolve(FilterSpec spec, boolean planar) {
+		List<Kernel1D[]> terms = FilterKernels.separable(spec, spacing, planar);
+		return useFFT(terms) ? fft(terms) : separable(terms);
+	}
+
+	/*
+	 * the separable passes cost their taps per voxel. The transforms (two forward, one inverse)
+	 * of the padded grid measured about as much as 16 log2(voxels) taps per voxel.
+	 */
+	private boolean useFFT(List<Kernel1D[]> terms) {
+		if(backend.equals(SEPARABLE)) {
+			return false;
+		}
+		if(backend.equals(FFT)) {
+			return true;
+		}
+		long taps = 0;
+		for(Kernel1D[] term : terms) {
+			for(Kernel1D k : term) {
+				taps += k.isIdentity() ? 0 : k.taps.length;
+			}
+		}
+		int[] grid = fftGrid(terms);
+		double voxels = (double) grid[0] * grid[1] * grid[2];
+		return taps > 16 * Math.log(voxels) / Math.log(2);
+	}
+
+	private float[] separable(List<Kernel1D[]> terms) {
+		float[] out = null;
+		for(Kernel1D[] term : terms) {
+			float[] r = passes(volume, term);
+			if(out == null) {
+				out = r == volume ? r.clone() : r;
+			}else {
+				for(int i = 0; i < out.length; i++) {
+					out[i] += r[i];
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * @return in correlated with the x, y then z kernel, in itself if all are the identity.
+	 */
+	private float[] passes(float[] in, Kernel1D[] term) {
+		float[] r = in;
+		for(int axis = 0; axis < 3; axis++) {
+			if(!term[axis].isIdentity()) {
+				r = pass(r, term[axis], axis);
+			}
+		}
+		return r;
+	}
+
+	private float[] pass(float[] in, Kernel1D k, int axis) {
+		final float[] out = new float[in.length];
+		final int plane = nx * ny;
+		if(axis == 2) {
+			IntStream.range(0, ny).parallel().forEach(y -> {
+				double[] buf = new double[nz + k.before() + k.after()];
+				for(int x = 0; x < nx; x++) {
+					correlate(in, y * nx + x, plane, nz, k, buf, out);
+				}
+			});
+		}else {
+			IntStream.range(0, nz).parallel().forEach(z -> {
+				int n = axis == 0 ? nx : ny;
+				double[] buf = new double[n + k.before() + k.after()];
+				int lines = axis == 0 ? ny : nx;
+				for(int l = 0; l < lines; l++) {
+					int start = axis == 0 ? z * plane + l * nx : z * plane + l;
+					correlate(in, start, axis == 0 ? 1 : nx, n, k, buf, out);
+				}
+			});
+		}
+		return out;
+	}
+
+	/*
+	 * one line of n voxels, from start by stride.
+	 */
+	private static void correlate(float[] in, int start, int stride, int n, Kernel1D k, double[] buf, float[] out) {
+		int before = k.before();
+		int length = n + before + k.after();
+		for(int t = 0; t < length; t++) {
+			buf[t] = in[start + mirror(t - before, n) * stride];
+		}
+		double[] taps = k.taps;
+		for(int i = 0; i < n; i++) {
+			double sum = 0;
+			for(int j = 0; j < taps.length; j++) {
+				sum += taps[j] * buf[i + j];
+			}
+			out[start + i * stride] = (float) sum;
+		}
+	}
+
+	/**
+	 * symmetric extension, ... c b a | a b c ... c | c b a ...
+	 */
+	static int mirror(int i, int n) {
+		if(n == 1) {
+			return 0;
+		}
+		int period = 2 * n;
+		i = ((i % period) + period) % period;
+		return i < n ? i : period - 1 - i;
+	}
+
+	/*
+	 * {before x, before y, before z, after x, after y, after z} of the kernel of all terms.
+	 */
+	private static int[] reach(List<Kernel1D[]> terms) {
+		int[] reach = new int[6];
+		for(Kernel1D[] term : terms) {
+			for(int a = 0; a < 3; a++) {
+				reach[a] = Math.max(reach[a], term[a].before());
+				reach[a + 3] = Math.max(reach[a + 3], term[a].after());
+			}
+		}
+		return reach;
+	}
+
+	private int[] fftGrid(List<Kernel1D[]> terms) {
+		int[] r = reach(terms);
+		return new int[] {FFT3D.goodSize(nx + r[0] + r[3]), FFT3D.goodSize(ny + r[1] + r[4]), FFT3D.goodSize(nz + r[2] + r[5])};
+	}
+
+	private float[] fft(List<Kernel1D[]> terms) {
+		int[] r = reach(terms);
+		int kx = r[0] + r[3] + 1;
+		int ky = r[1] + r[4] + 1;
+		int kz = r[2] + r[5] + 1;
+		double[] kernel = new double[kx * ky * kz];
+		for(Kernel1D[] term : terms) {
+			int ox = r[0] - term[0].before();
+			int oy = r[1] - term[1].before();
+			int oz = r[2] - term[2].before();
+			for(int z = 0; z < term[2].taps.length; z++) {
+				for(int y = 0; y < term[1].taps.length; y++) {
+					double wyz = term[2].taps[z] * term[1].taps[y];
+					int row = ((z + oz) * ky + (y + oy)) * kx + ox;
+					for(int x = 0; x < term[0].taps.length; x++) {
+						kernel[row + x] += wyz * term[0].taps[x];
+					}
+				}
+			}
+		}
+		double[] re = correlateByFFT(kernel, null, kx, ky, kz, r[0], r[1], r[2])[0];
+		float[] out = new float[volume.length];
+		for(int i = 0; i < out.length; i++) {
+			out[i] = (float) re[i];
+		}
+		return out;
+	}
+
+	private float[] gabor(FilterSpec spec) {
+		double[][] k = FilterKernels.gabor(spec, spacing[0], spacing[1]);
+		int rx = (int) k[2][0];
+		int ry = (int) k[2][1];
+		double[][] c = correlateByFFT(k[0], k[1], 2 * rx + 1, 2 * ry + 1, 1, rx, ry, 0);
+		float[] out = new float[volume.length];
+		for(int i = 0; i < out.length; i++) {
+			out[i] = (float) Math.sqrt(c[0][i] * c[0][i] + c[1][i] * c[1][i]);
+		}
+		return out;
+	}
+
+	/**
+	 * Correlation of the mirrored volume with a kx x ky x kz kernel whose origin is (bx, by, bz).
+	 * @param kim imaginary part of the kernel, null if real.
+	 * @return {re, im} of the response, indexed as the volume.
+	 */
+	private double[][] correlateByFFT(double[] kre, double[] kim, int kx, int ky, int kz, int bx, int by, int bz) {
+		int ex = nx + kx - 1;
+		int ey = ny + ky - 1;
+		int ez = nz + kz - 1;
+		FFT3D fft = new FFT3D(FFT3D.goodSize(ex), FFT3D.goodSize(ey), FFT3D.goodSize(ez));
+		int gx = fft.getWidth();
+		int gy = fft.getHeight();
+		int gz = fft.getDepth();
+		int size = fft.size();
+		// extended volume, e(t) = v(mirror(t - b)), so that the response at i reads e(i + j) for the kernel tap j.
+		double[] re = new double[size];
+		double[] im = new double[size];
+		IntStream.range(0, ez).parallel().forEach(z -> {
+			int sz = mirror(z - bz, nz);
+			for(int y = 0; y < ey; y++) {
+				int sy = mirror(y - by, ny);
+				int src = (sz * ny + sy) * nx;
+				int dst = (z * gy + y) * gx;
+				for(int x = 0; x < ex; x++) {
+					re[dst + x] = volume[src + mirror(x - bx, nx)];
+				}
+			}
+		});
+		fft.forward(re, im, ex, ey, ez);
+		// h(-j) = k(j), then e circularly convolved with h is the correlation.
+		double[] hre = new double[size];
+		double[] him = new double[size];
+		for(int z = 0; z < kz; z++) {
+			int hz = (gz - z) % gz;
+			for(int y = 0; y < ky; y++) {
+				int hy = (gy - y) % gy;
+				for(int x = 0; x < kx; x++) {
+					int hx = (gx - x) % gx;
+					int h = (hz * gy + hy) * gx + hx;
+					int k = (z * ky + y) * kx + x;
+					hre[h] = kre[k];
+					him[h] = kim == null ? 0 : kim[k];
+				}
+			}
+		}
+		fft.forward(hre, him);
+		for(int i = 0; i < size; i++) {
+			double a = re[i];
+			double b = im[i];
+			re[i] = a * hre[i] - b * him[i];
+			im[i] = a * him[i] + b * hre[i];
+		}
+		fft.inverse(re, im, nx, ny, nz);
+		double[] outRe = new double[volume.length];
+		double[] outIm = new double[volume.length];
+		for(int z = 0; z < nz; z++) {
+			for(int y = 0; y < ny; y++) {
+				int src = (z * gy + y) * gx;
+				int dst = (z * ny + y) * nx;
+				System.arraycopy(re, src, outRe, dst, nx);
+				System.arraycopy(im, src, outIm, dst, nx);
+			}
+		}
+		return new double[][] {outRe, outIm};
+	}
+
+	/*
+	 * calibrated intensities, indexed (z * ny + y) * nx + x.
+	 */
+	private float[] read(ImagePlus img) {
+		float[] v = new float[nx * ny * nz];
+		float[] cTable = img.getCalibration().getCTable();
+		for(int z = 0; z < nz; z++) {
+			ImageProcessor ip = img.getStack().getProcessor(z + 1);
+			boolean calibrated = cTable != null && !(ip instanceof FloatProcessor);
+			int offset = z * nx * ny;
+			for(int i = 0; i < nx * ny; i++) {
+				v[offset + i] = calibrated ? cTable[ip.get(i)] : ip.getf(i);
+			}
+		}
+		return v;
+	}
+
+	private ImagePlus toImage(String title, float[] v) {
+		ImageStack stack = new ImageStack(nx, ny);
+		for(int z = 0; z < nz; z++) {
+			float[] slice = new float[nx * ny];
+			System.arraycopy(v, z * nx * ny, slice, 0, slice.length);
+			stack.addSlice(new FloatProcessor(nx, ny, slice));
+		}
+		ImagePlus imp = new ImagePlus(title, stack);
+		imp.setCalibration(cal.copy());
+		return imp;
+	}
+}
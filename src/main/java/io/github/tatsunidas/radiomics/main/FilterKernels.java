@@ -0,0 +1,301 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Kernels of the filter bank.
+ *
+ * A separable filter is a sum of terms, each term a 1D kernel per axis (x, y, z).
+ * Kernels are correlation kernels: out(i) = sum_j taps(j) * in(i + j - origin).
+ *
+ * @author tatsunidas
+ *
+ */
+final class FilterKernels {
+
+	private FilterKernels() {
+	}
+
+	/**
+	 * 1D correlation kernel.
+	 */
+	static final class Kernel1D {
+
+		static final Kernel1D IDENTITY = new Kernel1D(new double[] {1d}, 0);
+
+		final double[] taps;
+		final int origin;
+
+		Kernel1D(double[] taps, int origin) {
+			this.taps = taps;
+			this.origin = origin;
+		}
+
+		/**
+		 * @return taps before the origin
+		 */
+		int before() {
+			return origin;
+		}
+
+		/**
+		 * @return taps after the origin
+		 */
+		int after() {
+			return taps.length - 1 - origin;
+		}
+
+		boolean isIdentity() {
+			return taps.length == 1 && taps[0] == 1d;
+		}
+
+		/**
+		 * @return the kernel of this correlation followed by the correlation with k.
+		 */
+		Kernel1D then(Kernel1D k) {
+			double[] taps = new double[this.taps.length + k.taps.length - 1];
+			for(int i = 0; i < this.taps.length; i++) {
+				for(int j = 0; j < k.taps.length; j++) {
+					taps[i + j] += this.taps[i] * k.taps[j];
+				}
+			}
+			return new Kernel1D(taps, origin + k.origin);
+		}
+
+		/**
+		 * @return the kernel with step - 1 zeros between the taps (a trous).
+		 */
+		Kernel1D dilate(int step) {
+			if(step == 1) {
+				return this;
+			}
+			double[] taps = new double[(this.taps.length - 1) * step + 1];
+			for(int i = 0; i < this.taps.length; i++) {
+				taps[i * step] = this.taps[i];
+			}
+			return new Kernel1D(taps, origin * step);
+		}
+	}
+
+	/**
+	 * @return m taps of 1/m
+	 */
+	static Kernel1D mean(int m) {
+		double[] taps = new double[m];
+		Arrays.fill(taps, 1d / m);
+		return new Kernel1D(taps, (m - 1) / 2);
+	}
+
+	/**
+	 * Laws kernels, normalised to unit length.
+	 * @param name L3, E3, S3, L5, E5, S5, W5 or R5
+	 */
+	static Kernel1D laws(String name) {
+		double[] taps;
+		switch(name) {
+		case "L3": taps = new double[] {1, 2, 1}; break;
+		case "E3": taps = new double[] {-1, 0, 1}; break;
+		case "S3": taps = new double[] {-1, 2, -1}; break;
+		case "L5": taps = new double[] {1, 4, 6, 4, 1}; break;
+		case "E5": taps = new double[] {-1, -2, 0, 2, 1}; break;
+		case "S5": taps = new double[] {-1, 0, 2, 0, -1}; break;
+		case "W5": taps = new double[] {-1, 2, 0, -2, 1}; break;
+		case "R5": taps = new double[] {1, -4, 6, -4, 1}; break;
+		default:
+			throw new IllegalArgumentException("FilterSpec: unknown laws kernel '" + name + "', use L3 E3 S3 L5 E5 S5 W5 R5.");
+		}
+		double norm = 0;
+		for(double t : taps) {
+			norm += t * t;
+		}
+		norm = Math.sqrt(norm);
+		for(int i = 0; i < taps.length; i++) {
+			taps[i] /= norm;
+		}
+		return new Kernel1D(taps, taps.length / 2);
+	}
+
+	/**
+	 * Low pass decomposition filter of an orthogonal wavelet.
+	 * @param name haar, db2 or db3
+	 */
+	static double[] waveletLowPass(String name) {
+		switch(name) {
+		case "haar":
+		case "db1":
+			return new double[] {1 / Math.sqrt(2), 1 / Math.sqrt(2)};
+		case "db2": {
+			double s3 = Math.sqrt(3);
+			double d = 4 * Math.sqrt(2);
+			return new double[] {(1 + s3) / d, (3 + s3) / d, (3 - s3) / d, (1 - s3) / d};
+		}
+		case "db3":
+			return new double[] {0.3326705529509569, 0.8068915093133388, 0.4598775021193313,
+					-0.13501102001039084, -0.08544127388224149, 0.035226291882100656};
+		default:
+			throw new IllegalArgumentException("FilterSpec: unknown wavelet '" + name + "', use haar, db2, db3.");
+		}
+	}
+
+	/**
+	 * Undecimated (a trous) wavelet kernel of one axis: the low pass of the levels
+	 * before, then the band of the last level, both dilated by the level.
+	 * @param name wavelet
+	 * @param band 'L' or 'H'
+	 * @param level from 1
+	 */
+	static Kernel1D wavelet(String name, char band, int level) {
+		double[] lo = waveletLowPass(name);
+		double[] hi = new double[lo.length];
+		for(int k = 0; k < lo.length; k++) {
+			// quadrature mirror of the low pass
+			hi[k] = (k % 2 == 0 ? 1 : -1) * lo[lo.length - 1 - k];
+		}
+		int origin = (lo.length - 1) / 2;
+		Kernel1D low = new Kernel1D(lo, origin);
+		Kernel1D kernel = Kernel1D.IDENTITY;
+		for(int j = 1; j < level; j++) {
+			kernel = kernel.then(low.dilate(1 << (j - 1)));
+		}
+		Kernel1D last = band == 'L' ? low : new Kernel1D(hi, origin);
+		return kernel.then(last.dilate(1 << (level - 1)));
+	}
+
+	/**
+	 * Gaussian sampled at the voxel centres, cut at 4 sigma, summing to 1.
+	 * @param sigma in mm
+	 * @param spacing voxel size in mm
+	 */
+	static Kernel1D gaussian(double sigma, double spacing) {
+		int r = (int) Math.ceil(4 * sigma / spacing);
+		double[] taps = new double[2 * r + 1];
+		double sum = 0;
+		for(int i = -r; i <= r; i++) {
+			double t = i * spacing;
+			taps[i + r] = Math.exp(-t * t / (2 * sigma * sigma));
+			sum += taps[i + r];
+		}
+		for(int i = 0; i < taps.length; i++) {
+			taps[i] /= sum;
+		}
+		return new Kernel1D(taps, r);
+	}
+
+	/**
+	 * Second derivative of gaussian(sigma, spacing), times sigma^2,
+	 * corrected to sum to 0 so that constant and linear intensities give no response.
+	 */
+	static Kernel1D gaussianSecondDerivative(double sigma, double spacing) {
+		Kernel1D g = gaussian(sigma, spacing);
+		int r = g.origin;
+		double[] taps = new double[g.taps.length];
+		double sum = 0;
+		for(int i = -r; i <= r; i++) {
+			double t = i * spacing;
+			taps[i + r] = (t * t / (sigma * sigma) - 1) * g.taps[i + r];
+			sum += taps[i + r];
+		}
+		for(int i = 0; i < taps.length; i++) {
+			taps[i] -= sum * g.taps[i];
+		}
+		return new Kernel1D(taps, r);
+	}
+
+	/**
+	 * Terms of a separable filter, each {x, y, z} kernels.
+	 * @param spec filter, spec.isSeparable()
+	 * @param spacing {x, y, z} voxel size
+	 * @param planar true for a single slice, the z kernels are the identity.
+	 */
+	static List<Kernel1D[]> separable(FilterSpec spec, double[] spacing, boolean planar) {
+		int axes = planar ? 2 : 3;
+		List<Kernel1D[]> terms = new ArrayList<>();
+		switch(spec.getType()) {
+		case MEAN: {
+			Kernel1D k = mean(spec.support());
+			terms.add(new Kernel1D[] {k, k, planar ? Kernel1D.IDENTITY : k});
+			break;
+		}
+		case LOG:
+			for(int d = 0; d < axes; d++) {
+				Kernel1D[] term = new Kernel1D[] {Kernel1D.IDENTITY, Kernel1D.IDENTITY, Kernel1D.IDENTITY};
+				for(int a = 0; a < axes; a++) {
+					term[a] = a == d ? gaussianSecondDerivative(spec.sigma(), spacing[a]) : gaussian(spec.sigma(), spacing[a]);
+				}
+				terms.add(term);
+			}
+			break;
+		case LAWS: {
+			String[] k = spec.lawsKernels();
+			terms.add(new Kernel1D[] {laws(k[0]), laws(k[1]), planar ? Kernel1D.IDENTITY : laws(k[2])});
+			break;
+		}
+		case WAVELET: {
+			String bands = spec.waveletBands();
+			Kernel1D[] term = new Kernel1D[3];
+			for(int a = 0; a < 3; a++) {
+				term[a] = a < axes ? wavelet(spec.wavelet(), bands.charAt(a), spec.waveletLevel()) : Kernel1D.IDENTITY;
+			}
+			terms.add(term);
+			break;
+		}
+		default:
+			throw new IllegalArgumentException("FilterKernels: " + spec + " is not separable.");
+		}
+		return terms;
+	}
+
+	/**
+	 * In plane complex Gabor kernel, {real, imaginary}, indexed (y + ry) * (2 rx + 1) + (x + rx).
+	 * The Gaussian envelope sums to 1.
+	 * @return {re, im, {rx, ry}}
+	 */
+	static double[][] gabor(FilterSpec spec, double px, double py) {
+		double sigma = spec.sigma();
+		double gamma = spec.gamma();
+		double theta = Math.toRadians(spec.theta());
+		double reach = 4 * sigma * Math.max(1, 1 / gamma);
+		int rx = (int) Math.ceil(reach / px);
+		int ry = (int) Math.ceil(reach / py);
+		int w = 2 * rx + 1;
+		double[] re = new double[w * (2 * ry + 1)];
+		double[] im = new double[re.length];
+		double sum = 0;
+		for(int j = -ry; j <= ry; j++) {
+			for(int i = -rx; i <= rx; i++) {
+				double x = i * px;
+				double y = j * py;
+				double u = x * Math.cos(theta) + y * Math.sin(theta);
+				double v = -x * Math.sin(theta) + y * Math.cos(theta);
+				double envelope = Math.exp(-(u * u + gamma * gamma * v * v) / (2 * sigma * sigma));
+				double phase = 2 * Math.PI * u / spec.lambda();
+				int idx = (j + ry) * w + i + rx;
+				re[idx] = envelope * Math.cos(phase);
+				im[idx] = envelope * Math.sin(phase);
+				sum += envelope;
+			}
+		}
+		for(int i = 0; i < re.length; i++) {
+			re[i] /= sum;
+			im[i] /= sum;
+		}
+		return new double[][] {re, im, {rx, ry}};
+	}
+}
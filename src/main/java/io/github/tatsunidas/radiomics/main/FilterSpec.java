@@ -0,0 +1,298 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One filter of the filter bank (IBSI 2), written as name(parameters).
+ *
+ * <ul>
+ * <li>mean(m) : mean over m x m x m voxels, m odd.</li>
+ * <li>log(sigma) : Laplacian of Gaussian, sigma in mm, scale normalised by sigma^2, cut at 4 sigma.</li>
+ * <li>laws(L5E5S5) : Laws kernels along x, y and z, from L3 E3 S3 L5 E5 S5 W5 R5.
+ *     laws(L5E5S5,d) gives the energy, the mean of the absolute response over (2d+1)^3 voxels.</li>
+ * <li>gabor(sigma,lambda,gamma,theta) : modulus of the in-plane Gabor filter,
+ *     sigma and lambda in mm, theta in degrees.</li>
+ * <li>wavelet(haar,LLH) : undecimated wavelet, low or high pass along x, y and z,
+ *     from haar, db2, db3. wavelet(db2,LLH,2) takes the second level.</li>
+ * </ul>
+ * On a single slice, the filters are applied in plane, and the third letter of laws and wavelet is ignored.
+ *
+ * Several filters are separated by ';', e.g. "log(1.5);laws(L5E5E5,7)".
+ *
+ * @author tatsunidas
+ *
+ */
+public final class FilterSpec {
+
+	public enum Type {
+		MEAN("mean"),
+		LOG("log"),
+		LAWS("laws"),
+		GABOR("gabor"),
+		WAVELET("wavelet");
+
+		private final String id;
+
+		private Type(String id) {
+			this.id = id;
+		}
+
+		public String id() {
+			return id;
+		}
+	}
+
+	private final Type type;
+	private final String[] params;
+
+	private FilterSpec(Type type, String[] params) {
+		this.type = type;
+		this.params = params;
+	}
+
+	/**
+	 * @param spec e.g. "log(1.5)"
+	 * @return the filter
+	 * @throws IllegalArgumentException if the name or the parameters are not valid.
+	 */
+	public static FilterSpec parse(String spec) {
+		if(spec == null) {
+			throw new IllegalArgumentException("FilterSpec: the filter must be non-null.");
+		}
+		String text = spec.trim();
+		int open = text.indexOf('(');
+		if(open < 1 || !text.endsWith(")")) {
+			throw new IllegalArgumentException("FilterSpec: write a filter as name(parameters), got '" + spec + "'.");
+		}
+		String name = text.substring(0, open).trim().toLowerCase(Locale.ROOT);
+		String[] params = text.substring(open + 1, text.length() - 1).split(",");
+		for(int i = 0; i < params.length; i++) {
+			params[i] = params[i].trim();
+		}
+		for(Type type : Type.values()) {
+			if(type.id().equals(name)) {
+				FilterSpec f = new FilterSpec(type, params);
+				f.validate();
+				return f;
+			}
+		}
+		throw new IllegalArgumentException("FilterSpec: unknown filter '" + name + "', use one of mean, log, laws, gabor, wavelet.");
+	}
+
+	/**
+	 * @param specs filters separated by ';', null-able.
+	 * @return the filters, empty if none.
+	 * @throws IllegalArgumentException if one of them is not valid.
+	 */
+	public static List<FilterSpec> parseList(String specs) {
+		if(specs == null || specs.trim().isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<FilterSpec> list = new ArrayList<>();
+		for(String spec : specs.split(";")) {
+			if(!spec.trim().isEmpty()) {
+				list.add(parse(spec));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * @param specs filters separated by ';', null-able.
+	 * @return true if parseList() accepts them.
+	 */
+	public static boolean isValidList(String specs) {
+		try {
+			parseList(specs);
+			return true;
+		}catch(IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			return false;
+		}
+	}
+
+	private void validate() {
+		switch(type) {
+		case MEAN:
+			expect(1, 1);
+			if(support() < 1 || support() % 2 == 0) {
+				throw new IllegalArgumentException("FilterSpec: the support of mean must be odd, got " + support() + ".");
+			}
+			break;
+		case LOG:
+			expect(1, 1);
+			positive(sigma(), "sigma");
+			break;
+		case LAWS:
+			expect(1, 2);
+			for(String k : lawsKernels()) {
+				FilterKernels.laws(k);
+			}
+			if(lawsDistance() < 0) {
+				throw new IllegalArgumentException("FilterSpec: the energy distance of laws must not be negative.");
+			}
+			break;
+		case GABOR:
+			expect(4, 4);
+			positive(sigma(), "sigma");
+			positive(lambda(), "lambda");
+			positive(gamma(), "gamma");
+			theta();
+			break;
+		case WAVELET:
+			expect(2, 3);
+			FilterKernels.waveletLowPass(wavelet());
+			String bands = waveletBands();
+			if(bands.length() != 3 || !bands.matches("[LH]{3}")) {
+				throw new IllegalArgumentException("FilterSpec: wavelet bands are 3 letters of L and H, got '" + bands + "'.");
+			}
+			if(waveletLevel() < 1) {
+				throw new IllegalArgumentException("FilterSpec: the wavelet level starts at 1.");
+			}
+			break;
+		}
+	}
+
+	private void expect(int min, int max) {
+		if(params.length < min || params.length > max || params[0].isEmpty()) {
+			throw new IllegalArgumentException("FilterSpec: " + type.id() + " takes " + (min == max ? "" + min : min + " to " + max)
+					+ " parameters, got " + toString() + ".");
+		}
+	}
+
+	private static void positive(double v, String name) {
+		if(!(v > 0)) {
+			throw new IllegalArgumentException("FilterSpec: " + name + " must be positive.");
+		}
+	}
+
+	private double number(int i) {
+		try {
+			return Double.parseDouble(params[i]);
+		}catch(NumberFormatException e) {
+			throw new IllegalArgumentException("FilterSpec: '" + params[i] + "' of " + type.id() + " is not a number.");
+		}
+	}
+
+	private int integer(int i) {
+		try {
+			return Integer.parseInt(params[i]);
+		}catch(NumberFormatException e) {
+			throw new IllegalArgumentException("FilterSpec: '" + params[i] + "' of " + type.id() + " is not an integer.");
+		}
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/** mean : support in voxels */
+	public int support() {
+		return integer(0);
+	}
+
+	/** log, gabor : sigma in mm */
+	public double sigma() {
+		return number(0);
+	}
+
+	/** gabor : wave length in mm */
+	public double lambda() {
+		return number(1);
+	}
+
+	/** gabor : aspect ratio */
+	public double gamma() {
+		return number(2);
+	}
+
+	/** gabor : orientation in degrees */
+	public double theta() {
+		return number(3);
+	}
+
+	/** laws : names of the kernels along x, y, z */
+	public String[] lawsKernels() {
+		String k = params[0].toUpperCase(Locale.ROOT);
+		if(k.length() != 6) {
+			throw new IllegalArgumentException("FilterSpec: laws takes 3 kernels such as L5E5S5, got '" + params[0] + "'.");
+		}
+		return new String[] {k.substring(0, 2), k.substring(2, 4), k.substring(4, 6)};
+	}
+
+	/** laws : Chebyshev distance of the energy, 0 if the response itself */
+	public int lawsDistance() {
+		return params.length > 1 ? integer(1) : 0;
+	}
+
+	/** wavelet : name of the wavelet */
+	public String wavelet() {
+		return params[0].toLowerCase(Locale.ROOT);
+	}
+
+	/** wavelet : L or H along x, y, z */
+	public String waveletBands() {
+		return params[1].toUpperCase(Locale.ROOT);
+	}
+
+	/** wavelet : decomposition level */
+	public int waveletLevel() {
+		return params.length > 2 ? integer(2) : 1;
+	}
+
+	/**
+	 * @return true if the kernel is a sum of products of 1D kernels.
+	 */
+	public boolean isSeparable() {
+		return type != Type.GABOR;
+	}
+
+	/**
+	 * @return prefix of the result columns of this filter, e.g. "log_1.5".
+	 */
+	public String columnPrefix() {
+		StringBuilder sb = new StringBuilder(type.id());
+		for(String p : params) {
+			sb.append('_').append(p.replaceAll("[^A-Za-z0-9.\\-]", ""));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return type.id() + "(" + String.join(",", params) + ")";
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof FilterSpec)) {
+			return false;
+		}
+		FilterSpec f = (FilterSpec) o;
+		return type == f.type && Arrays.equals(params, f.params);
+	}
+
+	@Override
+	public int hashCode() {
+		return type.hashCode() * 31 + Arrays.hashCode(params);
+	}
+}
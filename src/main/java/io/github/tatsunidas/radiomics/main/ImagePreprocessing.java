@@ -22,7 +22,11 @@ import ij.process.ImageProcessor;
  */
 public class ImagePreprocessing {
 	
-	public static boolean checkMask(ImagePlus imp, ImagePlus mask) {
+	/**
+	 * @param label roi label of mask, 1 to 255.
+	 * @return true if mask fits imp and label is a valid mask label.
+	 */
+	public static boolean checkMask(ImagePlus imp, ImagePlus mask, int label) {
 		
 		if(imp == null || mask == null) {
 			System.out.println("RadiomicsJ:ImagePreprocessing::checkMask failed.");
@@ -46,7 +50,7 @@ public class ImagePreprocessing {
 			return false;
 		}
 		
-		if(!Utils.isValidMaskLabel(RadiomicsJ.targetLabel)) {
+		if(!Utils.isValidMaskLabel(label)) {
 			System.out.println("RadiomicsJ:ImagePreprocessing::checkMask failed.");
 			System.out.println("Mask label is incorrect. please set to 1 to 255.");
 			return false;
@@ -235,11 +239,17 @@ public class ImagePreprocessing {
 	}
 	
 	public static ImagePlus normalize(ImagePlus imp, ImagePlus mask, int label) {
+		return normalize(imp, mask, label, RadiomicsJ.normalizeScale);
+	}
+	
+	/**
+	 * @param scale scale to scale * ((X - mean)/sd)
+	 */
+	public static ImagePlus normalize(ImagePlus imp, ImagePlus mask, int label, double scale) {
 		if(mask == null) {
 			Calibration cal = imp.getCalibration();
 			mask = createMask(imp.getWidth(), imp.getHeight(), imp.getNSlices(), null, label, cal.pixelWidth, cal.pixelHeight,cal.pixelDepth);
 		}
-		double scale = RadiomicsJ.normalizeScale;
 		int w = imp.getWidth();
 		int h = imp.getHeight();
 		int s = imp.getNSlices();
@@ -347,11 +357,17 @@ public class ImagePreprocessing {
 	 * @return
 	 */
 	public static ImagePlus outlierFiltering(ImagePlus imp, ImagePlus mask, int label) {
+		return outlierFiltering(imp, mask, label, RadiomicsJ.zScore);
+	}
+	
+	/**
+	 * @param z_score voxels out of mean +/- (z_score * sd) are removed from the mask.
+	 */
+	public static ImagePlus outlierFiltering(ImagePlus imp, ImagePlus mask, int label, double z_score) {
 		if(mask == null) {
 			Calibration cal = imp.getCalibration();
 			mask = createMask(imp.getWidth(), imp.getHeight(), imp.getNSlices(), null, label, cal.pixelWidth, cal.pixelHeight,cal.pixelDepth);
 		}
-		double z_score = RadiomicsJ.zScore;
 		int w = imp.getWidth();
 		int h = imp.getHeight();
 		int s = imp.getNSlices();
@@ -0,0 +1,213 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Neighbourhood statistics of a RoiVolume, as used by NGTDM and NGLDM.
+ *
+ * The neighbours of a voxel are the voxels at 1 to delta steps along the 26 directions
+ * of Utils.buildAngles() (in the order of the angle ids). Voxels out of the roi,
+ * and grey levels below 1, are neither centres nor neighbours.
+ *
+ * Every roi voxel is visited once, and all grey levels are accumulated at once.
+ * Neighbours are read through precomputed offsets in the flat volume, bounds are only
+ * checked for the voxels closer than delta to a side of the bounding box.
+ * Slices may be processed in parallel, sums are kept per slice and added in slice order,
+ * so the result does not depend on it.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class NeighbourhoodCounter {
+
+	private final RoiVolume volume;
+	private final int delta;
+	// {dx, dy, dz} of each neighbour.
+	private final int[][] steps;
+	// index offset of each neighbour in the volume.
+	private final int[] offsets;
+
+	/**
+	 * @param volume grey levels.
+	 * @param delta neighbour range, 1 or more.
+	 */
+	public NeighbourhoodCounter(RoiVolume volume, int delta) {
+		if(delta < 1) {
+			throw new IllegalArgumentException("NeighbourhoodCounter: delta must be 1 or more.");
+		}
+		this.volume = volume;
+		this.delta = delta;
+		HashMap<Integer, int[]> angles = Utils.buildAngles();
+		ArrayList<Integer> angle_ids = new ArrayList<>(angles.keySet());
+		Collections.sort(angle_ids);
+		int n = (angle_ids.size() - 1) * delta;
+		steps = new int[n][];
+		offsets = new int[n];
+		int w = volume.getWidth();
+		int h = volume.getHeight();
+		int k = 0;
+		for(int d = 1; d <= delta; d++) {
+			for(Integer a_id : angle_ids) {
+				int[] a = angles.get(a_id);
+				if(a[0] == 0 && a[1] == 0 && a[2] == 0) {
+					continue;// own voxel
+				}
+				int dx = a[2] * d;
+				int dy = a[1] * d * -1;// adjust y direction from vector
+				int dz = a[0] * d;
+				steps[k] = new int[] {dx, dy, dz};
+				offsets[k] = (dz * h + dy) * w + dx;
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * @return number of neighbours of a voxel far from the sides, 26 * delta.
+	 */
+	public int getNumOfNeighbours() {
+		return offsets.length;
+	}
+
+	/**
+	 * Neighbourhood grey tone differences.
+	 *
+	 * @param parallel if true, the slices are processed by the common fork/join pool.
+	 * @return {n_i, s_i} of each grey level [grey level - 1], where n_i is the number of voxels
+	 * and s_i the sum of |i - mean of the neighbours| over the voxels having neighbours.
+	 */
+	public double[][] ngtdm(boolean parallel) {
+		final int nBins = volume.getNBins();
+		final int s = volume.getDepth();
+		final int[][] n = new int[s][nBins];
+		final double[][] sum = new double[s][nBins];
+		slices(parallel).forEach(z -> {
+			forEachVoxel(z, (i, x, y, g, interior) -> {
+				double blob_sum = 0.0;
+				int numOfValidNeighbor = 0;
+				for(int k = 0; k < offsets.length; k++) {
+					int v = interior ? volume.get(i + offsets[k]) : neighbour(x, y, z, k);
+					if(v >= 1) {
+						blob_sum += v;
+						numOfValidNeighbor++;
+					}
+				}
+				if(numOfValidNeighbor != 0) {
+					sum[z][g - 1] += Math.abs(g - (blob_sum / numOfValidNeighbor));
+				}
+				n[z][g - 1]++;
+			});
+		});
+		double[][] ngtdm = new double[nBins][2];
+		for(int z = 0; z < s; z++) {
+			for(int g = 0; g < nBins; g++) {
+				ngtdm[g][0] += n[z][g];
+				ngtdm[g][1] += sum[z][g];
+			}
+		}
+		return ngtdm;
+	}
+
+	/**
+	 * Neighbouring grey level dependences.
+	 *
+	 * @param alpha coarseness, a neighbour depends on the voxel if their grey levels differ by alpha at most.
+	 * @param parallel if true, the slices are processed by the common fork/join pool.
+	 * @return number of voxels [grey level - 1][number of dependent neighbours],
+	 * up to the largest number of dependent neighbours (at least one column).
+	 */
+	public int[][] ngldm(int alpha, boolean parallel) {
+		final int nBins = volume.getNBins();
+		final int s = volume.getDepth();
+		final int columns = offsets.length + 1;
+		final int[][][] counts = new int[s][][];
+		slices(parallel).forEach(z -> {
+			int[][] local = new int[nBins][columns];
+			forEachVoxel(z, (i, x, y, g, interior) -> {
+				int count = 0;
+				for(int k = 0; k < offsets.length; k++) {
+					int v = interior ? volume.get(i + offsets[k]) : neighbour(x, y, z, k);
+					if(v >= 1 && Math.abs(g - v) <= alpha) {
+						count++;
+					}
+				}
+				local[g - 1][count]++;
+			});
+			counts[z] = local;
+		});
+		int[][] ngldm = new int[nBins][columns];
+		int maxCount = 0;
+		for(int z = 0; z < s; z++) {
+			for(int g = 0; g < nBins; g++) {
+				for(int c = 0; c < columns; c++) {
+					int v = counts[z][g][c];
+					if(v != 0) {
+						ngldm[g][c] += v;
+						if(maxCount < c) maxCount = c;
+					}
+				}
+			}
+		}
+		if(maxCount + 1 == columns) {
+			return ngldm;
+		}
+		int[][] trimmed = new int[nBins][maxCount + 1];
+		for(int g = 0; g < nBins; g++) {
+			System.arraycopy(ngldm[g], 0, trimmed[g], 0, maxCount + 1);
+		}
+		return trimmed;
+	}
+
+	private IntStream slices(boolean parallel) {
+		IntStream slices = IntStream.range(0, volume.getDepth());
+		return parallel ? slices.parallel() : slices;
+	}
+
+	private interface VoxelVisitor {
+		void visit(int i, int x, int y, int grey, boolean interior);
+	}
+
+	/*
+	 * visits the roi voxels of a slice in raster order.
+	 */
+	private void forEachVoxel(int z, VoxelVisitor visitor) {
+		int w = volume.getWidth();
+		int h = volume.getHeight();
+		int s = volume.getDepth();
+		boolean interiorZ = z >= delta && z < s - delta;
+		for(int y = 0; y < h; y++) {
+			boolean interiorZY = interiorZ && y >= delta && y < h - delta;
+			int i = volume.index(0, y, z);
+			for(int x = 0; x < w; x++, i++) {
+				int g = volume.get(i);
+				if(g < 1) {
+					continue;
+				}
+				visitor.visit(i, x, y, g, interiorZY && x >= delta && x < w - delta);
+			}
+		}
+	}
+
+	private int neighbour(int x, int y, int z, int k) {
+		int[] d = steps[k];
+		return volume.get(x + d[0], y + d[1], z + d[2]);
+	}
+}
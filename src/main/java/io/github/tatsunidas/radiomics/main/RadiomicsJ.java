@@ -24,11 +24,22 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.swing.JOptionPane;
 
@@ -45,6 +56,7 @@ import ij.measure.Calibration;
 import ij.measure.ResultsTable;
 import ij.process.ImageProcessor;
 import ij.util.DicomTools;
+import io.github.tatsunidas.ij.plugin.nifti.NiftiStreamReader;
 import io.github.tatsunidas.ij.plugin.nifti.Nifti_Reader;
 import io.github.tatsunidas.radiomics.features.DiagnosticsInfo;
 import io.github.tatsunidas.radiomics.features.DiagnosticsInfoType;
@@ -74,6 +86,7 @@ import io.github.tatsunidas.radiomics.features.NGLDMFeatureType;
 import io.github.tatsunidas.radiomics.features.NGLDMFeatures;
 import io.github.tatsunidas.radiomics.features.NGTDMFeatureType;
 import io.github.tatsunidas.radiomics.features.NGTDMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
 import io.github.tatsunidas.radiomics.features.OperationalInfoFeatures;
 import io.github.tatsunidas.radiomics.features.Shape2DFeatureType;
 import io.github.tatsunidas.radiomics.features.Shape2DFeatures;
@@ -100,6 +113,10 @@ public class RadiomicsJ {
 		options.addOption("d","debug",false, "debug mode");
 		options.addOption("t","test",false, "test mode");
 		options.addOption("tdt","test-data-type",true, "test data type, 0:digital_phantom1, 1:ct_sample1");
+		options.addOption("b","batch",true, "path to manifest(.csv) of cases, one \"image,mask,label\" per line. images and masks options are ignored."
+				+ " output may be a .csv or a " + ColumnarFileSink.EXTENSION + " (columnar) file.");
+		options.addOption("w","workers",true, "batch mode, number of cases computed at the same time. default is half of the cores.");
+		options.addOption("mim","max-in-memory",true, "batch mode, max number of cases held in memory. default is same as workers.");
 		
 		CommandLineParser parser = new DefaultParser();
 		CommandLine cmd = null;
@@ -116,6 +133,7 @@ public class RadiomicsJ {
 		String maskFolderPath = null;
 		String outputDestPath = null;//System.getProperty("user.dir");//default
 		String propFilePath = null;//settings file
+		String manifestPath = null;//batch mode
 		
 		if(cmd.hasOption("h") || cmd.hasOption("help")) {
 			HelpFormatter formatter = new HelpFormatter();
@@ -155,6 +173,16 @@ public class RadiomicsJ {
 			}
 		}
 		
+		if(cmd.hasOption("b") || cmd.hasOption("batch")){
+			manifestPath = cmd.getOptionValue("batch");
+		}
+		
+		if(manifestPath != null && !testMode) {
+			RadiomicsJ.debug = debug;
+			runBatch(manifestPath, propFilePath, outputDestPath, cmd.getOptionValue("workers"), cmd.getOptionValue("max-in-memory"));
+			return;
+		}
+		
 		if(imgFolderPath == null || maskFolderPath == null) {
 			if(!testMode) {
 				System.out.println("Sorry, can not read image or mask folders.");
@@ -266,7 +294,52 @@ public class RadiomicsJ {
 			}
 		}
 	}
-		
+	
+	/**
+	 * CLI batch mode. Failed cases are logged, they never stop the run.
+	 */
+	private static void runBatch(String manifestPath, String propFilePath, String outputDestPath, String workers, String maxInMemory) {
+		//load the settings file the same way as the single case mode.
+		RadiomicsJ loader = new RadiomicsJ();
+		loader.loadSettings(propFilePath);
+		BatchExtraction batch = new BatchExtraction(loader.getSettings());
+		try {
+			if(workers != null) {
+				batch.setWorkers(Integer.parseInt(workers.trim()));
+			}
+			if(maxInMemory != null) {
+				batch.setMaxCasesInMemory(Integer.parseInt(maxInMemory.trim()));
+			}
+		}catch(IllegalArgumentException e) {
+			System.out.println("Sorry, invalid workers or max-in-memory. -> " + e.getMessage());
+			return;
+		}
+		File outFile;
+		if(outputDestPath != null && (outputDestPath.endsWith(".csv") || outputDestPath.endsWith(ColumnarFileSink.EXTENSION))) {
+			//rows are written as the cases finish, csv or columnar file.
+			outFile = new File(outputDestPath);
+		}else {
+			String timeStamp = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").format(LocalDateTime.now());
+			File outDest = new File(outputDestPath != null ? outputDestPath : System.getProperty("user.dir"));
+			outFile = new File(outDest, "RadiomicsFeatures-" + timeStamp + ".csv");
+		}
+		try {
+			List<BatchExtraction.BatchCase> cases = BatchExtraction.readManifest(new File(manifestPath));
+			System.out.println(cases.size() + " cases found, computing with " + batch.getWorkers() + " workers ...");
+			List<BatchExtraction.BatchFailure> failures = batch.run(cases, outFile);
+			System.out.println("finish calculation, " + (cases.size() - failures.size()) + "/" + cases.size()
+					+ " cases, result save to " + outFile.getAbsolutePath());
+			for(BatchExtraction.BatchFailure f : failures) {
+				System.out.println("failed case " + (f.getIndex()+1) + " : " + f.getCase() + " -> " + f.getCause());
+			}
+		}catch(IOException e) {
+			System.out.println("Sorry, batch extraction was failed. -> " + e.getMessage());
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("Batch extraction was interrupted.");
+		}
+	}
+	
 	/**
 	 * radiomicsj version
 	 */
@@ -321,9 +394,35 @@ public class RadiomicsJ {
 	
 	/**
 	 * discretise images
+	 * 
+	 * @deprecated the pipeline no longer writes this field, the discretised image
+	 * is handed to the feature families by RadiomicsFeature.PRE_DISC_IMG instead.
+	 * Still read by the feature classes when they are used without ExtractionSettings.
 	 */
+	@Deprecated
 	public static ImagePlus discretiseImp;
 	
+	/**
+	 * discretised image of the current extraction of this instance.
+	 */
+	private ImagePlus discretisedImp;
+	
+	/**
+	 * filter responses of the current extraction of this instance, null if no filter is set.
+	 */
+	private LinkedHashMap<FilterSpec, ImagePlus> filteredImps;
+	
+	/**
+	 * part of the interpolation grid the current extraction resamples, null for the whole grid.
+	 */
+	private ResamplingGrid resamplingGrid;
+	
+	/**
+	 * Calculation settings of this instance.
+	 * null means legacy mode, the static settings below are used (and written by loadSettings()).
+	 */
+	private ExtractionSettings settings;
+	
 	/**
 	 * isovoxelized mask.
 	 * created after resampling and re-segment.
@@ -520,6 +619,16 @@ public class RadiomicsJ {
 	 */
 	public static Integer glamMaxReferenceVoxels = 0;
 
+	/**
+	 * Texture param:GLAM pair count backend.
+	 * When true, the shell pair counts are taken from cross-correlations of the
+	 * gray level indicator volumes computed by 3D FFT, instead of scanning the
+	 * neighbourhood of every reference voxel. The counts are the same, but the cost
+	 * follows the padded bounding box of the roi instead of the square of its
+	 * voxel count, so it pays off on large rois.
+	 */
+	public static Boolean glamFftPairCounts = false;
+
 	/**
 	 * Texture param:GLAM boundary correction.
 	 * When true, each distance shell is normalised by the part of it that still
@@ -594,6 +703,68 @@ public class RadiomicsJ {
 	 */
 	public static boolean activate_no_default_features = false;
 	
+	/**
+	 * Moran's I index and Geary's C measure backend.
+	 * When true, the inverse distance weighted sums over the voxel pairs may be
+	 * taken from 3D FFT convolutions of the roi with the 1/d kernel, instead of
+	 * visiting every pair. The result is the same up to rounding, but the cost
+	 * follows the padded bounding box of the roi instead of the square of its voxel count,
+	 * so each roi takes the FFT only when it is cheaper and fits in the heap,
+	 * see MorphologicalFeatures.isSpatialAutocorrelationByFFT().
+	 */
+	public static boolean fftSpatialAutocorrelation = true;
+	
+	/**
+	 * filter bank (IBSI 2), null-able.
+	 * Filters separated by ';', e.g. "log(1.5);laws(L5E5E5,7)", see FilterSpec.
+	 * Each filter response is computed once after the preprocessing, and the
+	 * intensity and texture families are computed on it as on the image.
+	 */
+	public static String imageFilters = null;
+	
+	/**
+	 * convolution of the filter bank, "auto", "separable" or "fft".
+	 * auto takes the 1D passes for small separable kernels and the FFT otherwise.
+	 */
+	public static String filterBackend = "auto";
+	
+	/**
+	 * number of feature families computed at the same time.
+	 * 0 : all cores (fork/join common pool), 1 : one after another, n : own pool of n threads.
+	 * The columns are in the same order whatever the value.
+	 */
+	public static Integer familyParallelism = 0;
+	
+	/**
+	 * NIfTI image and mask (.nii, .nii.gz) : number of voxels read around the bounding box of the roi.
+	 * Only that part of the volumes is read and preprocessed, see NiftiStreamReader.
+	 * -1 : the whole volume is read.
+	 */
+	public static Integer niftiLoadMargin = -1;
+	
+	/**
+	 * if true, the image and the mask are cut to the roi bounding box before the preprocessing,
+	 * with the neighbourhood the enabled families and filters read around the roi.
+	 * The resampling keeps the grid of the whole volume, so the features do not change,
+	 * except the diagnostics of the image size.
+	 */
+	public static boolean cropToRoi = false;
+	
+	/**
+	 * labels extracted in one pass over the mask, one row per label, null-able.
+	 * "all", or labels separated by ',', e.g. "1,3,5". null : targetLabel only.
+	 * The image is converted and resampled once, each label is then preprocessed
+	 * and computed on its own part of the volume, see extractLabels().
+	 */
+	public static String targetLabels = null;
+	
+	/**
+	 * force2D : number of slices computed at the same time.
+	 * Each slice is preprocessed and computed by its own instance, and the rows are kept in slice order.
+	 * 0 : all cores (fork/join common pool), 1 : one after another, n : own pool of n threads.
+	 */
+	public static Integer sliceParallelism = 1;
+	
 	//features
 	
 	/**
@@ -694,6 +865,7 @@ public class RadiomicsJ {
 	/**
 	 * Default constructor
 	 */
+	@SuppressWarnings("deprecation")
 	public RadiomicsJ() {
 		RadiomicsJ.discretiseImp = null;
 		/*
@@ -704,6 +876,52 @@ public class RadiomicsJ {
 		resetSettings();
 		initExcludeList();
 	}
+	
+	/**
+	 * Constructor with the calculation settings of this instance.
+	 * 
+	 * The static settings are neither read nor written, therefore instances
+	 * created by this constructor can run concurrently in the same JVM.
+	 * 
+	 * @param settings calculation settings, see ExtractionSettings.builder()
+	 */
+	public RadiomicsJ(ExtractionSettings settings) {
+		if(settings == null) {
+			throw new IllegalArgumentException("RadiomicsJ: settings must be non-null.");
+		}
+		this.settings = settings;
+		initExcludeList();
+	}
+	
+	/**
+	 * Calculation settings of this instance.
+	 * In legacy mode (default constructor), a snapshot of the current static settings.
+	 * @return ExtractionSettings
+	 */
+	public ExtractionSettings getSettings() {
+		if(settings != null) {
+			return settings;
+		}
+		ExtractionSettings.Builder b = ExtractionSettings.fromStatics().toBuilder();
+		b.enable(SettingParams.BOOL_enableOperationalInfo, BOOL_enableOperationalInfo);
+		b.enable(SettingParams.BOOL_enableDiagnostics, BOOL_enableDiagnostics);
+		b.enable(SettingParams.BOOL_enableMorphological, BOOL_enableMorphological);
+		b.enable(SettingParams.BOOL_enableLocalIntensityFeatures, BOOL_enableLocalIntensityFeatures);
+		b.enable(SettingParams.BOOL_enableIntensityBasedStatistics, BOOL_enableIntensityBasedStatistics);
+		b.enable(SettingParams.BOOL_enableIntensityHistogram, BOOL_enableIntensityHistogram);
+		b.enable(SettingParams.BOOL_enableIntensityVolumeHistogram, BOOL_enableIntensityVolumeHistogram);
+		b.enable(SettingParams.BOOL_enableGLCM, BOOL_enableGLCM);
+		b.enable(SettingParams.BOOL_enableGLRLM, BOOL_enableGLRLM);
+		b.enable(SettingParams.BOOL_enableGLSZM, BOOL_enableGLSZM);
+		b.enable(SettingParams.BOOL_enableGLDZM, BOOL_enableGLDZM);
+		b.enable(SettingParams.BOOL_enableGLAM, BOOL_enableGLAM);
+		b.enable(SettingParams.BOOL_enableNGTDM, BOOL_enableNGTDM);
+		b.enable(SettingParams.BOOL_enableNGLDM, BOOL_enableNGLDM);
+		b.enable(SettingParams.BOOL_enableHomological, BOOL_enableHomological);
+		b.enable(SettingParams.BOOL_enableFractal, BOOL_enableFractal);
+		b.enable(SettingParams.BOOL_enableShape2D, BOOL_enableShape2D);
+		return b.build();
+	}
 
 	/**
 	 * Restore all calculation settings to their default values.
@@ -739,6 +957,7 @@ public class RadiomicsJ {
 		deltaNGLevelDM = 1;
 		glamMaxRadius = 100;
 		glamMaxReferenceVoxels = 0;
+		glamFftPairCounts = false;
 		glamBoundaryCorrection = true;
 		glamNumRandomisations = 0;
 		glamRandomSeed = 42L;
@@ -751,6 +970,14 @@ public class RadiomicsJ {
 		resamplingFactorXYZ = null;
 		force2D = false;
 		activate_no_default_features = false;
+		fftSpatialAutocorrelation = true;
+		imageFilters = null;
+		filterBackend = "auto";
+		familyParallelism = 0;
+		niftiLoadMargin = -1;
+		cropToRoi = false;
+		targetLabels = null;
+		sliceParallelism = 1;
 	}
 	
 	/**
@@ -770,7 +997,8 @@ public class RadiomicsJ {
 		for(String excludedName : excluded_list) {
 			excluded.add(excludedName);
 		}
-		if(!activate_no_default_features) {
+		boolean noDefault = settings != null ? settings.isActivateNoDefaultFeatures() : activate_no_default_features;
+		if(!noDefault) {
 			for(String nodefaultName : no_default_list) {
 				excluded.add(nodefaultName);
 			}
@@ -891,457 +1119,32 @@ public class RadiomicsJ {
 			System.out.println("properties file is null. Calculation is performed by using default.");
 			return;
 		}
-		Set<Object> keys = prop.keySet();
-		for(Object key : keys) {
-			if(key instanceof String) {
-				String keyString = (String)key;
-				String val = prop.getProperty(keyString);
-				if(val == null) {
-					continue;
-				}
-				val = val.replace(" ", "");
-				val = val.replace("　", "");
-				val = val.replace("\n", "");
-				val = val.replace("\t", "");
-				if(val != null && val.length()!=0) {
-					if(keyString.equals(SettingParams.INT_label.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}else if(n>255){
-								n=255;
-							}
-							RadiomicsJ.targetLabel = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_binCount.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}
-							RadiomicsJ.nBins = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_interpolation2D.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0 || n > 2) {
-								n = 0;
-							}
-							RadiomicsJ.interpolation2D = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_interpolation_mask2D.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0 || n > 2) {
-								n = 0;
-							}
-							RadiomicsJ.interpolation_mask2D = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_interpolation3D.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0) {
-								n = 0;
-							}
-							RadiomicsJ.interpolation3D = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_interpolation_mask3D.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0) {
-								n = 0;
-							}
-							RadiomicsJ.interpolation_mask3D = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_binWidth.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							if(n < 0d) {
-								continue;
-							}
-							RadiomicsJ.binWidth = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_zScore.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							if(n < 0d) {
-								continue;
-							}
-							RadiomicsJ.zScore = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_normalizeScale.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							if(n < 0d) {
-								continue;
-							}
-							RadiomicsJ.normalizeScale = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_densityShift.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							if(n < 0d) {
-								System.out.println("RadiomicsJ:loadSettings::DOUBLE_densityShift must be non negative, but "
-										+ n + " was given. It is ignored, and " + RadiomicsJ.densityShift + " is used.");
-								continue;
-							}
-							RadiomicsJ.densityShift = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_rangeMax.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							RadiomicsJ.rangeMax = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_rangeMin.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							RadiomicsJ.rangeMin = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_alpha.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0) {
-								n = 0;
-							}
-							RadiomicsJ.alpha = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_deltaGLCM.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}
-							RadiomicsJ.deltaGLCM = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_deltaNGTDM.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}
-							RadiomicsJ.deltaNGToneDM = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_deltaNGLDM.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}
-							RadiomicsJ.deltaNGLevelDM = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_GLAM_maxRadius.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 2) {
-								n = 2;
-							}
-							RadiomicsJ.glamMaxRadius = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_GLAM_maxReferenceVoxels.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0) {
-								n = 0;
-							}
-							RadiomicsJ.glamMaxReferenceVoxels = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.BOOL_GLAM_boundaryCorrection.name())) {
-						RadiomicsJ.glamBoundaryCorrection = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.INT_GLAM_numRandomisations.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0) {
-								n = 0;
-							}
-							RadiomicsJ.glamNumRandomisations = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.LONG_GLAM_randomSeed.name())) {
-						try{
-							RadiomicsJ.glamRandomSeed = Long.valueOf(val);
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_GLAM_savitzkyGolayWindow.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 3) {
-								n = 3;
-							}
-							if(n % 2 == 0) {
-								//the window has to be odd, so that it has a centre sample
-								n = n + 1;
-							}
-							RadiomicsJ.glamSavitzkyGolayWindow = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_GLAM_savitzkyGolayPolynomial.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}
-							RadiomicsJ.glamSavitzkyGolayPolynomial = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_GLAM_peakProminence.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							if(n < 0d) {
-								n = 0d;
-							}
-							RadiomicsJ.glamPeakProminence = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_GLAM_maxLocalShellRadius.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}
-							RadiomicsJ.glamMaxLocalShellRadius = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.STRING_weightingNorm.name())) {
-						if(val.length()<1) {
-							RadiomicsJ.weightingNorm = null;//default
-						}else {
-							RadiomicsJ.weightingNorm = Utils.isValidWeightingNormName(val) ? val:null;
-						}
-					}
-					//INTARRAY_box_sizes
-					if(keyString.equals(SettingParams.INTARRAY_box_sizes.name())) {
-						if(val.length()<1) {
-							RadiomicsJ.box_sizes = null;//default
-						}else {
-							//if string parsing was failed, set null automatically.
-							RadiomicsJ.box_sizes = Utils.s2ints(val);
-						}
-					}
-					if(keyString.equals(SettingParams.INT_IVH_binCount.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 1) {
-								n = 1;
-							}
-							RadiomicsJ.IVH_binCount = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.DOUBLE_IVH_binWidth.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							if(n < 0) {
-								n = Math.abs(n);
-							}
-							RadiomicsJ.IVH_binWidth = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.INT_IVH_MODE.name())) {
-						try{
-							Integer n = Integer.valueOf(val);
-							if(n < 0) {
-								n = 0;
-							}
-							RadiomicsJ.IVH_mode = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.BOOL_USE_FixedBinNumber.name())) {
-						RadiomicsJ.BOOL_USE_FixedBinNumber = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_normalize.name())) {
-						RadiomicsJ.normalize = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_removeOutliers.name())) {
-						RadiomicsJ.removeOutliers = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					//DOUBLEARRAY_resamplingFactorXYZ
-					if(keyString.equals(SettingParams.DOUBLEARRAY_resamplingFactorXYZ.name())) {
-						if(val.length()<1) {
-							RadiomicsJ.resamplingFactorXYZ = null;//default
-						}else {
-							//if string parsing was failed, set null automatically.
-							RadiomicsJ.resamplingFactorXYZ = Utils.s2doubles(val);
-						}
-					}
-					if(keyString.equals(SettingParams.BOOL_force2D.name())) {
-						RadiomicsJ.force2D = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_activate_no_default_features.name())) {
-						RadiomicsJ.activate_no_default_features = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.DOUBLE_Mask_PartialVolumeThareshold.name())) {
-						try{
-							Double n = Double.valueOf(val);
-							if(n < 0 || n > 0.999) {
-								n = 0.5;
-							}
-							RadiomicsJ.mask_PartialVolumeThreshold = n;
-						}catch(NumberFormatException e) {
-							//keep default
-							continue;
-						}
-					}
-					if(keyString.equals(SettingParams.BOOL_interpolation_intensity_rounding.name())) {
-						RadiomicsJ.interpolation_intensity_rounding = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					
-					/*
-					 * features
-					 */
-					if(keyString.equals(SettingParams.BOOL_enableOperationalInfo.name())) {
-						this.BOOL_enableOperationalInfo = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableDiagnostics.name())) {
-						this.BOOL_enableDiagnostics = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableIntensityBasedStatistics.name())) {
-						this.BOOL_enableIntensityBasedStatistics = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableIntensityHistogram.name())) {
-						this.BOOL_enableIntensityHistogram = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableIntensityVolumeHistogram.name())) {
-						this.BOOL_enableIntensityVolumeHistogram = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableMorphological.name())) {
-						this.BOOL_enableMorphological = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableLocalIntensityFeatures.name())) {
-						this.BOOL_enableLocalIntensityFeatures = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableGLCM.name())) {
-						this.BOOL_enableGLCM = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableGLRLM.name())) {
-						this.BOOL_enableGLRLM = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableGLSZM.name())) {
-						this.BOOL_enableGLSZM = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableGLDZM.name())) {
-						this.BOOL_enableGLDZM = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableGLAM.name())) {
-						this.BOOL_enableGLAM = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableNGTDM.name())) {
-						this.BOOL_enableNGTDM = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableNGLDM.name())) {
-						this.BOOL_enableNGLDM = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableHomological.name())) {
-						this.BOOL_enableHomological = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableFractal.name())) {
-						this.BOOL_enableFractal = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-					if(keyString.equals(SettingParams.BOOL_enableShape2D.name())) {
-						this.BOOL_enableShape2D = val.equals("1") || val.toLowerCase().equals("true") ? true:false;
-					}
-				}
-			}
+		if(settings != null) {
+			settings = settings.toBuilder().load(prop).build();
+			return;
 		}
+		/*
+		 * legacy mode, write back to the static settings and the family flags.
+		 */
+		ExtractionSettings loaded = getSettings().toBuilder().load(prop).build();
+		loaded.applyToStatics();
+		this.BOOL_enableOperationalInfo = loaded.isEnabled(SettingParams.BOOL_enableOperationalInfo);
+		this.BOOL_enableDiagnostics = loaded.isEnabled(SettingParams.BOOL_enableDiagnostics);
+		this.BOOL_enableMorphological = loaded.isEnabled(SettingParams.BOOL_enableMorphological);
+		this.BOOL_enableLocalIntensityFeatures = loaded.isEnabled(SettingParams.BOOL_enableLocalIntensityFeatures);
+		this.BOOL_enableIntensityBasedStatistics = loaded.isEnabled(SettingParams.BOOL_enableIntensityBasedStatistics);
+		this.BOOL_enableIntensityHistogram = loaded.isEnabled(SettingParams.BOOL_enableIntensityHistogram);
+		this.BOOL_enableIntensityVolumeHistogram = loaded.isEnabled(SettingParams.BOOL_enableIntensityVolumeHistogram);
+		this.BOOL_enableGLCM = loaded.isEnabled(SettingParams.BOOL_enableGLCM);
+		this.BOOL_enableGLRLM = loaded.isEnabled(SettingParams.BOOL_enableGLRLM);
+		this.BOOL_enableGLSZM = loaded.isEnabled(SettingParams.BOOL_enableGLSZM);
+		this.BOOL_enableGLDZM = loaded.isEnabled(SettingParams.BOOL_enableGLDZM);
+		this.BOOL_enableGLAM = loaded.isEnabled(SettingParams.BOOL_enableGLAM);
+		this.BOOL_enableNGTDM = loaded.isEnabled(SettingParams.BOOL_enableNGTDM);
+		this.BOOL_enableNGLDM = loaded.isEnabled(SettingParams.BOOL_enableNGLDM);
+		this.BOOL_enableHomological = loaded.isEnabled(SettingParams.BOOL_enableHomological);
+		this.BOOL_enableFractal = loaded.isEnabled(SettingParams.BOOL_enableFractal);
+		this.BOOL_enableShape2D = loaded.isEnabled(SettingParams.BOOL_enableShape2D);
 	}
 	
 	/**
@@ -1375,17 +1178,20 @@ public class RadiomicsJ {
 	}
 
 	public void preprocess(ImagePlus originalImp, ImagePlus originalMask, Integer targetLabel) throws Exception {
+		discretisedImp = null;
+		filteredImps = null;
 		if(originalMask == null) {
 			int w = originalImp.getWidth();
 			int h = originalImp.getHeight();
 			int s = originalImp.getNSlices();
 			originalMask = ImagePreprocessing.createMask(w, h, s, null, label_, originalImp.getCalibration().pixelWidth, originalImp.getCalibration().pixelHeight, originalImp.getCalibration().pixelDepth);
 		}
+		ImagePlus[] cropped = preprocessCrop(originalImp, originalMask, targetLabel);
 		if(debug) {
 			System.out.println("preparing analysis images ...");
 		}
 		//label to 1.
-		preprocessAnalysisReady(originalImp, originalMask, targetLabel);
+		preprocessAnalysisReady(cropped[0], cropped[1], targetLabel);
 		
 		if(currentImp == null || currentMask == null) {
 			System.out.println("RadiomicsJ:preprocess()::Creating Mask was failed. return.");
@@ -1396,6 +1202,13 @@ public class RadiomicsJ {
 			System.out.println("perform resampling ...");
 		}
 		preprocessResample(currentImp, currentMask);
+		preprocessResampled();
+	}
+	
+	/**
+	 * re-segmentation, normalisation, filtering and discretisation of resampledImp and resampledMask.
+	 */
+	private void preprocessResampled() throws Exception {
 		if(debug) {
 			System.out.println("perform re-segmentation ...");
 		}
@@ -1404,18 +1217,127 @@ public class RadiomicsJ {
 		/*
 		 * normalize
 		 */
-		if(normalize) {
+		ExtractionSettings s = getSettings();
+		if(s.isNormalize()) {
 			if(debug) {
 				System.out.println("perform normalization ...");
 			}
-			resampledImp = ImagePreprocessing.normalize(resampledImp, resegmentedMask, RadiomicsJ.label_);
+			resampledImp = ImagePreprocessing.normalize(resampledImp, resegmentedMask, RadiomicsJ.label_, s.getNormalizeScale());
 		}
+		preprocessFilter(resampledImp);
 		if(debug) {
 			System.out.println("perform discretisation ...");
 		}
 		preprocessDiscretise(resampledImp, resegmentedMask, RadiomicsJ.label_);
 	}
 	
+	/**
+	 * Cut the image and the mask to the roi bounding box (BOOL_cropToRoi),
+	 * with the neighbourhood the enabled families and filters read around the roi.
+	 * 
+	 * If the image is resampled, the box is taken on the interpolation grid of the whole volume,
+	 * and preprocessResample() computes that part of the grid only. The analysis ready voxels
+	 * of the roi and of its neighbourhood are then those of the whole volume.
+	 * An image read around the roi (NiftiStreamReader.FULL_SIZE) always goes this way,
+	 * so that it is resampled on the grid of the whole volume too.
+	 * force2D resamples slice by slice and is not cut.
+	 * 
+	 * @param img
+	 * @param mask
+	 * @param targetLabel
+	 * @return {image, mask}, as is if there is nothing to cut.
+	 */
+	public ImagePlus[] preprocessCrop(ImagePlus img, ImagePlus mask, Integer targetLabel) {
+		resamplingGrid = null;
+		ExtractionSettings s = getSettings();
+		Object fullSize = img.getProperty(NiftiStreamReader.FULL_SIZE);
+		if((!s.isCropToRoi() && !(fullSize instanceof int[])) || s.isForce2D() || targetLabel == null) {
+			return new ImagePlus[] {img, mask};
+		}
+		int[] box = Utils.roiBoundingBox(mask, targetLabel);
+		if(box == null) {
+			//preprocessAnalysisReady() tells it.
+			return new ImagePlus[] {img, mask};
+		}
+		int[] size = {img.getWidth(), img.getHeight(), img.getNSlices()};
+		Calibration cal = img.getCalibration();
+		double[] spacing = {cal.pixelWidth, cal.pixelHeight, cal.pixelDepth};
+		double[] resamplingFactorXYZ = s.getResamplingFactorXYZ();
+		int[] padding = cropPadding(s, resamplingFactorXYZ != null ? resamplingFactorXYZ : spacing);
+		int[] crop = new int[6];
+		if(resamplingFactorXYZ != null) {
+			// position of this image in the whole volume
+			int[] full = size;
+			int[] offset = new int[3];
+			if(fullSize instanceof int[]) {
+				full = (int[]) fullSize;
+				offset = new int[] {(int) -Math.round(cal.xOrigin), (int) -Math.round(cal.yOrigin), (int) -Math.round(cal.zOrigin)};
+			}
+			int[] available = new int[6];
+			for(int a = 0; a < 3; a++) {
+				box[a] += offset[a];
+				box[a + 3] += offset[a];
+				available[a] = offset[a];
+				available[a + 3] = offset[a] + size[a] - 1;
+			}
+			double[] scale = {spacing[0] / resamplingFactorXYZ[0], spacing[1] / resamplingFactorXYZ[1], spacing[2] / resamplingFactorXYZ[2]};
+			resamplingGrid = ResamplingGrid.around(full, scale, box, padding, available);
+			int[] source = resamplingGrid.getSourceBox();
+			for(int a = 0; a < 3; a++) {
+				crop[a] = source[a] - offset[a];
+				crop[a + 3] = source[a + 3] - offset[a];
+			}
+		}else {
+			for(int a = 0; a < 3; a++) {
+				crop[a] = Math.max(0, box[a] - padding[a]);
+				crop[a + 3] = Math.min(size[a] - 1, box[a + 3] + padding[a]);
+			}
+		}
+		if(debug) {
+			System.out.println("crop to roi ... " + Arrays.toString(crop));
+		}
+		return new ImagePlus[] {Utils.crop(img, crop), Utils.crop(mask, crop)};
+	}
+	
+	/**
+	 * Voxels the enabled families and filters read around a roi voxel, at least 1.
+	 * @param s settings
+	 * @param spacing {x, y, z} voxel size of the analysis ready image
+	 * @return {x, y, z} in voxels
+	 */
+	static int[] cropPadding(ExtractionSettings s, double[] spacing) {
+		int voxels = 1;
+		if(s.isEnabled(SettingParams.BOOL_enableGLCM)) {
+			voxels = Math.max(voxels, s.getDeltaGLCM());
+		}
+		if(s.isEnabled(SettingParams.BOOL_enableNGTDM)) {
+			voxels = Math.max(voxels, s.getDeltaNGTDM());
+		}
+		if(s.isEnabled(SettingParams.BOOL_enableNGLDM)) {
+			voxels = Math.max(voxels, s.getDeltaNGLDM());
+		}
+		if(s.isEnabled(SettingParams.BOOL_enableGLAM)) {
+			voxels = Math.max(voxels, s.getGlamMaxRadius());
+		}
+		int[] padding = {voxels, voxels, voxels};
+		if(s.isEnabled(SettingParams.BOOL_enableLocalIntensityFeatures)) {
+			//radius of the 1 cm3 sphere, see LocalIntensityFeatures.
+			double r = Math.cbrt(3/(4*Math.PI)) * 10;
+			for(int a = 0; a < 3; a++) {
+				padding[a] = Math.max(padding[a], (int) Math.ceil(r / spacing[a]));
+			}
+		}
+		List<FilterSpec> specs = FilterSpec.parseList(s.getImageFilters());
+		if(!specs.isEmpty()) {
+			//the families read the responses around the roi, the responses read the image around them.
+			int[] reach = FilterBank.reach(specs, spacing);
+			for(int a = 0; a < 3; a++) {
+				padding[a] += reach[a];
+			}
+		}
+		return padding;
+	}
+	
 	/**
 	 * convert to float32 and,
 	 * mask label will convert label(1), this is because deal with partial volume effects at interpolation.
@@ -1445,21 +1367,25 @@ public class RadiomicsJ {
 	 * @return
 	 */
 	public ImagePlus[] preprocessResample(ImagePlus img, ImagePlus mask) {
+		ExtractionSettings s = getSettings();
+		double[] resamplingFactorXYZ = s.getResamplingFactorXYZ();
 		if(resamplingFactorXYZ != null) {
-			if(force2D) {
+			double pvThreshold = s.getMaskPartialVolumeThreshold();
+			if(s.isForce2D()) {
 				//ignore z
-				resampledImp = Utils.resample2D(img, false, resamplingFactorXYZ[0], resamplingFactorXYZ[1], RadiomicsJ.interpolation2D);
-				resampledMask = Utils.resample2D(mask, true, resamplingFactorXYZ[0], resamplingFactorXYZ[1], RadiomicsJ.interpolation_mask2D);
+				resampledImp = Utils.resample2D(img, false, resamplingFactorXYZ[0], resamplingFactorXYZ[1], s.getInterpolation2D(), pvThreshold);
+				resampledMask = Utils.resample2D(mask, true, resamplingFactorXYZ[0], resamplingFactorXYZ[1], s.getInterpolationMask2D(), pvThreshold);
 			}else {
-				// trilinear interpolation
-				resampledImp = Utils.resample3D(img, false, resamplingFactorXYZ[0], resamplingFactorXYZ[1], resamplingFactorXYZ[2]);
-				resampledMask = Utils.resample3D(mask, true, resamplingFactorXYZ[0], resamplingFactorXYZ[1], resamplingFactorXYZ[2], RadiomicsJ.interpolation_mask3D);
+				// trilinear interpolation, on the part of the grid preprocessCrop() took.
+				ResamplingGrid grid = resamplingGrid != null && resamplingGrid.fits(img) ? resamplingGrid : null;
+				resampledImp = Utils.resample3D(img, false, resamplingFactorXYZ[0], resamplingFactorXYZ[1], resamplingFactorXYZ[2], s.getInterpolation3D(), pvThreshold, grid);
+				resampledMask = Utils.resample3D(mask, true, resamplingFactorXYZ[0], resamplingFactorXYZ[1], resamplingFactorXYZ[2], s.getInterpolationMask3D(), pvThreshold, grid);
 			}
 			/*
 			 * IBSI table 5.1 : intensity rounding, nearest integer.
 			 * Only interpolated images are rounded, masks are binary already.
 			 */
-			if(interpolation_intensity_rounding) {
+			if(s.isInterpolationIntensityRounding()) {
 				resampledImp = Utils.roundIntensitiesToNearestInteger(resampledImp);
 			}
 		}else {
@@ -1479,18 +1405,19 @@ public class RadiomicsJ {
 	 */
 	public ImagePlus preprocessResegment(ImagePlus img, ImagePlus mask, Integer targetLabel) {
 		
+		ExtractionSettings s = getSettings();
 		/*
 		 * rangeFilter
 		 */
-		if(rangeMax != null && rangeMin != null) {
-			resegmentedMask = ImagePreprocessing.rangeFiltering(img, mask, targetLabel, rangeMax, rangeMin);
+		if(s.getRangeMax() != null && s.getRangeMin() != null) {
+			resegmentedMask = ImagePreprocessing.rangeFiltering(img, mask, targetLabel, s.getRangeMax(), s.getRangeMin());
 		}else {
 			resegmentedMask = Utils.createMaskCopy(mask);
 		}
 		
-		if(removeOutliers) {
+		if(s.isRemoveOutliers()) {
 			// get new mask removed outliers
-			resegmentedMask = ImagePreprocessing.outlierFiltering(img, resegmentedMask, targetLabel);
+			resegmentedMask = ImagePreprocessing.outlierFiltering(img, resegmentedMask, targetLabel, s.getZScore());
 		}
 		
 		if(resegmentedMask == null) {
@@ -1500,7 +1427,27 @@ public class RadiomicsJ {
 	}
 	
 	/**
-	 * create discretise image.
+	 * Responses of the filter bank (STRING_imageFilters), computed once for all
+	 * the families of the extraction. Does nothing if no filter is set.
+	 * @param img analysis ready image
+	 * @return response of each filter, null if no filter is set.
+	 */
+	public LinkedHashMap<FilterSpec, ImagePlus> preprocessFilter(ImagePlus img) {
+		filteredImps = null;
+		ExtractionSettings s = getSettings();
+		List<FilterSpec> specs = FilterSpec.parseList(s.getImageFilters());
+		if(specs.isEmpty()) {
+			return null;
+		}
+		if(debug) {
+			System.out.println("perform filtering ...");
+		}
+		filteredImps = new FilterBank(img, s.getFilterBackend()).responses(specs);
+		return filteredImps;
+	}
+	
+	/**
+	 * create discretise image.
 	 * 
 	 * @param resampled resampled image stack
 	 * @param resegmentedMask resampled and resegmented mask stack
@@ -1509,26 +1456,27 @@ public class RadiomicsJ {
 	 * @throws Exception
 	 */
 	public ImagePlus preprocessDiscretise(ImagePlus resampled, ImagePlus resegmentedMask, Integer targetLabel) throws Exception {
-		discretiseImp = null;
-		if(BOOL_USE_FixedBinNumber) {
-			nBinsForCalculation = RadiomicsJ.nBins;
-			discretiseImp = Utils.discrete(resampled, resegmentedMask, targetLabel, RadiomicsJ.nBins);
+		ExtractionSettings s = getSettings();
+		discretisedImp = null;
+		if(s.isUseFixedBinNumber()) {
+			nBinsForCalculation = s.getNBins();
+			discretisedImp = Utils.discrete(resampled, resegmentedMask, targetLabel, s.getNBins());
 		}else {
 			/*
 			 * Fixed Bin Width
 			 */
-			discretiseImp = Utils.discreteByBinWidth(resampled, resegmentedMask, targetLabel, binWidth);
-			if(discretiseImp == null) {
+			discretisedImp = Utils.discreteByBinWidth(resampled, resegmentedMask, targetLabel, s.getBinWidth(), s.getRangeMin());
+			if(discretisedImp == null) {
 				throw new Exception("RadiomicsJ:preprocessDiscretise::Discretisation by fixed bin width was failed. "
-						+ "Please check DOUBLE_binWidth (current:" + binWidth + ") and the input images.");
+						+ "Please check DOUBLE_binWidth (current:" + s.getBinWidth() + ") and the input images.");
 			}
 			/*
 			 * The bin count of fixed bin width is a RESULT of the discretisation.
-			 * Keep it separately, never overwrite the user setting RadiomicsJ.nBins.
+			 * Keep it separately, never overwrite the user setting nBins.
 			 */
-			nBinsForCalculation = Utils.getNumOfBinsByMax(discretiseImp, resegmentedMask, targetLabel);
+			nBinsForCalculation = Utils.getNumOfBinsByMax(discretisedImp, resegmentedMask, targetLabel);
 		}
-		return discretiseImp;
+		return discretisedImp;
 	}
 	
 	public ResultsTable execute(String imgSeriesFileFolder, String maskSeriesFileFolder, Integer targetLabel) throws Exception {
@@ -1547,7 +1495,9 @@ public class RadiomicsJ {
 	 * @throws Exception
 	 */
 	public ResultsTable execute(File imgSeriesFileFolder, File maskSeriesFileFolder, Integer targetLabel) throws Exception {
-		if(activate_no_default_features) {
+		ExtractionSettings s = getSettings();
+		boolean force2D = s.isForce2D();
+		if(s.isActivateNoDefaultFeatures()) {
 			activateNoDefaultFeatures();
 		}
 		
@@ -1561,15 +1511,11 @@ public class RadiomicsJ {
 		 */
 		if(imgSeriesFileFolder.isFile()) {
 			if(imgSeriesFileFolder.getName().endsWith(".nii.gz") || imgSeriesFileFolder.getName().endsWith(".nii")) {
-				String p2i = imgSeriesFileFolder.getAbsolutePath();
-				String p2m = maskSeriesFileFolder.getAbsolutePath();
-				Nifti_Reader reader = new Nifti_Reader();
-				ImagePlus img = reader.load(new File(p2i).getParentFile().getAbsolutePath(), new File(p2i).getName());
-				ImagePlus mask = reader.load(new File(p2m).getParentFile().getAbsolutePath(), new File(p2m).getName());
+				ImagePlus[] imgAndMask = loadNifti(imgSeriesFileFolder, maskSeriesFileFolder, targetLabel, s.getNiftiLoadMargin());
 				if(force2D) {
-					return extractAllSlice((ImagePlus)img,(ImagePlus)mask,targetLabel);
+					return extractAllSlice(imgAndMask[0],imgAndMask[1],targetLabel);
 				}else {
-					return extractAll((ImagePlus)img,(ImagePlus)mask,targetLabel);
+					return extractAll(imgAndMask[0],imgAndMask[1],targetLabel);
 				}
 			}else if(imgSeriesFileFolder.getName().endsWith(".tif") || imgSeriesFileFolder.getName().endsWith(".tiff")) {
 				String p2i = imgSeriesFileFolder.getAbsolutePath();
@@ -1586,15 +1532,11 @@ public class RadiomicsJ {
 			imgSeriesFileFolder = imgSeriesFileFolder.listFiles()[0];
 			maskSeriesFileFolder = maskSeriesFileFolder.listFiles()[0];
 			if(imgSeriesFileFolder.getName().endsWith(".nii.gz") || imgSeriesFileFolder.getName().endsWith(".nii")) {
-				String p2i = imgSeriesFileFolder.getAbsolutePath();
-				String p2m = maskSeriesFileFolder.getAbsolutePath();
-				Nifti_Reader reader = new Nifti_Reader();
-				ImagePlus img = reader.load(new File(p2i).getParentFile().getAbsolutePath(), new File(p2i).getName());
-				ImagePlus mask = reader.load(new File(p2m).getParentFile().getAbsolutePath(), new File(p2m).getName());
+				ImagePlus[] imgAndMask = loadNifti(imgSeriesFileFolder, maskSeriesFileFolder, targetLabel, s.getNiftiLoadMargin());
 				if(force2D) {
-					return extractAllSlice((ImagePlus)img,(ImagePlus)mask,targetLabel);
+					return extractAllSlice(imgAndMask[0],imgAndMask[1],targetLabel);
 				}else {
-					return extractAll((ImagePlus)img,(ImagePlus)mask,targetLabel);
+					return extractAll(imgAndMask[0],imgAndMask[1],targetLabel);
 				}
 			}else if(imgSeriesFileFolder.getName().endsWith(".tif") || imgSeriesFileFolder.getName().endsWith(".tiff")) {
 				String p2i = imgSeriesFileFolder.getAbsolutePath();
@@ -1616,6 +1558,32 @@ public class RadiomicsJ {
 		}
 	}
 	
+	/**
+	 * Reads a NIfTI image and its mask.
+	 * @param margin voxels read around the roi bounding box, -1 : the whole volumes.
+	 * @return {image, mask}
+	 * @throws IOException
+	 */
+	private ImagePlus[] loadNifti(File imgFile, File maskFile, Integer targetLabel, int margin) throws IOException {
+		//several labels read the whole volume.
+		if(margin >= 0 && getSettings().getTargetLabels() == null) {
+			int label = targetLabel != null ? targetLabel : getSettings().getTargetLabel();
+			try {
+				ImagePlus[] imgAndMask = NiftiStreamReader.readAroundRoi(imgFile, maskFile, label, margin);
+				if(imgAndMask != null) {
+					return imgAndMask;
+				}
+				System.out.println("RadiomicsJ: label " + label + " is not found in " + maskFile.getName() + ", read the whole volume.");
+			}catch(IllegalArgumentException e) {
+				System.out.println(e.getMessage() + " read the whole volume.");
+			}
+		}
+		Nifti_Reader reader = new Nifti_Reader();
+		ImagePlus img = reader.load(imgFile.getParentFile().getAbsolutePath(), imgFile.getName());
+		ImagePlus mask = reader.load(maskFile.getParentFile().getAbsolutePath(), maskFile.getName());
+		return new ImagePlus[] {img, mask};
+	}
+	
 	/**
 	 * 
 	 * @param img
@@ -1625,10 +1593,11 @@ public class RadiomicsJ {
 	 * @throws Exception
 	 */
 	public ResultsTable execute(ImagePlus img, ImagePlus mask, Integer targetLabel) throws Exception {
-		if(activate_no_default_features) {
+		ExtractionSettings s = getSettings();
+		if(s.isActivateNoDefaultFeatures()) {
 			activateNoDefaultFeatures();
 		}
-		if(force2D) {
+		if(s.isForce2D()) {
 			return extractAllSlice(img, mask, targetLabel);
 		}else {
 			return extractAll(img, mask, targetLabel);
@@ -1644,6 +1613,10 @@ public class RadiomicsJ {
 	 * @throws Exception
 	 */
 	public ResultsTable extractAll(ImagePlus img, ImagePlus mask, Integer targetLabel) throws Exception {
+		int[] labels = getSettings().getTargetLabels();
+		if(labels != null && mask != null) {
+			return extractLabels(img, mask, labels);
+		}
 		originalImp = img;
 		originalMask = mask;
 		/*
@@ -1656,6 +1629,172 @@ public class RadiomicsJ {
 		return compute(resampledImp, resegmentedMask,RadiomicsJ.label_);
 	}
 	
+	/**
+	 * Several labels of a label map in one pass, one row per label (STRING_targetLabels).
+	 * 
+	 * The labels and their bounding boxes are found in one scan of the mask, and the image
+	 * is converted and resampled once. Each label is then preprocessed and computed on its
+	 * own part of the volume, the roi with the neighbourhood the families read, as BOOL_cropToRoi does.
+	 * The parts are cut from the resampling grid of the whole volume, so each row is the one
+	 * execute() gives for that label with BOOL_cropToRoi.
+	 * Labels are computed in parallel, each by its own instance with the settings of this one.
+	 * force2D computes the labels one after another, slice by slice (see INT_sliceParallelism).
+	 * 
+	 * @param img image
+	 * @param mask label map
+	 * @param labels labels to extract, null or empty : all the labels of the mask.
+	 * @return one row per label (per slice and label if force2D), in ascending label order.
+	 * The label is the row label, ResultsTable.getLabel(row). null if no label is found.
+	 */
+	public ResultsTable extractLabels(ImagePlus img, ImagePlus mask, int[] labels) {
+		if(img == null || mask == null) {
+			throw new IllegalArgumentException("RadiomicsJ: extractLabels needs an image and a label map.");
+		}
+		ExtractionSettings s = getSettings();
+		TreeMap<Integer, int[]> boxes = Utils.labelBoundingBoxes(mask);
+		if(labels != null && labels.length > 0) {
+			TreeMap<Integer, int[]> requested = new TreeMap<>();
+			for(int label : labels) {
+				if(!boxes.containsKey(label)) {
+					System.out.println("RadiomicsJ: label " + label + " is not found in the mask, skip.");
+					continue;
+				}
+				requested.put(label, boxes.get(label));
+			}
+			boxes = requested;
+		}
+		if(boxes.isEmpty()) {
+			System.out.println("RadiomicsJ: no label to extract.");
+			return null;
+		}
+		if(debug) {
+			System.out.println("extract labels ... " + boxes.keySet());
+		}
+		//each instance computes one label.
+		ExtractionSettings labelSettings = s.toBuilder().targetLabels(null).build();
+		ResultsTable rt = new ResultsTable();
+		if(s.isForce2D()) {
+			for(Integer label : boxes.keySet()) {
+				appendRows(rt, workerInstance(labelSettings).extractAllSlice(img, mask, label), label);
+			}
+			return rt.size() == 0 ? null : rt;
+		}
+		ImagePlus image = Utils.createImageCopyAsFloat(img, false);
+		ImagePlus resampled = null;
+		double[] resamplingFactorXYZ = s.getResamplingFactorXYZ();
+		if(resamplingFactorXYZ != null) {
+			resampled = Utils.resample3D(image, false, resamplingFactorXYZ[0], resamplingFactorXYZ[1], resamplingFactorXYZ[2],
+					s.getInterpolation3D(), s.getMaskPartialVolumeThreshold());
+			if(s.isInterpolationIntensityRounding()) {
+				resampled = Utils.roundIntensitiesToNearestInteger(resampled);
+			}
+		}
+		final ImagePlus resampledImage = resampled;
+		List<ResultsTable> tables = new ArrayList<>(boxes.entrySet()).parallelStream().map(e -> {
+			try {
+				return workerInstance(labelSettings).extractLabel(img, mask, image, resampledImage, e.getKey(), e.getValue());
+			} catch (Exception ex) {
+				System.err.println("RadiomicsJ: label " + e.getKey() + " could not be computed, skip.");
+				ex.printStackTrace();
+				return null;
+			}
+		}).collect(Collectors.toList());
+		int i = 0;
+		for(Integer label : boxes.keySet()) {
+			appendRows(rt, tables.get(i++), label);
+		}
+		return rt.size() == 0 ? null : rt;
+	}
+	
+	/**
+	 * instance computing one label or one slice, with its own preprocessing state.
+	 */
+	private RadiomicsJ workerInstance(ExtractionSettings workerSettings) {
+		RadiomicsJ radiomics = new RadiomicsJ(workerSettings);
+		radiomics.excluded = new HashSet<>(excluded);
+		return radiomics;
+	}
+	
+	/**
+	 * preprocess() and compute() of one label of extractLabels().
+	 * @param image img as float, see preprocessAnalysisReady()
+	 * @param resampled image resampled on the grid of the whole volume, null if not resampled.
+	 * @param box bounding box of the label in mask
+	 */
+	private ResultsTable extractLabel(ImagePlus img, ImagePlus mask, ImagePlus image, ImagePlus resampled, int label, int[] box) throws Exception {
+		ExtractionSettings s = getSettings();
+		originalImp = img;
+		originalMask = mask;
+		discretisedImp = null;
+		filteredImps = null;
+		Calibration cal = image.getCalibration();
+		double[] spacing = {cal.pixelWidth, cal.pixelHeight, cal.pixelDepth};
+		double[] resamplingFactorXYZ = s.getResamplingFactorXYZ();
+		int[] padding = cropPadding(s, resamplingFactorXYZ != null ? resamplingFactorXYZ : spacing);
+		int[] size = {image.getWidth(), image.getHeight(), image.getNSlices()};
+		ResamplingGrid grid = null;
+		int[] crop = new int[6];
+		if(resamplingFactorXYZ != null) {
+			double[] scale = {spacing[0] / resamplingFactorXYZ[0], spacing[1] / resamplingFactorXYZ[1], spacing[2] / resamplingFactorXYZ[2]};
+			grid = ResamplingGrid.around(size, scale, box, padding, null);
+			crop = grid.getSourceBox();
+		}else {
+			for(int a = 0; a < 3; a++) {
+				crop[a] = Math.max(0, box[a] - padding[a]);
+				crop[a + 3] = Math.min(size[a] - 1, box[a + 3] + padding[a]);
+			}
+		}
+		currentImp = Utils.crop(image, crop);
+		currentMask = Utils.initMaskAsFloatAndConvertLabelOne(Utils.crop(mask, crop), label);
+		if(grid != null) {
+			int[] start = grid.getStart();
+			resampledImp = Utils.crop(resampled, new int[] {start[0], start[1], start[2],
+					start[0] + grid.getWidth() - 1, start[1] + grid.getHeight() - 1, start[2] + grid.getSlices() - 1});
+			//calibration of currentImp resampled, as Utils.resample3D() gives it.
+			Calibration resampledCal = currentImp.getCalibration().copy();
+			resampledCal.pixelWidth = resamplingFactorXYZ[0];
+			resampledCal.pixelHeight = resamplingFactorXYZ[1];
+			resampledCal.pixelDepth = resamplingFactorXYZ[2];
+			resampledImp.setCalibration(resampledCal);
+			resampledImp.getCalibration().disableDensityCalibration();
+			resampledMask = Utils.resample3D(currentMask, true, resamplingFactorXYZ[0], resamplingFactorXYZ[1], resamplingFactorXYZ[2],
+					s.getInterpolationMask3D(), s.getMaskPartialVolumeThreshold(), grid);
+		}else {
+			resampledImp = Utils.createImageCopy(currentImp);
+			resampledMask = Utils.createMaskCopy(currentMask);
+		}
+		if(Utils.isBlankMaskStack(resampledMask, RadiomicsJ.label_)) {
+			System.out.println("RadiomicsJ: label " + label + " has no voxel after resampling, skip.");
+			return null;
+		}
+		preprocessResampled();
+		return compute(resampledImp, resegmentedMask, RadiomicsJ.label_);
+	}
+	
+	/**
+	 * rows of table to rt, with the label as row label.
+	 */
+	private static void appendRows(ResultsTable rt, ResultsTable table, int label) {
+		if(table == null) {
+			return;
+		}
+		String[] headings = table.getHeadings();
+		for(int row = 0; row < table.size(); row++) {
+			rt.incrementCounter();
+			rt.addLabel(String.valueOf(label));
+			for(String h : headings) {
+				if(h.equals("Label")) {
+					continue;
+				}
+				if(h.contains("OperationalInfo_")) {
+					rt.addValue(h, table.getStringValue(h, row));
+				}else {
+					rt.addValue(h, table.getValue(h, row));
+				}
+			}
+		}
+	}
+	
 	
 	/**
 	 * Extract features slice by slice (2D basis without any aggregation)
@@ -1733,6 +1872,52 @@ public class RadiomicsJ {
 	 * @return
 	 */
 	public ResultsTable extractAllSlice(ImagePlus images, ImagePlus masks, Integer targetLabel) {
+		int[] labels = getSettings().getTargetLabels();
+		if(labels != null && masks != null) {
+			return extractLabels(images, masks, labels);
+		}
+		ResultsTable[] rt = new ResultsTable[1];
+		eachSlice(images, masks, targetLabel, table -> rt[0] = appendSliceRow(rt[0], table));
+		return rt[0];
+	}
+	
+	/**
+	 * Same, but each row goes to sink as soon as its slice and the slices before it are done.
+	 * A long stack is never held in a ResultsTable, and the rows written survive a crash.
+	 * @param sink e.g. CsvResultSink, flushed but not closed.
+	 * @return number of rows.
+	 * @throws IOException when sink can not be written.
+	 */
+	public int extractAllSlice(ImagePlus images, ImagePlus masks, Integer targetLabel, ResultSink sink) throws IOException {
+		int[] labels = getSettings().getTargetLabels();
+		if(labels != null && masks != null) {
+			ResultsTable rt = extractLabels(images, masks, labels);
+			sink.addRows(rt);
+			sink.flush();
+			return rt == null ? 0 : rt.size();
+		}
+		int[] rows = {0};
+		eachSlice(images, masks, targetLabel, table -> {
+			//the values of the slice are in the last row, see appendSliceRow().
+			sink.add(ResultSink.row(table, table.getCounter() - 1));
+			rows[0]++;
+		});
+		sink.flush();
+		return rows[0];
+	}
+	
+	/**
+	 * receives the table of each slice, in slice order.
+	 */
+	private interface SliceRows<E extends Exception> {
+		void accept(ResultsTable table) throws E;
+	}
+	
+	/**
+	 * preprocess() and compute() of each slice, one after another or on several threads (INT_sliceParallelism).
+	 * Slices without roi and slices that failed are not given to rows.
+	 */
+	private <E extends Exception> void eachSlice(ImagePlus images, ImagePlus masks, Integer targetLabel, SliceRows<E> rows) throws E {
 		if(masks == null) {
 			/*
 			 * Create a full face mask, as extractAll() does for the 3D basis.
@@ -1742,53 +1927,118 @@ public class RadiomicsJ {
 					label_, cal.pixelWidth, cal.pixelHeight, cal.pixelDepth);
 			targetLabel = label_;
 		}
-		originalImp = images;
-		originalMask = masks;
-		ResultsTable rt = null;
+		int parallelism = getSettings().getSliceParallelism();
+		if(parallelism != 1 && images.getNSlices() > 1) {
+			eachSliceParallel(images, masks, targetLabel, parallelism, rows);
+			return;
+		}
 		int num = images.getNSlices();
 		for(int i=0;i<num;i++) {
+			ResultsTable table;
 			try {
-				currentImp = new ImagePlus(i+"", images.getStack().getProcessor(i+1).duplicate());
-				currentMask = new ImagePlus(i+"", masks.getStack().getProcessor(i+1).duplicate());
-				currentImp.setCalibration(images.getCalibration());
-				currentMask.setCalibration(masks.getCalibration());
-				if(Utils.isBlankMaskSlice(currentMask.getProcessor(), targetLabel)) {
-					continue;
-				}
-				/*
-				 * do preprocessing
-				 */
-				preprocess(currentImp, currentMask, targetLabel);
-				//System.out.println("Compute at "+(i+1));
-				ResultsTable table = compute(resampledImp, resegmentedMask,RadiomicsJ.label_);
-				if(rt == null) {
-					rt = table;
-				}else {
-					if(table != null) {
-						rt.incrementCounter();
-						String[] headings = table.getHeadings();
-						/*
-						 * compute() may reuse a ResultsTable bound to an already shown
-						 * result window, that keeps the rows of previous runs.
-						 * The values of this slice are always in the last row.
-						 */
-						int row  = table.getCounter() - 1;
-						for(String h : headings) {
-							if(h.contains("OperationalInfo_")) {
-								String v = table.getStringValue(h, row);
-								rt.addValue(h, v);
-							}else {
-								double v = table.getValue(h, row);
-								rt.addValue(h, v);
-							}
-						}
-					}
-				}
+				table = extractSlice(images, masks, i, targetLabel);
 			} catch (Exception e) {
 				System.err.println("Something strange skip this images and masks stack pair -> "+images.getTitle()+" and "+masks.getTitle());
 				e.printStackTrace();
 				continue;
 			}
+			if(table != null) {
+				rows.accept(table);
+			}
+		}
+	}
+	
+	/**
+	 * eachSlice() on several threads.
+	 * Each slice is preprocessed and computed by its own instance with the settings of this one,
+	 * the tables are given to rows in slice order, as eachSlice() does one after another.
+	 * @param parallelism 0 : fork/join common pool, n : own pool of n threads.
+	 */
+	private <E extends Exception> void eachSliceParallel(ImagePlus images, ImagePlus masks, Integer targetLabel, int parallelism,
+			SliceRows<E> rows) throws E {
+		//each instance computes one slice.
+		ExtractionSettings sliceSettings = getSettings().toBuilder().sliceParallelism(1).build();
+		int num = images.getNSlices();
+		ForkJoinPool pool = parallelism == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<ResultsTable>> tasks = new ArrayList<>(num);
+			for(int i=0;i<num;i++) {
+				final int slice = i;
+				tasks.add(pool.submit(() -> workerInstance(sliceSettings).extractSlice(images, masks, slice, targetLabel)));
+			}
+			for(ForkJoinTask<ResultsTable> task : tasks) {
+				ResultsTable table;
+				try {
+					table = task.get();
+				} catch (ExecutionException e) {
+					System.err.println("Something strange skip this images and masks stack pair -> "+images.getTitle()+" and "+masks.getTitle());
+					e.getCause().printStackTrace();
+					continue;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if(table != null) {
+					rows.accept(table);
+				}
+			}
+		} finally {
+			if(pool != ForkJoinPool.commonPool()) {
+				pool.shutdown();
+			}
+		}
+	}
+	
+	/**
+	 * preprocess() and compute() of one slice of extractAllSlice().
+	 * @param i slice index, from 0.
+	 * @return null if the mask slice has no targetLabel voxel.
+	 */
+	private ResultsTable extractSlice(ImagePlus images, ImagePlus masks, int i, Integer targetLabel) throws Exception {
+		originalImp = images;
+		originalMask = masks;
+		currentImp = new ImagePlus(i+"", images.getStack().getProcessor(i+1).duplicate());
+		currentMask = new ImagePlus(i+"", masks.getStack().getProcessor(i+1).duplicate());
+		currentImp.setCalibration(images.getCalibration());
+		currentMask.setCalibration(masks.getCalibration());
+		if(Utils.isBlankMaskSlice(currentMask.getProcessor(), targetLabel)) {
+			return null;
+		}
+		/*
+		 * do preprocessing
+		 */
+		preprocess(currentImp, currentMask, targetLabel);
+		return compute(resampledImp, resegmentedMask,RadiomicsJ.label_);
+	}
+	
+	/**
+	 * appends the row of one slice to rt.
+	 * @param rt null : table becomes the result.
+	 * @return rt
+	 */
+	private static ResultsTable appendSliceRow(ResultsTable rt, ResultsTable table) {
+		if(table == null) {
+			return rt;
+		}
+		if(rt == null) {
+			return table;
+		}
+		rt.incrementCounter();
+		String[] headings = table.getHeadings();
+		/*
+		 * compute() may reuse a ResultsTable bound to an already shown
+		 * result window, that keeps the rows of previous runs.
+		 * The values of this slice are always in the last row.
+		 */
+		int row  = table.getCounter() - 1;
+		for(String h : headings) {
+			if(h.contains("OperationalInfo_")) {
+				String v = table.getStringValue(h, row);
+				rt.addValue(h, v);
+			}else {
+				double v = table.getValue(h, row);
+				rt.addValue(h, v);
+			}
 		}
 		return rt;
 	}
@@ -1815,336 +2065,254 @@ public class RadiomicsJ {
 		 * "mask" argument of this method is the intensity mask.
 		 */
 		ImagePlus morphoMask = resampledMask != null ? resampledMask : mask;
+		
+		ExtractionSettings s = getSettings();
 
-		ResultsTable rt = ResultsTable.getResultsTable(resultWindowTitle);
+		/*
+		 * legacy mode appends to the shown result window.
+		 * explicit settings may run concurrently, therefore never share a table.
+		 */
+		ResultsTable rt = this.settings == null ? ResultsTable.getResultsTable(resultWindowTitle) : null;
 		if(rt == null) {
 			rt = new ResultsTable();
 		}
 		rt.incrementCounter();
 		
-		double enableFamilies = (double)countEnableFamilies();
-		int progress = 0;
-		if(IJ_PlugIn)IJ.showProgress(progress/enableFamilies);
+		double enableFamilies = (double)countEnableFamilies(s);
+		AtomicInteger progress = new AtomicInteger();
+		if(IJ_PlugIn)IJ.showProgress(0/enableFamilies);
 		
-		if(BOOL_enableOperationalInfo) {
-			if(debug) {
-				System.out.println("=======================");
-				System.out.println("OperationalInformations");
+		/*
+		 * discretised image, roi voxels, bounding box and histogram are shared by the families of this extraction.
+		 */
+		ExtractionCache cache = new ExtractionCache();
+		if(discretisedImp != null) {
+			cache.putDiscretised(img, mask, targetLabel, s.isUseFixedBinNumber(), s.getNBins(), s.getBinWidth(), s.getRangeMin(),
+					discretisedImp, nBinsForCalculation);
+		}
+		
+		FamilyScheduler scheduler = scheduleFamilies(img, mask, morphoMask, targetLabel, s, cache, false);
+		List<LinkedHashMap<String, Object>> families = scheduler.run(s.getFamilyParallelism(), () -> {
+			if(IJ_PlugIn)IJ.showProgress(progress.incrementAndGet()/enableFamilies);
+		});
+		merge(rt, scheduler, families, "");
+		
+		/*
+		 * filter responses (IBSI 2), the intensity and texture families once more on each of them.
+		 * A response has no unit of the image, so that it is discretised by the fixed bin number.
+		 */
+		if(filteredImps != null) {
+			ExtractionSettings fs = s.toBuilder().useFixedBinNumber(true).build();
+			for(Map.Entry<FilterSpec, ImagePlus> filtered : filteredImps.entrySet()) {
+				ImagePlus response = filtered.getValue();
+				nBinsForCalculation = fs.getNBins();
+				discretisedImp = Utils.discrete(response, mask, targetLabel, fs.getNBins());
+				ExtractionCache filteredCache = new ExtractionCache();
+				filteredCache.putDiscretised(response, mask, targetLabel, true, fs.getNBins(), fs.getBinWidth(), fs.getRangeMin(),
+						discretisedImp, nBinsForCalculation);
+				FamilyScheduler filteredScheduler = scheduleFamilies(response, mask, morphoMask, targetLabel, fs, filteredCache, true);
+				merge(rt, filteredScheduler, filteredScheduler.run(fs.getFamilyParallelism(), () -> {}), filtered.getKey().columnPrefix() + "_");
 			}
-			OperationalInfoFeatures oif = new OperationalInfoFeatures(img);
-			java.util.HashMap<String,String> info = oif.getInfo();
-			Iterator<String> keys = info.keySet().iterator();
-			while(keys.hasNext()) {
-				String key = keys.next();
-				String val = info.get(key);
-				rt.addValue("OperationalInfo_" + key, val == null ? "NaN":val);
-				if(debug) {
-					System.out.println(key+", "+val);
+		}
+		/*
+		 * the discretised image and the responses are handed to the families of THIS extraction only.
+		 * Dropping them is enough, no System.gc() : compute() runs per slice, label or case on many
+		 * threads at the same time, and a full collection each time would stop all of them.
+		 */
+		discretisedImp = null;
+		filteredImps = null;
+		return rt;
+	}
+	
+	/**
+	 * The families only read the same preprocessed image and mask,
+	 * they run concurrently and are merged in the (fixed) order they are added.
+	 * @param intensityOnly true for a filter response, the families that do not read the intensities
+	 * (operational info, diagnostics, morphology, shape 2D) are left out.
+	 */
+	private FamilyScheduler scheduleFamilies(ImagePlus img, ImagePlus mask, ImagePlus morphoMask, Integer targetLabel,
+			ExtractionSettings s, ExtractionCache cache, boolean intensityOnly) {
+		boolean force2D = s.isForce2D();
+		FamilyScheduler scheduler = new FamilyScheduler();
+		
+		if(s.isEnabled(SettingParams.BOOL_enableOperationalInfo) && !intensityOnly) {
+			scheduler.add("OperationalInformations", columns -> {
+				OperationalInfoFeatures oif = new OperationalInfoFeatures(img);
+				java.util.HashMap<String,String> info = oif.getInfo();
+				Iterator<String> keys = info.keySet().iterator();
+				while(keys.hasNext()) {
+					String key = keys.next();
+					String val = info.get(key);
+					columns.put("OperationalInfo_" + key, val == null ? "NaN":val);
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
 		/*
 		 * diagnostics...
 		 */
-		if(BOOL_enableDiagnostics) {
-			if(debug) {
-				System.out.println("=======================");
-				System.out.println("Diagnostics information");
-			}
-			
-			DiagnosticsInfo di = new DiagnosticsInfo(currentImp, currentMask, resampledImp, resampledMask, resegmentedMask, targetLabel);
-			
-			for(DiagnosticsInfoType dinfo : DiagnosticsInfoType.values()) {
-				Double i = di.getDiagnosticsBy(dinfo.name());
-				if(i == null) {
-					rt.addValue("Diagnostics_" + dinfo.name(), "NaN");
-				}else {
-					rt.addValue("Diagnostics_" + dinfo.name(), i);
-				}
-				if(debug) {
-					System.out.println(dinfo.name()+", "+i);
+		if(s.isEnabled(SettingParams.BOOL_enableDiagnostics) && !intensityOnly) {
+			//snapshot, the fields are re-assigned by the next preprocess().
+			final ImagePlus cImp = currentImp, cMask = currentMask, rImp = resampledImp, rMask = resampledMask, rsMask = resegmentedMask;
+			scheduler.add("Diagnostics information", columns -> {
+				DiagnosticsInfo di = new DiagnosticsInfo(cImp, cMask, rImp, rMask, rsMask, targetLabel);
+				for(DiagnosticsInfoType dinfo : DiagnosticsInfoType.values()) {
+					Double i = di.getDiagnosticsBy(dinfo.name());
+					columns.put("Diagnostics_" + dinfo.name(), i == null ? "NaN" : i);
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
 		/**
 		 * Since 20250517, morphologicals are handled in 3D only.
 		 * If force2d enabled, will calculate Shape2D instead.
 		 */
-		if(force2D && debug) {
+		if(force2D && debug && !intensityOnly) {
 			System.out.println("Force2D is set, skip Morphological features calculation...");
 		}
-		if(BOOL_enableMorphological && !force2D) {
-			if(debug) {
-				System.out.println("=======================");
-				System.out.println("Morphological features");
-			}
-			/*
-			 * Shape comes from the morphological mask.
-			 * A few features (centre of mass shift, integrated intensity,
-			 * Moran's I, Geary's C) need the intensity mask as well.
-			 */
-			MorphologicalFeatures f = new MorphologicalFeatures(img, morphoMask, mask, targetLabel);
-			for (MorphologicalFeatureType ft : MorphologicalFeatureType.values()) {
-				if(excluded.contains(ft.name())) {
-					continue;
-				}
-				Double feature = f.calculate(ft.id());
-				if(feature == null || Double.isNaN(feature)) {
-					rt.addValue("Morphology_" + ft.name(), "NaN");
-				}else {
-					rt.addValue("Morphology_" + ft.name(), feature);
-				}
-				if(debug) {
-					System.out.println(ft.name()+", "+feature);
+		if(s.isEnabled(SettingParams.BOOL_enableMorphological) && !force2D && !intensityOnly) {
+			scheduler.add("Morphological", columns -> {
+				/*
+				 * Shape comes from the morphological mask.
+				 * A few features (centre of mass shift, integrated intensity,
+				 * Moran's I, Geary's C) need the intensity mask as well.
+				 */
+				Map<String, Object> morphoSettings = familySettings(s, targetLabel, cache);
+				morphoSettings.put(RadiomicsFeature.INTENSITY_MASK, mask);
+				MorphologicalFeatures f = new MorphologicalFeatures(img, morphoMask, morphoSettings);
+				for (MorphologicalFeatureType ft : MorphologicalFeatureType.values()) {
+					if(excluded.contains(ft.name())) {
+						continue;
+					}
+					putFeature(columns, "Morphology_" + ft.name(), f.calculate(ft.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableLocalIntensityFeatures) {
-			if(debug) {
-				System.out.println("=======================");
-				System.out.println("Local intensity features");
-			}
-			LocalIntensityFeatures f = new LocalIntensityFeatures(img, mask, targetLabel);
-			for (LocalIntensityFeatureType ft : LocalIntensityFeatureType.values()) {
-				if(excluded.contains(ft.name())) {
-					continue;
-				}
-				Double feature = f.calculate(ft.id());
-				if(feature == null || Double.isNaN(feature)) {
-					rt.addValue("LocalIntensity_" + ft.name(), "NaN");
-				}else {
-					rt.addValue("LocalIntensity_" + ft.name(), feature);
-				}
-				if(debug) {
-					System.out.println(ft.name()+", "+feature);
+		if(s.isEnabled(SettingParams.BOOL_enableLocalIntensityFeatures)) {
+			scheduler.add("Local intensity", columns -> {
+				LocalIntensityFeatures f = new LocalIntensityFeatures(img, mask, familySettings(s, targetLabel, cache));
+				for (LocalIntensityFeatureType ft : LocalIntensityFeatureType.values()) {
+					if(excluded.contains(ft.name())) {
+						continue;
+					}
+					putFeature(columns, "LocalIntensity_" + ft.name(), f.calculate(ft.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableIntensityBasedStatistics) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("IntensityBasedStatistics features");
-			}
-			IntensityBasedStatisticalFeatures executer = new IntensityBasedStatisticalFeatures(img, mask,targetLabel);
-			for (IntensityBasedStatisticalFeatureType f : IntensityBasedStatisticalFeatureType.values()) {
-				if(excluded.contains(f.name())) {
-					continue;
-				}
-				Double feature = executer.calculate(f.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("IntensityBasedStatistical_" + f.name(), "NaN");
-				} else {
-					rt.addValue("IntensityBasedStatistical_" + f.name(), feature);
-				}
-				if(debug) {
-					System.out.println(f.name()+", "+feature);
+		if(s.isEnabled(SettingParams.BOOL_enableIntensityBasedStatistics)) {
+			scheduler.add("IntensityBasedStatistics", columns -> {
+				IntensityBasedStatisticalFeatures executer = new IntensityBasedStatisticalFeatures(img, mask, familySettings(s, targetLabel, cache));
+				for (IntensityBasedStatisticalFeatureType f : IntensityBasedStatisticalFeatureType.values()) {
+					if(excluded.contains(f.name())) {
+						continue;
+					}
+					putFeature(columns, "IntensityBasedStatistical_" + f.name(), executer.calculate(f.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableIntensityHistogram) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("IntensityHistogram features");
-			}
-			IntensityHistogramFeatures executer = new IntensityHistogramFeatures(img, mask, targetLabel, BOOL_USE_FixedBinNumber, nBinsForCalculation,binWidth);
-			for (IntensityHistogramFeatureType f : IntensityHistogramFeatureType.values()) {
-				if(excluded.contains(f.name())) {
-					continue;
-				}
-				Double feature = executer.calculate(f.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("IntensityHistogram_" + f.name(), "NaN");
-				} else {
-					rt.addValue("IntensityHistogram_" + f.name(), feature);
-				}
-				if(debug) {
-					System.out.println(f.name()+", "+feature);
+		if(s.isEnabled(SettingParams.BOOL_enableIntensityHistogram)) {
+			scheduler.add("IntensityHistogram", columns -> {
+				IntensityHistogramFeatures executer = new IntensityHistogramFeatures(img, mask, familySettings(s, targetLabel, cache));
+				for (IntensityHistogramFeatureType f : IntensityHistogramFeatureType.values()) {
+					if(excluded.contains(f.name())) {
+						continue;
+					}
+					putFeature(columns, "IntensityHistogram_" + f.name(), executer.calculate(f.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableIntensityVolumeHistogram) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("IntensityVolumeHistogram features");
-			}
-			IntensityVolumeHistogramFeatures executer = new IntensityVolumeHistogramFeatures(img, mask, targetLabel, IVH_mode);
-			for (IntensityVolumeHistogramFeatureType f : IntensityVolumeHistogramFeatureType.values()) {
-				if(excluded.contains(f.name())) {
-					continue;
-				}
-				Double feature = executer.calculate(f.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("IntensityVolumeHistogram_" + f.name(), "NaN");
-				} else {
-					rt.addValue("IntensityVolumeHistogram_" + f.name(), feature);
-				}
-				if(debug) {
-					System.out.println(f.name()+", "+feature);
+		if(s.isEnabled(SettingParams.BOOL_enableIntensityVolumeHistogram)) {
+			scheduler.add("IntensityVolumeHistogram", columns -> {
+				Map<String, Object> ivhSettings = familySettings(s, targetLabel, cache);
+				ivhSettings.put(RadiomicsFeature.IVH_MODE, s.getIVHMode());
+				IntensityVolumeHistogramFeatures executer = new IntensityVolumeHistogramFeatures(img, mask, ivhSettings);
+				for (IntensityVolumeHistogramFeatureType f : IntensityVolumeHistogramFeatureType.values()) {
+					if(excluded.contains(f.name())) {
+						continue;
+					}
+					putFeature(columns, "IntensityVolumeHistogram_" + f.name(), executer.calculate(f.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableShape2D || force2D) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("Shape2D features");
-			}
+		if((s.isEnabled(SettingParams.BOOL_enableShape2D) || force2D) && !intensityOnly) {
 			if(img.getNSlices() > 1) {
 				System.out.println("RadiomicsJ: Cannot calculate Shape2D, because image has multi slices.");
 				System.out.println("If you need Shape2D, Try create single slice imageplus, then perform Shape2D.");
 				System.out.println("Or, you can try to use Shape2DFeatures class on another scripts.");
 			}else {
-				//shape features are morphological.
-				Shape2DFeatures shape2DExecuter = new Shape2DFeatures(img, morphoMask,1,targetLabel);
-				for (Shape2DFeatureType shape : Shape2DFeatureType.values()) {
-					if(excluded.contains(shape.name())) {
-						continue;
-					}
-					Double feature = shape2DExecuter.calculate(shape.id());
-					if (feature == null || Double.isNaN(feature)) {
-						rt.addValue("Shape2D_" + shape.name(), "NaN");
-					} else {
-						rt.addValue("Shape2D_" + shape.name(), feature);
-					}
-					if (debug) {
-						System.out.println(shape.name() + ", " + feature);
+				//sets a roi on the image and the static measurements of the Analyzer, never run it concurrently.
+				scheduler.addSerial("Shape2D", columns -> {
+					//shape features are morphological.
+					Shape2DFeatures shape2DExecuter = new Shape2DFeatures(img, morphoMask, 1, familySettings(s, targetLabel, cache));
+					for (Shape2DFeatureType shape : Shape2DFeatureType.values()) {
+						if(excluded.contains(shape.name())) {
+							continue;
+						}
+						putFeature(columns, "Shape2D_" + shape.name(), shape2DExecuter.calculate(shape.id()));
 					}
-				}
-				if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+				});
 			}
 		}
 		
-		if(BOOL_enableGLCM) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("GLCM features");
-			}
-			GLCMFeatures glcmExecuter = new GLCMFeatures(img, 
-														 mask, 
-														 targetLabel,
-														 deltaGLCM,
-														 BOOL_USE_FixedBinNumber, 
-														 nBinsForCalculation,
-														 binWidth,
-														 weightingNorm);
-			for (GLCMFeatureType glcm : GLCMFeatureType.values()) {
-				if(excluded.contains(glcm.name())) {
-					continue;
-				}
-				Double feature = glcmExecuter.calculate(glcm.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("GLCM_" + glcm.name(), "NaN");
-				} else {
-					rt.addValue("GLCM_" + glcm.name(), feature);
-				}
-				if (debug) {
-					System.out.println(glcm.name() + ", " + feature);
+		if(s.isEnabled(SettingParams.BOOL_enableGLCM)) {
+			scheduler.add("GLCM", columns -> {
+				Map<String, Object> glcmSettings = familySettings(s, targetLabel, cache);
+				glcmSettings.put(RadiomicsFeature.DELTA, s.getDeltaGLCM());
+				GLCMFeatures glcmExecuter = new GLCMFeatures(img, mask, glcmSettings);
+				for (GLCMFeatureType glcm : GLCMFeatureType.values()) {
+					if(excluded.contains(glcm.name())) {
+						continue;
+					}
+					putFeature(columns, "GLCM_" + glcm.name(), glcmExecuter.calculate(glcm.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableGLRLM) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("GLRLM features");
-			}
-			GLRLMFeatures glrlmExecuter = new GLRLMFeatures(img, 
-															mask, 
-															targetLabel,
-															BOOL_USE_FixedBinNumber,
-															nBinsForCalculation, 
-															binWidth,
-															weightingNorm);
-			for (GLRLMFeatureType glrlm : GLRLMFeatureType.values()) {
-				if(excluded.contains(glrlm.name())) {
-					continue;
-				}
-				Double feature = glrlmExecuter.calculate(glrlm.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("GLRLM_" + glrlm.name(), "NaN");
-				} else {
-					rt.addValue("GLRLM_" + glrlm.name(), feature);
-				}
-				if (debug) {
-					System.out.println(glrlm.name() + ", " + feature);
+		if(s.isEnabled(SettingParams.BOOL_enableGLRLM)) {
+			scheduler.add("GLRLM", columns -> {
+				GLRLMFeatures glrlmExecuter = new GLRLMFeatures(img, mask, familySettings(s, targetLabel, cache));
+				for (GLRLMFeatureType glrlm : GLRLMFeatureType.values()) {
+					if(excluded.contains(glrlm.name())) {
+						continue;
+					}
+					putFeature(columns, "GLRLM_" + glrlm.name(), glrlmExecuter.calculate(glrlm.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableGLSZM) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("GLSZM features");
-			}
-			GLSZMFeatures glszmExecuter = new GLSZMFeatures(img,
-															mask,
-															targetLabel,
-															BOOL_USE_FixedBinNumber,
-															nBinsForCalculation,
-															binWidth);
-			for (GLSZMFeatureType glszm : GLSZMFeatureType.values()) {
-				if(excluded.contains(glszm.name())) {
-					continue;
-				}
-				Double feature = glszmExecuter.calculate(glszm.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("GLSZM_" + glszm.name(), "NaN");
-				} else {
-					rt.addValue("GLSZM_" + glszm.name(), feature);
-				}
-				if (debug) {
-					System.out.println(glszm.name() + ", " + feature);
+		if(s.isEnabled(SettingParams.BOOL_enableGLSZM)) {
+			scheduler.add("GLSZM", columns -> {
+				GLSZMFeatures glszmExecuter = new GLSZMFeatures(img, mask, familySettings(s, targetLabel, cache));
+				for (GLSZMFeatureType glszm : GLSZMFeatureType.values()) {
+					if(excluded.contains(glszm.name())) {
+						continue;
+					}
+					putFeature(columns, "GLSZM_" + glszm.name(), glszmExecuter.calculate(glszm.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableGLDZM) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("GLDZM features");
-			}
-			//grey levels from the intensity mask, roi edge from the morphological mask.
-			GLDZMFeatures gldzmExecuter = new GLDZMFeatures(img,
-															mask,
-															morphoMask,
-															targetLabel,
-															BOOL_USE_FixedBinNumber,
-															nBinsForCalculation,
-															binWidth);
-			for (GLDZMFeatureType gldzm : GLDZMFeatureType.values()) {
-				if(excluded.contains(gldzm.name())) {
-					continue;
-				}
-				Double feature = gldzmExecuter.calculate(gldzm.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("GLDZM_" + gldzm.name(), "NaN");
-				} else {
-					rt.addValue("GLDZM_" + gldzm.name(), feature);
-				}
-				if (debug) {
-					System.out.println(gldzm.name() + ", " + feature);
+		if(s.isEnabled(SettingParams.BOOL_enableGLDZM)) {
+			scheduler.add("GLDZM", columns -> {
+				//grey levels from the intensity mask, roi edge from the morphological mask.
+				Map<String, Object> gldzmSettings = familySettings(s, targetLabel, cache);
+				gldzmSettings.put(RadiomicsFeature.MORPHO_MASK, morphoMask);
+				GLDZMFeatures gldzmExecuter = new GLDZMFeatures(img, mask, gldzmSettings);
+				for (GLDZMFeatureType gldzm : GLDZMFeatureType.values()) {
+					if(excluded.contains(gldzm.name())) {
+						continue;
+					}
+					putFeature(columns, "GLDZM_" + gldzm.name(), gldzmExecuter.calculate(gldzm.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableGLAM && img.getNSlices() < 2) {
+		if(s.isEnabled(SettingParams.BOOL_enableGLAM) && img.getNSlices() < 2) {
 			/*
 			 * GLAM measures a radial distribution over spherical shells, so it is only
 			 * defined on a volume. Reporting nothing is better than reporting numbers
@@ -2157,147 +2325,131 @@ public class RadiomicsJ {
 				IJ.log("GLAM features are skipped, because " + reason
 						+ ". GLAM is a three dimensional descriptor.");
 			}
-		} else if(BOOL_enableGLAM) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("GLAM features");
-			}
-			GLAMFeatures glamExecuter = new GLAMFeatures(img,
-														mask,
-														targetLabel,
-														BOOL_USE_FixedBinNumber,
-														nBinsForCalculation,
-														binWidth,
-														RadiomicsJ.glamMaxRadius);
-			for (GLAMFeatureType glam : GLAMFeatureType.values()) {
-				if(excluded.contains(glam.name())) {
-					continue;
-				}
-				Double feature = glamExecuter.calculate(glam.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("GLAM_" + glam.name(), "NaN");
-				} else {
-					rt.addValue("GLAM_" + glam.name(), feature);
-				}
-				if (debug) {
-					System.out.println(glam.name() + ", " + feature);
+		} else if(s.isEnabled(SettingParams.BOOL_enableGLAM)) {
+			scheduler.add("GLAM", columns -> {
+				Map<String, Object> glamSettings = familySettings(s, targetLabel, cache);
+				glamSettings.put(RadiomicsFeature.GLAM_MAX_RADIUS, s.getGlamMaxRadius());
+				GLAMFeatures glamExecuter = new GLAMFeatures(img, mask, glamSettings);
+				for (GLAMFeatureType glam : GLAMFeatureType.values()) {
+					if(excluded.contains(glam.name())) {
+						continue;
+					}
+					putFeature(columns, "GLAM_" + glam.name(), glamExecuter.calculate(glam.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 
-		if(BOOL_enableNGTDM) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("NGTDM features");
-			}
-			NGTDMFeatures ngtdmExecuter = new NGTDMFeatures(img,
-															mask,
-															targetLabel,
-															deltaNGToneDM,
-															BOOL_USE_FixedBinNumber,
-															nBinsForCalculation,
-															binWidth);
-			for (NGTDMFeatureType ngtdm : NGTDMFeatureType.values()) {
-				if(excluded.contains(ngtdm.name())) {
-					continue;
+		if(s.isEnabled(SettingParams.BOOL_enableNGTDM)) {
+			scheduler.add("NGTDM", columns -> {
+				Map<String, Object> ngtdmSettings = familySettings(s, targetLabel, cache);
+				ngtdmSettings.put(RadiomicsFeature.DELTA, s.getDeltaNGTDM());
+				NGTDMFeatures ngtdmExecuter = new NGTDMFeatures(img, mask, ngtdmSettings);
+				for (NGTDMFeatureType ngtdm : NGTDMFeatureType.values()) {
+					if(excluded.contains(ngtdm.name())) {
+						continue;
+					}
+					putFeature(columns, "NGTDM_" + ngtdm.name(), ngtdmExecuter.calculate(ngtdm.id()));
 				}
-				Double feature = ngtdmExecuter.calculate(ngtdm.id());
-				if (feature == null || Double.isNaN(feature)) {
-					rt.addValue("NGTDM_" + ngtdm.name(), "NaN");
-				} else {
-					rt.addValue("NGTDM_" + ngtdm.name(), feature);
+			});
+		}
+		
+		if(s.isEnabled(SettingParams.BOOL_enableNGLDM)) {
+			scheduler.add("NGLDM", columns -> {
+				Map<String, Object> ngldmSettings = familySettings(s, targetLabel, cache);
+				ngldmSettings.put(RadiomicsFeature.ALPHA, s.getAlpha());
+				ngldmSettings.put(RadiomicsFeature.DELTA, s.getDeltaNGLDM());
+				NGLDMFeatures gldmExecuter = new NGLDMFeatures(img, mask, ngldmSettings);
+				for(NGLDMFeatureType gldm:NGLDMFeatureType.values()) {
+					if(excluded.contains(gldm.name())) {
+						continue;
+					}
+					putFeature(columns, "NGLDM_" + gldm.name(), gldmExecuter.calculate(gldm.id()));
 				}
-				if (debug) {
-					System.out.println(ngtdm.name() + ", " + feature);
+			});
+		}
+
+		if(s.isEnabled(SettingParams.BOOL_enableFractal)) {
+			scheduler.add("Fractal", columns -> {
+				Map<String, Object> fractalSettings = familySettings(s, targetLabel, cache);
+				fractalSettings.put(RadiomicsFeature.BOX_SIZES, s.getBoxSizes());
+				FractalFeatures fractalExecuter = new FractalFeatures(img, mask, fractalSettings);
+				for(FractalFeatureType fractal:FractalFeatureType.values()) {
+					if(excluded.contains(fractal.name())) {
+						continue;
+					}
+					putFeature(columns, "Fractal_" + fractal.name(), fractalExecuter.calculate(fractal.id()));
 				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+			});
 		}
 		
-		if(BOOL_enableNGLDM) {
+		return scheduler;
+	}
+	
+	/**
+	 * merge the columns of the families, in the order they were added.
+	 */
+	private static void merge(ResultsTable rt, FamilyScheduler scheduler, List<LinkedHashMap<String, Object>> families, String prefix) {
+		for(int i=0;i<families.size();i++) {
 			if(debug) {
 				System.out.println("=================================");
-				System.out.println("NGLDM features");
+				System.out.println(prefix + scheduler.getNames().get(i));
 			}
-			NGLDMFeatures gldmExecuter = new NGLDMFeatures(img, 
-															mask, 
-															targetLabel,
-															alpha, 
-															deltaNGLevelDM,
-															BOOL_USE_FixedBinNumber,
-															nBinsForCalculation,
-															binWidth);
-			for(NGLDMFeatureType gldm:NGLDMFeatureType.values()) {
-				if(excluded.contains(gldm.name())) {
-					continue;
-				}
-				Double feature = gldmExecuter.calculate(gldm.id());
-				if(feature == null || Double.isNaN(feature)) {
-					rt.addValue("NGLDM_"+gldm.name(), "NaN");
+			for(Map.Entry<String, Object> col : families.get(i).entrySet()) {
+				Object v = col.getValue();
+				if(v instanceof String) {
+					rt.addValue(prefix + col.getKey(), (String)v);
 				}else {
-					rt.addValue("NGLDM_"+gldm.name(), feature);
+					rt.addValue(prefix + col.getKey(), (Double)v);
 				}
-				if (debug) {
-					System.out.println(gldm.name() + ", " + feature);
+				if(debug) {
+					System.out.println(prefix + col.getKey() + ", " + v);
 				}
 			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
 		}
-
-		if(BOOL_enableFractal) {
-			if(debug) {
-				System.out.println("=================================");
-				System.out.println("Fractal features");
-			}
-			FractalFeatures fractalExecuter = new FractalFeatures(img, mask, targetLabel, RadiomicsJ.box_sizes);
-			if(fractalExecuter != null) {
-				for(FractalFeatureType fractal:FractalFeatureType.values()) {
-					if(excluded.contains(fractal.name())) {
-						continue;
-					}
-					Double feature = fractalExecuter.calculate(fractal.id());
-					if(feature == null || Double.isNaN(feature)) {
-						rt.addValue("Fractal_"+fractal.name(), "NaN");
-					}else {
-						rt.addValue("Fractal_"+fractal.name(), feature);
-					}
-					if (debug) {
-						System.out.println(fractal.name() + ", " + feature);
-					}
-				}
-			}
-			if(IJ_PlugIn)IJ.showProgress(++progress/enableFamilies);
+	}
+	
+	/**
+	 * feature value of a column, "NaN" if the feature could not be calculated.
+	 */
+	private static void putFeature(LinkedHashMap<String, Object> columns, String column, Double feature) {
+		if(feature == null || Double.isNaN(feature)) {
+			columns.put(column, "NaN");
+		}else {
+			columns.put(column, feature);
 		}
-		/*
-		 * discretiseImp is a static hand-off from the pipeline to the feature classes,
-		 * that lets them skip re-discretisation. Clear it when the extraction is done,
-		 * otherwise the next direct use of a feature class (e.g, FeatureVisualizationMap)
-		 * silently reuses the discretised image of THIS extraction.
-		 */
-		RadiomicsJ.discretiseImp = null;
-		System.gc();
-		return rt;
 	}
 	
-	int countEnableFamilies() {
+	/**
+	 * Settings map of a feature family, carrying the ExtractionSettings of the run,
+	 * the discretised image of the pipeline and the cache of the run. Family specific keys are put by the caller.
+	 * A new map per family, because the families write their own entries into it.
+	 */
+	private Map<String, Object> familySettings(ExtractionSettings s, Integer targetLabel, ExtractionCache cache) {
+		Map<String, Object> map = new HashMap<>();
+		map.put(RadiomicsFeature.EXTRACTION_SETTINGS, s);
+		map.put(RadiomicsFeature.LABEL, targetLabel);
+		map.put(RadiomicsFeature.USE_BIN_COUNT, s.isUseFixedBinNumber());
+		map.put(RadiomicsFeature.nBins, nBinsForCalculation);
+		map.put(RadiomicsFeature.BinWidth, s.getBinWidth());
+		if(s.getWeightingNorm() != null) {
+			map.put(RadiomicsFeature.WEIGHTING_NORM, s.getWeightingNorm());
+		}
+		if(discretisedImp != null) {
+			map.put(RadiomicsFeature.PRE_DISC_IMG, discretisedImp);
+		}
+		map.put(RadiomicsFeature.EXTRACTION_CACHE, cache);
+		return map;
+	}
+	
+	int countEnableFamilies(ExtractionSettings s) {
 		int num = 0;
-		if(BOOL_enableOperationalInfo)num++;
-		if(BOOL_enableDiagnostics)num++;
-		if(BOOL_enableMorphological)num++;
-		if(BOOL_enableLocalIntensityFeatures)num++;
-		if(BOOL_enableIntensityBasedStatistics)num++;
-		if(BOOL_enableIntensityHistogram)num++;
-		if(BOOL_enableIntensityVolumeHistogram)num++;
-		if(BOOL_enableGLCM)num++;
-		if(BOOL_enableGLRLM)num++;
-		if(BOOL_enableGLSZM)num++;
-		if(BOOL_enableGLDZM)num++;
-		if(BOOL_enableGLAM)num++;
-		if(BOOL_enableNGTDM)num++;
-		if(BOOL_enableNGLDM)num++;
-		if(BOOL_enableFractal)num++;
-		if(BOOL_enableShape2D || force2D)num++;
+		for(SettingParams family : s.getEnabledFamilies()) {
+			if(family == SettingParams.BOOL_enableHomological || family == SettingParams.BOOL_enableShape2D) {
+				continue;//not implemented, or counted below.
+			}
+			num++;
+		}
+		if(s.isEnabled(SettingParams.BOOL_enableShape2D) || s.isForce2D())num++;
 		return num;
 	}
 	
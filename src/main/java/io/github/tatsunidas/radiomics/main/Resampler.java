@@ -0,0 +1,335 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Kernels of the 3D resampling of Utils, on a ResamplingGrid.
+ *
+ * The interpolation is separable: a source slice is first interpolated along x
+ * (rows of new width), then along y (a plane of the new grid), and the output slice
+ * is interpolated along z from the planes of the source slices around it.
+ * Each step runs in memory order, from per-axis tables of indices and weights,
+ * and a plane is computed once for all the output slices that read it.
+ *
+ * The arithmetic is the one of the per-voxel interpolations of Utils, in the same order:
+ * TrilinearInterpolation2() in double, TricubicSplineInterporation() and
+ * TricubicPolynomialInterporation() in float, so the results are bit-exact.
+ *
+ * Slabs of output slices may be computed in parallel, each slab keeps its own planes.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class Resampler {
+
+	private Resampler() {
+	}
+
+	/**
+	 * Same as TrilinearInterpolation2() at each voxel of the grid.
+	 * @param voxels source stack, x fastest.
+	 * @param w source width
+	 * @param h source height
+	 * @param s source slices
+	 * @param grid grid to compute, its source has the size of voxels.
+	 * @param parallel if true, slabs of slices are computed by the common fork/join pool.
+	 * @return output slices, grid.getWidth() * grid.getHeight() each.
+	 */
+	public static float[][] trilinear(float[] voxels, int w, int h, int s, ResamplingGrid grid, boolean parallel) {
+		final int newW = grid.getWidth();
+		final int newH = grid.getHeight();
+		final int newS = grid.getSlices();
+		final LinearAxis ax = new LinearAxis(grid.coordinates(0));
+		final LinearAxis ay = new LinearAxis(grid.coordinates(1));
+		final LinearAxis az = new LinearAxis(grid.coordinates(2));
+		final boolean[] rowsRead = rowsRead(h, ay.lo, ay.hi);
+		final float[][] out = new float[newS][];
+		slabs(newS, parallel, (from, to) -> {
+			final double[] rows = new double[h * newW];
+			Planes<double[]> planes = new Planes<double[]>(2) {
+				@Override
+				double[] allocate() {
+					return new double[newW * newH];
+				}
+
+				@Override
+				void fill(int zs, double[] plane) {
+					int base = zs * w * h;
+					for(int y = 0; y < h; y++) {
+						if(!rowsRead[y]) {
+							continue;
+						}
+						int src = base + y * w;
+						int dst = y * newW;
+						for(int i = 0; i < newW; i++) {
+							rows[dst + i] = voxels[src + ax.lo[i]] * ax.h[i] + voxels[src + ax.hi[i]] * ax.d[i];
+						}
+					}
+					for(int j = 0; j < newH; j++) {
+						int r0 = ay.lo[j] * newW;
+						int r1 = ay.hi[j] * newW;
+						double hy = ay.h[j];
+						double dy = ay.d[j];
+						int dst = j * newW;
+						for(int i = 0; i < newW; i++) {
+							plane[dst + i] = rows[r0 + i] * hy + rows[r1 + i] * dy;
+						}
+					}
+				}
+			};
+			for(int k = from; k < to; k++) {
+				double[] p0 = planes.get(az.lo[k], az.lo[k]);
+				double[] p1 = planes.get(az.hi[k], az.lo[k]);
+				double hz = az.h[k];
+				double dz = az.d[k];
+				float[] slice = new float[newW * newH];
+				for(int i = 0; i < slice.length; i++) {
+					slice[i] = (float) (p0[i] * hz + p1[i] * dz);
+				}
+				out[k] = slice;
+			}
+		});
+		return out;
+	}
+
+	/**
+	 * Same as NNInterpolation() at each voxel of the grid: the voxel at the floor of the coordinates.
+	 * @see #trilinear(float[], int, int, int, ResamplingGrid, boolean)
+	 */
+	public static float[][] nearestNeighbour(float[] voxels, int w, int h, int s, ResamplingGrid grid, boolean parallel) {
+		final int newW = grid.getWidth();
+		final int newH = grid.getHeight();
+		final int newS = grid.getSlices();
+		final int[] xs = floor(grid.coordinates(0));
+		final int[] ys = floor(grid.coordinates(1));
+		final int[] zs = floor(grid.coordinates(2));
+		final float[][] out = new float[newS][];
+		slabs(newS, parallel, (from, to) -> {
+			for(int k = from; k < to; k++) {
+				float[] slice = new float[newW * newH];
+				int base = zs[k] * w * h;
+				for(int j = 0; j < newH; j++) {
+					int src = base + ys[j] * w;
+					int dst = j * newW;
+					for(int i = 0; i < newW; i++) {
+						slice[dst + i] = voxels[src + xs[i]];
+					}
+				}
+				out[k] = slice;
+			}
+		});
+		return out;
+	}
+
+	/**
+	 * Same as TricubicSplineInterporation() or TricubicPolynomialInterporation() at each voxel of the grid.
+	 * @param weights 4 weights per fraction of voxel, Utils.initializeCubicSplineWeights() or initializeCubicPolynomialWeights().
+	 * @see #trilinear(float[], int, int, int, ResamplingGrid, boolean)
+	 */
+	public static float[][] tricubic(float[] voxels, int w, int h, int s, float[][] weights, ResamplingGrid grid, boolean parallel) {
+		final int newW = grid.getWidth();
+		final int newH = grid.getHeight();
+		final int newS = grid.getSlices();
+		final CubicAxis ax = new CubicAxis(grid.coordinates(0), w, weights);
+		final CubicAxis ay = new CubicAxis(grid.coordinates(1), h, weights);
+		final CubicAxis az = new CubicAxis(grid.coordinates(2), s, weights);
+		final boolean[] rowsRead = rowsRead(h, ay.index);
+		final float[][] out = new float[newS][];
+		slabs(newS, parallel, (from, to) -> {
+			final float[] rows = new float[h * newW];
+			Planes<float[]> planes = new Planes<float[]>(4) {
+				@Override
+				float[] allocate() {
+					return new float[newW * newH];
+				}
+
+				@Override
+				void fill(int zs, float[] plane) {
+					int base = zs * w * h;
+					for(int y = 0; y < h; y++) {
+						if(!rowsRead[y]) {
+							continue;
+						}
+						int src = base + y * w;
+						int dst = y * newW;
+						for(int i = 0; i < newW; i++) {
+							float[] wx = ax.weight[i];
+							int t = i * 4;
+							float vx = 0;
+							vx += voxels[src + ax.index[t]] * wx[0];
+							vx += voxels[src + ax.index[t + 1]] * wx[1];
+							vx += voxels[src + ax.index[t + 2]] * wx[2];
+							vx += voxels[src + ax.index[t + 3]] * wx[3];
+							rows[dst + i] = vx;
+						}
+					}
+					for(int j = 0; j < newH; j++) {
+						float[] wy = ay.weight[j];
+						int dst = j * newW;
+						for(int i = 0; i < newW; i++) {
+							plane[dst + i] = 0;
+						}
+						for(int t = 0; t < 4; t++) {
+							int r = ay.index[j * 4 + t] * newW;
+							float wt = wy[t];
+							for(int i = 0; i < newW; i++) {
+								plane[dst + i] += wt * rows[r + i];
+							}
+						}
+					}
+				}
+			};
+			float[][] p = new float[4][];
+			for(int k = from; k < to; k++) {
+				int lowest = az.index[k * 4];
+				for(int t = 0; t < 4; t++) {
+					p[t] = planes.get(az.index[k * 4 + t], lowest);
+				}
+				float[] wz = az.weight[k];
+				float[] slice = new float[newW * newH];
+				for(int t = 0; t < 4; t++) {
+					float[] pt = p[t];
+					float wt = wz[t];
+					for(int i = 0; i < slice.length; i++) {
+						slice[i] += wt * pt[i];
+					}
+				}
+				out[k] = slice;
+			}
+		});
+		return out;
+	}
+
+	/**
+	 * floor, ceil and weights of each coordinate, as TrilinearInterpolation2().
+	 */
+	private static final class LinearAxis {
+		final int[] lo;
+		final int[] hi;
+		final double[] d;
+		final double[] h;
+
+		LinearAxis(double[] c) {
+			lo = new int[c.length];
+			hi = new int[c.length];
+			d = new double[c.length];
+			h = new double[c.length];
+			for(int i = 0; i < c.length; i++) {
+				lo[i] = (int) Math.floor(c[i]);
+				hi[i] = (int) Math.ceil(c[i]);
+				d[i] = c[i] - lo[i];
+				h[i] = 1.0f - d[i];
+			}
+		}
+	}
+
+	/**
+	 * the 4 clamped indices (-1 to +2) and the weights of each coordinate, as TricubicSplineInterporation().
+	 */
+	private static final class CubicAxis {
+		final int[] index;
+		final float[][] weight;
+
+		CubicAxis(double[] c, int n, float[][] weights) {
+			index = new int[c.length * 4];
+			weight = new float[c.length][];
+			for(int i = 0; i < c.length; i++) {
+				int c0 = (int) Math.floor(c[i]);
+				weight[i] = weights[(int) ((c[i] - c0) * weights.length)];
+				for(int t = 0; t < 4; t++) {
+					index[i * 4 + t] = Math.max(0, Math.min(n - 1, c0 + t - 1));
+				}
+			}
+		}
+	}
+
+	private static int[] floor(double[] c) {
+		int[] f = new int[c.length];
+		for(int i = 0; i < c.length; i++) {
+			f[i] = (int) Math.floor(c[i]);
+		}
+		return f;
+	}
+
+	private static boolean[] rowsRead(int h, int[]... indices) {
+		boolean[] read = new boolean[h];
+		for(int[] index : indices) {
+			for(int y : index) {
+				read[y] = true;
+			}
+		}
+		return read;
+	}
+
+	private interface Slab {
+		void run(int from, int to);
+	}
+
+	private static void slabs(int n, boolean parallel, Slab slab) {
+		int workers = parallel ? Math.min(Runtime.getRuntime().availableProcessors(), n) : 1;
+		if(workers < 2) {
+			slab.run(0, n);
+			return;
+		}
+		IntStream.range(0, workers).parallel().forEach(i -> slab.run((int) ((long) n * i / workers), (int) ((long) n * (i + 1) / workers)));
+	}
+
+	/**
+	 * The planes of the source slices read by the current output slice.
+	 * Output slices go up, so do the source slices they read: a window of
+	 * at most taps consecutive slices, the planes below it can be reused.
+	 */
+	private abstract static class Planes<T> {
+		private final int[] keys;
+		private final Object[] planes;
+
+		Planes(int taps) {
+			keys = new int[taps];
+			planes = new Object[taps];
+			Arrays.fill(keys, -1);
+		}
+
+		abstract T allocate();
+
+		abstract void fill(int zs, T plane);
+
+		/**
+		 * @param zs source slice
+		 * @param lowest lowest source slice read by the current output slice.
+		 */
+		@SuppressWarnings("unchecked")
+		T get(int zs, int lowest) {
+			int free = -1;
+			for(int i = 0; i < keys.length; i++) {
+				if(keys[i] == zs) {
+					return (T) planes[i];
+				}
+				if(keys[i] < lowest && (free < 0 || keys[i] < keys[free])) {
+					free = i;
+				}
+			}
+			if(planes[free] == null) {
+				planes[free] = allocate();
+			}
+			keys[free] = zs;
+			fill(zs, (T) planes[free]);
+			return (T) planes[free];
+		}
+	}
+}
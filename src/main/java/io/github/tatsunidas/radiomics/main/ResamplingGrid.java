@@ -0,0 +1,192 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import ij.ImagePlus;
+import ij.measure.Calibration;
+
+/**
+ * Interpolation grid of the 3D resampling, or a part of it.
+ *
+ * The grid is always the one of the whole volume: ceil(n * scale) voxels per axis,
+ * centred on the original grid (IBSI 5.2.1, see Utils.gridOrigin()). A part of it
+ * is computed from a part of the original voxels (the source), and gives the same
+ * values as the whole grid at the same voxels.
+ *
+ * Coordinates are in original voxel units. Out of volume coordinates are clamped to
+ * the volume, as the resamplers of Utils do.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class ResamplingGrid {
+
+	/**
+	 * original voxels read around a coordinate by the widest interpolation (cubic, -1 to +2).
+	 */
+	static final int STENCIL = 2;
+
+	private final int[] fullSize;
+	private final double[] scale;
+	private final double[] origin;
+	private final int[] start;
+	private final int[] size;
+	private final int[] sourceOffset;
+	private final int[] sourceSize;
+
+	private ResamplingGrid(int[] fullSize, double[] scale, int[] start, int[] size, int[] sourceOffset, int[] sourceSize) {
+		this.fullSize = fullSize;
+		this.scale = scale;
+		this.origin = new double[3];
+		for(int a = 0; a < 3; a++) {
+			origin[a] = Utils.gridOrigin(fullSize[a], wholeSize(fullSize[a], scale[a]), scale[a]);
+		}
+		this.start = start;
+		this.size = size;
+		this.sourceOffset = sourceOffset;
+		this.sourceSize = sourceSize;
+	}
+
+	/**
+	 * number of interpolated voxels of an axis of n voxels.
+	 */
+	private static int wholeSize(int n, double scale) {
+		return (int) Math.ceil(n * scale);
+	}
+
+	/**
+	 * The whole grid of an image.
+	 * @param imp image to resample
+	 * @param x new voxel width
+	 * @param y new voxel height
+	 * @param z new voxel depth
+	 */
+	public static ResamplingGrid of(ImagePlus imp, double x, double y, double z) {
+		Calibration cal = imp.getCalibration();
+		int[] n = {imp.getWidth(), imp.getHeight(), imp.getStackSize()};
+		double[] scale = {cal.pixelWidth / x, cal.pixelHeight / y, cal.pixelDepth / z};
+		int[] size = new int[3];
+		for(int a = 0; a < 3; a++) {
+			size[a] = wholeSize(n[a], scale[a]);
+		}
+		return new ResamplingGrid(n, scale, new int[3], size, new int[3], n.clone());
+	}
+
+	/**
+	 * The part of the grid of a volume around a box.
+	 * It holds every interpolated voxel whose interpolation reads a voxel of the box,
+	 * and padding more interpolated voxels on each side.
+	 * @param fullSize {width, height, slices} of the whole volume
+	 * @param scale {x, y, z} original voxel size / new voxel size
+	 * @param box {x0, y0, z0, x1, y1, z1} inclusive, in original voxels of the whole volume
+	 * @param padding {x, y, z} interpolated voxels added on each side
+	 * @param available {x0, y0, z0, x1, y1, z1} inclusive, original voxels that can be read,
+	 * null for the whole volume. Interpolated voxels close to its sides read the side voxels only.
+	 * @return the grid, its source is getSourceBox().
+	 */
+	public static ResamplingGrid around(int[] fullSize, double[] scale, int[] box, int[] padding, int[] available) {
+		int[] start = new int[3];
+		int[] size = new int[3];
+		int[] sourceOffset = new int[3];
+		int[] sourceSize = new int[3];
+		for(int a = 0; a < 3; a++) {
+			int n = fullSize[a];
+			int newN = wholeSize(n, scale[a]);
+			double origin = Utils.gridOrigin(n, newN, scale[a]);
+			int lo = (int) Math.floor((box[a] - STENCIL - origin) * scale[a]) - padding[a];
+			int hi = (int) Math.ceil((box[a + 3] + STENCIL - origin) * scale[a]) + padding[a];
+			lo = Math.max(0, Math.min(newN - 1, lo));
+			hi = Math.max(lo, Math.min(newN - 1, hi));
+			start[a] = lo;
+			size[a] = hi - lo + 1;
+			double first = clamp(origin + (lo / scale[a]), n);
+			double last = clamp(origin + (hi / scale[a]), n);
+			int min = available == null ? 0 : available[a];
+			int max = available == null ? n - 1 : available[a + 3];
+			int s0 = Math.max(min, Math.max(0, (int) Math.floor(first) - STENCIL));
+			int s1 = Math.min(max, Math.min(n - 1, (int) Math.floor(last) + STENCIL));
+			sourceOffset[a] = s0;
+			sourceSize[a] = Math.max(1, s1 - s0 + 1);
+		}
+		return new ResamplingGrid(fullSize.clone(), scale.clone(), start, size, sourceOffset, sourceSize);
+	}
+
+	private static double clamp(double c, int n) {
+		if(c < 0) {
+			return 0;
+		}
+		if(c > n - 1) {
+			return n - 1;
+		}
+		return c;
+	}
+
+	/**
+	 * Source coordinate of each interpolated voxel of an axis.
+	 * The coordinate is the one of the whole grid, clamped to the volume, then moved to the source.
+	 * @param axis 0:x, 1:y, 2:z
+	 * @return coordinates in source voxel units, getWidth(), getHeight() or getSlices() values.
+	 */
+	public double[] coordinates(int axis) {
+		double[] c = new double[size[axis]];
+		int n = fullSize[axis];
+		for(int i = 0; i < c.length; i++) {
+			double x = origin[axis] + ((start[axis] + i) / scale[axis]);
+			if(x < 0) x = 0;
+			if(x > n - 1) x = n - 1;
+			x -= sourceOffset[axis];
+			if(x < 0) x = 0;
+			if(x > sourceSize[axis] - 1) x = sourceSize[axis] - 1;
+			c[i] = x;
+		}
+		return c;
+	}
+
+	/**
+	 * @param imp source image
+	 * @return true if imp has the size of the source of the grid.
+	 */
+	public boolean fits(ImagePlus imp) {
+		return imp.getWidth() == sourceSize[0] && imp.getHeight() == sourceSize[1] && imp.getStackSize() == sourceSize[2];
+	}
+
+	public int getWidth() {
+		return size[0];
+	}
+
+	public int getHeight() {
+		return size[1];
+	}
+
+	public int getSlices() {
+		return size[2];
+	}
+
+	/**
+	 * @return {x, y, z} first interpolated voxel, in the whole grid.
+	 */
+	public int[] getStart() {
+		return start.clone();
+	}
+
+	/**
+	 * @return {x0, y0, z0, x1, y1, z1} inclusive, original voxels the grid reads, in the whole volume.
+	 */
+	public int[] getSourceBox() {
+		return new int[] {sourceOffset[0], sourceOffset[1], sourceOffset[2],
+				sourceOffset[0] + sourceSize[0] - 1, sourceOffset[1] + sourceSize[1] - 1, sourceOffset[2] + sourceSize[2] - 1};
+	}
+}
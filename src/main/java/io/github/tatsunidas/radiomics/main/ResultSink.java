@@ -0,0 +1,98 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ij.measure.ResultsTable;
+
+/**
+ * Destination of the rows of an extraction, one row per case (force2D: per slice, several labels: per label).
+ *
+ * A row is column name to value, in column order. Values are Double, or String for the
+ * text columns (OperationalInfo_, image paths ...). "NaN" is the value of a feature that
+ * could not be calculated, as in the ResultsTable of compute().
+ *
+ * Sinks are not thread-safe, the rows are given from one thread at a time.
+ * See ColumnarResultTable (in memory), CsvResultSink and ColumnarFileSink (written as the rows come).
+ *
+ * @author tatsunidas
+ *
+ */
+public interface ResultSink extends Closeable {
+
+	/**
+	 * @param row column name to Double or String, null values are missing.
+	 * @throws IllegalArgumentException if the sink can not take a column of row
+	 * (CsvResultSink, a column that is not in its header). The row is not written.
+	 */
+	void add(Map<String, Object> row) throws IOException;
+
+	/**
+	 * write what is buffered, the rows given so far survive a crash after this.
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * all the rows of a table, see rows(ResultsTable).
+	 */
+	default void addRows(ResultsTable table) throws IOException {
+		for(Map<String, Object> row : rows(table)) {
+			add(row);
+		}
+	}
+
+	/**
+	 * @return rows of table, the row label (if any) as column "Label".
+	 */
+	static List<Map<String, Object>> rows(ResultsTable table) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		if(table == null) {
+			return rows;
+		}
+		for(int row=0;row<table.size();row++) {
+			rows.add(row(table, row));
+		}
+		return rows;
+	}
+
+	/**
+	 * @return one row of table, the row label (if any) as column "Label".
+	 */
+	static Map<String, Object> row(ResultsTable table, int row) {
+		Map<String, Object> values = new LinkedHashMap<>();
+		String label = table.getLabel(row);
+		if(label != null) {
+			values.put("Label", label);
+		}
+		for(String h : table.getHeadings()) {
+			if(h == null || h.trim().isEmpty() || h.equals("Label")) {
+				continue;
+			}
+			if(h.contains("OperationalInfo_")) {
+				values.put(h, table.getStringValue(h, row));
+			}else {
+				values.put(h, table.getValue(h, row));
+			}
+		}
+		return values;
+	}
+}
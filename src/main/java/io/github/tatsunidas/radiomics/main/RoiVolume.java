@@ -0,0 +1,239 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import ij.ImagePlus;
+import ij.process.ImageProcessor;
+
+/**
+ * Discretised grey levels of a roi, cropped to the bounding box of the roi.
+ *
+ * Primitive replacement of Utils.prepareVoxels(), that allocates an Integer[s][h][w]
+ * over the whole image. Voxels are stored x fastest, then y, then z,
+ * in a byte[], short[] or int[] depending on the number of bins.
+ * Voxels outside of the roi have the value OUTSIDE.
+ *
+ * Coordinates of get(x, y, z) are relative to the bounding box,
+ * getX0(), getY0() and getZ0() give its position in the image.
+ *
+ * Immutable, may be shared by the families of an extraction (see ExtractionCache).
+ *
+ * @author tatsunidas
+ *
+ */
+public final class RoiVolume {
+
+	/**
+	 * value of the voxels outside of the roi.
+	 */
+	public static final int OUTSIDE = -1;
+
+	private final int x0, y0, z0;
+	private final int w, h, s;
+	private final int nBins;
+	// only one of them is used.
+	private final byte[] bytes;
+	private final short[] shorts;
+	private final int[] ints;
+
+	private RoiVolume(int x0, int y0, int z0, int w, int h, int s, int nBins) {
+		this.x0 = x0;
+		this.y0 = y0;
+		this.z0 = z0;
+		this.w = w;
+		this.h = h;
+		this.s = s;
+		this.nBins = nBins;
+		int size = w * h * s;
+		if(nBins <= Byte.MAX_VALUE) {
+			bytes = new byte[size];
+			shorts = null;
+			ints = null;
+		}else if(nBins <= Short.MAX_VALUE) {
+			bytes = null;
+			shorts = new short[size];
+			ints = null;
+		}else {
+			bytes = null;
+			shorts = null;
+			ints = new int[size];
+		}
+	}
+
+	/**
+	 * @param discretisedImp discretised image, grey levels 1 to nBins.
+	 * @param mask
+	 * @param label
+	 * @param nBins
+	 * @return volume over the bounding box of the roi. empty (size 0) if no voxel has the label.
+	 * @throws Exception if a grey level in the roi is out of 0 to nBins.
+	 */
+	public static RoiVolume of(ImagePlus discretisedImp, ImagePlus mask, int label, int nBins) throws Exception {
+		if(discretisedImp == null || mask == null) {
+			throw new IllegalArgumentException("RoiVolume: discretised image and mask are required.");
+		}
+		int[] box = boundingBox(mask, label);
+		if(box == null) {
+			return new RoiVolume(0, 0, 0, 0, 0, 0, nBins);
+		}
+		RoiVolume v = new RoiVolume(box[0], box[1], box[2], box[3] - box[0] + 1, box[4] - box[1] + 1, box[5] - box[2] + 1, nBins);
+		int imgW = mask.getWidth();
+		for(int z = 0; z < v.s; z++) {
+			ImageProcessor mp = mask.getStack().getProcessor(v.z0 + z + 1);
+			ImageProcessor ip = discretisedImp.getStack().getProcessor(v.z0 + z + 1);
+			for(int y = 0; y < v.h; y++) {
+				int row = (v.y0 + y) * imgW + v.x0;
+				int i = (z * v.h + y) * v.w;
+				for(int x = 0; x < v.w; x++, i++) {
+					if((int) mp.getf(row + x) != label) {
+						v.set(i, OUTSIDE);
+						continue;
+					}
+					int val = (int) ip.getf(row + x);
+					if(val < 0 || val > nBins) {
+						System.out.println("RoiVolume:Invalid discrete level " + val + ", nBins is " + nBins + ".");
+						throw new Exception("RoiVolume:Invalid discrete level.");
+					}
+					v.set(i, val);
+				}
+			}
+		}
+		return v;
+	}
+
+	/**
+	 * @return {xMin, yMin, zMin, xMax, yMax, zMax} (inclusive, 0 based) of the voxels having the label,
+	 * or null if there is no such voxel.
+	 */
+	public static int[] boundingBox(ImagePlus mask, int label) {
+		int w = mask.getWidth();
+		int h = mask.getHeight();
+		int s = mask.getNSlices();
+		int[] box = null;
+		for(int z = 0; z < s; z++) {
+			ImageProcessor mp = mask.getStack().getProcessor(z + 1);
+			for(int y = 0; y < h; y++) {
+				int row = y * w;
+				for(int x = 0; x < w; x++) {
+					if((int) mp.getf(row + x) != label) {
+						continue;
+					}
+					if(box == null) {
+						box = new int[] {x, y, z, x, y, z};
+						continue;
+					}
+					if(x < box[0]) box[0] = x;
+					if(y < box[1]) box[1] = y;
+					if(z < box[2]) box[2] = z;
+					if(x > box[3]) box[3] = x;
+					if(y > box[4]) box[4] = y;
+					if(z > box[5]) box[5] = z;
+				}
+			}
+		}
+		return box;
+	}
+
+	private void set(int i, int v) {
+		if(bytes != null) {
+			bytes[i] = (byte) v;
+		}else if(shorts != null) {
+			shorts[i] = (short) v;
+		}else {
+			ints[i] = v;
+		}
+	}
+
+	/**
+	 * @param i index, see index(x, y, z).
+	 * @return grey level, or OUTSIDE.
+	 */
+	public int get(int i) {
+		if(bytes != null) {
+			return bytes[i];
+		}else if(shorts != null) {
+			return shorts[i];
+		}
+		return ints[i];
+	}
+
+	/**
+	 * @return grey level, or OUTSIDE. Coordinates out of the bounding box are OUTSIDE as well.
+	 */
+	public int get(int x, int y, int z) {
+		if(!contains(x, y, z)) {
+			return OUTSIDE;
+		}
+		return get(index(x, y, z));
+	}
+
+	public boolean contains(int x, int y, int z) {
+		return x >= 0 && y >= 0 && z >= 0 && x < w && y < h && z < s;
+	}
+
+	public int index(int x, int y, int z) {
+		return (z * h + y) * w + x;
+	}
+
+	/**
+	 * @return number of voxels in the bounding box, including the voxels outside of the roi.
+	 */
+	public int size() {
+		return w * h * s;
+	}
+
+	/**
+	 * @return number of voxels in the roi.
+	 */
+	public int countRoiVoxels() {
+		int n = 0;
+		int size = size();
+		for(int i = 0; i < size; i++) {
+			if(get(i) != OUTSIDE) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	public int getX0() {
+		return x0;
+	}
+
+	public int getY0() {
+		return y0;
+	}
+
+	public int getZ0() {
+		return z0;
+	}
+
+	public int getWidth() {
+		return w;
+	}
+
+	public int getHeight() {
+		return h;
+	}
+
+	public int getDepth() {
+		return s;
+	}
+
+	public int getNBins() {
+		return nBins;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+/**
+ * Runs (consecutive voxels of the same grey level along a direction) of a RoiVolume, as used by GLRLM.
+ *
+ * The volume is walked line by line along the direction: every line starts at a voxel
+ * whose previous voxel is out of the bounding box, and each voxel is visited once.
+ * A run ends at a different grey level, at a voxel out of the roi, or at the end of the line.
+ * Time is linear in the size of the volume, whatever the number of bins.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class RunLengthCounter {
+
+	private RunLengthCounter() {
+	}
+
+	/**
+	 * @param volume grey levels 1 to volume.getNBins(). Grey levels below 1 break the runs, like voxels out of the roi.
+	 * @param dx step of the direction in x, -1, 0 or 1.
+	 * @param dy step in y (image coordinates, y grows downwards).
+	 * @param dz step in z.
+	 * @return number of runs [grey level - 1][run length - 1], at least one column.
+	 */
+	public static int[][] count(RoiVolume volume, int dx, int dy, int dz) {
+		if(dx == 0 && dy == 0 && dz == 0) {
+			throw new IllegalArgumentException("RunLengthCounter: direction (0,0,0) has no run.");
+		}
+		int w = volume.getWidth();
+		int h = volume.getHeight();
+		int s = volume.getDepth();
+		int nBins = volume.getNBins();
+		int longest = Math.max(w, Math.max(h, s));
+		int[][] counts = new int[nBins][Math.max(longest, 1)];
+		int maxRun = 0;
+		for(int z = 0; z < s; z++) {
+			for(int y = 0; y < h; y++) {
+				for(int x = 0; x < w; x++) {
+					if(volume.contains(x - dx, y - dy, z - dz)) {
+						// not the first voxel of a line.
+						continue;
+					}
+					int grey = RoiVolume.OUTSIDE;
+					int run = 0;
+					for(int px = x, py = y, pz = z; volume.contains(px, py, pz); px += dx, py += dy, pz += dz) {
+						int v = volume.get(volume.index(px, py, pz));
+						if(v == grey && v >= 1) {
+							run++;
+							continue;
+						}
+						if(run > 0) {
+							counts[grey - 1][run - 1]++;
+							if(maxRun < run) maxRun = run;
+						}
+						grey = v;
+						run = v >= 1 ? 1 : 0;
+					}
+					if(run > 0) {
+						counts[grey - 1][run - 1]++;
+						if(maxRun < run) maxRun = run;
+					}
+				}
+			}
+		}
+		int columns = Math.max(maxRun, 1);
+		if(nBins == 0 || columns == counts[0].length) {
+			return counts;
+		}
+		int[][] trimmed = new int[nBins][columns];
+		for(int g = 0; g < nBins; g++) {
+			System.arraycopy(counts[g], 0, trimmed[g], 0, columns);
+		}
+		return trimmed;
+	}
+}
@@ -62,6 +62,7 @@ public enum SettingParams {
 	INT_deltaNGLDM,//NGLDM distance
 	INT_GLAM_maxRadius,//GLAM largest distance of the radial distribution function, in voxels
 	INT_GLAM_maxReferenceVoxels,//GLAM reference voxels per gray level, 0 uses the whole roi
+	BOOL_GLAM_fftPairCounts,//GLAM count the shell pairs by 3D FFT correlation instead of a neighbour scan
 	BOOL_GLAM_boundaryCorrection,//GLAM normalise each shell by the part of it inside the roi
 	INT_GLAM_numRandomisations,//GLAM shuffles of the randomised state, 0 uses the closed form
 	LONG_GLAM_randomSeed,//GLAM seed of those shuffles
@@ -74,6 +75,14 @@ public enum SettingParams {
 	DOUBLEARRAY_resamplingFactorXYZ,
 	BOOL_force2D,//slice by slice calculation
 	BOOL_activate_no_default_features,
+	STRING_imageFilters,//filter bank (IBSI 2), e.g. log(1.5);laws(L5E5E5,7), see FilterSpec
+	STRING_filterBackend,//filter bank convolution, auto, separable or fft
+	BOOL_fftSpatialAutocorrelation,//Moran's I and Geary's C by 3D FFT convolution instead of a loop over the voxel pairs, where cheaper
+	INT_familyParallelism,//feature families computed at the same time, 0:all cores, 1:one after another, n:n threads
+	INT_niftiLoadMargin,//NIfTI files: voxels read around the roi bounding box, -1 reads the whole volume
+	BOOL_cropToRoi,//preprocess (resample, filter, discretise) only the roi bounding box and the neighbourhood the families read
+	STRING_targetLabels,//several labels in one pass, one row per label, "all" or e.g. 1,3,5. Empty : INT_label only
+	INT_sliceParallelism,//force2D: slices computed at the same time, 0:all cores, 1:one after another
 	BOOL_enableIntensityBasedStatistics,
 	BOOL_enableLocalIntensityFeatures,
 	BOOL_enableIntensityHistogram,
@@ -0,0 +1,695 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import ij.ImagePlus;
+import ij.measure.Calibration;
+import io.github.tatsunidas.radiomics.features.GLCMFeatures;
+import io.github.tatsunidas.radiomics.features.GLRLMFeatures;
+import io.github.tatsunidas.radiomics.features.NGLDMFeatures;
+import io.github.tatsunidas.radiomics.features.NGTDMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+
+/**
+ * Texture of the windows of a feature map, updated while the window slides along x.
+ *
+ * The image is discretised once over the whole roi, instead of once per window.
+ * The window keeps the counts of its family (co-occurrences of GLCM, runs of GLRLM,
+ * grey tone differences of NGTDM or dependences of NGLDM). A step along x adds what
+ * the entering plane brings and removes what the leaving plane took, so it costs
+ * O(window face) instead of O(window volume). A window farther than its width, or on
+ * another row, is counted from scratch.
+ *
+ * A window is the box of filterSize / 2 voxels around its centre, clipped to the image,
+ * like the sub-volumes of FeatureVisualizationMap. All counts are integers (the grey tone
+ * differences are kept per number of neighbours), so a window does not depend on the way
+ * it was reached.
+ *
+ * Not thread safe, use a cursor per thread.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class SlidingWindowTexture {
+
+	private final RoiVolume volume;
+	private final Class<? extends RadiomicsFeature> featureClass;
+	private final Map<String, Object> settings;
+	private final Calibration cal;
+	private final int filterSize;
+	private final int radius;
+	private final boolean d2_mode;
+	private final int delta;
+	private final int alpha;
+	private final int nBins;
+	private final Counts counts;
+
+	// window, in the coordinates of the volume. empty if x0 > x1.
+	private boolean placed = false;
+	private int rowY;
+	private int rowZ;
+	private int x0, x1, y0, y1, z0, z1;
+	private int numOfVoxels;// in the roi and the window
+
+	private SlidingWindowTexture(RoiVolume volume, Class<? extends RadiomicsFeature> featureClass,
+			Map<String, Object> settings, Calibration cal, int filterSize, boolean d2_mode, int delta, int alpha) {
+		this.volume = volume;
+		this.featureClass = featureClass;
+		this.settings = settings;
+		this.cal = cal;
+		this.filterSize = filterSize;
+		this.radius = filterSize / 2;
+		this.d2_mode = d2_mode;
+		this.delta = delta;
+		this.alpha = alpha;
+		this.nBins = volume.getNBins();
+		if (featureClass == GLCMFeatures.class) {
+			counts = new Cooccurrences(delta);
+		} else if (featureClass == GLRLMFeatures.class) {
+			counts = new Runs();
+		} else if (featureClass == NGTDMFeatures.class) {
+			counts = new Neighbourhoods(delta, false, 0);
+		} else {
+			counts = new Neighbourhoods(delta, true, alpha);
+		}
+	}
+
+	/**
+	 * @return true if the windows of this family can be slid.
+	 */
+	public static boolean supports(Class<?> featureClass) {
+		return featureClass == GLCMFeatures.class || featureClass == GLRLMFeatures.class
+				|| featureClass == NGTDMFeatures.class || featureClass == NGLDMFeatures.class;
+	}
+
+	/**
+	 * @param image
+	 * @param mask roi of the windows, voxels having the label.
+	 * @param featureClass GLCMFeatures, GLRLMFeatures, NGTDMFeatures or NGLDMFeatures.
+	 * @param settings of the family, as for its constructor (label, useBinCount, nBins or binWidth, delta, alpha...).
+	 * @param filterSize diameter of the window.
+	 * @param d2_mode if true, the windows are in the slice of their centre.
+	 * @return cursor over the windows of the roi.
+	 * @throws Exception if the image can not be discretised.
+	 */
+	public static SlidingWindowTexture of(ImagePlus image, ImagePlus mask, Class<? extends RadiomicsFeature> featureClass,
+			Map<String, Object> settings, int filterSize, boolean d2_mode) throws Exception {
+		if (!supports(featureClass)) {
+			throw new IllegalArgumentException("SlidingWindowTexture: " + featureClass.getSimpleName() + " is not supported.");
+		}
+		if (filterSize < 1) {
+			throw new IllegalArgumentException("SlidingWindowTexture: filter size must be 1 or more.");
+		}
+		Object labelValue = settings.get(RadiomicsFeature.LABEL);
+		if (!(labelValue instanceof Integer)) {
+			throw new IllegalArgumentException("'label' is missing in settings, or is not an Integer.");
+		}
+		int label = (Integer) labelValue;
+		ExtractionSettings config = ExtractionSettings.of(settings);
+		Object useBinValue = settings.get(RadiomicsFeature.USE_BIN_COUNT);
+		if (!(useBinValue instanceof Boolean)) {
+			throw new IllegalArgumentException("'useBinCount:boolean' is missing in settings.");
+		}
+		ImagePlus discImg;
+		int nBins;
+		if ((Boolean) useBinValue) {
+			Object nBinsValue = settings.get(RadiomicsFeature.nBins);
+			nBins = nBinsValue instanceof Integer ? (Integer) nBinsValue : config.getNBins();
+			discImg = Utils.discrete(image, mask, label, nBins);
+		} else {
+			Object bwValue = settings.get(RadiomicsFeature.BinWidth);
+			double binWidth = bwValue instanceof Double ? (Double) bwValue : config.getBinWidth();
+			discImg = Utils.discreteByBinWidth(image, mask, label, binWidth, config.getRangeMin());
+			nBins = Utils.getNumOfBinsByMax(discImg, mask, label);
+		}
+		int delta;
+		Object deltaValue = settings.get(RadiomicsFeature.DELTA);
+		if (deltaValue instanceof Integer) {
+			delta = (Integer) deltaValue;
+		} else if (featureClass == GLCMFeatures.class) {
+			delta = config.getDeltaGLCM();
+		} else if (featureClass == NGTDMFeatures.class) {
+			delta = config.getDeltaNGTDM();
+		} else {
+			delta = config.getDeltaNGLDM();
+		}
+		Object alphaValue = settings.get(RadiomicsFeature.ALPHA);
+		int alpha = alphaValue instanceof Integer ? (Integer) alphaValue : config.getAlpha();
+		RoiVolume volume = RoiVolume.of(discImg, mask, label, nBins);
+		return new SlidingWindowTexture(volume, featureClass, settings, image.getCalibration().copy(), filterSize,
+				d2_mode, delta, alpha);
+	}
+
+	/**
+	 * Another cursor over the same discretised image, with its own window and counts.
+	 * The image is not discretised again, so cursors are cheap to make, one per thread.
+	 *
+	 * @return cursor, not placed yet.
+	 */
+	public SlidingWindowTexture cursor() {
+		return new SlidingWindowTexture(volume, featureClass, settings, cal, filterSize, d2_mode, delta, alpha);
+	}
+
+	/**
+	 * Moves the window to a centre, sliding it if it is on the same row and a little ahead.
+	 *
+	 * @param cx centre, in the coordinates of the image.
+	 * @param cy
+	 * @param cz 0 to N-1.
+	 * @return features of the window. valid until the next move.
+	 */
+	public RadiomicsFeature moveTo(int cx, int cy, int cz) {
+		int w = volume.getWidth();
+		int vx = cx - volume.getX0();
+		int vy = cy - volume.getY0();
+		int vz = cz - volume.getZ0();
+		int tx0 = Math.max(0, vx - radius);
+		int tx1 = Math.min(w - 1, vx + radius);
+		if (!placed || vy != rowY || vz != rowZ) {
+			placed = true;
+			rowY = vy;
+			rowZ = vz;
+			y0 = Math.max(0, vy - radius);
+			y1 = Math.min(volume.getHeight() - 1, vy + radius);
+			if (d2_mode) {
+				z0 = vz;
+				z1 = vz < 0 || vz >= volume.getDepth() ? vz - 1 : vz;
+			} else {
+				z0 = Math.max(0, vz - radius);
+				z1 = Math.min(volume.getDepth() - 1, vz + radius);
+			}
+			counts.newRow();
+			reset(tx0);
+		} else if (tx0 < x0 || tx1 < x1 || tx0 > x1 + 1 || (tx0 - x0) + (tx1 - x1) > tx1 - tx0 + 1) {
+			// behind, or too far ahead to be worth sliding.
+			reset(tx0);
+		}
+		while (x1 < tx1) {
+			growRight();
+		}
+		while (x0 < tx0) {
+			shrinkLeft();
+		}
+		return counts.feature();
+	}
+
+	private void reset(int x) {
+		counts.clear();
+		numOfVoxels = 0;
+		x0 = x;
+		x1 = x - 1;
+	}
+
+	private void growRight() {
+		counts.beforeGrow();
+		x1++;
+		numOfVoxels += countPlane(x1);
+		counts.afterGrow();
+	}
+
+	private void shrinkLeft() {
+		counts.beforeShrink();
+		numOfVoxels -= countPlane(x0);
+		x0++;
+		counts.afterShrink();
+	}
+
+	private int countPlane(int x) {
+		int n = 0;
+		for (int z = z0; z <= z1; z++) {
+			for (int y = y0; y <= y1; y++) {
+				if (get(x, y, z) != RoiVolume.OUTSIDE) {
+					n++;
+				}
+			}
+		}
+		return n;
+	}
+
+	private int get(int x, int y, int z) {
+		return volume.get(volume.index(x, y, z));
+	}
+
+	private boolean inWindow(int x, int y, int z) {
+		return x >= x0 && x <= x1 && y >= y0 && y <= y1 && z >= z0 && z <= z1;
+	}
+
+	/**
+	 * {dx, dy, dz} of the 13 directions of CooccurrenceCounter, times the distance.
+	 */
+	private static int[][] directionSteps(int distance) {
+		int[][] directions = CooccurrenceCounter.directions();
+		int[][] steps = new int[directions.length][];
+		for (int k = 0; k < directions.length; k++) {
+			int[] a = directions[k];
+			// adjust vector direction and coordinate direction in Y axis.
+			steps[k] = new int[] { a[2] * distance, a[1] * distance * -1, a[0] * distance };
+		}
+		return steps;
+	}
+
+	/**
+	 * counts of a family. the hooks are called around each move of x0 or x1.
+	 */
+	private abstract class Counts {
+		abstract void clear();
+
+		void newRow() {
+		}
+
+		void beforeGrow() {
+		}
+
+		void afterGrow() {
+		}
+
+		void beforeShrink() {
+		}
+
+		void afterShrink() {
+		}
+
+		abstract RadiomicsFeature feature();
+	}
+
+	/**
+	 * GLCM, counted as CooccurrenceCounter.
+	 */
+	private final class Cooccurrences extends Counts {
+		final int[] cooc;
+		final int[][] steps;
+
+		Cooccurrences(int delta) {
+			if (delta < 1) {
+				throw new IllegalArgumentException("SlidingWindowTexture: delta must be 1 or more.");
+			}
+			cooc = new int[CooccurrenceCounter.NUM_OF_DIRECTIONS * nBins * nBins];
+			steps = directionSteps(delta);
+		}
+
+		@Override
+		void clear() {
+			Arrays.fill(cooc, 0);
+		}
+
+		@Override
+		void afterGrow() {
+			pairs(x1, -1, 1);
+		}
+
+		@Override
+		void beforeShrink() {
+			pairs(x0, 1, -1);
+		}
+
+		/*
+		 * pairs between the plane x and the window, on the inward side of the plane.
+		 */
+		private void pairs(int x, int inward, int sign) {
+			int matrixSize = nBins * nBins;
+			for (int z = z0; z <= z1; z++) {
+				for (int y = y0; y <= y1; y++) {
+					int gi = get(x, y, z);
+					if (gi < 1) {
+						continue;
+					}
+					for (int k = 0; k < steps.length; k++) {
+						int[] d = steps[k];
+						int f = d[0] * inward < 0 ? -1 : 1;
+						int bx = x + f * d[0];
+						int by = y + f * d[1];
+						int bz = z + f * d[2];
+						if (!inWindow(bx, by, bz)) {
+							continue;
+						}
+						int gj = get(bx, by, bz);
+						if (gj < 1) {
+							continue;
+						}
+						int base = k * matrixSize;
+						cooc[base + (gi - 1) * nBins + (gj - 1)] += sign;
+						cooc[base + (gj - 1) * nBins + (gi - 1)] += sign;
+					}
+				}
+			}
+		}
+
+		@Override
+		RadiomicsFeature feature() {
+			return new GLCMFeatures(cooc, nBins, cal, settings);
+		}
+	}
+
+	/**
+	 * GLRLM, counted as RunLengthCounter.
+	 *
+	 * Runs along x are cut by the window: the lengths of the runs through each voxel
+	 * of the row are kept for these directions, so that the run at either end of the
+	 * window is known without walking it.
+	 */
+	private final class Runs extends Counts {
+		final int[][][] runs;// [direction][grey level - 1][run length - 1]
+		final int[][] steps;// dx is 0 or 1.
+		// lengths of the runs ending at / starting from each voxel of the row, [direction][slab index], dx = 1 only.
+		final int[][] backward;
+		final int[][] forward;
+
+		Runs() {
+			steps = directionSteps(1);
+			for (int[] d : steps) {
+				if (d[0] < 0) {
+					// the same runs, walked the other way.
+					d[0] = -d[0];
+					d[1] = -d[1];
+					d[2] = -d[2];
+				}
+			}
+			runs = new int[steps.length][nBins][2 * radius + 1];
+			backward = new int[steps.length][];
+			forward = new int[steps.length][];
+			int slab = volume.getWidth() * (2 * radius + 1) * (d2_mode ? 1 : 2 * radius + 1);
+			for (int k = 0; k < steps.length; k++) {
+				if (steps[k][0] == 1) {
+					backward[k] = new int[slab];
+					forward[k] = new int[slab];
+				}
+			}
+		}
+
+		private int slabIndex(int x, int y, int z) {
+			return ((z - z0) * (y1 - y0 + 1) + (y - y0)) * volume.getWidth() + x;
+		}
+
+		private boolean inRow(int y, int z) {
+			return y >= y0 && y <= y1 && z >= z0 && z <= z1;
+		}
+
+		@Override
+		void clear() {
+			for (int[][] r : runs) {
+				for (int[] row : r) {
+					Arrays.fill(row, 0);
+				}
+			}
+		}
+
+		@Override
+		void newRow() {
+			int w = volume.getWidth();
+			for (int k = 0; k < steps.length; k++) {
+				if (steps[k][0] != 1) {
+					continue;
+				}
+				int dy = steps[k][1];
+				int dz = steps[k][2];
+				int[] bw = backward[k];
+				int[] fw = forward[k];
+				for (int x = 0; x < w; x++) {
+					for (int z = z0; z <= z1; z++) {
+						for (int y = y0; y <= y1; y++) {
+							int g = get(x, y, z);
+							int i = slabIndex(x, y, z);
+							if (g < 1) {
+								bw[i] = 0;
+							} else if (x > 0 && inRow(y - dy, z - dz) && get(x - 1, y - dy, z - dz) == g) {
+								bw[i] = bw[slabIndex(x - 1, y - dy, z - dz)] + 1;
+							} else {
+								bw[i] = 1;
+							}
+						}
+					}
+				}
+				for (int x = w - 1; x >= 0; x--) {
+					for (int z = z0; z <= z1; z++) {
+						for (int y = y0; y <= y1; y++) {
+							int g = get(x, y, z);
+							int i = slabIndex(x, y, z);
+							if (g < 1) {
+								fw[i] = 0;
+							} else if (x < w - 1 && inRow(y + dy, z + dz) && get(x + 1, y + dy, z + dz) == g) {
+								fw[i] = fw[slabIndex(x + 1, y + dy, z + dz)] + 1;
+							} else {
+								fw[i] = 1;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		void afterGrow() {
+			int x = x1;
+			for (int k = 0; k < steps.length; k++) {
+				int[] d = steps[k];
+				if (d[0] == 0) {
+					planeRuns(x, k, 1);
+					continue;
+				}
+				int[][] r = runs[k];
+				for (int z = z0; z <= z1; z++) {
+					for (int y = y0; y <= y1; y++) {
+						int g = get(x, y, z);
+						if (g < 1) {
+							continue;
+						}
+						int px = x - 1;
+						int py = y - d[1];
+						int pz = z - d[2];
+						if (px >= x0 && inRow(py, pz) && get(px, py, pz) == g) {
+							// the run ending at the previous voxel grows.
+							int length = Math.min(backward[k][slabIndex(px, py, pz)], px - x0 + 1);
+							r[g - 1][length - 1]--;
+							r[g - 1][length]++;
+						} else {
+							r[g - 1][0]++;
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		void beforeShrink() {
+			int x = x0;
+			for (int k = 0; k < steps.length; k++) {
+				if (steps[k][0] == 0) {
+					planeRuns(x, k, -1);
+					continue;
+				}
+				int[][] r = runs[k];
+				for (int z = z0; z <= z1; z++) {
+					for (int y = y0; y <= y1; y++) {
+						int g = get(x, y, z);
+						if (g < 1) {
+							continue;
+						}
+						// a voxel of the first plane starts its run.
+						int length = Math.min(forward[k][slabIndex(x, y, z)], x1 - x + 1);
+						r[g - 1][length - 1]--;
+						if (length > 1) {
+							r[g - 1][length - 2]++;
+						}
+					}
+				}
+			}
+		}
+
+		/*
+		 * runs in the plane x of a direction without x step.
+		 */
+		private void planeRuns(int x, int k, int sign) {
+			int dy = steps[k][1];
+			int dz = steps[k][2];
+			int[][] r = runs[k];
+			for (int z = z0; z <= z1; z++) {
+				for (int y = y0; y <= y1; y++) {
+					int g = get(x, y, z);
+					if (g < 1) {
+						continue;
+					}
+					if (inRow(y - dy, z - dz) && get(x, y - dy, z - dz) == g) {
+						// not the first voxel of the run.
+						continue;
+					}
+					int length = 1;
+					for (int py = y + dy, pz = z + dz; inRow(py, pz) && get(x, py, pz) == g; py += dy, pz += dz) {
+						length++;
+					}
+					r[g - 1][length - 1] += sign;
+				}
+			}
+		}
+
+		@Override
+		RadiomicsFeature feature() {
+			return new GLRLMFeatures(runs, numOfVoxels, settings);
+		}
+	}
+
+	/**
+	 * NGTDM or NGLDM, counted as NeighbourhoodCounter.
+	 *
+	 * A voxel within delta of a side of the window loses or gains neighbours when the window moves,
+	 * its contribution is taken out before the move and put back after it.
+	 */
+	private final class Neighbourhoods extends Counts {
+		final int delta;
+		final boolean dependence;// NGLDM, else NGTDM.
+		final int alpha;
+		final int[][] steps;
+		// NGTDM
+		int[] n;// [grey level - 1]
+		long[][] differences;// sum of |i * number of neighbours - sum of the neighbours|, [grey level - 1][number of neighbours]
+		// NGLDM
+		int[][] dependences;// [grey level - 1][number of dependent neighbours]
+
+		Neighbourhoods(int delta, boolean dependence, int alpha) {
+			if (delta < 1) {
+				throw new IllegalArgumentException("SlidingWindowTexture: delta must be 1 or more.");
+			}
+			this.delta = delta;
+			this.dependence = dependence;
+			this.alpha = alpha;
+			HashMap<Integer, int[]> angles = Utils.buildAngles();
+			ArrayList<Integer> angle_ids = new ArrayList<>(angles.keySet());
+			Collections.sort(angle_ids);
+			steps = new int[(angle_ids.size() - 1) * delta][];
+			int k = 0;
+			for (int d = 1; d <= delta; d++) {
+				for (Integer a_id : angle_ids) {
+					int[] a = angles.get(a_id);
+					if (a[0] == 0 && a[1] == 0 && a[2] == 0) {
+						continue;// own voxel
+					}
+					steps[k++] = new int[] { a[2] * d, a[1] * d * -1, a[0] * d };
+				}
+			}
+			if (dependence) {
+				dependences = new int[nBins][steps.length + 1];
+			} else {
+				n = new int[nBins];
+				differences = new long[nBins][steps.length + 1];
+			}
+		}
+
+		@Override
+		void clear() {
+			if (dependence) {
+				for (int[] row : dependences) {
+					Arrays.fill(row, 0);
+				}
+			} else {
+				Arrays.fill(n, 0);
+				for (long[] row : differences) {
+					Arrays.fill(row, 0L);
+				}
+			}
+		}
+
+		@Override
+		void beforeGrow() {
+			band(Math.max(x0, x1 - delta + 1), x1, -1);
+		}
+
+		@Override
+		void afterGrow() {
+			band(Math.max(x0, x1 - delta), x1, 1);
+		}
+
+		@Override
+		void beforeShrink() {
+			band(x0, Math.min(x1, x0 + delta), -1);
+		}
+
+		@Override
+		void afterShrink() {
+			band(x0, Math.min(x1, x0 + delta - 1), 1);
+		}
+
+		private void band(int xFrom, int xTo, int sign) {
+			for (int x = xFrom; x <= xTo; x++) {
+				for (int z = z0; z <= z1; z++) {
+					for (int y = y0; y <= y1; y++) {
+						voxel(x, y, z, sign);
+					}
+				}
+			}
+		}
+
+		private void voxel(int x, int y, int z, int sign) {
+			int g = get(x, y, z);
+			if (g < 1) {
+				return;
+			}
+			long sum = 0;
+			int count = 0;
+			for (int[] d : steps) {
+				int nx = x + d[0];
+				int ny = y + d[1];
+				int nz = z + d[2];
+				if (!inWindow(nx, ny, nz)) {
+					continue;
+				}
+				int v = get(nx, ny, nz);
+				if (v < 1) {
+					continue;
+				}
+				if (dependence) {
+					if (Math.abs(g - v) <= alpha) {
+						count++;
+					}
+				} else {
+					sum += v;
+					count++;
+				}
+			}
+			if (dependence) {
+				dependences[g - 1][count] += sign;
+				return;
+			}
+			n[g - 1] += sign;
+			if (count != 0) {
+				differences[g - 1][count] += sign * Math.abs((long) g * count - sum);
+			}
+		}
+
+		@Override
+		RadiomicsFeature feature() {
+			if (dependence) {
+				return new NGLDMFeatures(dependences, settings);
+			}
+			double[][] nisi = new double[nBins][2];
+			for (int g = 0; g < nBins; g++) {
+				nisi[g][0] = n[g];
+				double s = 0d;
+				for (int c = 1; c < differences[g].length; c++) {
+					if (differences[g][c] != 0) {
+						s += (double) differences[g][c] / c;
+					}
+				}
+				nisi[g][1] = s;
+			}
+			return new NGTDMFeatures(nisi, settings);
+		}
+	}
+}
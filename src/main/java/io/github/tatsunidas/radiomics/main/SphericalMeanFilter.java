@@ -0,0 +1,170 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package io.github.tatsunidas.radiomics.main;
+
+import ij.ImagePlus;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+
+/**
+ * Mean intensity within a sphere around voxels, as used by the local intensity features (IBSI 3.2).
+ *
+ * The sphere holds the voxels whose centres are not farther than the radius, measured with the voxel
+ * spacing. Voxels out of the image are left out of the mean, the mask is not used.
+ *
+ * The sphere is built once, as runs of voxels along x, one run per (y, z) offset.
+ * The image is turned into running sums along x, so that a run costs one subtraction
+ * and a sphere the number of its runs, instead of the number of its voxels.
+ *
+ * @author tatsunidas
+ *
+ */
+public final class SphericalMeanFilter {
+
+	private final int rangeX;
+	private final int rangeY;
+	private final int rangeZ;
+	/*
+	 * {dy, dz, half length along x} of each run.
+	 */
+	private final int[][] runs;
+
+	/**
+	 * @param radius in the unit of the voxel spacing.
+	 * @param px voxel width
+	 * @param py voxel height
+	 * @param pz voxel depth
+	 */
+	public SphericalMeanFilter(double radius, double px, double py, double pz) {
+		if(!(radius >= 0) || !(px > 0) || !(py > 0) || !(pz > 0)) {
+			throw new IllegalArgumentException("SphericalMeanFilter: radius and voxel spacing must be positive.");
+		}
+		rangeX = (int) Math.round(radius / px);
+		rangeY = (int) Math.round(radius / py);
+		rangeZ = (int) Math.round(radius / pz);
+		int count = 0;
+		int[][] all = new int[(2 * rangeY + 1) * (2 * rangeZ + 1)][];
+		for(int dz = -rangeZ; dz <= rangeZ; dz++) {
+			for(int dy = -rangeY; dy <= rangeY; dy++) {
+				int half = -1;
+				for(int dx = 0; dx <= rangeX; dx++) {
+					double length = Math.sqrt(Math.pow(dx * px, 2) + Math.pow(dy * py, 2) + Math.pow(dz * pz, 2));
+					if(length > radius) {
+						break;
+					}
+					half = dx;
+				}
+				if(half >= 0) {
+					all[count++] = new int[] {dy, dz, half};
+				}
+			}
+		}
+		runs = new int[count][];
+		System.arraycopy(all, 0, runs, 0, count);
+	}
+
+	/**
+	 * @return true if the sphere is smaller than a voxel, then it only holds the voxel itself.
+	 */
+	public boolean isSingleVoxel() {
+		return rangeX == 0 && rangeY == 0 && rangeZ == 0;
+	}
+
+	/**
+	 * @return number of voxels in the sphere, when it is inside the image.
+	 */
+	public int size() {
+		int size = 0;
+		for(int[] run : runs) {
+			size += 2 * run[2] + 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Mean of the calibrated intensities of img in the sphere around each of the given voxels.
+	 * @param img image
+	 * @param xs x of the centres (0 based)
+	 * @param ys y of the centres (0 based)
+	 * @param zs z of the centres (0 based, slice - 1)
+	 * @return mean of each centre
+	 */
+	public double[] apply(ImagePlus img, int[] xs, int[] ys, int[] zs) {
+		final int n = xs.length;
+		double[] means = new double[n];
+		if(n == 0) {
+			return means;
+		}
+		final int w = img.getWidth();
+		final int h = img.getHeight();
+		final int s = img.getNSlices();
+		// running sums of the part of the image the spheres reach
+		int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, z0 = Integer.MAX_VALUE;
+		int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE, z1 = Integer.MIN_VALUE;
+		for(int i = 0; i < n; i++) {
+			x0 = Math.min(x0, xs[i]);
+			y0 = Math.min(y0, ys[i]);
+			z0 = Math.min(z0, zs[i]);
+			x1 = Math.max(x1, xs[i]);
+			y1 = Math.max(y1, ys[i]);
+			z1 = Math.max(z1, zs[i]);
+		}
+		x0 = Math.max(0, x0 - rangeX);
+		y0 = Math.max(0, y0 - rangeY);
+		z0 = Math.max(0, z0 - rangeZ);
+		x1 = Math.min(w - 1, x1 + rangeX);
+		y1 = Math.min(h - 1, y1 + rangeY);
+		z1 = Math.min(s - 1, z1 + rangeZ);
+		final int rowLength = x1 - x0 + 2;
+		final int rows = y1 - y0 + 1;
+		double[] sums = new double[(z1 - z0 + 1) * rows * rowLength];
+		float[] cTable = img.getCalibration().getCTable();
+		for(int z = z0; z <= z1; z++) {
+			ImageProcessor ip = img.getStack().getProcessor(z + 1);
+			// same value as ImageProcessor.getPixelValue(), without setting the table on the shared processor.
+			boolean calibrated = cTable != null && !(ip instanceof FloatProcessor);
+			for(int y = y0; y <= y1; y++) {
+				int row = ((z - z0) * rows + (y - y0)) * rowLength;
+				double sum = 0;
+				for(int x = x0; x <= x1; x++) {
+					sum += calibrated ? cTable[ip.get(x, y)] : ip.getf(x, y);
+					sums[row + x - x0 + 1] = sum;
+				}
+			}
+		}
+		for(int i = 0; i < n; i++) {
+			int x = xs[i];
+			int y = ys[i];
+			int z = zs[i];
+			double sum = 0;
+			int count = 0;
+			for(int[] run : runs) {
+				int yy = y + run[0];
+				int zz = z + run[1];
+				if(yy < 0 || yy >= h || zz < 0 || zz >= s) {
+					continue;
+				}
+				int lo = Math.max(0, x - run[2]);
+				int hi = Math.min(w - 1, x + run[2]);
+				int row = ((zz - z0) * rows + (yy - y0)) * rowLength - x0;
+				sum += sums[row + hi + 1] - sums[row + lo];
+				count += hi - lo + 1;
+			}
+			means[i] = sum / count;
+		}
+		return means;
+	}
+}
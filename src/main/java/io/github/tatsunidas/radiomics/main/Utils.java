@@ -21,6 +21,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 
 import org.apache.commons.math3.stat.StatUtils;
 
@@ -521,6 +522,18 @@ public class Utils {
 	 * @return
 	 */
 	public static ImagePlus isoVoxelizeWithInterpolation(ImagePlus imp, boolean isMask) {
+		return isoVoxelizeWithInterpolation(imp, isMask, RadiomicsJ.interpolation3D, RadiomicsJ.mask_PartialVolumeThreshold);
+	}
+	
+	/**
+	 * Iso voxelize by voxel width.
+	 * @param imp
+	 * @param isMask
+	 * @param interpType RadiomicsJ.TRILINEAR, NEAREST3D, TRICUBIC_SPLINE or TRICUBIC_POLYNOMIAL
+	 * @param partialVolumeThreshold used if isMask
+	 * @return
+	 */
+	public static ImagePlus isoVoxelizeWithInterpolation(ImagePlus imp, boolean isMask, int interpType, double partialVolumeThreshold) {
 		if(imp == null) {
 			return null;
 		}
@@ -539,10 +552,14 @@ public class Utils {
 			return imp;
 		}
 		double isoVoxelSize = cal.pixelWidth;
-		return resample3D(imp, isMask, isoVoxelSize, isoVoxelSize, isoVoxelSize);
+		return resample3D(imp, isMask, isoVoxelSize, isoVoxelSize, isoVoxelSize, interpType, partialVolumeThreshold);
 	}
 	
 	public static ImagePlus resample2D(ImagePlus imp, boolean isMask, double resampleX, double resampleY , int method) {
+		return resample2D(imp, isMask, resampleX, resampleY, method, RadiomicsJ.mask_PartialVolumeThreshold);
+	}
+	
+	public static ImagePlus resample2D(ImagePlus imp, boolean isMask, double resampleX, double resampleY , int method, double partialVolumeThreshold) {
 		if(imp == null) {
 			return null;
 		}
@@ -584,7 +601,7 @@ public class Utils {
 						 * Use the same rule as trilinearInterpolation(), and clear the
 						 * sub threshold values instead of leaving the interpolated fraction.
 						 */
-						pixels[nx][ny] = pixels[nx][ny] >= RadiomicsJ.mask_PartialVolumeThreshold ? (float)RadiomicsJ.label_ : 0f;
+						pixels[nx][ny] = pixels[nx][ny] >= partialVolumeThreshold ? (float)RadiomicsJ.label_ : 0f;
 					}
 				}
 				stack.addSlice(new FloatProcessor(pixels));
@@ -612,6 +629,20 @@ public class Utils {
 	}
 
 	public static ImagePlus resample3D(ImagePlus imp, boolean isMask, double x, double y, double z, int interpType) {
+		return resample3D(imp, isMask, x, y, z, interpType, RadiomicsJ.mask_PartialVolumeThreshold);
+	}
+	
+	/**
+	 * @param partialVolumeThreshold a resampled mask voxel belongs to the roi if its value is equal or above it.
+	 */
+	public static ImagePlus resample3D(ImagePlus imp, boolean isMask, double x, double y, double z, int interpType, double partialVolumeThreshold) {
+		return resample3D(imp, isMask, x, y, z, interpType, partialVolumeThreshold, null);
+	}
+	
+	/**
+	 * @param grid part of the interpolation grid to compute, imp is its source. null for the whole grid.
+	 */
+	public static ImagePlus resample3D(ImagePlus imp, boolean isMask, double x, double y, double z, int interpType, double partialVolumeThreshold, ResamplingGrid grid) {
 		if (isMask) {
 			int nSlices = imp.getNSlices();
 			// スタック全体の最大値を格納する変数を初期化
@@ -633,16 +664,16 @@ public class Utils {
 		}
 		if(interpType == RadiomicsJ.TRILINEAR) {
 			//trilinearInterpolation() applies the partial volume threshold by itself.
-			return trilinearInterpolation(imp, isMask, x, y, z);
+			return trilinearInterpolation(imp, isMask, x, y, z, partialVolumeThreshold, grid);
 		}else if(interpType == RadiomicsJ.NEAREST3D) {
 			//nearest neighbour keeps label values as-is.
-			return nearestNeighbourInterpolation(imp, x, y, z);
+			return nearestNeighbourInterpolation(imp, x, y, z, grid);
 		}else if(interpType == RadiomicsJ.TRICUBIC_SPLINE) {
-			ImagePlus resampled = tricubicSplineInterporation(imp, x, y, z);
-			return isMask ? binarizeMaskByPartialVolume(resampled) : resampled;
+			ImagePlus resampled = tricubicSplineInterporation(imp, x, y, z, grid);
+			return isMask ? binarizeMaskByPartialVolume(resampled, partialVolumeThreshold) : resampled;
 		}else if(interpType == RadiomicsJ.TRICUBIC_POLYNOMIAL) {
-			ImagePlus resampled = tricubicPolynomialInterporation(imp, x, y, z);
-			return isMask ? binarizeMaskByPartialVolume(resampled) : resampled;
+			ImagePlus resampled = tricubicPolynomialInterporation(imp, x, y, z, grid);
+			return isMask ? binarizeMaskByPartialVolume(resampled, partialVolumeThreshold) : resampled;
 		}else {
 			return null;
 		}
@@ -658,6 +689,10 @@ public class Utils {
 	 * @return mask stack that has label 1, or null if input is null.
 	 */
 	public static ImagePlus binarizeMaskByPartialVolume(ImagePlus interpolatedMask) {
+		return binarizeMaskByPartialVolume(interpolatedMask, RadiomicsJ.mask_PartialVolumeThreshold);
+	}
+	
+	public static ImagePlus binarizeMaskByPartialVolume(ImagePlus interpolatedMask, double partialVolumeThreshold) {
 		if(interpolatedMask == null) {
 			return null;
 		}
@@ -670,7 +705,7 @@ public class Utils {
 			FloatProcessor fp = new FloatProcessor(w, h);
 			for(int y=0;y<h;y++) {
 				for(int x=0;x<w;x++) {
-					fp.setf(x, y, ip.getf(x, y) >= RadiomicsJ.mask_PartialVolumeThreshold ? (float)RadiomicsJ.label_ : 0f);
+					fp.setf(x, y, ip.getf(x, y) >= partialVolumeThreshold ? (float)RadiomicsJ.label_ : 0f);
 				}
 			}
 			stack.addSlice(fp);
@@ -837,7 +872,35 @@ public class Utils {
 		return ((n - 1) / 2d) - ((newN - 1) / (2d * scale));
 	}
 
+	/**
+	 * raw values of the stack, x fastest.
+	 */
+	private static float[] stackVoxels(ImagePlus imp) {
+		int size = imp.getWidth() * imp.getHeight();
+		int s = imp.getStackSize();
+		float[] voxels = new float[size * s];
+		int itr = 0;
+		for (int z = 0; z < s; z++) {
+			ImageProcessor ip = imp.getStack().getProcessor(z+1);
+			for(int i = 0; i < size; i++) {
+				voxels[itr++] = ip.getf(i);
+			}
+		}
+		return voxels;
+	}
+
 	public static ImagePlus trilinearInterpolation(ImagePlus imp, boolean isMask, double resampleX, double resampleY, double resampleZ) {
+		return trilinearInterpolation(imp, isMask, resampleX, resampleY, resampleZ, RadiomicsJ.mask_PartialVolumeThreshold);
+	}
+	
+	public static ImagePlus trilinearInterpolation(ImagePlus imp, boolean isMask, double resampleX, double resampleY, double resampleZ, double partialVolumeThreshold) {
+		return trilinearInterpolation(imp, isMask, resampleX, resampleY, resampleZ, partialVolumeThreshold, null);
+	}
+	
+	/**
+	 * @param grid part of the interpolation grid to compute, imp is its source. null for the whole grid.
+	 */
+	public static ImagePlus trilinearInterpolation(ImagePlus imp, boolean isMask, double resampleX, double resampleY, double resampleZ, double partialVolumeThreshold, ResamplingGrid grid) {
 		if(imp == null){
 			return null;
 		}
@@ -860,93 +923,50 @@ public class Utils {
 //		int newH = (int)Math.round(h * (cal.pixelHeight / resampleY));
 //		int newS = (int)Math.round(s * (cal.pixelDepth / resampleZ));
 		
-		int newW = (int)Math.ceil(w * (cal.pixelWidth / resampleX));
-		int newH = (int)Math.ceil(h * (cal.pixelHeight / resampleY));
-		int newS = (int)Math.ceil(s * (cal.pixelDepth / resampleZ));
-		
-		float[] voxels = new float[w*h*s];
-		float[] deformed = new float[newW*newH*newS];
-		int itr = 0;
-		for (int z = 0; z < s; z++) {
-			ImageProcessor ip = imp.getStack().getProcessor(z+1);
-			for(int y = 0; y < h; y++) {
-				for(int x = 0; x < w; x++) {
-					voxels[itr++] = ip.getf(x, y);
-				}
-			}
+		if(grid == null) {
+			grid = ResamplingGrid.of(imp, resampleX, resampleY, resampleZ);
+		}else if(!grid.fits(imp)) {
+			throw new IllegalArgumentException("The image is not the source of the resampling grid.");
 		}
+		int newW = grid.getWidth();
+		int newH = grid.getHeight();
+		
+		float[] voxels = stackVoxels(imp);
 		
-		int i, j, k;
-		double x, y, z;
 		/*
+		 * Grid alignment, see ResamplingGrid.
 		 * Scale must be derived from the voxel spacings, NOT from (newW/w).
 		 * newW is a ceil() rounded grid size, therefore using it stretches the image
 		 * by up to one voxel over the whole field of view.
-		 */
-		double scaleX = cal.pixelWidth / resampleX;
-		double scaleY = cal.pixelHeight / resampleY;
-		double scaleZ = cal.pixelDepth / resampleZ;
-		/*
-		 * Grid alignment.
 		 * IBSI(5.2.1) : "The centers of the interpolation and original image grids should be
 		 * aligned, i.e. the interpolation grid is centered on the center of the original image grid."
 		 * The grid size is a ceiling operation, therefore the new grid is a bit wider than
 		 * the original extent, and the offset must be derived from both grid centres.
 		 * The former "i/scale" put the centre of new voxel 0 onto the centre of old voxel 0,
 		 * that shifts the whole grid whenever the spacings differ.
+		 * Out of range coordinates are clamped (edge replication),
+		 * because TrilinearInterpolation2() returns 0 for them.
+		 * Resampler computes TrilinearInterpolation2() at every voxel of the grid.
 		 */
-		double originX = gridOrigin(w, newW, scaleX);
-		double originY = gridOrigin(h, newH, scaleY);
-		double originZ = gridOrigin(s, newS, scaleZ);
-
-		int slice = newW * newH;
-		int index;
-		for (i = 0; i < newW; i++) {
+		float[][] deformed = Resampler.trilinear(voxels, w, h, s, grid, true);
+		if(isMask) {
 			/*
-			 * Out of range coordinates are clamped (edge replication),
-			 * because TrilinearInterpolation2() returns 0 for them.
+			 * In IBSI, 
+			 * interp >= RadiomicsJ.mask_PartialVolumeThareshold
+			 * 
+			 * this methods always need label 1 mask.
 			 */
-			x = originX + (i / scaleX);
-			if(x < 0) x = 0;
-			if(x > w-1) x = w-1;
-			for (j = 0; j < newH; j++) {
-				y = originY + (j / scaleY);
-				if(y < 0) y = 0;
-				if(y > h-1) y = h-1;
-				for (k = 0; k < newS; k++) {
-					z = originZ + (k / scaleZ);
-					if(z < 0) z = 0;
-					if(z > s-1) z = s-1;
-					index = k * slice + j * newW + i;
-					float interp = (float) (TrilinearInterpolation2(voxels, w, h, s, x, y, z));
-					if(!isMask) {//img
-						deformed[index] = interp;
-					}else {//mask
-						/*
-						 * In IBSI, 
-						 * interp >= RadiomicsJ.mask_PartialVolumeThareshold
-						 * 
-						 * this methods always need label 1 mask.
-						 */
-						if(interp >= RadiomicsJ.mask_PartialVolumeThreshold) {
-							deformed[index] = (float)RadiomicsJ.label_;
-						}else {
-							deformed[index] = 0f;
-						}
-					}
+			float label = (float)RadiomicsJ.label_;
+			for(float[] slice : deformed) {
+				for(int i = 0; i < slice.length; i++) {
+					slice[i] = slice[i] >= partialVolumeThreshold ? label : 0f;
 				}
 			}
 		}
 		ImageStack stack = new ImageStack(newW, newH);
-		for(int z2=0;z2<newS;z2++) {
-			float[] s_fp = new float[newW*newH];
-			int start = newW*newH*z2;
-			for(int s2=start;s2<start+slice;s2++) {
-				s_fp[s2-start] = deformed[s2];
-			}
-			ImageProcessor ip = new FloatProcessor(newW, newH, s_fp);
-			stack.addSlice(ip);
-		}	
+		for(float[] slice : deformed) {
+			stack.addSlice(new FloatProcessor(newW, newH, slice));
+		}
 		ImagePlus interp = new ImagePlus("tri", stack);
 		cal.pixelWidth = resampleX;
 		cal.pixelHeight = resampleY;
@@ -1148,6 +1168,13 @@ public class Utils {
 	 * @return
 	 */
 	public static ImagePlus nearestNeighbourInterpolation(ImagePlus imp, double resampleX, double resampleY, double resampleZ) {
+		return nearestNeighbourInterpolation(imp, resampleX, resampleY, resampleZ, null);
+	}
+	
+	/**
+	 * @param grid part of the interpolation grid to compute, imp is its source. null for the whole grid.
+	 */
+	public static ImagePlus nearestNeighbourInterpolation(ImagePlus imp, double resampleX, double resampleY, double resampleZ, ResamplingGrid grid) {
 		if(imp == null){
 			return null;
 		}
@@ -1165,66 +1192,21 @@ public class Utils {
 			return null;
 		}
 
-		int newW = (int)Math.ceil(w * (cal.pixelWidth / resampleX));
-		int newH = (int)Math.ceil(h * (cal.pixelHeight / resampleY));
-		int newS = (int)Math.ceil(s * (cal.pixelDepth / resampleZ));
-		
-		float[] voxels = new float[w*h*s];
-		float[] deformed = new float[newW*newH*newS];
-		int itr = 0;
-		for (int z = 0; z < s; z++) {
-			ImageProcessor ip = imp.getStack().getProcessor(z+1);
-			for(int y = 0; y < h; y++) {
-				for(int x = 0; x < w; x++) {
-					voxels[itr++] = ip.getf(x, y);
-				}
-			}
+		if(grid == null) {
+			grid = ResamplingGrid.of(imp, resampleX, resampleY, resampleZ);
+		}else if(!grid.fits(imp)) {
+			throw new IllegalArgumentException("The image is not the source of the resampling grid.");
 		}
-		itr = 0;//reset
+		int newW = grid.getWidth();
+		int newH = grid.getHeight();
 		
-		int i, j, k;
-		double x, y, z;
+		float[] voxels = stackVoxels(imp);
 		//see trilinearInterpolation() for the grid alignment.
-		double scaleX = cal.pixelWidth / resampleX;
-		double scaleY = cal.pixelHeight / resampleY;
-		double scaleZ = cal.pixelDepth / resampleZ;
-		double originX = gridOrigin(w, newW, scaleX);
-		double originY = gridOrigin(h, newH, scaleY);
-		double originZ = gridOrigin(s, newS, scaleZ);
-
-		int slice = newW * newH;
-		int index;
-		for (i = 0; i < newW; i++) {
-			x = originX + (i / scaleX);
-			if (x < 0) x = 0;
-			if (x > w - 1)
-				x = w - 1;
-			for (j = 0; j < newH; j++) {
-				y = originY + (j / scaleY);
-				if (y < 0) y = 0;
-				if (y > h - 1)
-					y = h - 1;
-				for (k = 0; k < newS; k++) {
-					z = originZ + (k / scaleZ);
-					if (z < 0) z = 0;
-					if (z > s - 1)
-						z = s - 1;
-					index = k * slice + j * newW + i;
-					float interp = (float) (NNInterpolation(voxels, w, h, s, x, y, z));
-					deformed[index] = interp;
-				}
-			}
-		}
+		float[][] deformed = Resampler.nearestNeighbour(voxels, w, h, s, grid, true);
 		ImageStack stack = new ImageStack(newW, newH);
-		for(int z2=0;z2<newS;z2++) {
-			float[] s_fp = new float[newW*newH];
-			int start = newW*newH*z2;
-			for(int s2=start;s2<start+slice;s2++) {
-				s_fp[s2-start] = deformed[s2];
-			}
-			ImageProcessor ip = new FloatProcessor(newW, newH, s_fp);
-			stack.addSlice(ip);
-		}	
+		for(float[] slice : deformed) {
+			stack.addSlice(new FloatProcessor(newW, newH, slice));
+		}
 		ImagePlus interp = new ImagePlus("NN", stack);
 		cal.pixelWidth = resampleX;
 		cal.pixelHeight = resampleY;
@@ -1282,6 +1264,108 @@ public class Utils {
 		}
 	}
 	
+	/**
+	 * Bounding box of a label, matched on the calibrated mask values
+	 * as initMaskAsFloatAndConvertLabelOne() does.
+	 * @param mask any type
+	 * @param label roi label
+	 * @return {x0, y0, z0, x1, y1, z1} inclusive, or null if the mask has no such voxel.
+	 */
+	public static int[] roiBoundingBox(ImagePlus mask, int label) {
+		Calibration cal = mask.getCalibration();
+		int w = mask.getWidth();
+		int h = mask.getHeight();
+		int s = mask.getNSlices();
+		int[] box = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1, -1};
+		for(int z=0;z<s;z++) {
+			ImageProcessor mp = mask.getStack().getProcessor(z+1);
+			for(int y=0;y<h;y++) {
+				for(int x=0;x<w;x++) {
+					double v = cal.getCValue(mp.getf(x, y));
+					if(Double.isNaN(v) || (int)v != label) {
+						continue;
+					}
+					box[0] = Math.min(box[0], x);
+					box[1] = Math.min(box[1], y);
+					box[2] = Math.min(box[2], z);
+					box[3] = Math.max(box[3], x);
+					box[4] = Math.max(box[4], y);
+					box[5] = Math.max(box[5], z);
+				}
+			}
+		}
+		return box[3] < 0 ? null : box;
+	}
+
+	/**
+	 * Bounding boxes of all the labels of a mask, in one scan.
+	 * Labels are matched on the calibrated mask values as roiBoundingBox() does, 0 is the background.
+	 * @param mask any type
+	 * @return label to {x0, y0, z0, x1, y1, z1} inclusive, in ascending label order.
+	 */
+	public static TreeMap<Integer, int[]> labelBoundingBoxes(ImagePlus mask) {
+		Calibration cal = mask.getCalibration();
+		int w = mask.getWidth();
+		int h = mask.getHeight();
+		int s = mask.getNSlices();
+		TreeMap<Integer, int[]> boxes = new TreeMap<>();
+		int[] box = null;
+		int last = 0;
+		for(int z=0;z<s;z++) {
+			ImageProcessor mp = mask.getStack().getProcessor(z+1);
+			for(int y=0;y<h;y++) {
+				for(int x=0;x<w;x++) {
+					double v = cal.getCValue(mp.getf(x, y));
+					if(Double.isNaN(v) || (int)v == 0) {
+						continue;
+					}
+					int label = (int)v;
+					if(box == null || label != last) {
+						box = boxes.get(label);
+						if(box == null) {
+							box = new int[] {x, y, z, x, y, z};
+							boxes.put(label, box);
+						}
+						last = label;
+					}
+					box[0] = Math.min(box[0], x);
+					box[1] = Math.min(box[1], y);
+					box[2] = Math.min(box[2], z);
+					box[3] = Math.max(box[3], x);
+					box[4] = Math.max(box[4], y);
+					box[5] = Math.max(box[5], z);
+				}
+			}
+		}
+		return boxes;
+	}
+
+	/**
+	 * Copy of a box of the stack, with the same type and density calibration.
+	 * The calibration origin is moved by the box, calibrated coordinates are unchanged.
+	 * @param imp
+	 * @param box {x0, y0, z0, x1, y1, z1} inclusive, inside the stack.
+	 * @return cropped stack
+	 */
+	public static ImagePlus crop(ImagePlus imp, int[] box) {
+		int cw = box[3] - box[0] + 1;
+		int ch = box[4] - box[1] + 1;
+		ImageStack crops = new ImageStack(cw, ch);
+		for(int z=box[2];z<=box[5];z++) {
+			ImageProcessor ip = imp.getStack().getProcessor(z+1);
+			ip.setRoi(box[0], box[1], cw, ch);
+			crops.addSlice(ip.crop());
+			ip.resetRoi();
+		}
+		ImagePlus cropImp = new ImagePlus(imp.getTitle(), crops);
+		Calibration cal = imp.getCalibration().copy();
+		cal.xOrigin -= box[0];
+		cal.yOrigin -= box[1];
+		cal.zOrigin -= box[2];
+		cropImp.setCalibration(cal);
+		return cropImp;
+	}
+
 	/**
 	 * -crop images-
 	 * crop_images = trimToBoundingBox(ImagePlus imp, ImagePlus mask, int label)
@@ -1335,8 +1419,7 @@ public class Utils {
 				crops.addSlice(blank);
 				continue;
 			}
-			imp.setSlice(z+1);
-			ImageProcessor ip = imp.getProcessor();
+			ImageProcessor ip = imp.getStack().getProcessor(z+1);
 			ImageProcessor c = ip.createProcessor(crop_w, crop_h);
 			int ix = 0;
 			int iy = 0;
@@ -1359,6 +1442,13 @@ public class Utils {
 	}
 	
 	public static ImagePlus tricubicSplineInterporation(ImagePlus imp, double resampleX, double resampleY, double resampleZ){
+		return tricubicSplineInterporation(imp, resampleX, resampleY, resampleZ, null);
+	}
+	
+	/**
+	 * @param grid part of the interpolation grid to compute, imp is its source. null for the whole grid.
+	 */
+	public static ImagePlus tricubicSplineInterporation(ImagePlus imp, double resampleX, double resampleY, double resampleZ, ResamplingGrid grid){
 		if(imp == null){
 			return null;
 		}
@@ -1376,62 +1466,22 @@ public class Utils {
 		
 		float[][] sw = initializeCubicSplineWeights(256);
 
-		int newW = (int)Math.ceil(w * (cal.pixelWidth / resampleX));
-		int newH = (int)Math.ceil(h * (cal.pixelHeight / resampleY));
-		int newS = (int)Math.ceil(s * (cal.pixelDepth / resampleZ));
-		
-		float[] voxels = new float[w*h*s];
-		float[] deformed = new float[newW*newH*newS];
-		int itr = 0;
-		for (int z = 0; z < s; z++) {
-			ImageProcessor ip = imp.getStack().getProcessor(z+1);
-			for(int y = 0; y < h; y++) {
-				for(int x = 0; x < w; x++) {
-					voxels[itr++] = ip.getf(x, y);
-				}
-			}
+		if(grid == null) {
+			grid = ResamplingGrid.of(imp, resampleX, resampleY, resampleZ);
+		}else if(!grid.fits(imp)) {
+			throw new IllegalArgumentException("The image is not the source of the resampling grid.");
 		}
+		int newW = grid.getWidth();
+		int newH = grid.getHeight();
+		
+		float[] voxels = stackVoxels(imp);
 		
-		int i, j, k;
-		double x, y, z;
 		//see trilinearInterpolation() for the grid alignment.
-		double scaleX = cal.pixelWidth / resampleX;
-		double scaleY = cal.pixelHeight / resampleY;
-		double scaleZ = cal.pixelDepth / resampleZ;
-		double originX = gridOrigin(w, newW, scaleX);
-		double originY = gridOrigin(h, newH, scaleY);
-		double originZ = gridOrigin(s, newS, scaleZ);
-
-		int slice = newW * newH;
-		int index;
-		for (i = 0; i < newW; i++) {
-			x = originX + (i / scaleX);
-			if(x < 0) x = 0;
-			if(x > w-1) x = w-1;
-			for (j = 0; j < newH; j++) {
-				y = originY + (j / scaleY);
-				if(y < 0) y = 0;
-				if(y > h-1) y = h-1;
-				for (k = 0; k < newS; k++) {
-					z = originZ + (k / scaleZ);
-					if(z < 0) z = 0;
-					if(z > s-1) z = s-1;
-					index = k * slice + j * newW + i;
-					float interp = (float) (TricubicSplineInterporation(voxels,sw, w, h, s, x, y, z));
-					deformed[index] = interp;
-				}
-			}
-		}
+		float[][] deformed = Resampler.tricubic(voxels, w, h, s, sw, grid, true);
 		ImageStack stack = new ImageStack(newW, newH);
-		for(int z2=0;z2<newS;z2++) {
-			float[] s_fp = new float[newW*newH];
-			int start = newW*newH*z2;
-			for(int s2=start;s2<start+slice;s2++) {
-				s_fp[s2-start] = deformed[s2];
-			}
-			ImageProcessor ip = new FloatProcessor(newW, newH, s_fp);
-			stack.addSlice(ip);
-		}	
+		for(float[] slice : deformed) {
+			stack.addSlice(new FloatProcessor(newW, newH, slice));
+		}
 		ImagePlus interp = new ImagePlus("tri", stack);
 		cal.pixelWidth = resampleX;
 		cal.pixelHeight = resampleY;
@@ -1442,6 +1492,13 @@ public class Utils {
 	}
 	
 	public static ImagePlus tricubicPolynomialInterporation(ImagePlus imp, double resampleX, double resampleY, double resampleZ){
+		return tricubicPolynomialInterporation(imp, resampleX, resampleY, resampleZ, null);
+	}
+	
+	/**
+	 * @param grid part of the interpolation grid to compute, imp is its source. null for the whole grid.
+	 */
+	public static ImagePlus tricubicPolynomialInterporation(ImagePlus imp, double resampleX, double resampleY, double resampleZ, ResamplingGrid grid){
 		if(imp == null){
 			return null;
 		}
@@ -1459,62 +1516,22 @@ public class Utils {
 		
 		float[][] pw = initializeCubicPolynomialWeights(256);
 
-		int newW = (int)Math.ceil(w * (cal.pixelWidth / resampleX));
-		int newH = (int)Math.ceil(h * (cal.pixelHeight / resampleY));
-		int newS = (int)Math.ceil(s * (cal.pixelDepth / resampleZ));
-		
-		float[] voxels = new float[w*h*s];
-		float[] deformed = new float[newW*newH*newS];
-		int itr = 0;
-		for (int z = 0; z < s; z++) {
-			ImageProcessor ip = imp.getStack().getProcessor(z+1);
-			for(int y = 0; y < h; y++) {
-				for(int x = 0; x < w; x++) {
-					voxels[itr++] = ip.getf(x, y);
-				}
-			}
+		if(grid == null) {
+			grid = ResamplingGrid.of(imp, resampleX, resampleY, resampleZ);
+		}else if(!grid.fits(imp)) {
+			throw new IllegalArgumentException("The image is not the source of the resampling grid.");
 		}
+		int newW = grid.getWidth();
+		int newH = grid.getHeight();
+		
+		float[] voxels = stackVoxels(imp);
 		
-		int i, j, k;
-		double x, y, z;
 		//see trilinearInterpolation() for the grid alignment.
-		double scaleX = cal.pixelWidth / resampleX;
-		double scaleY = cal.pixelHeight / resampleY;
-		double scaleZ = cal.pixelDepth / resampleZ;
-		double originX = gridOrigin(w, newW, scaleX);
-		double originY = gridOrigin(h, newH, scaleY);
-		double originZ = gridOrigin(s, newS, scaleZ);
-
-		int slice = newW * newH;
-		int index;
-		for (i = 0; i < newW; i++) {
-			x = originX + (i / scaleX);
-			if(x < 0) x = 0;
-			if(x > w-1) x = w-1;
-			for (j = 0; j < newH; j++) {
-				y = originY + (j / scaleY);
-				if(y < 0) y = 0;
-				if(y > h-1) y = h-1;
-				for (k = 0; k < newS; k++) {
-					z = originZ + (k / scaleZ);
-					if(z < 0) z = 0;
-					if(z > s-1) z = s-1;
-					index = k * slice + j * newW + i;
-					float interp = (float) (TricubicPolynomialInterporation(voxels,pw, w, h, s, x, y, z));
-					deformed[index] = interp;
-				}
-			}
-		}
+		float[][] deformed = Resampler.tricubic(voxels, w, h, s, pw, grid, true);
 		ImageStack stack = new ImageStack(newW, newH);
-		for(int z2=0;z2<newS;z2++) {
-			float[] s_fp = new float[newW*newH];
-			int start = newW*newH*z2;
-			for(int s2=start;s2<start+slice;s2++) {
-				s_fp[s2-start] = deformed[s2];
-			}
-			ImageProcessor ip = new FloatProcessor(newW, newH, s_fp);
-			stack.addSlice(ip);
-		}	
+		for(float[] slice : deformed) {
+			stack.addSlice(new FloatProcessor(newW, newH, slice));
+		}
 		ImagePlus interp = new ImagePlus("tri", stack);
 		cal.pixelWidth = resampleX;
 		cal.pixelHeight = resampleY;
@@ -1639,7 +1656,7 @@ public class Utils {
 		return vz;
 	}
 	
-	static float[][] initializeCubicPolynomialWeights(int resolution) {
+	public static float[][] initializeCubicPolynomialWeights(int resolution) {
 		float[][] pw = new float[resolution][4];
 		for (int i = 0; i < resolution; i++) {
 			float dx = i/(float)resolution;
@@ -1659,7 +1676,7 @@ public class Utils {
 	 * @param resolution (discrete distance points between n0 to n1) 256 as default.
 	 * @return spline weights by 4 points
 	 */
-	static float[][] initializeCubicSplineWeights(int resolution) {
+	public static float[][] initializeCubicSplineWeights(int resolution) {
 		float[][] sw = new float[resolution][4];
 		for (int i = 0; i < resolution; i++) {
 			float dx = i/(float)resolution;
@@ -1909,6 +1926,13 @@ public class Utils {
 	
 	
 	public static ImagePlus discreteByBinWidth(ImagePlus org, ImagePlus mask, int label, double binWidth) throws Exception {
+		return discreteByBinWidth(org, mask, label, binWidth, RadiomicsJ.rangeMin);
+	}
+	
+	/**
+	 * @param rangeMin lower bound of the re-segmentation range, used as the minimum of the first bin. null-able, then the roi minimum is used.
+	 */
+	public static ImagePlus discreteByBinWidth(ImagePlus org, ImagePlus mask, int label, double binWidth, Double rangeMin) throws Exception {
 		if(org == null) {
 			return null;
 		}
@@ -1928,8 +1952,8 @@ public class Utils {
 		 * we strongly recommend to always set the same minimum value for all samples as 
 		 * defined by the lower bound of the re-segmentation range (e.g. HU of -500 for CT, SUV of 0 for PET, etc.).
 		 */
-		if(RadiomicsJ.rangeMin != null) {
-			min = RadiomicsJ.rangeMin;
+		if(rangeMin != null) {
+			min = rangeMin;
 		}
 		
 		if(binWidth <= 0d) {
@@ -1986,6 +2010,10 @@ public class Utils {
 	
 	
 	public static ImagePlus convertBinCenter2Intensity(ImagePlus orgImp, ImagePlus discretisedImp, ImagePlus mask, int label, double binWidth) {
+		return convertBinCenter2Intensity(orgImp, discretisedImp, mask, label, binWidth, RadiomicsJ.rangeMin);
+	}
+	
+	public static ImagePlus convertBinCenter2Intensity(ImagePlus orgImp, ImagePlus discretisedImp, ImagePlus mask, int label, double binWidth, Double rangeMin) {
 		if(discretisedImp == null || orgImp == null) {
 			return null;
 		}
@@ -1998,8 +2026,8 @@ public class Utils {
 		}
 		
 		double min = 0d;
-		if(RadiomicsJ.rangeMin != null) {
-			min = RadiomicsJ.rangeMin;
+		if(rangeMin != null) {
+			min = rangeMin;
 		}else {
 			double[] voxels = Utils.getVoxels(orgImp, mask, label);//get voxels in Roi
 			min = StatUtils.min(voxels);//min voxels from original in Roi
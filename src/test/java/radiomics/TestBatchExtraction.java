@@ -0,0 +1,157 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ij.IJ;
+import ij.ImagePlus;
+import ij.measure.ResultsTable;
+import io.github.tatsunidas.radiomics.main.BatchExtraction;
+import io.github.tatsunidas.radiomics.main.CsvResultSink;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.ResultSink;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * Batch extraction of a manifest.
+ *
+ * Rows come out in the order of the manifest, have the same values as a single
+ * extraction, and a broken case, or a row the sink refuses, is reported without stopping the others.
+ *
+ * @author tatsunidas
+ */
+public class TestBatchExtraction {
+
+	private static final String FEATURE = "IntensityBasedStatistical_Mean";
+
+	@Test
+	public void manifestOrderAndFailureIsolation(@TempDir Path dir) throws Exception {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		File img = dir.resolve("img.tif").toFile();
+		File mask = dir.resolve("mask.tif").toFile();
+		IJ.saveAsTiff(phantom[0], img.getAbsolutePath());
+		IJ.saveAsTiff(phantom[1], mask.getAbsolutePath());
+
+		File manifest = dir.resolve("manifest.csv").toFile();
+		Files.write(manifest.toPath(), Arrays.asList(
+				"image,mask,label",
+				"img.tif,mask.tif,1",
+				"missing.tif,mask.tif,1",
+				"\"" + img.getAbsolutePath() + "\",\"" + mask.getAbsolutePath() + "\","), StandardCharsets.UTF_8);
+
+		ExtractionSettings settings = settings();
+
+		List<BatchExtraction.BatchCase> cases = BatchExtraction.readManifest(manifest);
+		assertEquals(3, cases.size());
+
+		File out = dir.resolve("out.csv").toFile();
+		List<BatchExtraction.BatchFailure> failures = new BatchExtraction(settings).setWorkers(2).run(cases, out);
+		assertEquals(1, failures.size());
+		assertEquals(1, failures.get(0).getIndex());
+
+		List<String> lines = Files.readAllLines(out.toPath(), StandardCharsets.UTF_8);
+		assertEquals(3, lines.size(), "header and two cases");
+		List<String> header = Arrays.asList(lines.get(0).split(","));
+		assertTrue(header.indexOf(BatchExtraction.COL_IMAGE) == 0);
+		int col = header.indexOf(FEATURE);
+		assertTrue(col > 0);
+
+		ResultsTable single = new RadiomicsJ(settings).execute(phantom[0], phantom[1], 1);
+		double expected = single.getValue(FEATURE, single.size() - 1);
+		for(int i = 1; i < lines.size(); i++) {
+			String[] values = lines.get(i).split(",");
+			assertEquals(img.getAbsolutePath(), values[0]);
+			assertEquals(expected, Double.parseDouble(values[col]), 1e-12);
+		}
+	}
+
+	@Test
+	public void aRowTheSinkRefusesFailsItsCaseOnly(@TempDir Path dir) throws Exception {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		File img = dir.resolve("img.tif").toFile();
+		File mask = dir.resolve("mask.tif").toFile();
+		IJ.saveAsTiff(phantom[0], img.getAbsolutePath());
+		IJ.saveAsTiff(phantom[1], mask.getAbsolutePath());
+		List<BatchExtraction.BatchCase> cases = new ArrayList<>();
+		for(int i = 0; i < 3; i++) {
+			cases.add(new BatchExtraction.BatchCase(img.getAbsolutePath(), mask.getAbsolutePath(), 1));
+		}
+		StringWriter csv = new StringWriter();
+		AtomicInteger rows = new AtomicInteger();
+		try (CsvResultSink out = new CsvResultSink(csv)) {
+			//the second case has a column the header does not have.
+			ResultSink sink = new ResultSink() {
+				@Override
+				public void add(Map<String, Object> row) throws IOException {
+					if(rows.incrementAndGet() == 2) {
+						row.put("NotInTheHeader", 1.0);
+					}
+					out.add(row);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					out.flush();
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+			List<BatchExtraction.BatchFailure> failures = new BatchExtraction(settings()).setWorkers(2).run(cases, sink);
+			assertEquals(1, failures.size());
+			assertEquals(1, failures.get(0).getIndex());
+			assertTrue(failures.get(0).getCause() instanceof IllegalArgumentException);
+		}
+		List<String> lines = Arrays.asList(csv.toString().split(System.lineSeparator()));
+		assertEquals(3, lines.size(), "header and two cases");
+		assertFalse(Arrays.asList(lines.get(0).split(",")).contains("NotInTheHeader"));
+	}
+
+	private static ExtractionSettings settings() {
+		return ExtractionSettings.builder()
+				.enable(SettingParams.BOOL_enableMorphological, false)
+				.enable(SettingParams.BOOL_enableLocalIntensityFeatures, false)
+				.enable(SettingParams.BOOL_enableGLCM, false)
+				.enable(SettingParams.BOOL_enableGLRLM, false)
+				.enable(SettingParams.BOOL_enableGLSZM, false)
+				.enable(SettingParams.BOOL_enableGLDZM, false)
+				.enable(SettingParams.BOOL_enableNGTDM, false)
+				.enable(SettingParams.BOOL_enableNGLDM, false)
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.build();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import io.github.tatsunidas.radiomics.main.BufferImages;
+
+/**
+ * Volumes read from a native ordered buffer, as the Python bindings pass NumPy arrays.
+ *
+ * @author tatsunidas
+ */
+public class TestBufferImages {
+
+	private static final int W = 5;
+	private static final int H = 3;
+	private static final int S = 4;
+
+	@Test
+	public void float32() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(W * H * S * 4).order(ByteOrder.nativeOrder());
+		for (int i = 0; i < W * H * S; i++) {
+			buffer.putFloat(i * 0.5f - 3f);
+		}
+		ImagePlus imp = BufferImages.floatImage(buffer, "float32", W, H, S, 0.8, 0.7, 3.0, "ct");
+		assertVoxels(imp, i -> i * 0.5f - 3f);
+		assertEquals(0.8, imp.getCalibration().pixelWidth);
+		assertEquals(0.7, imp.getCalibration().pixelHeight);
+		assertEquals(3.0, imp.getCalibration().pixelDepth);
+	}
+
+	@Test
+	public void int16AndUint8() {
+		ByteBuffer shorts = ByteBuffer.allocateDirect(W * H * S * 2).order(ByteOrder.nativeOrder());
+		ByteBuffer bytes = ByteBuffer.allocateDirect(W * H * S);
+		for (int i = 0; i < W * H * S; i++) {
+			shorts.putShort((short) (i * 100 - 1024));
+			bytes.put((byte) (i % 2 == 0 ? 255 : 1));
+		}
+		assertVoxels(BufferImages.floatImage(shorts, "int16", W, H, S, 1, 1, 1, "ct"), i -> i * 100 - 1024);
+		assertVoxels(BufferImages.floatImage(bytes, "uint8", W, H, S, 1, 1, 1, "mask"), i -> i % 2 == 0 ? 255 : 1);
+	}
+
+	@Test
+	public void tooSmall() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(W * H * S * 4 - 1);
+		assertThrows(IllegalArgumentException.class,
+				() -> BufferImages.floatImage(buffer, "float32", W, H, S, 1, 1, 1, "ct"));
+		assertThrows(IllegalArgumentException.class,
+				() -> BufferImages.floatImage(buffer, "complex64", W, H, S, 1, 1, 1, "ct"));
+	}
+
+	private interface Expected {
+		float at(int i);
+	}
+
+	private static void assertVoxels(ImagePlus imp, Expected expected) {
+		assertEquals(W, imp.getWidth());
+		assertEquals(H, imp.getHeight());
+		assertEquals(S, imp.getNSlices());
+		for (int z = 0; z < S; z++) {
+			float[] pixels = (float[]) imp.getStack().getProcessor(z + 1).getPixels();
+			for (int i = 0; i < W * H; i++) {
+				assertEquals(expected.at(z * W * H + i), pixels[i], 0f);
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import io.github.tatsunidas.radiomics.main.ConnectedZones;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
+
+/**
+ * Zones of the same grey level, 26-connected in 3D and 8-connected in 2D.
+ *
+ * @author tatsunidas
+ */
+public class TestConnectedZones {
+
+	@Test
+	public void diagonalNeighboursAreConnected() throws Exception {
+		// grey levels of 2 slices, 0 is out of the roi.
+		int[][][] grey = {
+				{{1, 0, 2},
+				 {0, 1, 2},
+				 {2, 0, 1}},
+				{{0, 0, 0},
+				 {0, 0, 0},
+				 {0, 0, 0}}};
+		ImagePlus[] imgMask = build(grey);
+		ConnectedZones zones = ConnectedZones.of(RoiVolume.of(imgMask[0], imgMask[1], 1, 2));
+		// the diagonal of 1, the column of 2, the corner 2.
+		assertEquals(3, zones.getCount());
+		assertEquals(1, zones.getGreyLevel(0));
+		assertEquals(3, zones.getSize(0));
+		assertEquals(2, zones.getGreyLevel(1));
+		assertEquals(2, zones.getSize(1));
+		assertEquals(1, zones.getSize(2));
+
+		// the corner 2 touches the 2 of the column through the next slice only.
+		grey[1][1][1] = 2;
+		imgMask = build(grey);
+		zones = ConnectedZones.of(RoiVolume.of(imgMask[0], imgMask[1], 1, 2), new int[18]);
+		assertEquals(2, zones.getCount());
+		assertEquals(4, zones.getSize(1));
+		assertEquals(0, zones.getMinDistance(1));
+	}
+
+	@Test
+	public void largeHomogeneousZone() throws Exception {
+		int n = 96;
+		ImageStack img = new ImageStack(n, n);
+		ImageStack mask = new ImageStack(n, n);
+		for(int z = 0; z < n; z++) {
+			ByteProcessor ip = new ByteProcessor(n, n);
+			ip.setValue(1);
+			ip.fill();
+			img.addSlice(ip);
+			mask.addSlice(ip.duplicate());
+		}
+		RoiVolume volume = RoiVolume.of(new ImagePlus("img", img), new ImagePlus("mask", mask), 1, 1);
+		ConnectedZones zones = ConnectedZones.of(volume);
+		assertEquals(1, zones.getCount());
+		assertEquals(n * n * n, zones.getSize(0));
+	}
+
+	private static ImagePlus[] build(int[][][] grey) {
+		int s = grey.length;
+		int h = grey[0].length;
+		int w = grey[0][0].length;
+		ImageStack img = new ImageStack(w, h);
+		ImageStack mask = new ImageStack(w, h);
+		for(int z = 0; z < s; z++) {
+			ByteProcessor ip = new ByteProcessor(w, h);
+			ByteProcessor mp = new ByteProcessor(w, h);
+			for(int y = 0; y < h; y++) {
+				for(int x = 0; x < w; x++) {
+					ip.set(x, y, grey[z][y][x]);
+					mp.set(x, y, grey[z][y][x] > 0 ? 1 : 0);
+				}
+			}
+			img.addSlice(ip);
+			mask.addSlice(mp);
+		}
+		return new ImagePlus[] {new ImagePlus("img", img), new ImagePlus("mask", mask)};
+	}
+}
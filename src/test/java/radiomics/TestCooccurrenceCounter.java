@@ -0,0 +1,108 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import io.github.tatsunidas.radiomics.features.GLCMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.CooccurrenceCounter;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
+
+/**
+ * Co-occurrences of the 13 directions counted in one sweep, and the merged GLCM.
+ *
+ * @author tatsunidas
+ */
+public class TestCooccurrenceCounter {
+
+	@Test
+	public void parallelGivesTheSameCounts() throws Exception {
+		ImagePlus[] imgMask = random(17, 13, 9, 5);
+		RoiVolume volume = RoiVolume.of(imgMask[0], imgMask[1], 1, 5);
+		for(int delta = 1; delta <= 3; delta++) {
+			int[] serial = CooccurrenceCounter.count(volume, delta, false);
+			assertArrayEquals(serial, CooccurrenceCounter.count(volume, delta, true));
+			// symmetrical
+			for(int k = 0; k < CooccurrenceCounter.NUM_OF_DIRECTIONS; k++) {
+				for(int i = 0; i < 5; i++) {
+					for(int j = 0; j < 5; j++) {
+						assertEquals(serial[k * 25 + i * 5 + j], serial[k * 25 + j * 5 + i]);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void mergedMatrixOfSingleSlice() throws Exception {
+		ImagePlus[] imgMask = random(11, 7, 1, 4);
+		RoiVolume volume = RoiVolume.of(imgMask[0], imgMask[1], 1, 4);
+		int[] counts = CooccurrenceCounter.count(volume, 1, false);
+		double[] merged = new double[16];
+		double sum = 0;
+		for(int k = 0; k < CooccurrenceCounter.NUM_OF_DIRECTIONS; k++) {
+			for(int ij = 0; ij < 16; ij++) {
+				merged[ij] += counts[k * 16 + ij];
+				sum += counts[k * 16 + ij];
+			}
+		}
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, 4);
+		settings.put(RadiomicsFeature.GLCM_MERGED, true);
+		GLCMFeatures glcm = new GLCMFeatures(imgMask[0], imgMask[1], settings);
+		double[][] mat = glcm.getMatrix(new int[] {1, 0, 0});
+		for(int i = 0; i < 4; i++) {
+			for(int j = 0; j < 4; j++) {
+				assertEquals(merged[i * 4 + j] / sum, mat[i][j], 1e-12);
+			}
+		}
+		// averaged, a single slice has no pair along z.
+		settings.put(RadiomicsFeature.GLCM_MERGED, false);
+		glcm = new GLCMFeatures(imgMask[0], imgMask[1], settings);
+		assertNull(glcm.getMatrix(new int[] {1, 0, 0}));
+	}
+
+	private static ImagePlus[] random(int w, int h, int s, int nBins) {
+		Random r = new Random(3);
+		ImageStack img = new ImageStack(w, h);
+		ImageStack mask = new ImageStack(w, h);
+		for(int z = 0; z < s; z++) {
+			ByteProcessor ip = new ByteProcessor(w, h);
+			ByteProcessor mp = new ByteProcessor(w, h);
+			for(int i = 0; i < w * h; i++) {
+				ip.set(i, 1 + r.nextInt(nBins));
+				mp.set(i, r.nextInt(5) > 0 ? 1 : 0);
+			}
+			img.addSlice(ip);
+			mask.addSlice(mp);
+		}
+		return new ImagePlus[] {new ImagePlus("img", img), new ImagePlus("mask", mask)};
+	}
+}
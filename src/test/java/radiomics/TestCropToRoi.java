@@ -0,0 +1,157 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.measure.ResultsTable;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.ResamplingGrid;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+import io.github.tatsunidas.radiomics.main.Utils;
+
+/**
+ * The cropped preprocessing gives the voxels, and so the features, of the whole volume.
+ *
+ * @author tatsunidas
+ */
+public class TestCropToRoi {
+
+	private static final int W = 64;
+	private static final int H = 60;
+	private static final int S = 14;
+	private static final double[] SPACING = {1.0, 1.0, 1.0};
+
+	@Test
+	public void partOfTheGridIsThatOfTheWholeGrid() {
+		ImagePlus img = image();
+		Calibration cal = img.getCalibration();
+		double[] scale = {cal.pixelWidth / SPACING[0], cal.pixelHeight / SPACING[1], cal.pixelDepth / SPACING[2]};
+		int[] box = {24, 22, 4, 37, 34, 8};
+		for(int interp : new int[] {RadiomicsJ.TRILINEAR, RadiomicsJ.NEAREST3D, RadiomicsJ.TRICUBIC_SPLINE, RadiomicsJ.TRICUBIC_POLYNOMIAL}) {
+			ImagePlus whole = Utils.resample3D(img, false, SPACING[0], SPACING[1], SPACING[2], interp, 0.5);
+			ResamplingGrid grid = ResamplingGrid.around(new int[] {W, H, S}, scale, box, new int[] {3, 3, 3}, null);
+			ImagePlus part = Utils.resample3D(Utils.crop(img, grid.getSourceBox()), false, SPACING[0], SPACING[1], SPACING[2], interp, 0.5, grid);
+			int[] start = grid.getStart();
+			assertEquals(grid.getWidth(), part.getWidth());
+			assertEquals(grid.getSlices(), part.getNSlices());
+			for(int z = 0; z < part.getNSlices(); z++) {
+				for(int y = 0; y < part.getHeight(); y++) {
+					for(int x = 0; x < part.getWidth(); x++) {
+						float expected = whole.getStack().getProcessor(z + start[2] + 1).getf(x + start[0], y + start[1]);
+						float actual = part.getStack().getProcessor(z + 1).getf(x, y);
+						if(expected != actual) {
+							assertEquals(expected, actual, "interpolation " + interp + " at " + x + "," + y + "," + z);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void featuresDoNotChange() throws Exception {
+		ImagePlus img = image();
+		ImagePlus mask = mask();
+		for(int interp : new int[] {RadiomicsJ.TRILINEAR, RadiomicsJ.TRICUBIC_SPLINE}) {
+			ExtractionSettings settings = ExtractionSettings.builder()
+					.resamplingFactorXYZ(SPACING)
+					.interpolation3D(interp)
+					.enable(SettingParams.BOOL_enableFractal, false)
+					.imageFilters("log(1.5)")
+					.filterBackend("separable")
+					.build();
+			ResultsTable whole = new RadiomicsJ(settings).execute(img, mask, 2);
+			RadiomicsJ radiomics = new RadiomicsJ(settings.toBuilder().cropToRoi(true).build());
+			ResultsTable cropped = radiomics.execute(img, mask, 2);
+			assertTrue(radiomics.getAnalysisReadyImage().getWidth() < Math.ceil(W * img.getCalibration().pixelWidth));
+			int compared = 0;
+			for(String heading : whole.getHeadings()) {
+				if(heading.startsWith("Diagnostics") || heading.startsWith("OperationalInfo")) {
+					continue;
+				}
+				double expected = whole.getValueAsDouble(whole.getColumnIndex(heading), 0);
+				double actual = cropped.getValueAsDouble(cropped.getColumnIndex(heading), 0);
+				// axis lengths and convex hulls see shifted coordinates, a few ulps.
+				assertEquals(expected, actual, 1e-12 * Math.max(1, Math.abs(expected)), heading);
+				compared++;
+			}
+			assertTrue(compared > 100);
+		}
+	}
+
+	private static ImagePlus image() {
+		Random random = new Random(7);
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			FloatProcessor fp = new FloatProcessor(W, H);
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					fp.setf(x, y, (float) Math.rint(40 * Math.sin(x / 5.0) + 3 * y + 5 * z + 20 * random.nextGaussian()));
+				}
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus img = new ImagePlus("image", stack);
+		img.setCalibration(calibration());
+		return img;
+	}
+
+	/*
+	 * ellipsoid of label 2 away from the sides, and a label 1 blob that is not extracted.
+	 */
+	private static ImagePlus mask() {
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			FloatProcessor fp = new FloatProcessor(W, H);
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					double dx = (x - 31) / 6.0;
+					double dy = (y - 29) / 5.0;
+					double dz = (z - 6) / 2.2;
+					if(dx * dx + dy * dy + dz * dz <= 1) {
+						fp.setf(x, y, 2);
+					}else if(x < 4 && y < 4) {
+						fp.setf(x, y, 1);
+					}
+				}
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus mask = new ImagePlus("mask", stack);
+		mask.setCalibration(calibration());
+		return mask;
+	}
+
+	private static Calibration calibration() {
+		Calibration cal = new Calibration();
+		cal.pixelWidth = 0.8;
+		cal.pixelHeight = 0.8;
+		cal.pixelDepth = 2.5;
+		cal.setUnit("mm");
+		return cal;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.measure.ResultsTable;
+import ij.process.FloatProcessor;
+import ij.process.ShortProcessor;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+
+/**
+ * Several labels in one pass give, row by row, the features of each label extracted alone.
+ *
+ * @author tatsunidas
+ */
+public class TestExtractLabels {
+
+	private static final int W = 64;
+	private static final int H = 60;
+	private static final int S = 14;
+	/*
+	 * {label, centre x, y, z, radius x, y, z}, label 4 is in touch with label 2.
+	 */
+	private static final double[][] BLOBS = {
+			{2, 20, 18, 6, 7, 5, 2.2},
+			{4, 27, 18, 6, 4, 4, 2.0},
+			{7, 44, 40, 8, 6, 8, 2.6},
+	};
+
+	@Test
+	public void rowsAreTheLabelsExtractedAlone() throws Exception {
+		ImagePlus img = image();
+		ImagePlus mask = mask();
+		ExtractionSettings settings = ExtractionSettings.builder()
+				.resamplingFactorXYZ(new double[] {1.0, 1.0, 1.0})
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.build();
+		ResultsTable labels = new RadiomicsJ(settings.toBuilder().targetLabels("all").build()).execute(img, mask, 1);
+		assertNotNull(labels);
+		assertEquals(BLOBS.length, labels.size());
+		for(int row = 0; row < BLOBS.length; row++) {
+			int label = (int) BLOBS[row][0];
+			assertEquals(String.valueOf(label), labels.getLabel(row));
+			ResultsTable alone = new RadiomicsJ(settings.toBuilder().targetLabel(label).cropToRoi(true).build()).execute(img, mask, label);
+			int compared = 0;
+			for(String heading : alone.getHeadings()) {
+				if(heading.startsWith("OperationalInfo")) {
+					continue;
+				}
+				assertEquals(alone.getValueAsDouble(alone.getColumnIndex(heading), 0),
+						labels.getValueAsDouble(labels.getColumnIndex(heading), row), heading + " of label " + label);
+				compared++;
+			}
+			assertTrue(compared > 100);
+		}
+	}
+
+	@Test
+	public void requestedLabelsOnly() throws Exception {
+		ExtractionSettings settings = ExtractionSettings.builder()
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.enable(SettingParams.BOOL_enableGLAM, false)
+				.build();
+		ResultsTable labels = new RadiomicsJ(settings).extractLabels(image(), mask(), new int[] {7, 3, 2});
+		assertEquals(2, labels.size());
+		assertEquals("2", labels.getLabel(0));
+		assertEquals("7", labels.getLabel(1));
+		assertArrayEquals(new int[] {1, 3, 5}, ExtractionSettings.parseTargetLabels("5,1,3,3"));
+		assertArrayEquals(new int[0], ExtractionSettings.parseTargetLabels("all"));
+		assertEquals(null, ExtractionSettings.parseTargetLabels("1,x"));
+	}
+
+	private static ImagePlus image() {
+		Random random = new Random(23);
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			FloatProcessor fp = new FloatProcessor(W, H);
+			for(int i = 0; i < W * H; i++) {
+				int x = i % W;
+				int y = i / W;
+				fp.setf(i, (float) Math.rint(40 * Math.sin(x / 5.0) + 3 * y + 5 * z + 20 * random.nextGaussian()));
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus img = new ImagePlus("image", stack);
+		img.setCalibration(calibration());
+		return img;
+	}
+
+	private static ImagePlus mask() {
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			ShortProcessor sp = new ShortProcessor(W, H);
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					for(double[] blob : BLOBS) {
+						double dx = (x - blob[1]) / blob[4];
+						double dy = (y - blob[2]) / blob[5];
+						double dz = (z - blob[3]) / blob[6];
+						if(dx * dx + dy * dy + dz * dz <= 1) {
+							sp.set(x, y, (int) blob[0]);
+						}
+					}
+				}
+			}
+			stack.addSlice(sp);
+		}
+		ImagePlus mask = new ImagePlus("mask", stack);
+		mask.setCalibration(calibration());
+		return mask;
+	}
+
+	private static Calibration calibration() {
+		Calibration cal = new Calibration();
+		cal.pixelWidth = 0.8;
+		cal.pixelHeight = 0.8;
+		cal.pixelDepth = 2.5;
+		cal.setUnit("mm");
+		return cal;
+	}
+}
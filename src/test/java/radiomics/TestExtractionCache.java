@@ -0,0 +1,87 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import io.github.tatsunidas.radiomics.features.GLCMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLCMFeatures;
+import io.github.tatsunidas.radiomics.features.GLRLMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLRLMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.ExtractionCache;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * The cache of an extraction computes each intermediate once,
+ * and the families give the same values with or without it.
+ *
+ * @author tatsunidas
+ */
+public class TestExtractionCache {
+
+	@Test
+	public void sharedBetweenFamilies() throws Exception {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		ImagePlus img = phantom[0];
+		ImagePlus mask = phantom[1];
+
+		ExtractionCache cache = new ExtractionCache();
+		ImagePlus disc = cache.discrete(img, mask, 1, 8);
+		assertSame(disc, cache.discrete(img, mask, 1, 8));
+		assertNotSame(disc, cache.discrete(img, mask, 1, 4));
+		assertSame(cache.voxels(img, mask, 1), cache.voxels(img, mask, 1));
+		assertSame(cache.boundingBox(mask, 1), cache.boundingBox(mask, 1));
+		int entries = cache.size();
+
+		GLCMFeatures glcmCached = new GLCMFeatures(img, mask, settings(cache));
+		// found the discretised image and the bounding box in the cache, only the cropped grey levels of the roi are new.
+		assertEquals(entries + 1, cache.size());
+		GLRLMFeatures glrlmCached = new GLRLMFeatures(img, mask, settings(cache));
+		// found the cropped grey levels too.
+		assertEquals(entries + 1, cache.size());
+		assertSame(cache.volume(disc, mask, 1, 8), cache.volume(disc, mask, 1, 8));
+		assertEquals(entries + 1, cache.size());
+
+		GLCMFeatures glcm = new GLCMFeatures(img, mask, settings(null));
+		GLRLMFeatures glrlm = new GLRLMFeatures(img, mask, settings(null));
+		for(GLCMFeatureType t : GLCMFeatureType.values()) {
+			assertEquals(glcm.calculate(t.id()), glcmCached.calculate(t.id()), t.name());
+		}
+		for(GLRLMFeatureType t : GLRLMFeatureType.values()) {
+			assertEquals(glrlm.calculate(t.id()), glrlmCached.calculate(t.id()), t.name());
+		}
+	}
+
+	private static Map<String, Object> settings(ExtractionCache cache) {
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, 8);
+		if(cache != null) {
+			settings.put(RadiomicsFeature.EXTRACTION_CACHE, cache);
+		}
+		return settings;
+	}
+}
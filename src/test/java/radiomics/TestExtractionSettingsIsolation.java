@@ -0,0 +1,85 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.measure.ResultsTable;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * Two instances with different ExtractionSettings, run at the same time,
+ * give the results each gives alone : no setting leaks through the statics.
+ *
+ * @author tatsunidas
+ */
+public class TestExtractionSettingsIsolation {
+
+	@Test
+	public void instancesDoNotShareTheirSettings() throws Exception {
+		ExtractionSettings coarse = ExtractionSettings.builder()
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.useFixedBinNumber(true)
+				.nBins(8)
+				.deltaGLCM(1)
+				.build();
+		ExtractionSettings fine = coarse.toBuilder()
+				.nBins(32)
+				.deltaGLCM(2)
+				.build();
+		ResultsTable coarseAlone = run(coarse);
+		ResultsTable fineAlone = run(fine);
+		assertNotEquals(coarseAlone.getValue("GLCM_JointEntropy", 0), fineAlone.getValue("GLCM_JointEntropy", 0));
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			for(int i = 0; i < 3; i++) {
+				Future<ResultsTable> c = pool.submit(() -> run(coarse));
+				Future<ResultsTable> f = pool.submit(() -> run(fine));
+				assertSameValues(coarseAlone, c.get(), "nBins 8");
+				assertSameValues(fineAlone, f.get(), "nBins 32");
+			}
+		}finally {
+			pool.shutdown();
+		}
+	}
+
+	private static ResultsTable run(ExtractionSettings settings) throws Exception {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		return new RadiomicsJ(settings).execute(phantom[0], phantom[1], settings.getTargetLabel());
+	}
+
+	private static void assertSameValues(ResultsTable expected, ResultsTable actual, String run) {
+		assertArrayEquals(expected.getHeadings(), actual.getHeadings(), run);
+		for(String heading : expected.getHeadings()) {
+			if(heading.contains("OperationalInfo_")) {
+				continue;
+			}
+			assertEquals(expected.getValue(heading, 0), actual.getValue(heading, 0), heading + " of " + run);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.tatsunidas.radiomics.main.FFT3D;
+
+/**
+ * The FFT of a grid is its discrete Fourier transform, whatever the factors of
+ * the sizes, and the inverse brings the grid back.
+ *
+ * @author tatsunidas
+ */
+public class TestFFT3D {
+
+	@Test
+	public void matchesTheDefinition() {
+		int[][] sizes = { { 8, 4, 2 }, { 6, 5, 3 }, { 12, 1, 9 }, { 7, 10, 1 }, { 16, 15, 4 }, { 67, 2, 1 } };
+		for (int[] size : sizes) {
+			int w = size[0];
+			int h = size[1];
+			int d = size[2];
+			Random random = new Random(w * 10000 + h * 100 + d);
+			double[] re = new double[w * h * d];
+			double[] im = new double[w * h * d];
+			for (int i = 0; i < re.length; i++) {
+				re[i] = random.nextDouble() - 0.5;
+				im[i] = random.nextDouble() - 0.5;
+			}
+			double[] fRe = re.clone();
+			double[] fIm = im.clone();
+			FFT3D fft = new FFT3D(w, h, d);
+			fft.forward(fRe, fIm);
+			String where = w + "x" + h + "x" + d;
+			for (int kz = 0; kz < d; kz++) {
+				for (int ky = 0; ky < h; ky++) {
+					for (int kx = 0; kx < w; kx++) {
+						double sumRe = 0d;
+						double sumIm = 0d;
+						for (int z = 0; z < d; z++) {
+							for (int y = 0; y < h; y++) {
+								for (int x = 0; x < w; x++) {
+									double angle = -2d * Math.PI
+											* ((double) kx * x / w + (double) ky * y / h + (double) kz * z / d);
+									int i = (z * h + y) * w + x;
+									sumRe += re[i] * Math.cos(angle) - im[i] * Math.sin(angle);
+									sumIm += re[i] * Math.sin(angle) + im[i] * Math.cos(angle);
+								}
+							}
+						}
+						int k = (kz * h + ky) * w + kx;
+						assertEquals(sumRe, fRe[k], 1e-9, where);
+						assertEquals(sumIm, fIm[k], 1e-9, where);
+					}
+				}
+			}
+			fft.inverse(fRe, fIm);
+			for (int i = 0; i < re.length; i++) {
+				assertEquals(re[i], fRe[i], 1e-12, where);
+				assertEquals(im[i], fIm[i], 1e-12, where);
+			}
+		}
+	}
+
+	/**
+	 * A grid that is zero outside a box transforms the same with the box given,
+	 * and the inverse restricted to a box gets that box right.
+	 */
+	@Test
+	public void boxes() {
+		int w = 10;
+		int h = 9;
+		int d = 6;
+		Random random = new Random(3);
+		double[] re = new double[w * h * d];
+		double[] im = new double[w * h * d];
+		for (int z = 0; z < 4; z++) {
+			for (int y = 0; y < 5; y++) {
+				for (int x = 0; x < 7; x++) {
+					re[(z * h + y) * w + x] = random.nextDouble();
+					im[(z * h + y) * w + x] = random.nextDouble();
+				}
+			}
+		}
+		FFT3D fft = new FFT3D(w, h, d);
+		double[] fullRe = re.clone();
+		double[] fullIm = im.clone();
+		fft.forward(fullRe, fullIm);
+		double[] boxRe = re.clone();
+		double[] boxIm = im.clone();
+		fft.forward(boxRe, boxIm, 7, 5, 4);
+		for (int i = 0; i < re.length; i++) {
+			assertEquals(fullRe[i], boxRe[i], 1e-12);
+			assertEquals(fullIm[i], boxIm[i], 1e-12);
+		}
+		fft.inverse(boxRe, boxIm, 7, 5, 4);
+		for (int z = 0; z < 4; z++) {
+			for (int y = 0; y < 5; y++) {
+				for (int x = 0; x < 7; x++) {
+					int i = (z * h + y) * w + x;
+					assertEquals(re[i], boxRe[i], 1e-12);
+					assertEquals(im[i], boxIm[i], 1e-12);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void goodSizes() {
+		assertEquals(1, FFT3D.goodSize(1));
+		assertEquals(8, FFT3D.goodSize(7));
+		assertEquals(100, FFT3D.goodSize(97));
+		assertEquals(80, FFT3D.goodSize(79));
+		assertEquals(128, FFT3D.goodSize(126));
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.measure.ResultsTable;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * The families computed at the same time give the columns of the families computed one after another,
+ * in the same order and with the same values.
+ *
+ * @author tatsunidas
+ */
+public class TestFamilyParallelism {
+
+	@Test
+	public void columnsDoNotDependOnTheParallelism() throws Exception {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		ExtractionSettings settings = ExtractionSettings.builder()
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.imageFilters("mean(3)")
+				.familyParallelism(1)
+				.build();
+		ResultsTable serial = new RadiomicsJ(settings).execute(phantom[0], phantom[1], 1);
+		String[] headings = serial.getHeadings();
+		assertTrue(headings.length > 200);
+		for(int parallelism : new int[] {0, 2, 5}) {
+			ResultsTable parallel = new RadiomicsJ(settings.toBuilder().familyParallelism(parallelism).build())
+					.execute(phantom[0], phantom[1], 1);
+			assertArrayEquals(headings, parallel.getHeadings(), "column order at parallelism " + parallelism);
+			for(String heading : headings) {
+				if(heading.contains("OperationalInfo_")) {
+					continue;
+				}
+				assertEquals(serial.getValue(heading, 0), parallel.getValue(heading, 0), heading + " at parallelism " + parallelism);
+			}
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.radiomics.features.GLCMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLCMFeatures;
+import io.github.tatsunidas.radiomics.features.GLSZMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLSZMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.FeatureCalculatorFactory;
+import io.github.tatsunidas.radiomics.main.FeatureMapProgress;
+import io.github.tatsunidas.radiomics.main.FeatureSpecifier;
+import io.github.tatsunidas.radiomics.main.FeatureVisualizationMap;
+
+/**
+ * Feature maps computed tile by tile on several threads are the maps of the calling thread,
+ * bit for bit, and can be followed and cancelled.
+ *
+ * @author tatsunidas
+ */
+public class TestFeatureMapTiles {
+
+	private static final int W = 21;
+	private static final int H = 19;
+	private static final int S = 6;
+	private static final int FILTER = 5;
+
+	@Test
+	public void windowsCutPerVoxel() {
+		for (int stride : new int[] { 1, 2 }) {
+			FeatureSpecifier<?> spec = new FeatureSpecifier<>(GLSZMFeatures.class, GLSZMFeatureType.ZoneSizeEntropy,
+					settings());
+			ImagePlus serial = FeatureVisualizationMap.generateFeatureMap(image(), mask(), -1,
+					new FeatureCalculatorFactory().create(spec), FILTER, false, stride, 2);
+			ImagePlus tiled = FeatureVisualizationMap.generateFeatureMap(image(), mask(), -1, spec, FILTER, false,
+					stride, 2, false, 3, null);
+			assertSame(serial, tiled);
+		}
+	}
+
+	@Test
+	public void slidingWindows() {
+		FeatureSpecifier<?> spec = new FeatureSpecifier<>(GLCMFeatures.class, GLCMFeatureType.JointEntropy, settings());
+		for (boolean d2 : new boolean[] { false, true }) {
+			ImagePlus serial = FeatureVisualizationMap.generateFeatureMap(image(), mask(), -1, spec, FILTER, d2, 1,
+					FeatureVisualizationMap.DEFAULT_MARGIN);
+			for (int parallelism : new int[] { 0, 4 }) {
+				ImagePlus tiled = FeatureVisualizationMap.generateFeatureMap(image(), mask(), -1, spec, FILTER, d2, 1,
+						FeatureVisualizationMap.DEFAULT_MARGIN, true, parallelism, null);
+				assertSame(serial, tiled);
+			}
+		}
+	}
+
+	@Test
+	public void progressAndCancellation() {
+		FeatureSpecifier<?> spec = new FeatureSpecifier<>(GLCMFeatures.class, GLCMFeatureType.JointEntropy, settings());
+		AtomicInteger last = new AtomicInteger();
+		AtomicInteger total = new AtomicInteger();
+		ImagePlus map = FeatureVisualizationMap.generateFeatureMap(image(), mask(), -1, spec, FILTER, false, 1, 0, true,
+				2, (done, tiles) -> {
+					last.accumulateAndGet(done, Math::max);
+					total.set(tiles);
+				});
+		assertNotNull(map);
+		assertTrue(total.get() >= S);
+		assertEquals(total.get(), last.get());
+
+		AtomicInteger finished = new AtomicInteger();
+		ImagePlus cancelled = FeatureVisualizationMap.generateFeatureMap(image(), mask(), -1, spec, FILTER, false, 1,
+				0, true, 2, new FeatureMapProgress() {
+					@Override
+					public void tileDone(int done, int tiles) {
+						finished.incrementAndGet();
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return finished.get() >= 2;
+					}
+				});
+		assertNull(cancelled);
+		assertTrue(finished.get() < total.get());
+	}
+
+	private static void assertSame(ImagePlus expected, ImagePlus actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertEquals(expected.getNSlices(), actual.getNSlices());
+		for (int z = 1; z <= expected.getNSlices(); z++) {
+			float[] e = (float[]) expected.getStack().getProcessor(z).getPixels();
+			float[] a = (float[]) actual.getStack().getProcessor(z).getPixels();
+			for (int i = 0; i < e.length; i++) {
+				assertEquals(Float.floatToIntBits(e[i]), Float.floatToIntBits(a[i]), "slice " + z + " voxel " + i);
+			}
+		}
+	}
+
+	private static Map<String, Object> settings() {
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, 8);
+		return settings;
+	}
+
+	private static ImagePlus image() {
+		Random random = new Random(5);
+		ImageStack stack = new ImageStack(W, H);
+		for (int z = 0; z < S; z++) {
+			FloatProcessor ip = new FloatProcessor(W, H);
+			for (int y = 0; y < H; y++) {
+				for (int x = 0; x < W; x++) {
+					ip.setf(x, y, random.nextInt(4) * 20 + x + y);
+				}
+			}
+			stack.addSlice(ip);
+		}
+		return new ImagePlus("image", stack);
+	}
+
+	/*
+	 * a cylinder touching the top of the image, so that the margin pads it.
+	 */
+	private static ImagePlus mask() {
+		ImageStack stack = new ImageStack(W, H);
+		for (int z = 0; z < S; z++) {
+			FloatProcessor ip = new FloatProcessor(W, H);
+			for (int y = 0; y < H; y++) {
+				for (int x = 0; x < W; x++) {
+					double dx = x - W / 2;
+					double dy = y - 5;
+					ip.setf(x, y, dx * dx + dy * dy <= 36 ? 1f : 0f);
+				}
+			}
+			stack.addSlice(ip);
+		}
+		return new ImagePlus("mask", stack);
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.radiomics.features.GLCMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLCMFeatures;
+import io.github.tatsunidas.radiomics.features.NGTDMFeatureType;
+import io.github.tatsunidas.radiomics.features.NGTDMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.FeatureSpecifier;
+import io.github.tatsunidas.radiomics.main.FeatureVisualizationMap;
+
+/**
+ * The maps of several features read in one pass over the windows are the maps
+ * generated one feature at a time.
+ *
+ * @author tatsunidas
+ */
+public class TestFeatureMapsOnePass {
+
+	private static final int SIZE = 15;
+	private static final int FILTER = 5;
+
+	@Test
+	public void windowsCutPerVoxel() {
+		compare(GLCMFeatures.class, GLCMFeatureType.values(), false, true);
+	}
+
+	@Test
+	public void slidingWindows() {
+		compare(GLCMFeatures.class, GLCMFeatureType.values(), true, false);
+		compare(NGTDMFeatures.class, NGTDMFeatureType.values(), true, false);
+	}
+
+	private static <T extends RadiomicsFeature> void compare(Class<T> family, Enum<?>[] types, boolean incremental,
+			boolean d2) {
+		ImagePlus image = image();
+		ImagePlus mask = mask();
+		Map<String, ImagePlus> maps = FeatureVisualizationMap.generateFeatureMaps(image, mask, SIZE / 2, FILTER, d2, 2,
+				FeatureVisualizationMap.DEFAULT_MARGIN, incremental, 1, null, family, settings(), types);
+		assertNotNull(maps);
+		assertEquals(types.length, maps.size());
+		for (Enum<?> type : types) {
+			FeatureSpecifier<T> spec = new FeatureSpecifier<>(family, type, settings());
+			ImagePlus expected = FeatureVisualizationMap.generateFeatureMap(image, mask, SIZE / 2, spec, FILTER, d2, 2,
+					FeatureVisualizationMap.DEFAULT_MARGIN, incremental, 1, null);
+			ImagePlus actual = maps.get(spec.getDisplayName() + (d2 ? "_2D" : "_3D"));
+			assertNotNull(actual, type.name());
+			float[] e = (float[]) expected.getStack().getProcessor(1).getPixels();
+			float[] a = (float[]) actual.getStack().getProcessor(1).getPixels();
+			assertEquals(e.length, a.length);
+			for (int i = 0; i < e.length; i++) {
+				assertEquals(Float.floatToIntBits(e[i]), Float.floatToIntBits(a[i]), type.name() + " voxel " + i);
+			}
+		}
+	}
+
+	private static Map<String, Object> settings() {
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, 6);
+		return settings;
+	}
+
+	private static ImagePlus image() {
+		Random random = new Random(3);
+		ImageStack stack = new ImageStack(SIZE, SIZE);
+		for (int z = 0; z < SIZE; z++) {
+			FloatProcessor ip = new FloatProcessor(SIZE, SIZE);
+			for (int y = 0; y < SIZE; y++) {
+				for (int x = 0; x < SIZE; x++) {
+					ip.setf(x, y, random.nextInt(50) + 3 * x);
+				}
+			}
+			stack.addSlice(ip);
+		}
+		return new ImagePlus("image", stack);
+	}
+
+	private static ImagePlus mask() {
+		ImageStack stack = new ImageStack(SIZE, SIZE);
+		for (int z = 0; z < SIZE; z++) {
+			FloatProcessor ip = new FloatProcessor(SIZE, SIZE);
+			for (int y = 2; y < SIZE - 2; y++) {
+				for (int x = 3; x < SIZE - 1; x++) {
+					ip.setf(x, y, 1f);
+				}
+			}
+			stack.addSlice(ip);
+		}
+		return new ImagePlus("mask", stack);
+	}
+}
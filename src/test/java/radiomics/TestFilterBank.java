@@ -0,0 +1,279 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.measure.ResultsTable;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.FilterBank;
+import io.github.tatsunidas.radiomics.main.FilterSpec;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * The separable and the FFT backends of the filter bank give the same responses,
+ * which agree with a direct correlation.
+ *
+ * @author tatsunidas
+ */
+public class TestFilterBank {
+
+	private static final int W = 19;
+	private static final int H = 16;
+	private static final int S = 9;
+
+	@Test
+	public void backendsAgree() {
+		ImagePlus img = image(S, 1);
+		FilterBank separable = new FilterBank(img, FilterBank.SEPARABLE);
+		FilterBank fft = new FilterBank(img, FilterBank.FFT);
+		for(String spec : new String[] {"mean(3)", "log(1.5)", "laws(L5E5S5)", "laws(E3W5R5,2)", "wavelet(db2,LHL,2)", "wavelet(haar,HHH)"}) {
+			FilterSpec f = FilterSpec.parse(spec);
+			assertClose(pixels(separable.response(f)), pixels(fft.response(f)), 1e-5, spec);
+		}
+	}
+
+	@Test
+	public void backendsAgreeOnASlice() {
+		ImagePlus img = image(1, 2);
+		FilterBank separable = new FilterBank(img, FilterBank.SEPARABLE);
+		FilterBank fft = new FilterBank(img, FilterBank.FFT);
+		for(String spec : new String[] {"mean(5)", "log(2)", "laws(L5S5R5)", "wavelet(db3,HLL)"}) {
+			FilterSpec f = FilterSpec.parse(spec);
+			assertClose(pixels(separable.response(f)), pixels(fft.response(f)), 1e-5, spec);
+		}
+	}
+
+	@Test
+	public void lawsIsADirectCorrelation() {
+		ImagePlus img = image(S, 3);
+		float[] v = pixels(img);
+		double[][] k = {{1, 4, 6, 4, 1}, {-1, -2, 0, 2, 1}, {-1, 0, 2, 0, -1}};
+		double norm = Math.sqrt(70) * Math.sqrt(10) * Math.sqrt(6);
+		float[] expected = new float[v.length];
+		for(int z = 0; z < S; z++) {
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					double sum = 0;
+					for(int c = -2; c <= 2; c++) {
+						for(int b = -2; b <= 2; b++) {
+							for(int a = -2; a <= 2; a++) {
+								int xx = mirror(x + a, W);
+								int yy = mirror(y + b, H);
+								int zz = mirror(z + c, S);
+								sum += k[0][a + 2] * k[1][b + 2] * k[2][c + 2] * v[(zz * H + yy) * W + xx];
+							}
+						}
+					}
+					expected[(z * H + y) * W + x] = (float) (sum / norm);
+				}
+			}
+		}
+		FilterSpec f = FilterSpec.parse("laws(L5E5S5)");
+		assertClose(expected, pixels(new FilterBank(img, FilterBank.SEPARABLE).response(f)), 1e-5, "separable");
+		assertClose(expected, pixels(new FilterBank(img, FilterBank.FFT).response(f)), 1e-5, "fft");
+	}
+
+	@Test
+	public void gaborIsADirectCorrelation() {
+		ImagePlus img = image(2, 4);
+		float[] v = pixels(img);
+		double sigma = 2, lambda = 3, gamma = 0.8, theta = Math.toRadians(30);
+		Calibration cal = img.getCalibration();
+		int rx = (int) Math.ceil(4 * sigma / gamma / cal.pixelWidth);
+		int ry = (int) Math.ceil(4 * sigma / gamma / cal.pixelHeight);
+		double total = 0;
+		for(int b = -ry; b <= ry; b++) {
+			for(int a = -rx; a <= rx; a++) {
+				double u = a * cal.pixelWidth * Math.cos(theta) + b * cal.pixelHeight * Math.sin(theta);
+				double w = -a * cal.pixelWidth * Math.sin(theta) + b * cal.pixelHeight * Math.cos(theta);
+				total += Math.exp(-(u * u + gamma * gamma * w * w) / (2 * sigma * sigma));
+			}
+		}
+		float[] expected = new float[v.length];
+		for(int z = 0; z < 2; z++) {
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					double re = 0, im = 0;
+					for(int b = -ry; b <= ry; b++) {
+						for(int a = -rx; a <= rx; a++) {
+							double u = a * cal.pixelWidth * Math.cos(theta) + b * cal.pixelHeight * Math.sin(theta);
+							double w = -a * cal.pixelWidth * Math.sin(theta) + b * cal.pixelHeight * Math.cos(theta);
+							double e = Math.exp(-(u * u + gamma * gamma * w * w) / (2 * sigma * sigma)) / total;
+							double p = v[(z * H + mirror(y + b, H)) * W + mirror(x + a, W)];
+							re += e * Math.cos(2 * Math.PI * u / lambda) * p;
+							im += e * Math.sin(2 * Math.PI * u / lambda) * p;
+						}
+					}
+					expected[(z * H + y) * W + x] = (float) Math.sqrt(re * re + im * im);
+				}
+			}
+		}
+		FilterSpec f = FilterSpec.parse("gabor(2,3,0.8,30)");
+		assertClose(expected, pixels(new FilterBank(img, FilterBank.AUTO).response(f)), 1e-5, "gabor");
+	}
+
+	@Test
+	public void analyticResponses() {
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			FloatProcessor fp = new FloatProcessor(W, H);
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					fp.setf(x, y, 10 + 3 * x - 2 * y + 5 * z);
+				}
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus ramp = new ImagePlus("ramp", stack);
+		ramp.setCalibration(calibration(1, 1, 1));
+		FilterBank bank = new FilterBank(ramp, FilterBank.AUTO);
+		// a linear intensity has no curvature, away from the mirrored border.
+		float[] log = pixels(bank.response(FilterSpec.parse("log(0.5)")));
+		float[] mean = pixels(bank.response(FilterSpec.parse("mean(3)")));
+		float[] v = pixels(ramp);
+		for(int z = 2; z < S - 2; z++) {
+			for(int y = 2; y < H - 2; y++) {
+				for(int x = 2; x < W - 2; x++) {
+					int i = (z * H + y) * W + x;
+					assertEquals(0, log[i], 1e-3);
+					assertEquals(v[i], mean[i], 1e-3);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void responsesAreComputedOnce() {
+		FilterBank bank = new FilterBank(image(S, 5), FilterBank.AUTO);
+		FilterSpec f = FilterSpec.parse("log(1)");
+		assertSame(bank.response(f), bank.responses(Arrays.asList(FilterSpec.parse(" log( 1 ) "), f)).get(f));
+	}
+
+	@Test
+	public void invalidFilters() {
+		assertThrows(IllegalArgumentException.class, () -> FilterSpec.parse("mean(4)"));
+		assertThrows(IllegalArgumentException.class, () -> FilterSpec.parse("laws(L5E5X5)"));
+		assertThrows(IllegalArgumentException.class, () -> FilterSpec.parse("wavelet(db9,LLH)"));
+		assertThrows(IllegalArgumentException.class, () -> FilterSpec.parse("sobel(1)"));
+		assertFalse(FilterSpec.isValidList("log(1);gabor(1,2)"));
+	}
+
+	@Test
+	public void responsesGoThroughTheFamilies() throws Exception {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		ExtractionSettings settings = ExtractionSettings.builder()
+				.enable(SettingParams.BOOL_enableMorphological, false)
+				.enable(SettingParams.BOOL_enableLocalIntensityFeatures, false)
+				.enable(SettingParams.BOOL_enableIntensityHistogram, false)
+				.enable(SettingParams.BOOL_enableGLRLM, false)
+				.enable(SettingParams.BOOL_enableGLSZM, false)
+				.enable(SettingParams.BOOL_enableGLDZM, false)
+				.enable(SettingParams.BOOL_enableNGTDM, false)
+				.enable(SettingParams.BOOL_enableNGLDM, false)
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.imageFilters("mean(1);mean(3)")
+				.build();
+		RadiomicsJ radiomics = new RadiomicsJ(settings);
+		ResultsTable rt = radiomics.execute(phantom[0], phantom[1], 1);
+		int row = rt.size() - 1;
+		// mean(1) leaves the image as it is.
+		for(String feature : new String[] {"IntensityBasedStatistical_Mean", "GLCM_JointEntropy"}) {
+			assertEquals(rt.getValue(feature, row), rt.getValue("mean_1_" + feature, row), 1e-12, feature);
+		}
+		for(String heading : rt.getHeadings()) {
+			assertFalse(heading.startsWith("mean_1_OperationalInfo") || heading.startsWith("mean_3_Morphology"), heading);
+		}
+
+		ImagePlus mask = radiomics.getAnalysisReadyMask();
+		float[] m = pixels(mask);
+		float[] r = pixels(new FilterBank(radiomics.getAnalysisReadyImage(), FilterBank.AUTO).response(FilterSpec.parse("mean(3)")));
+		double sum = 0;
+		int n = 0;
+		for(int i = 0; i < m.length; i++) {
+			if(m[i] == 1) {
+				sum += r[i];
+				n++;
+			}
+		}
+		assertEquals(sum / n, rt.getValue("mean_3_IntensityBasedStatistical_Mean", row), 1e-5);
+	}
+
+	private static void assertClose(float[] expected, float[] actual, double tolerance, String message) {
+		double scale = 0;
+		for(float e : expected) {
+			scale = Math.max(scale, Math.abs(e));
+		}
+		for(int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], tolerance * Math.max(1, scale), message + " at " + i);
+		}
+	}
+
+	private static int mirror(int i, int n) {
+		while(i < 0 || i >= n) {
+			i = i < 0 ? -i - 1 : 2 * n - 1 - i;
+		}
+		return i;
+	}
+
+	private static float[] pixels(ImagePlus img) {
+		int plane = img.getWidth() * img.getHeight();
+		float[] v = new float[plane * img.getNSlices()];
+		for(int z = 0; z < img.getNSlices(); z++) {
+			for(int i = 0; i < plane; i++) {
+				v[z * plane + i] = img.getStack().getProcessor(z + 1).getf(i);
+			}
+		}
+		return v;
+	}
+
+	private static ImagePlus image(int slices, long seed) {
+		Random random = new Random(seed);
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < slices; z++) {
+			FloatProcessor fp = new FloatProcessor(W, H);
+			for(int i = 0; i < W * H; i++) {
+				fp.setf(i, 100 * random.nextFloat() + (i % W));
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus img = new ImagePlus("image", stack);
+		img.setCalibration(calibration(0.8, 1.1, 2.0));
+		return img;
+	}
+
+	private static Calibration calibration(double px, double py, double pz) {
+		Calibration cal = new Calibration();
+		cal.pixelWidth = px;
+		cal.pixelHeight = py;
+		cal.pixelDepth = pz;
+		return cal;
+	}
+}
@@ -77,6 +77,7 @@ public class TestGLAMFeatures {
 		test.everyFeatureIsReachable();
 		test.undefinedGrayLevelsAreReportedAsUndefined();
 		test.subSamplingApproximatesTheExactResult();
+		test.fftPairCountsMatchTheScan();
 		System.out.println("GLAM validation: all clear.");
 	}
 
@@ -251,11 +252,59 @@ public class TestGLAMFeatures {
 				"sub sampled second virial coefficient drifted too far: " + deviation + " against a scale of " + scale);
 	}
 
+	/**
+	 * The FFT backend counts the same pairs as the neighbour scan, so it has to
+	 * meet the same reference values, and stay on the scan when the reference
+	 * voxels are sub sampled and the randomised state is shuffled.
+	 */
+	@Test
+	public void fftPairCountsMatchTheScan() throws Exception {
+		for (String name : PHANTOMS) {
+			GLAMPhantom phantom = GLAMPhantom.load(name);
+			for (boolean boundary : new boolean[] { false, true }) {
+				String mode = boundary ? "boundary" : "ideal";
+				GLAMFeatures glam = extract(phantom, boundary, true);
+				double[][][] expected = GLAMPhantom.loadRdf(name + "_" + mode + "_rdf.csv", phantom.levels,
+						phantom.maxRadius);
+				compareRdf(name + " [" + mode + ", fft] structured rdf", expected, glam.getRadialDistributionFunction(),
+						phantom.levels, phantom.maxRadius);
+			}
+		}
+
+		GLAMPhantom phantom = GLAMPhantom.load("clustered_blobs");
+		for (boolean boundary : new boolean[] { false, true }) {
+			GLAMFeatures scanned;
+			GLAMFeatures convolved;
+			try {
+				RadiomicsJ.resetSettings();
+				RadiomicsJ.glamBoundaryCorrection = boundary;
+				RadiomicsJ.glamMaxRadius = phantom.maxRadius;
+				RadiomicsJ.glamMaxReferenceVoxels = 50;
+				RadiomicsJ.glamNumRandomisations = 2;
+				scanned = build(phantom);
+				RadiomicsJ.glamFftPairCounts = true;
+				convolved = build(phantom);
+			} finally {
+				RadiomicsJ.resetSettings();
+			}
+			compareRdf("sub sampled [fft] structured rdf", scanned.getRadialDistributionFunction(),
+					convolved.getRadialDistributionFunction(), phantom.levels, phantom.maxRadius);
+			compareRdf("sub sampled [fft] randomised rdf", scanned.getRandomRadialDistributionFunction(),
+					convolved.getRandomRadialDistributionFunction(), phantom.levels, phantom.maxRadius);
+		}
+	}
+
 	// ------------------------------------------------------------------
 
 	private GLAMFeatures extract(GLAMPhantom phantom, boolean boundaryCorrection) throws Exception {
+		return extract(phantom, boundaryCorrection, false);
+	}
+
+	private GLAMFeatures extract(GLAMPhantom phantom, boolean boundaryCorrection, boolean fftPairCounts)
+			throws Exception {
 		RadiomicsJ.resetSettings();
 		RadiomicsJ.glamBoundaryCorrection = boundaryCorrection;
+		RadiomicsJ.glamFftPairCounts = fftPairCounts;
 		RadiomicsJ.glamMaxRadius = phantom.maxRadius;
 		try {
 			return build(phantom);
@@ -0,0 +1,176 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import ij.process.ShortProcessor;
+import io.github.tatsunidas.radiomics.features.LocalIntensityFeatureType;
+import io.github.tatsunidas.radiomics.features.LocalIntensityFeatures;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * Peaks read from the spherical mean filter are the peaks of the spheres visited voxel by voxel.
+ *
+ * @author tatsunidas
+ */
+public class TestLocalIntensityFeatures {
+
+	private static final double RADIUS = 10 * Math.cbrt(3 / (4 * Math.PI));
+
+	@Test
+	public void digitalPhantom() {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		compare(phantom[0], phantom[1]);
+	}
+
+	@Test
+	public void anisotropicFloatImage() {
+		ImagePlus mask = mask(24, 20, 9);
+		ImageStack stack = new ImageStack(24, 20);
+		Random random = new Random(2);
+		for(int z = 0; z < 9; z++) {
+			FloatProcessor fp = new FloatProcessor(24, 20);
+			for(int i = 0; i < 24 * 20; i++) {
+				fp.setf(i, 5f + 10f * random.nextFloat() + (i % 24));
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus img = new ImagePlus("image", stack);
+		img.setCalibration(calibration(0.9, 1.1, 2.5));
+		mask.setCalibration(calibration(0.9, 1.1, 2.5));
+		compare(img, mask);
+	}
+
+	@Test
+	public void calibratedShortImage() {
+		ImagePlus mask = mask(16, 16, 12);
+		ImageStack stack = new ImageStack(16, 16);
+		Random random = new Random(4);
+		for(int z = 0; z < 12; z++) {
+			ShortProcessor sp = new ShortProcessor(16, 16);
+			for(int i = 0; i < 16 * 16; i++) {
+				sp.set(i, 1000 + random.nextInt(400));
+			}
+			stack.addSlice(sp);
+		}
+		ImagePlus img = new ImagePlus("image", stack);
+		Calibration cal = calibration(1.5, 1.5, 1.5);
+		cal.setFunction(Calibration.STRAIGHT_LINE, new double[] {-1000, 1}, "HU");
+		img.setCalibration(cal);
+		mask.setCalibration(calibration(1.5, 1.5, 1.5));
+		compare(img, mask);
+	}
+
+	private static void compare(ImagePlus img, ImagePlus mask) {
+		double[] expected = peaks(img, mask);
+		LocalIntensityFeatures f = new LocalIntensityFeatures(img, mask, 1);
+		assertEquals(expected[0], f.calculate(LocalIntensityFeatureType.LocalIntensityPeak.id()), 1e-9 * Math.abs(expected[0]));
+		assertEquals(expected[1], f.calculate(LocalIntensityFeatureType.GlobalIntensityPeak.id()), 1e-9 * Math.abs(expected[1]));
+	}
+
+	/*
+	 * {local, global} peak, the mean of every sphere summed voxel by voxel.
+	 */
+	private static double[] peaks(ImagePlus img, ImagePlus mask) {
+		Calibration cal = img.getCalibration();
+		int w = img.getWidth();
+		int h = img.getHeight();
+		int s = img.getNSlices();
+		double max = -Double.MAX_VALUE;
+		for(int z = 0; z < s; z++) {
+			for(int y = 0; y < h; y++) {
+				for(int x = 0; x < w; x++) {
+					if(mask.getStack().getProcessor(z + 1).getf(x, y) == 1) {
+						max = Math.max(max, img.getStack().getProcessor(z + 1).getf(x, y));
+					}
+				}
+			}
+		}
+		double local = 0;
+		double global = 0;
+		for(int z = 0; z < s; z++) {
+			for(int y = 0; y < h; y++) {
+				for(int x = 0; x < w; x++) {
+					if(mask.getStack().getProcessor(z + 1).getf(x, y) != 1) {
+						continue;
+					}
+					double sum = 0;
+					int count = 0;
+					for(int zz = 0; zz < s; zz++) {
+						ImageProcessor ip = img.getStack().getProcessor(zz + 1).duplicate();
+						ip.setCalibrationTable(cal.getCTable());
+						for(int yy = 0; yy < h; yy++) {
+							for(int xx = 0; xx < w; xx++) {
+								double dx = (xx - x) * cal.pixelWidth;
+								double dy = (yy - y) * cal.pixelHeight;
+								double dz = (zz - z) * cal.pixelDepth;
+								if(Math.sqrt(dx * dx + dy * dy + dz * dz) <= RADIUS) {
+									sum += ip.getPixelValue(xx, yy);
+									count++;
+								}
+							}
+						}
+					}
+					double mean = sum / count;
+					global = Math.max(global, mean);
+					if(img.getStack().getProcessor(z + 1).getf(x, y) >= max) {
+						local = Math.max(local, mean);
+					}
+				}
+			}
+		}
+		return new double[] {local, global};
+	}
+
+	/*
+	 * an ellipsoid touching the sides of the image, so that spheres leave it.
+	 */
+	private static ImagePlus mask(int w, int h, int s) {
+		ImageStack stack = new ImageStack(w, h);
+		for(int z = 0; z < s; z++) {
+			ByteProcessor bp = new ByteProcessor(w, h);
+			for(int y = 0; y < h; y++) {
+				for(int x = 0; x < w; x++) {
+					double dx = (x - w / 2) / (w / 2d);
+					double dy = (y - h / 2) / (h / 2d);
+					double dz = (z - s / 2) / (s / 2d);
+					bp.set(x, y, dx * dx + dy * dy + dz * dz <= 1.1 ? 1 : 0);
+				}
+			}
+			stack.addSlice(bp);
+		}
+		return new ImagePlus("mask", stack);
+	}
+
+	private static Calibration calibration(double px, double py, double pz) {
+		Calibration cal = new Calibration();
+		cal.pixelWidth = px;
+		cal.pixelHeight = py;
+		cal.pixelDepth = pz;
+		return cal;
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.vecmath.Point3f;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.miscellaneous.MCTriangulator;
+import io.github.tatsunidas.radiomics.features.MorphologicalFeatureType;
+import io.github.tatsunidas.radiomics.features.MorphologicalFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * Diameters measured on the convex hull of the mesh agree with the mesh itself.
+ * Moran's I and Geary's C by FFT convolution agree with the loop over the voxel pairs,
+ * and the FFT is taken only for the rois it suits.
+ *
+ * @author tatsunidas
+ */
+public class TestMorphologicalFeatures {
+
+	private static final int W = 20;
+	private static final int H = 16;
+	private static final int S = 11;
+
+	@Test
+	public void feretDiametersOfABox() {
+		ImagePlus mask = mask((x, y, z) -> x >= 4 && x < 16 && y >= 4 && y < 12 && z >= 3 && z < 8);
+		MorphologicalFeatures f = new MorphologicalFeatures(image(mask), mask, 1);
+		// the mesh lies half way between the voxels in and out of the box.
+		assertEquals(8 * 0.8, f.calculate(MorphologicalFeatureType.MinimumFeretDiameter.id()), 1e-5);
+		assertEquals(f.calculate(MorphologicalFeatureType.Maximum3DDiameter.id()),
+				f.calculate(MorphologicalFeatureType.MaximumFeretDiameter.id()));
+	}
+
+	@Test
+	public void diametersOfABlob() {
+		Random random = new Random(3);
+		ImagePlus mask = mask((x, y, z) -> {
+			double dx = (x - 9.5) / 7.5;
+			double dy = (y - 7.5) / 5.5;
+			double dz = (z - 5) / 4.0;
+			return dx * dx + dy * dy + dz * dz + 0.3 * random.nextDouble() <= 1.1;
+		});
+		MorphologicalFeatures f = new MorphologicalFeatures(image(mask), mask, 1);
+		List<Point3f> mesh = new MCTriangulator().getTriangles(mask, 0.5, 1);
+
+		double max = 0;
+		for(Point3f a : mesh) {
+			for(Point3f b : mesh) {
+				max = Math.max(max, a.distance(b));
+			}
+		}
+		assertEquals(max, f.calculate(MorphologicalFeatureType.Maximum3DDiameter.id()), 1e-4);
+
+		// widths along many directions are never below the minimum width, and come close to it.
+		double sampled = Double.MAX_VALUE;
+		int n = 20000;
+		for(int i = 0; i < n; i++) {
+			double uz = 1 - (i + 0.5) / n;
+			double r = Math.sqrt(1 - uz * uz);
+			double phi = i * Math.PI * (3 - Math.sqrt(5));
+			double ux = r * Math.cos(phi);
+			double uy = r * Math.sin(phi);
+			double lo = Double.MAX_VALUE;
+			double hi = -Double.MAX_VALUE;
+			for(Point3f p : mesh) {
+				double d = ux * p.x + uy * p.y + uz * p.z;
+				lo = Math.min(lo, d);
+				hi = Math.max(hi, d);
+			}
+			sampled = Math.min(sampled, hi - lo);
+		}
+		double minimum = f.calculate(MorphologicalFeatureType.MinimumFeretDiameter.id());
+		assertTrue(minimum <= sampled + 1e-6, minimum + " > " + sampled);
+		assertTrue(minimum >= 0.95 * sampled, minimum + " < " + sampled);
+	}
+
+	@Test
+	public void spatialAutocorrelationOfTheDigitalPhantom() {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		// a few tens of voxels, the pair loop costs less than the transforms.
+		assertFalse(spatialAutocorrelation(phantom[0], phantom[1], true).isSpatialAutocorrelationByFFT());
+		double[] pairs = spatialAutocorrelation(phantom[0], phantom[1], false, false);
+		// IBSI reference values and tolerances
+		assertEquals(0.0397, pairs[0], 0.0003);
+		assertEquals(0.974, pairs[1], 0.006);
+	}
+
+	@Test
+	public void spatialAutocorrelationWithAnisotropicSpacing() {
+		Random random = new Random(9);
+		ImagePlus mask = mask((x, y, z) -> {
+			// the whole grid with holes, enough voxels for the FFT to cost less than the pairs.
+			return x > 0 && random.nextInt(6) != 0;
+		});
+		ImagePlus image = image(mask);
+		for(int z = 0; z < S; z++) {
+			// a gradient along x, so that near voxels are alike.
+			float[] pixels = (float[]) image.getStack().getPixels(z + 1);
+			for(int i = 0; i < pixels.length; i++) {
+				pixels[i] += 20 * (i % W);
+			}
+		}
+		double[] fft = spatialAutocorrelation(image, mask, true, true);
+		double[] pairs = spatialAutocorrelation(image, mask, false, false);
+		assertEquals(pairs[0], fft[0], 1e-10 * Math.abs(pairs[0]));
+		assertEquals(pairs[1], fft[1], 1e-10 * Math.abs(pairs[1]));
+		assertTrue(fft[0] > 0.05 && fft[1] < 0.95, fft[0] + " " + fft[1]);
+	}
+
+	@Test
+	public void spatialAutocorrelationOfAThinRoiInALargeBox() {
+		// a diagonal line of 40 voxels : the padded box would be 80^3 voxels, the pairs less than a thousand.
+		int n = 40;
+		ImageStack maskStack = new ImageStack(n, n);
+		ImageStack imageStack = new ImageStack(n, n);
+		Random random = new Random(11);
+		for(int z = 0; z < n; z++) {
+			ByteProcessor bp = new ByteProcessor(n, n);
+			bp.set(z, z, 1);
+			maskStack.addSlice(bp);
+			FloatProcessor fp = new FloatProcessor(n, n);
+			fp.setf(z, z, random.nextInt(100));
+			imageStack.addSlice(fp);
+		}
+		ImagePlus mask = new ImagePlus("mask", maskStack);
+		ImagePlus image = new ImagePlus("image", imageStack);
+		mask.setCalibration(calibration());
+		image.setCalibration(calibration());
+		double[] byFlag = spatialAutocorrelation(image, mask, true, false);
+		double[] pairs = spatialAutocorrelation(image, mask, false, false);
+		assertEquals(pairs[0], byFlag[0]);
+		assertEquals(pairs[1], byFlag[1]);
+	}
+
+	/*
+	 * {Moran's I, Geary's C}, byFFT is the backend expected for the roi.
+	 */
+	private static double[] spatialAutocorrelation(ImagePlus image, ImagePlus mask, boolean fft, boolean byFFT) {
+		MorphologicalFeatures f = spatialAutocorrelation(image, mask, fft);
+		assertEquals(byFFT, f.isSpatialAutocorrelationByFFT());
+		return new double[] {f.calculate(MorphologicalFeatureType.MoransIIndex.id()),
+				f.calculate(MorphologicalFeatureType.GearysCMeasure.id())};
+	}
+
+	private static MorphologicalFeatures spatialAutocorrelation(ImagePlus image, ImagePlus mask, boolean fft) {
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.EXTRACTION_SETTINGS, ExtractionSettings.builder().fftSpatialAutocorrelation(fft).build());
+		return new MorphologicalFeatures(image, mask, settings);
+	}
+
+	private interface Shape {
+		boolean contains(int x, int y, int z);
+	}
+
+	private static ImagePlus mask(Shape shape) {
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			ByteProcessor bp = new ByteProcessor(W, H);
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					bp.set(x, y, shape.contains(x, y, z) ? 1 : 0);
+				}
+			}
+			stack.addSlice(bp);
+		}
+		ImagePlus mask = new ImagePlus("mask", stack);
+		mask.setCalibration(calibration());
+		return mask;
+	}
+
+	private static ImagePlus image(ImagePlus mask) {
+		Random random = new Random(5);
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			FloatProcessor fp = new FloatProcessor(W, H);
+			for(int y = 0; y < H; y++) {
+				for(int x = 0; x < W; x++) {
+					fp.setf(x, y, random.nextInt(100));
+				}
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus image = new ImagePlus("image", stack);
+		image.setCalibration(calibration());
+		return image;
+	}
+
+	private static Calibration calibration() {
+		Calibration cal = new Calibration();
+		cal.pixelWidth = 0.8;
+		cal.pixelHeight = 0.8;
+		cal.pixelDepth = 2.0;
+		return cal;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import io.github.tatsunidas.radiomics.main.NeighbourhoodCounter;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
+
+/**
+ * NGTDM and NGLDM statistics of the neighbourhood counter.
+ *
+ * @author tatsunidas
+ */
+public class TestNeighbourhoodCounter {
+
+	@Test
+	public void singleSlice() throws Exception {
+		// 0 is out of the roi.
+		int[][] grey = {
+				{1, 2, 0},
+				{1, 1, 0},
+				{0, 0, 3}};
+		ByteProcessor ip = new ByteProcessor(3, 3);
+		ByteProcessor mp = new ByteProcessor(3, 3);
+		for(int y = 0; y < 3; y++) {
+			for(int x = 0; x < 3; x++) {
+				ip.set(x, y, grey[y][x]);
+				mp.set(x, y, grey[y][x] > 0 ? 1 : 0);
+			}
+		}
+		RoiVolume volume = RoiVolume.of(new ImagePlus("img", ip), new ImagePlus("mask", mp), 1, 3);
+		NeighbourhoodCounter counter = new NeighbourhoodCounter(volume, 1);
+
+		double[][] ngtdm = counter.ngtdm(false);
+		assertEquals(3, ngtdm[0][0]);
+		// |1-(2+1+1)/3| + |1-(1+2+1)/3| + |1-(1+2+1+3)/4|
+		assertEquals(1.0 / 3 + 1.0 / 3 + 3.0 / 4, ngtdm[0][1], 1e-12);
+		assertEquals(1, ngtdm[1][0]);
+		assertEquals(1, ngtdm[1][1], 1e-12);
+		// the 3 has the (1,1) voxel as only neighbour.
+		assertEquals(2, ngtdm[2][1], 1e-12);
+
+		int[][] ngldm = counter.ngldm(0, false);
+		assertArrayEquals(new int[] {0, 0, 3}, ngldm[0]);
+		assertArrayEquals(new int[] {1, 0, 0}, ngldm[1]);
+		assertArrayEquals(new int[] {1, 0, 0}, ngldm[2]);
+	}
+
+	@Test
+	public void parallelGivesTheSameMatrices() throws Exception {
+		Random r = new Random(3);
+		int w = 17, h = 13, s = 9, nBins = 5;
+		ImageStack img = new ImageStack(w, h);
+		ImageStack mask = new ImageStack(w, h);
+		for(int z = 0; z < s; z++) {
+			ByteProcessor ip = new ByteProcessor(w, h);
+			ByteProcessor mp = new ByteProcessor(w, h);
+			for(int i = 0; i < w * h; i++) {
+				ip.set(i, 1 + r.nextInt(nBins));
+				mp.set(i, r.nextInt(5) > 0 ? 1 : 0);
+			}
+			img.addSlice(ip);
+			mask.addSlice(mp);
+		}
+		RoiVolume volume = RoiVolume.of(new ImagePlus("img", img), new ImagePlus("mask", mask), 1, nBins);
+		for(int delta = 1; delta <= 3; delta++) {
+			NeighbourhoodCounter counter = new NeighbourhoodCounter(volume, delta);
+			double[][] serial = counter.ngtdm(false);
+			double[][] parallel = counter.ngtdm(true);
+			for(int g = 0; g < nBins; g++) {
+				assertArrayEquals(serial[g], parallel[g]);
+				assertArrayEquals(counter.ngldm(1, false)[g], counter.ngldm(1, true)[g]);
+			}
+		}
+	}
+}
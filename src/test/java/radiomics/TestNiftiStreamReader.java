@@ -0,0 +1,232 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.measure.ResultsTable;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import ij.process.ImageProcessor;
+import io.github.tatsunidas.ij.plugin.nifti.NiftiStreamReader;
+import io.github.tatsunidas.ij.plugin.nifti.Nifti_Writer;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * NiftiStreamReader reads the same voxels and calibration as Nifti_Reader.load(),
+ * from .nii.gz streams and memory-mapped .nii files, for the whole volume or around the roi.
+ * The features of a volume read around the roi are those of the whole volume.
+ *
+ * @author tatsunidas
+ */
+public class TestNiftiStreamReader {
+
+	private static final String DIGITAL = "data_sets-master/ibsi_1_digital_phantom/nifti/";
+	private static final String CT = "data_sets-master/ibsi_1_ct_radiomics_phantom/nifti/";
+
+	@TempDir
+	File tmp;
+
+	@Test
+	public void readsAsNiftiReader() throws IOException {
+		for(String path : new String[] {DIGITAL + "image/phantom.nii.gz", DIGITAL + "mask/mask.nii.gz",
+				CT + "image/phantom.nii.gz", CT + "mask/mask.nii.gz"}) {
+			ImagePlus expected = TestDataLoader.loadNifTi(path);
+			ImagePlus actual = new NiftiStreamReader(TestDataLoader.resolveResource(path)).read();
+			assertSame(expected, actual, new int[] {0, 0, 0}, path);
+		}
+	}
+
+	@Test
+	public void mappedAndStreamedAgree() throws IOException {
+		for(String path : new String[] {DIGITAL + "image/phantom.nii.gz", CT + "image/phantom.nii.gz"}) {
+			File gz = TestDataLoader.resolveResource(path);
+			File nii = gunzip(gz);
+			NiftiStreamReader streamed = new NiftiStreamReader(gz);
+			NiftiStreamReader mapped = new NiftiStreamReader(nii);
+			assertSame(streamed.read(), mapped.read(), new int[] {0, 0, 0}, path);
+			int[] box = {1, 2, 1, streamed.getWidth() - 2, streamed.getHeight() - 1, streamed.getSlices() - 2};
+			assertSame(streamed.read(box), mapped.read(box), new int[] {0, 0, 0}, path);
+		}
+	}
+
+	@Test
+	public void readsAroundTheRoi() throws IOException {
+		File image = TestDataLoader.resolveResource(CT + "image/phantom.nii.gz");
+		File mask = TestDataLoader.resolveResource(CT + "mask/mask.nii.gz");
+		int[] box = new NiftiStreamReader(mask).boundingBox(1);
+		assertNotNull(box);
+		int margin = 2;
+		ImagePlus[] cropped = NiftiStreamReader.readAroundRoi(gunzip(image), mask, 1, margin);
+		ImagePlus fullImage = TestDataLoader.loadNifTi(CT + "image/phantom.nii.gz");
+		ImagePlus fullMask = TestDataLoader.loadNifTi(CT + "mask/mask.nii.gz");
+		int[] offset = {Math.max(0, box[0] - margin), Math.max(0, box[1] - margin), Math.max(0, box[2] - margin)};
+		assertSame(fullImage, cropped[0], offset, "image");
+		assertSame(fullMask, cropped[1], offset, "mask");
+		assertEquals(count(fullMask, 1), count(cropped[1], 1));
+		assertArrayEquals(new int[] {fullImage.getWidth(), fullImage.getHeight(), fullImage.getNSlices()},
+				(int[]) cropped[0].getProperty(NiftiStreamReader.FULL_SIZE));
+		assertEquals(-offset[0], cropped[0].getCalibration().xOrigin);
+		assertEquals(-offset[2], cropped[0].getCalibration().zOrigin);
+
+		assertNull(NiftiStreamReader.readAroundRoi(image, mask, 7, margin));
+		File other = TestDataLoader.resolveResource(DIGITAL + "mask/mask.nii.gz");
+		assertThrows(IllegalArgumentException.class, () -> NiftiStreamReader.readAroundRoi(image, other, 1, margin));
+		assertThrows(IllegalArgumentException.class, () -> new NiftiStreamReader(new File(tmp, "phantom.tif")));
+	}
+
+	@Test
+	public void featuresOfTheRoiSlabAreThoseOfTheWholeVolume() throws Exception {
+		File[] files = volume();
+		ExtractionSettings original = ExtractionSettings.builder()
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.build();
+		// on the grid of the whole volume, the slab is only a part of it.
+		ExtractionSettings resampled = original.toBuilder()
+				.resamplingFactorXYZ(new double[] {1, 1, 1})
+				.build();
+		for(ExtractionSettings settings : new ExtractionSettings[] {original, resampled}) {
+			String run = settings.getResamplingFactorXYZ() == null ? "original grid" : "resampled";
+			RadiomicsJ wholeRadiomics = new RadiomicsJ(settings);
+			ResultsTable whole = wholeRadiomics.execute(files[0], files[1], 1);
+			// wider than the 1 cm3 local intensity sphere.
+			RadiomicsJ slabRadiomics = new RadiomicsJ(settings.toBuilder().niftiLoadMargin(10).build());
+			ResultsTable slab = slabRadiomics.execute(files[0], files[1], 1);
+			assertTrue(slabRadiomics.getAnalysisReadyImage().getWidth() < wholeRadiomics.getAnalysisReadyImage().getWidth(), run);
+			int compared = 0;
+			for(String heading : whole.getHeadings()) {
+				if(heading.startsWith("Diagnostics") || heading.startsWith("OperationalInfo")) {
+					continue;
+				}
+				double expected = whole.getValueAsDouble(whole.getColumnIndex(heading), 0);
+				double actual = slab.getValueAsDouble(slab.getColumnIndex(heading), 0);
+				// centre of mass and axes see shifted voxel coordinates, a few ulps.
+				assertEquals(expected, actual, 1e-12 * Math.max(1, Math.abs(expected)), heading + " " + run);
+				compared++;
+			}
+			assertTrue(compared > 100, run);
+		}
+	}
+
+	/*
+	 * {image, mask} .nii of an ellipsoid roi in the middle of a larger volume.
+	 */
+	private File[] volume() {
+		int w = 64, h = 60, s = 14;
+		Random random = new Random(7);
+		ImageStack image = new ImageStack(w, h);
+		ImageStack mask = new ImageStack(w, h);
+		for(int z = 0; z < s; z++) {
+			FloatProcessor fp = new FloatProcessor(w, h);
+			ByteProcessor bp = new ByteProcessor(w, h);
+			for(int y = 0; y < h; y++) {
+				for(int x = 0; x < w; x++) {
+					fp.setf(x, y, (float) Math.rint(40 * Math.sin(x / 5.0) + 3 * y + 5 * z + 20 * random.nextGaussian()));
+					double dx = (x - 31) / 6.0;
+					double dy = (y - 29) / 5.0;
+					double dz = (z - 6) / 2.2;
+					if(dx * dx + dy * dy + dz * dz <= 1) {
+						bp.set(x, y, 1);
+					}
+				}
+			}
+			image.addSlice(fp);
+			mask.addSlice(bp);
+		}
+		Calibration cal = new Calibration();
+		cal.pixelWidth = 0.8;
+		cal.pixelHeight = 0.8;
+		cal.pixelDepth = 2.5;
+		cal.setUnit("mm");
+		ImagePlus img = new ImagePlus("image", image);
+		ImagePlus msk = new ImagePlus("mask", mask);
+		img.setCalibration(cal);
+		msk.setCalibration(cal.copy());
+		new Nifti_Writer().save(img, tmp.getAbsolutePath(), "image.nii");
+		new Nifti_Writer().save(msk, tmp.getAbsolutePath(), "mask.nii");
+		return new File[] {new File(tmp, "image.nii"), new File(tmp, "mask.nii")};
+	}
+
+	/*
+	 * same bit depth, calibration and calibrated values, expected shifted by offset.
+	 */
+	private static void assertSame(ImagePlus expected, ImagePlus actual, int[] offset, String msg) {
+		assertEquals(expected.getBitDepth(), actual.getBitDepth(), msg);
+		Calibration ce = expected.getCalibration();
+		Calibration ca = actual.getCalibration();
+		assertEquals(ce.pixelWidth, ca.pixelWidth, 1e-9, msg);
+		assertEquals(ce.pixelHeight, ca.pixelHeight, 1e-9, msg);
+		assertEquals(ce.pixelDepth, ca.pixelDepth, 1e-9, msg);
+		assertEquals(ce.getUnit(), ca.getUnit(), msg);
+		assertEquals(ce.isSigned16Bit(), ca.isSigned16Bit(), msg);
+		for(int z = 0; z < actual.getNSlices(); z++) {
+			ImageProcessor ipe = expected.getStack().getProcessor(z + offset[2] + 1);
+			ImageProcessor ipa = actual.getStack().getProcessor(z + 1);
+			for(int y = 0; y < actual.getHeight(); y++) {
+				for(int x = 0; x < actual.getWidth(); x++) {
+					if(ipe.getPixelValue(x + offset[0], y + offset[1]) != ipa.getPixelValue(x, y)) {
+						assertEquals(ipe.getPixelValue(x + offset[0], y + offset[1]), ipa.getPixelValue(x, y), msg + " at " + x + "," + y + "," + z);
+					}
+				}
+			}
+		}
+	}
+
+	private static int count(ImagePlus mask, int label) {
+		Calibration cal = mask.getCalibration();
+		int n = 0;
+		for(int z = 1; z <= mask.getNSlices(); z++) {
+			float[] pixels = (float[]) mask.getStack().getProcessor(z).convertToFloat().getPixels();
+			for(float v : pixels) {
+				if(cal.getCValue(v) == label) {
+					n++;
+				}
+			}
+		}
+		return n;
+	}
+
+	private File gunzip(File gz) throws IOException {
+		File nii = new File(tmp, gz.getParentFile().getName() + "_" + gz.getName().replace(".gz", ""));
+		try(InputStream in = new GZIPInputStream(new FileInputStream(gz))) {
+			Files.copy(in, nii.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return nii;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.Resampler;
+import io.github.tatsunidas.radiomics.main.ResamplingGrid;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+import io.github.tatsunidas.radiomics.main.Utils;
+
+/**
+ * The separable kernels of Resampler give, bit for bit, the resampling of the former per-voxel loops.
+ *
+ * @author tatsunidas
+ */
+public class TestResampler {
+
+	/**
+	 * CRC32 of the float bits of the IBSI CT phantom resampled by the per-voxel loops of Utils,
+	 * before the kernels were separable.
+	 */
+	@Test
+	public void matchesThePerVoxelResamplingOnTheCtPhantom() {
+		ImagePlus[] ct = TestDataLoader.sample_ct1();
+		assertEquals(0x7d1f918fL, crc(Utils.resample3D(ct[0], false, 1, 1, 1, RadiomicsJ.TRILINEAR, 0.5)));
+		assertEquals(0x0015743bL, crc(Utils.resample3D(ct[0], false, 1, 1, 1, RadiomicsJ.NEAREST3D, 0.5)));
+		assertEquals(0x9bfe185eL, crc(Utils.resample3D(ct[0], false, 1, 1, 1, RadiomicsJ.TRICUBIC_SPLINE, 0.5)));
+		assertEquals(0xda39550aL, crc(Utils.resample3D(ct[0], false, 1, 1, 1, RadiomicsJ.TRICUBIC_POLYNOMIAL, 0.5)));
+		assertEquals(0x893191acL, crc(Utils.resample3D(ct[0], false, 2, 2, 2, RadiomicsJ.TRILINEAR, 0.5)));
+		assertEquals(0x57175de4L, crc(Utils.resample3D(ct[1], true, 1, 1, 1, RadiomicsJ.TRILINEAR, 0.5)));
+	}
+
+	@Test
+	public void matchesThePerVoxelInterpolation() {
+		int w = 23, h = 19, s = 9;
+		ImagePlus img = noise(w, h, s);
+		ResamplingGrid whole = ResamplingGrid.of(img, 0.7, 1.3, 1.1);
+		ResamplingGrid part = ResamplingGrid.around(new int[] {w, h, s}, new double[] {1 / 0.7, 1 / 1.3, 2 / 1.1},
+				new int[] {5, 4, 2, 12, 10, 5}, new int[] {1, 1, 1}, null);
+		for(ResamplingGrid grid : new ResamplingGrid[] {whole, part}) {
+			ImagePlus source = Utils.crop(img, grid.getSourceBox());
+			int sw = source.getWidth();
+			int sh = source.getHeight();
+			int ss = source.getStackSize();
+			float[] sourceVoxels = new float[sw * sh * ss];
+			for(int z = 0; z < ss; z++) {
+				System.arraycopy((float[]) source.getStack().getProcessor(z + 1).getPixels(), 0, sourceVoxels, z * sw * sh, sw * sh);
+			}
+			double[] xs = grid.coordinates(0);
+			double[] ys = grid.coordinates(1);
+			double[] zs = grid.coordinates(2);
+			float[][] trilinear = Resampler.trilinear(sourceVoxels, sw, sh, ss, grid, true);
+			float[][] nearest = Resampler.nearestNeighbour(sourceVoxels, sw, sh, ss, grid, true);
+			for(int k = 0; k < zs.length; k++) {
+				for(int j = 0; j < ys.length; j++) {
+					for(int i = 0; i < xs.length; i++) {
+						int index = j * xs.length + i;
+						assertEquals((float) Utils.TrilinearInterpolation2(sourceVoxels, sw, sh, ss, xs[i], ys[j], zs[k]), trilinear[k][index]);
+						assertEquals((float) Utils.NNInterpolation(sourceVoxels, sw, sh, ss, xs[i], ys[j], zs[k]), nearest[k][index]);
+					}
+				}
+			}
+			float[][] weights = Utils.initializeCubicSplineWeights(256);
+			assertArrayEquals(Resampler.tricubic(sourceVoxels, sw, sh, ss, weights, grid, false),
+					Resampler.tricubic(sourceVoxels, sw, sh, ss, weights, grid, true));
+			assertArrayEquals(trilinear, Resampler.trilinear(sourceVoxels, sw, sh, ss, grid, false));
+		}
+	}
+
+	private static ImagePlus noise(int w, int h, int s) {
+		Random random = new Random(22);
+		ImageStack stack = new ImageStack(w, h);
+		for(int z = 0; z < s; z++) {
+			FloatProcessor fp = new FloatProcessor(w, h);
+			for(int i = 0; i < w * h; i++) {
+				fp.setf(i, (float) (100 * random.nextGaussian()));
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus img = new ImagePlus("noise", stack);
+		Calibration cal = img.getCalibration();
+		cal.pixelWidth = 1.0;
+		cal.pixelHeight = 1.0;
+		cal.pixelDepth = 2.0;
+		return img;
+	}
+
+	private static long crc(ImagePlus imp) {
+		CRC32 crc = new CRC32();
+		byte[] b = new byte[4];
+		for(int z = 1; z <= imp.getStackSize(); z++) {
+			for(float f : (float[]) imp.getStack().getProcessor(z).getPixels()) {
+				int v = Float.floatToIntBits(f);
+				b[0] = (byte) (v >>> 24);
+				b[1] = (byte) (v >>> 16);
+				b[2] = (byte) (v >>> 8);
+				b[3] = (byte) v;
+				crc.update(b);
+			}
+		}
+		return crc.getValue();
+	}
+}
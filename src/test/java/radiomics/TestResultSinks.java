@@ -0,0 +1,200 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ij.ImagePlus;
+import ij.measure.ResultsTable;
+import io.github.tatsunidas.radiomics.main.ColumnarFileSink;
+import io.github.tatsunidas.radiomics.main.ColumnarResultTable;
+import io.github.tatsunidas.radiomics.main.CsvResultSink;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+import io.github.tatsunidas.radiomics.main.TestDataLoader;
+
+/**
+ * Result sinks keep the rows of a ResultsTable, in memory or streamed to a file.
+ *
+ * @author tatsunidas
+ */
+public class TestResultSinks {
+
+	@Test
+	public void columnsOfTheInMemoryTable() {
+		ColumnarResultTable table = new ColumnarResultTable();
+		table.add(row("ID", "case1", "A", 1.5, "B", "NaN"));
+		table.add(row("ID", "case2", "A", 2.5, "B", 4.0, "C", 7.0));
+		for(int i = 0; i < 40; i++) {
+			table.add(row("ID", "case" + (i + 3), "A", (double) i, "B", "text"));
+		}
+		assertEquals(42, table.size());
+		assertEquals(Arrays.asList("ID", "A", "B", "C"), table.getColumnNames());
+		assertTrue(table.isNumeric("A"));
+		assertFalse(table.isNumeric("ID"));
+		assertEquals(2.5, table.getColumn("A")[1]);
+		assertTrue(Double.isNaN(table.getValue("C", 0)), "C is missing in the first row");
+		assertTrue(Double.isNaN(table.getValue("C", 41)));
+		//B became a text column, the numbers before as text.
+		assertFalse(table.isNumeric("B"));
+		assertEquals("NaN", table.getStringValue("B", 0));
+		assertEquals(4.0, table.getValue("B", 1));
+		assertEquals("text", table.getStringValue("B", 41));
+		ResultsTable rt = table.toResultsTable();
+		assertEquals(42, rt.size());
+		assertEquals("case2", rt.getStringValue("ID", 1));
+		assertEquals(7.0, rt.getValue("C", 1));
+	}
+
+	@Test
+	public void missingCellsStayMissing() {
+		ColumnarResultTable table = new ColumnarResultTable();
+		table.add(row("ID", "case1", "A", "NaN"));
+		table.add(row("ID", "case2", "B", 3.0));
+		table.add(row("ID", "case3", "A", "text", "B", "text"));
+		//a NaN given, and a cell missing, are told apart once the columns are text.
+		assertEquals("NaN", table.getStringValue("A", 0));
+		assertEquals(null, table.getStringValue("A", 1));
+		assertEquals(null, table.getStringValue("B", 0));
+		assertEquals("3.0", table.getStringValue("B", 1));
+		assertEquals(row("ID", "case1", "A", "NaN"), table.getRow(0));
+		assertEquals(row("ID", "case2", "B", "3.0"), table.getRow(1));
+		ResultsTable rt = table.toResultsTable();
+		assertEquals("NaN", rt.getStringValue("A", 0));
+		assertEquals("", rt.getStringValue("A", 1));
+	}
+
+	@Test
+	public void csvRefusesAColumnNotInItsHeader() throws Exception {
+		StringWriter csv = new StringWriter();
+		try (CsvResultSink sink = new CsvResultSink(csv)) {
+			sink.add(row("ID", "case1", "A", 1.0));
+			sink.add(row("ID", "case2"));
+			assertThrows(IllegalArgumentException.class, () -> sink.add(row("ID", "case3", "A", 3.0, "B", 3.0)));
+			sink.add(row("A", 4.0, "ID", "case4"));
+		}
+		assertEquals(Arrays.asList("ID,A", "case1,1.0", "case2,NaN", "case4,4.0"),
+				Arrays.asList(csv.toString().split(System.lineSeparator())));
+	}
+
+	@Test
+	public void columnarFileKeepsTheCompleteRowGroups(@TempDir Path dir) throws Exception {
+		File file = dir.resolve("rows" + ColumnarFileSink.EXTENSION).toFile();
+		ColumnarResultTable expected = new ColumnarResultTable();
+		try (ColumnarFileSink sink = new ColumnarFileSink(file, 2)) {
+			for(int i = 0; i < 5; i++) {
+				Map<String, Object> row = row("Image", "img" + i + ".nii", "F1", i * 0.1, "F2", i == 2 ? "NaN" : (Object) (double) -i);
+				if(i >= 3) {
+					row.put("F3", 10.0 + i);//columns added by a later row group.
+				}
+				sink.add(row);
+				expected.add(row);
+			}
+		}
+		ColumnarResultTable read = ColumnarFileSink.read(file);
+		assertEquals(5, read.size());
+		assertEquals(expected.getColumnNames(), read.getColumnNames());
+		for(String column : expected.getColumnNames()) {
+			for(int row = 0; row < 5; row++) {
+				assertEquals(expected.getStringValue(column, row), read.getStringValue(column, row), column + " at " + row);
+			}
+		}
+		//a crash while a row group is written, at any byte after the header (magic and version).
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		File torn = dir.resolve("torn" + ColumnarFileSink.EXTENSION).toFile();
+		int previous = 0;
+		for(int length = 8; length < bytes.length; length++) {
+			Files.write(torn.toPath(), Arrays.copyOf(bytes, length));
+			ColumnarResultTable cut = ColumnarFileSink.read(torn);
+			assertTrue(cut.size() == 0 || cut.size() == 2 || cut.size() == 4, "cut at " + length);
+			assertTrue(cut.size() >= previous);
+			previous = cut.size();
+			if(cut.size() > 0) {
+				assertArrayEquals(Arrays.copyOf(expected.getColumn("F1"), cut.size()), cut.getColumn("F1"));
+			}
+		}
+		assertEquals(4, previous);
+		//a block of the crash left with other bytes : counts, lengths and names that the writer never wrote.
+		for(byte garbage : new byte[] {(byte) 0xFF, (byte) 0x7F, (byte) 0xC0}) {
+			byte[] tail = Arrays.copyOf(bytes, bytes.length + 64);
+			Arrays.fill(tail, bytes.length, tail.length, garbage);
+			Files.write(torn.toPath(), tail);
+			assertEquals(5, ColumnarFileSink.read(torn).size());
+		}
+		//rows 1, columns 1, a name of 2 bytes that is not UTF-8.
+		byte[] name = Arrays.copyOf(bytes, bytes.length + 12);
+		System.arraycopy(new byte[] {0, 0, 0, 1, 0, 0, 0, 1, 0, 2, (byte) 0xE0, 0x41}, 0, name, bytes.length, 12);
+		Files.write(torn.toPath(), name);
+		assertEquals(5, ColumnarFileSink.read(torn).size());
+	}
+
+	@Test
+	public void slicesAreStreamedAsTheTableRows() throws Exception {
+		ImagePlus[] phantom = TestDataLoader.digital_phantom1_scratch();
+		ExtractionSettings settings = ExtractionSettings.builder()
+				.force2D(true)
+				.enable(SettingParams.BOOL_enableMorphological, false)
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.enable(SettingParams.BOOL_enableOperationalInfo, false)
+				.build();
+		ResultsTable rt = new RadiomicsJ(settings).extractAllSlice(phantom[0], phantom[1], 1);
+		ColumnarResultTable table = new ColumnarResultTable();
+		assertEquals(rt.size(), new RadiomicsJ(settings).extractAllSlice(phantom[0], phantom[1], 1, table));
+		StringWriter csv = new StringWriter();
+		try (CsvResultSink sink = new CsvResultSink(csv)) {
+			new RadiomicsJ(settings.toBuilder().sliceParallelism(2).build()).extractAllSlice(phantom[0], phantom[1], 1, sink);
+		}
+		List<String> lines = Arrays.asList(csv.toString().split(System.lineSeparator()));
+		assertEquals(rt.size() + 1, lines.size());
+		List<String> header = Arrays.asList(lines.get(0).split(","));
+		int compared = 0;
+		for(String heading : rt.getHeadings()) {
+			int col = header.indexOf(heading);
+			for(int row = 0; row < rt.size(); row++) {
+				double v = rt.getValue(heading, row);
+				assertEquals(v, table.getValue(heading, row), heading);
+				assertEquals(v, Double.parseDouble(lines.get(row + 1).split(",")[col]), heading);
+			}
+			compared++;
+		}
+		assertTrue(compared > 100);
+	}
+
+	private static Map<String, Object> row(Object... keyValues) {
+		Map<String, Object> row = new LinkedHashMap<>();
+		for(int i = 0; i < keyValues.length; i += 2) {
+			row.put((String) keyValues[i], keyValues[i + 1]);
+		}
+		return row;
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ByteProcessor;
+import io.github.tatsunidas.radiomics.features.GLRLMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RoiVolume;
+import io.github.tatsunidas.radiomics.main.RunLengthCounter;
+import io.github.tatsunidas.radiomics.main.Utils;
+
+/**
+ * Runs counted line by line, against the runs grown forward and backward from each voxel
+ * (the traversal GLRLMFeatures used before RunLengthCounter).
+ *
+ * @author tatsunidas
+ */
+public class TestRunLengthCounter {
+
+	@Test
+	public void knownRuns() throws Exception {
+		// 1 1 . 2 2
+		// 2 2 2 1 1  (. is out of the roi)
+		ImagePlus[] imgMask = slice(5, 2, new int[] {1, 1, 2, 2, 2, 2, 2, 2, 1, 1});
+		imgMask[1].getProcessor().set(2, 0, 0);
+		RoiVolume volume = RoiVolume.of(imgMask[0], imgMask[1], 1, 2);
+		int[][] x = RunLengthCounter.count(volume, 1, 0, 0);
+		assertArrayEquals(new int[][] {{0, 2, 0}, {0, 1, 1}}, x);
+		int[][] y = RunLengthCounter.count(volume, 0, 1, 0);
+		assertArrayEquals(new int[][] {{4}, {5}}, y);
+		assertSameRuns(runsOfEachVoxel(volume, 1, 0, 0), x, "x");
+		assertSameRuns(runsOfEachVoxel(volume, 0, 1, 0), y, "y");
+	}
+
+	@Test
+	public void sameAsTheRunsOfEachVoxel() throws Exception {
+		ImagePlus[] imgMask = random(9, 7, 5, 3);
+		RoiVolume volume = RoiVolume.of(imgMask[0], imgMask[1], 1, 3);
+		for(int a = 14; a <= 26; a++) {
+			int[] d = direction(a);
+			assertSameRuns(runsOfEachVoxel(volume, d[0], d[1], d[2]), RunLengthCounter.count(volume, d[0], d[1], d[2]), "angle " + a);
+		}
+	}
+
+	@Test
+	public void runsLongerThanNBins() throws Exception {
+		int n = 6;
+		int[] ones = new int[n * n];
+		Arrays.fill(ones, 1);
+		ImageStack img = new ImageStack(n, n);
+		ImageStack mask = new ImageStack(n, n);
+		for(int z = 0; z < n; z++) {
+			img.addSlice(slice(n, n, ones)[0].getProcessor());
+			mask.addSlice(slice(n, n, ones)[1].getProcessor());
+		}
+		ImagePlus cube = new ImagePlus("img", img);
+		ImagePlus cubeMask = new ImagePlus("mask", mask);
+		RoiVolume volume = RoiVolume.of(cube, cubeMask, 1, 2);
+		GLRLMFeatures glrlm = glrlm(cube, cubeMask, 2);
+		for(int a = 14; a <= 26; a++) {
+			int[] d = direction(a);
+			int[][] counts = RunLengthCounter.count(volume, d[0], d[1], d[2]);
+			assertSameRuns(runsOfEachVoxel(volume, d[0], d[1], d[2]), counts, "angle " + a);
+			// every line of the cube is a run, the longest is n voxels (the axes and the diagonals).
+			assertEquals(n, counts[0].length, "angle " + a);
+			assertEquals(n * n * n, voxelsInRuns(counts), "angle " + a);
+			double[][] matrix = glrlm.calcGLRLM(a, Utils.buildAngles().get(a));
+			assertEquals(2, matrix.length);
+			assertEquals(Math.max(2, n), matrix[0].length, "angle " + a);
+			for(int j = 0; j < n; j++) {
+				assertEquals(counts[0][j], matrix[0][j], "angle " + a + " run " + (j + 1));
+				assertEquals(0d, matrix[1][j]);
+			}
+		}
+	}
+
+	@Test
+	public void singleSlice() throws Exception {
+		ImagePlus[] imgMask = random(11, 8, 1, 4);
+		RoiVolume volume = RoiVolume.of(imgMask[0], imgMask[1], 1, 4);
+		for(int a = 14; a <= 26; a++) {
+			int[] d = direction(a);
+			int[][] counts = RunLengthCounter.count(volume, d[0], d[1], d[2]);
+			assertSameRuns(runsOfEachVoxel(volume, d[0], d[1], d[2]), counts, "angle " + a);
+			if(d[2] != 0) {
+				// no neighbour along z, each roi voxel is a run of 1.
+				assertEquals(1, counts[0].length, "angle " + a);
+				assertEquals(volume.countRoiVoxels(), voxelsInRuns(counts), "angle " + a);
+			}
+		}
+		// a row longer than nBins, in the plane.
+		int[] row = new int[] {3, 3, 3, 3, 3, 3, 3, 1, 1, 1, 1, 1, 1, 1};
+		ImagePlus[] rows = slice(7, 2, row);
+		int[][] x = RunLengthCounter.count(RoiVolume.of(rows[0], rows[1], 1, 4), 1, 0, 0);
+		assertEquals(7, x[0].length);
+		assertEquals(1, x[0][6]);
+		assertEquals(1, x[2][6]);
+		GLRLMFeatures glrlm = glrlm(rows[0], rows[1], 4);
+		double[][] matrix = glrlm.calcGLRLM(22, Utils.buildAngles().get(22));
+		assertEquals(7, matrix[0].length);
+		assertEquals(1d, matrix[0][6]);
+		assertEquals(1d, matrix[2][6]);
+	}
+
+	/*
+	 * x, y and z steps of angle, as GLRLMFeatures.calcGLRLM gives them to RunLengthCounter.
+	 */
+	private static int[] direction(int angle) {
+		int[] zyx = Utils.buildAngles().get(angle);
+		return new int[] {zyx[2], -zyx[1], zyx[0]};
+	}
+
+	/*
+	 * every roi voxel not yet in a run starts one, grown forward and backward along the direction.
+	 * @return [grey level - 1][run length - 1], as wide as the longest run.
+	 */
+	private static int[][] runsOfEachVoxel(RoiVolume v, int dx, int dy, int dz) {
+		int nBins = v.getNBins();
+		int[][] counts = new int[nBins][v.size() + 1];
+		boolean[] counted = new boolean[v.size()];
+		int longest = 1;
+		for(int z = 0; z < v.getDepth(); z++) {
+			for(int y = 0; y < v.getHeight(); y++) {
+				for(int x = 0; x < v.getWidth(); x++) {
+					int i = v.index(x, y, z);
+					int grey = v.get(i);
+					if(counted[i] || grey < 1) {
+						continue;
+					}
+					counted[i] = true;
+					int run = 1;
+					for(int fx = x + dx, fy = y + dy, fz = z + dz; v.get(fx, fy, fz) == grey && !counted[v.index(fx, fy, fz)]; fx += dx, fy += dy, fz += dz) {
+						counted[v.index(fx, fy, fz)] = true;
+						run++;
+					}
+					for(int bx = x - dx, by = y - dy, bz = z - dz; v.get(bx, by, bz) == grey && !counted[v.index(bx, by, bz)]; bx -= dx, by -= dy, bz -= dz) {
+						counted[v.index(bx, by, bz)] = true;
+						run++;
+					}
+					counts[grey - 1][run - 1]++;
+					longest = Math.max(longest, run);
+				}
+			}
+		}
+		int[][] trimmed = new int[nBins][];
+		for(int g = 0; g < nBins; g++) {
+			trimmed[g] = Arrays.copyOf(counts[g], longest);
+		}
+		return trimmed;
+	}
+
+	private static void assertSameRuns(int[][] expected, int[][] actual, String message) {
+		assertEquals(expected.length, actual.length, message);
+		for(int g = 0; g < expected.length; g++) {
+			assertArrayEquals(expected[g], actual[g], message + " grey level " + (g + 1));
+		}
+	}
+
+	private static int voxelsInRuns(int[][] counts) {
+		int voxels = 0;
+		for(int[] row : counts) {
+			for(int j = 0; j < row.length; j++) {
+				voxels += row[j] * (j + 1);
+			}
+		}
+		return voxels;
+	}
+
+	/*
+	 * img is already discretised, 1 to nBins.
+	 */
+	private static GLRLMFeatures glrlm(ImagePlus img, ImagePlus mask, int nBins) {
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, nBins);
+		settings.put(RadiomicsFeature.PRE_DISC_IMG, img);
+		settings.put(RadiomicsFeature.EXTRACTION_SETTINGS, ExtractionSettings.builder().build());
+		return new GLRLMFeatures(img, mask, settings);
+	}
+
+	/*
+	 * {image, mask}, the mask is 1 everywhere.
+	 */
+	private static ImagePlus[] slice(int w, int h, int[] grey) {
+		ByteProcessor ip = new ByteProcessor(w, h);
+		ByteProcessor mp = new ByteProcessor(w, h);
+		for(int i = 0; i < w * h; i++) {
+			ip.set(i, grey[i]);
+			mp.set(i, 1);
+		}
+		return new ImagePlus[] {new ImagePlus("img", ip), new ImagePlus("mask", mp)};
+	}
+
+	private static ImagePlus[] random(int w, int h, int s, int nBins) {
+		Random r = new Random(7);
+		ImageStack img = new ImageStack(w, h);
+		ImageStack mask = new ImageStack(w, h);
+		for(int z = 0; z < s; z++) {
+			ByteProcessor ip = new ByteProcessor(w, h);
+			ByteProcessor mp = new ByteProcessor(w, h);
+			for(int i = 0; i < w * h; i++) {
+				// few grey levels, so runs of several voxels are common.
+				ip.set(i, 1 + r.nextInt(nBins));
+				mp.set(i, r.nextInt(6) > 0 ? 1 : 0);
+			}
+			img.addSlice(ip);
+			mask.addSlice(mp);
+		}
+		return new ImagePlus[] {new ImagePlus("img", img), new ImagePlus("mask", mask)};
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.measure.Calibration;
+import ij.measure.ResultsTable;
+import ij.process.ByteProcessor;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.radiomics.main.ExtractionSettings;
+import io.github.tatsunidas.radiomics.main.RadiomicsJ;
+import io.github.tatsunidas.radiomics.main.SettingParams;
+
+/**
+ * force2D on several threads gives the rows of the slices computed one after another, in slice order.
+ *
+ * @author tatsunidas
+ */
+public class TestSliceParallelism {
+
+	private static final int W = 40;
+	private static final int H = 36;
+	private static final int S = 9;
+
+	@Test
+	public void parallelRowsAreTheSequentialRows() throws Exception {
+		ImagePlus img = image();
+		ImagePlus mask = mask();
+		ExtractionSettings settings = ExtractionSettings.builder()
+				.force2D(true)
+				.enable(SettingParams.BOOL_enableShape2D, true)
+				.enable(SettingParams.BOOL_enableMorphological, false)
+				.enable(SettingParams.BOOL_enableFractal, false)
+				.build();
+		ResultsTable sequential = new RadiomicsJ(settings).execute(img, mask, 1);
+		assertNotNull(sequential);
+		//slices 0 and 8 have no roi.
+		assertEquals(S - 2, sequential.size());
+		for(int parallelism : new int[] {0, 3}) {
+			ResultsTable parallel = new RadiomicsJ(settings.toBuilder().sliceParallelism(parallelism).build()).execute(img, mask, 1);
+			assertNotNull(parallel);
+			assertEquals(sequential.size(), parallel.size());
+			int compared = 0;
+			for(String heading : sequential.getHeadings()) {
+				if(heading.startsWith("OperationalInfo")) {
+					continue;
+				}
+				for(int row = 0; row < sequential.size(); row++) {
+					assertEquals(sequential.getValueAsDouble(sequential.getColumnIndex(heading), row),
+							parallel.getValueAsDouble(parallel.getColumnIndex(heading), row), heading + " at row " + row);
+				}
+				compared++;
+			}
+			assertTrue(compared > 100);
+		}
+	}
+
+	private static ImagePlus image() {
+		Random random = new Random(24);
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			FloatProcessor fp = new FloatProcessor(W, H);
+			for(int i = 0; i < W * H; i++) {
+				fp.setf(i, (float) Math.rint(30 * Math.cos(i % W / 4.0) + 8 * z + 15 * random.nextGaussian()));
+			}
+			stack.addSlice(fp);
+		}
+		ImagePlus img = new ImagePlus("image", stack);
+		img.setCalibration(calibration());
+		return img;
+	}
+
+	/**
+	 * ellipses growing with the slice index, none on the first and the last slices.
+	 */
+	private static ImagePlus mask() {
+		ImageStack stack = new ImageStack(W, H);
+		for(int z = 0; z < S; z++) {
+			ByteProcessor bp = new ByteProcessor(W, H);
+			if(z > 0 && z < S - 1) {
+				double rx = 4 + z;
+				double ry = 3 + z * 0.7;
+				for(int y = 0; y < H; y++) {
+					for(int x = 0; x < W; x++) {
+						double dx = (x - W / 2.0) / rx;
+						double dy = (y - H / 2.0) / ry;
+						if(dx * dx + dy * dy <= 1) {
+							bp.set(x, y, 1);
+						}
+					}
+				}
+			}
+			stack.addSlice(bp);
+		}
+		ImagePlus mask = new ImagePlus("mask", stack);
+		mask.setCalibration(calibration());
+		return mask;
+	}
+
+	private static Calibration calibration() {
+		Calibration cal = new Calibration();
+		cal.pixelWidth = 0.7;
+		cal.pixelHeight = 0.7;
+		cal.pixelDepth = 3.0;
+		cal.setUnit("mm");
+		return cal;
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright [2026] [Tatsuaki Kobayashi]
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package radiomics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.FloatProcessor;
+import io.github.tatsunidas.radiomics.features.GLCMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLCMFeatures;
+import io.github.tatsunidas.radiomics.features.GLRLMFeatureType;
+import io.github.tatsunidas.radiomics.features.GLRLMFeatures;
+import io.github.tatsunidas.radiomics.features.NGLDMFeatureType;
+import io.github.tatsunidas.radiomics.features.NGLDMFeatures;
+import io.github.tatsunidas.radiomics.features.NGTDMFeatureType;
+import io.github.tatsunidas.radiomics.features.NGTDMFeatures;
+import io.github.tatsunidas.radiomics.features.RadiomicsFeature;
+import io.github.tatsunidas.radiomics.main.SlidingWindowTexture;
+import io.github.tatsunidas.radiomics.main.Utils;
+
+/**
+ * Windows slid along x have the features of the same windows counted from scratch
+ * on the image discretised once.
+ *
+ * @author tatsunidas
+ */
+public class TestSlidingWindowTexture {
+
+	private static final int W = 13;
+	private static final int H = 11;
+	private static final int S = 8;
+	private static final int FILTER = 5;
+	private static final int BINS = 6;
+
+	@Test
+	public void glcm() throws Exception {
+		for (boolean d2 : new boolean[] { false, true }) {
+			compare(GLCMFeatures.class, settings(1, 0), GLCMFeatureType.values(), d2, 1);
+		}
+		compare(GLCMFeatures.class, settings(2, 0), GLCMFeatureType.values(), false, 2);
+	}
+
+	@Test
+	public void glrlm() throws Exception {
+		for (boolean d2 : new boolean[] { false, true }) {
+			compare(GLRLMFeatures.class, settings(1, 0), GLRLMFeatureType.values(), d2, 1);
+		}
+		compare(GLRLMFeatures.class, settings(1, 0), GLRLMFeatureType.values(), false, 3);
+	}
+
+	@Test
+	public void ngtdm() throws Exception {
+		for (boolean d2 : new boolean[] { false, true }) {
+			compare(NGTDMFeatures.class, settings(1, 0), NGTDMFeatureType.values(), d2, 1);
+		}
+		compare(NGTDMFeatures.class, settings(2, 0), NGTDMFeatureType.values(), false, 2);
+	}
+
+	@Test
+	public void ngldm() throws Exception {
+		for (boolean d2 : new boolean[] { false, true }) {
+			compare(NGLDMFeatures.class, settings(1, 1), NGLDMFeatureType.values(), d2, 1);
+		}
+		compare(NGLDMFeatures.class, settings(2, 0), NGLDMFeatureType.values(), false, 2);
+	}
+
+	private static Map<String, Object> settings(int delta, int alpha) {
+		Map<String, Object> settings = new HashMap<>();
+		settings.put(RadiomicsFeature.LABEL, 1);
+		settings.put(RadiomicsFeature.USE_BIN_COUNT, true);
+		settings.put(RadiomicsFeature.nBins, BINS);
+		settings.put(RadiomicsFeature.DELTA, delta);
+		settings.put(RadiomicsFeature.ALPHA, alpha);
+		return settings;
+	}
+
+	private static void compare(Class<? extends RadiomicsFeature> family, Map<String, Object> settings, Enum<?>[] types,
+			boolean d2, int stride) throws Exception {
+		ImagePlus image = image();
+		ImagePlus mask = mask();
+		ImagePlus disc = Utils.discrete(image, mask, 1, BINS);
+		SlidingWindowTexture texture = SlidingWindowTexture.of(image, mask, family, settings, FILTER, d2);
+		int windows = 0;
+		for (int z = 0; z < S; z++) {
+			for (int y = 0; y < H; y++) {
+				for (int x = 0; x < W; x += stride) {
+					if (mask.getStack().getProcessor(z + 1).getf(x, y) < 1) {
+						continue;
+					}
+					RadiomicsFeature slid = texture.moveTo(x, y, z);
+					RadiomicsFeature counted = fromScratch(family, settings, image, disc, mask, x, y, z, d2);
+					for (Enum<?> t : types) {
+						String id = (String) t.getClass().getMethod("id").invoke(t);
+						Double expected = counted.calculate(id);
+						Double actual = slid.calculate(id);
+						String where = family.getSimpleName() + " " + t.name() + " at (" + x + "," + y + "," + z + ")";
+						if (expected == null || expected.isNaN() || expected.isInfinite()) {
+							assertEquals(expected, actual, where);
+							continue;
+						}
+						assertEquals(expected, actual, 1e-9 * Math.max(1d, Math.abs(expected)), where);
+					}
+					windows++;
+				}
+			}
+		}
+		assertTrue(windows > 50);
+	}
+
+	private static RadiomicsFeature fromScratch(Class<? extends RadiomicsFeature> family, Map<String, Object> settings,
+			ImagePlus image, ImagePlus disc, ImagePlus mask, int x, int y, int z, boolean d2) throws Exception {
+		Map<String, Object> window = new HashMap<>(settings);
+		window.put(RadiomicsFeature.PRE_DISC_IMG, crop(disc, x, y, z, d2));
+		ImagePlus img = crop(image, x, y, z, d2);
+		ImagePlus msk = crop(mask, x, y, z, d2);
+		return family.getConstructor(ImagePlus.class, ImagePlus.class, Map.class).newInstance(img, msk, window);
+	}
+
+	private static ImagePlus crop(ImagePlus imp, int cx, int cy, int cz, boolean d2) {
+		int r = FILTER / 2;
+		int x0 = Math.max(0, cx - r);
+		int y0 = Math.max(0, cy - r);
+		int x1 = Math.min(W - 1, cx + r);
+		int y1 = Math.min(H - 1, cy + r);
+		int z0 = d2 ? cz : Math.max(0, cz - r);
+		int z1 = d2 ? cz : Math.min(S - 1, cz + r);
+		ImageStack stack = new ImageStack(x1 - x0 + 1, y1 - y0 + 1);
+		for (int z = z0; z <= z1; z++) {
+			FloatProcessor ip = new FloatProcessor(x1 - x0 + 1, y1 - y0 + 1);
+			for (int y = y0; y <= y1; y++) {
+				for (int x = x0; x <= x1; x++) {
+					ip.setf(x - x0, y - y0, imp.getStack().getProcessor(z + 1).getf(x, y));
+				}
+			}
+			stack.addSlice(ip);
+		}
+		return new ImagePlus("window", stack);
+	}
+
+	/*
+	 * few grey values, so that runs and dependent neighbours are common.
+	 */
+	private static ImagePlus image() {
+		Random random = new Random(11);
+		ImageStack stack = new ImageStack(W, H);
+		for (int z = 0; z < S; z++) {
+			FloatProcessor ip = new FloatProcessor(W, H);
+			for (int y = 0; y < H; y++) {
+				for (int x = 0; x < W; x++) {
+					ip.setf(x, y, random.nextInt(3) == 0 ? 10f * random.nextInt(BINS) : 10f * ((x / 3 + y / 4 + z) % BINS));
+				}
+			}
+			stack.addSlice(ip);
+		}
+		return new ImagePlus("image", stack);
+	}
+
+	/*
+	 * an ellipsoid with holes, touching the sides of the image.
+	 */
+	private static ImagePlus mask() {
+		Random random = new Random(7);
+		ImageStack stack = new ImageStack(W, H);
+		for (int z = 0; z < S; z++) {
+			FloatProcessor ip = new FloatProcessor(W, H);
+			for (int y = 0; y < H; y++) {
+				for (int x = 0; x < W; x++) {
+					double dx = (x - W / 2) / (W / 2d);
+					double dy = (y - H / 2) / (H / 2d);
+					double dz = (z - S / 2) / (S / 2d);
+					boolean in = dx * dx + dy * dy + dz * dz <= 1.2 && random.nextInt(8) != 0;
+					ip.setf(x, y, in ? 1f : 0f);
+				}
+			}
+			stack.addSlice(ip);
+		}
+		return new ImagePlus("mask", stack);
+	}
+}